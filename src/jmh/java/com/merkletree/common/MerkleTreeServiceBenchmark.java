@@ -0,0 +1,179 @@
+package com.merkletree.common;
+
+import com.merkletree.MerkleTreeApplication;
+import com.merkletree.model.LeafNodesDto;
+import com.merkletree.regular.services.MerkleTreeService;
+import com.merkletree.sparse.service.SparseMerkleTreeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction, update and proof paths of Merkle Trees stored through JPA in the in-memory database. The counterpart
+ * without the database is {@code MerkleTreeOperationsBenchmark}. Every 64th leaf node of a sparse Merkle Tree is
+ * populated, sparse Merkle Trees are always stored in rows, so their results do not depend on the storage. A regular
+ * Merkle Tree of 2^22 leaf nodes stored in rows needs about 6 GiB of heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class MerkleTreeServiceBenchmark
+{
+    static final int SPARSE_LEAF_DISTANCE = 64;
+
+    @Param({"REGULAR", "SPARSE"})
+    private String variant;
+
+    @Param({"ROWS", "CHUNKS"})
+    private String storage;
+
+    @Param({"10", "14", "18", "22"})
+    private int leafExponent;
+
+    private int numberOfLeafNodes;
+
+    private LeafNodesDto leafNodesDto;
+
+    @Setup
+    public void setUp()
+    {
+        numberOfLeafNodes = 1 << leafExponent;
+
+        var dataPoints = new HashMap<String, String>();
+
+        for (int i = 0; i < numberOfLeafNodes; i += isSparse() ? SPARSE_LEAF_DISTANCE : 1)
+        {
+            dataPoints.put(String.valueOf(i), "leaf-" + i);
+        }
+
+        leafNodesDto = new LeafNodesDto().dataPoints(dataPoints);
+
+        if (isSparse())
+        {
+            leafNodesDto.size(numberOfLeafNodes);
+        }
+    }
+
+    /**
+     * An application with an empty database per iteration, so the created Merkle Trees do not pile up.
+     */
+    @State(Scope.Benchmark)
+    public static class EmptyDatabase
+    {
+        private ConfigurableApplicationContext applicationContext;
+
+        private AbstractMerkleTreeService merkleTreeService;
+
+        @Setup(Level.Iteration)
+        public void setUp(MerkleTreeServiceBenchmark benchmark)
+        {
+            applicationContext = benchmark.startApplication();
+
+            merkleTreeService = benchmark.getMerkleTreeService(applicationContext);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown()
+        {
+            applicationContext.close();
+        }
+    }
+
+    /**
+     * An application with one stored Merkle Tree per trial.
+     */
+    @State(Scope.Benchmark)
+    public static class StoredMerkleTree
+    {
+        private ConfigurableApplicationContext applicationContext;
+
+        private AbstractMerkleTreeService merkleTreeService;
+
+        private UUID merkleTreeId;
+
+        @Setup
+        public void setUp(MerkleTreeServiceBenchmark benchmark)
+        {
+            applicationContext = benchmark.startApplication();
+
+            merkleTreeService = benchmark.getMerkleTreeService(applicationContext);
+
+            merkleTreeId = merkleTreeService.createMerkleTree(benchmark.leafNodesDto);
+        }
+
+        @TearDown
+        public void tearDown()
+        {
+            applicationContext.close();
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public UUID createMerkleTree(EmptyDatabase emptyDatabase)
+    {
+        return emptyDatabase.merkleTreeService.createMerkleTree(leafNodesDto);
+    }
+
+    @Benchmark
+    public UUID updateLeaf(StoredMerkleTree storedMerkleTree)
+    {
+        var leafIndex = getRandomLeafIndex();
+
+        var updatedDataPoints = Map.of(String.valueOf(leafIndex), "updated-" + ThreadLocalRandom.current().nextInt());
+
+        return storedMerkleTree.merkleTreeService.updateLeaf(storedMerkleTree.merkleTreeId, new LeafNodesDto().dataPoints(updatedDataPoints));
+    }
+
+    @Benchmark
+    public List<byte[]> getProofOfMembership(StoredMerkleTree storedMerkleTree)
+    {
+        var leafIndex = getRandomLeafIndex();
+
+        return storedMerkleTree.merkleTreeService.getProofOfMembership(storedMerkleTree.merkleTreeId, leafIndex, "leaf-" + leafIndex);
+    }
+
+    private boolean isSparse()
+    {
+        return "SPARSE".equals(variant);
+    }
+
+    private ConfigurableApplicationContext startApplication()
+    {
+        // A database of its own per application, an application of a previous iteration may still hold its database
+        return new SpringApplicationBuilder(MerkleTreeApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--logging.level.com.merkletree=WARN",
+                        "--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_ON_EXIT=FALSE",
+                        "--merkle-tree.storage.layout=" + storage);
+    }
+
+    private AbstractMerkleTreeService getMerkleTreeService(ConfigurableApplicationContext applicationContext)
+    {
+        return isSparse() ? applicationContext.getBean(SparseMerkleTreeService.class) : applicationContext.getBean(MerkleTreeService.class);
+    }
+
+    /**
+     * Returns a random leaf index, one of the populated leaf nodes for a sparse Merkle Tree.
+     */
+    private int getRandomLeafIndex()
+    {
+        var leafIndex = ThreadLocalRandom.current().nextInt(numberOfLeafNodes);
+
+        return isSparse() ? leafIndex - leafIndex % SPARSE_LEAF_DISTANCE : leafIndex;
+    }
+}
@@ -0,0 +1,163 @@
+package com.merkletree.common;
+
+import com.merkletree.MerkleTreeApplication;
+import com.merkletree.model.LeafNodesDto;
+import com.merkletree.regular.services.MerkleTreeService;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load test of proofs of membership over HTTP that compares the request handling on the Tomcat platform threads with
+ * the one on virtual threads ({@code merkle-tree.threads.virtual}). For both modes the application is started on a
+ * random port with one stored Merkle Tree. Every concurrency level keeps that many proof requests in flight until
+ * {@code loadTest.requests} requests completed and reports the throughput and the p50 and p99 latency. Virtual threads
+ * need a Java 21 runtime, on Java 17 both modes handle the requests on platform threads. Client and service share the
+ * machine, so the open files limit has to exceed twice the highest concurrency.
+ */
+public class ProofLoadTest
+{
+    public static void main(String[] args) throws Exception
+    {
+        var concurrencyLevels = Arrays.stream(System.getProperty("loadTest.concurrency", "1000,2000,5000,10000").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+
+        var requests = Integer.getInteger("loadTest.requests", 50000);
+
+        var numberOfLeafNodes = 1 << Integer.getInteger("loadTest.leafExponent", 14);
+
+        var storage = System.getProperty("loadTest.storage", "CHUNKS");
+
+        var maxConcurrency = Arrays.stream(concurrencyLevels).max().orElse(1);
+
+        System.out.printf("Java %d, %d leaf nodes stored in %s, %d requests per level%n", Runtime.version().feature(),
+                numberOfLeafNodes, storage, requests);
+        System.out.printf("%-8s %11s %12s %10s %10s %8s%n", "threads", "concurrency", "requests/s", "p50 ms", "p99 ms", "errors");
+
+        for (var virtual : new boolean[]{false, true})
+        {
+            try (var applicationContext = startApplication(virtual, storage, maxConcurrency))
+            {
+                var proofUris = createProofUris(applicationContext, numberOfLeafNodes);
+
+                var httpClient = HttpClient.newHttpClient();
+
+                // Warm up the service and open the connections of the highest concurrency level
+                run(httpClient, proofUris, maxConcurrency, Math.max(requests / 5, maxConcurrency));
+
+                for (var concurrency : concurrencyLevels)
+                {
+                    var result = run(httpClient, proofUris, concurrency, requests);
+
+                    System.out.printf("%-8s %11d %12.0f %10.2f %10.2f %8d%n", virtual ? "virtual" : "platform", concurrency,
+                            result[0], result[1] / 1_000_000, result[2] / 1_000_000, (long) result[3]);
+                }
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(boolean virtual, String storage, int maxConcurrency)
+    {
+        // Tomcat accepts all connections of the client, so the comparison is not limited by refused connections
+        return new SpringApplicationBuilder(MerkleTreeApplication.class)
+                .run("--server.port=0",
+                        "--logging.level.com.merkletree=WARN",
+                        "--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_ON_EXIT=FALSE",
+                        "--merkle-tree.storage.layout=" + storage,
+                        "--merkle-tree.threads.virtual=" + virtual,
+                        "--server.tomcat.max-connections=" + 2 * maxConcurrency,
+                        "--server.tomcat.accept-count=" + maxConcurrency,
+                        "--server.tomcat.max-keep-alive-requests=-1");
+    }
+
+    /**
+     * Creates the Merkle Tree and returns the URIs of proofs of membership of random leaf nodes.
+     */
+    private static URI[] createProofUris(ConfigurableApplicationContext applicationContext, int numberOfLeafNodes)
+    {
+        var dataPoints = new HashMap<String, String>();
+
+        for (int i = 0; i < numberOfLeafNodes; i++)
+        {
+            dataPoints.put(String.valueOf(i), "leaf-" + i);
+        }
+
+        var merkleTreeId = applicationContext.getBean(MerkleTreeService.class).createMerkleTree(new LeafNodesDto().dataPoints(dataPoints));
+
+        var port = applicationContext.getEnvironment().getProperty("local.server.port");
+
+        var proofUris = new URI[4096];
+
+        for (int i = 0; i < proofUris.length; i++)
+        {
+            var leafIndex = ThreadLocalRandom.current().nextInt(numberOfLeafNodes);
+
+            proofUris[i] = URI.create("http://localhost:" + port + "/merkle-tree/" + merkleTreeId + "/membership?leafIndex="
+                    + leafIndex + "&leafValue=leaf-" + leafIndex);
+        }
+
+        return proofUris;
+    }
+
+    /**
+     * Sends the requests with the provided number in flight and returns the requests per second, the p50 and p99
+     * latency in nanoseconds and the number of failed requests.
+     */
+    private static double[] run(HttpClient httpClient, URI[] proofUris, int concurrency, int requests) throws InterruptedException
+    {
+        var latencies = new long[requests];
+
+        var errors = new AtomicInteger();
+
+        var inFlight = new Semaphore(concurrency);
+
+        var completed = new CountDownLatch(requests);
+
+        var start = System.nanoTime();
+
+        for (int i = 0; i < requests; i++)
+        {
+            inFlight.acquire();
+
+            var request = i;
+
+            var requestStart = System.nanoTime();
+
+            httpClient.sendAsync(HttpRequest.newBuilder(proofUris[i % proofUris.length]).build(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, throwable) ->
+                    {
+                        latencies[request] = System.nanoTime() - requestStart;
+
+                        if (throwable != null || response.statusCode() != 200)
+                        {
+                            errors.incrementAndGet();
+                        }
+
+                        inFlight.release();
+
+                        completed.countDown();
+                    });
+        }
+
+        completed.await();
+
+        var elapsedTime = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+
+        return new double[]{requests * 1_000_000_000.0 / elapsedTime, latencies[requests / 2], latencies[(int) Math.ceil(requests * 0.99) - 1],
+                errors.get()};
+    }
+}
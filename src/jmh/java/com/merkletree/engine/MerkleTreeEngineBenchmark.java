@@ -0,0 +1,67 @@
+package com.merkletree.engine;
+
+import com.merkletree.hash.DigestPool;
+import com.merkletree.hash.HashService;
+import com.merkletree.hash.HashingScheme;
+import org.bouncycastle.crypto.digests.KeccakDigest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling of the tree construction with the number of build threads. A parallelism of 1 runs the sequential build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class MerkleTreeEngineBenchmark
+{
+    @Param({"16", "20", "24"})
+    private int leafExponent;
+
+    @Param({"1", "2", "4", "8"})
+    private int parallelism;
+
+    private List<String> leafValues;
+
+    private ForkJoinPool buildPool;
+
+    private MerkleTreeEngine merkleTreeEngine;
+
+    @Setup
+    public void setUp()
+    {
+        var hashService = new HashService(new DigestPool(() -> new KeccakDigest(256), 4 * parallelism));
+
+        buildPool = new ForkJoinPool(parallelism);
+
+        merkleTreeEngine = new MerkleTreeEngine(hashService, buildPool, parallelism > 1 ? 1 : Integer.MAX_VALUE);
+
+        var numberOfLeafNodes = 1 << leafExponent;
+
+        leafValues = new ArrayList<>(numberOfLeafNodes);
+
+        for (int i = 0; i < numberOfLeafNodes; i++)
+        {
+            leafValues.add("leaf-" + i);
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        buildPool.shutdown();
+    }
+
+    @Benchmark
+    public FlatMerkleTree createMerkleTree()
+    {
+        return merkleTreeEngine.createMerkleTree(leafValues, HashingScheme.BINARY);
+    }
+}
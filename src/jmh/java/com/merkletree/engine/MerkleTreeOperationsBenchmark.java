@@ -0,0 +1,196 @@
+package com.merkletree.engine;
+
+import com.merkletree.hash.DigestPool;
+import com.merkletree.hash.HashService;
+import com.merkletree.hash.HashingScheme;
+import org.bouncycastle.crypto.digests.KeccakDigest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction, update and proof paths of regular and sparse Merkle Trees held in memory, without the database. The
+ * counterpart on the stored Merkle Trees is {@code MerkleTreeServiceBenchmark}. Every 64th leaf node of a sparse
+ * Merkle Tree is populated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MerkleTreeOperationsBenchmark
+{
+    static final int SPARSE_LEAF_DISTANCE = 64;
+
+    @Param({"REGULAR", "SPARSE"})
+    private String variant;
+
+    @Param({"10", "14", "18", "22"})
+    private int leafExponent;
+
+    private HashService hashService;
+
+    private ForkJoinPool buildPool;
+
+    private MerkleTreeEngine merkleTreeEngine;
+
+    private int numberOfLeafNodes;
+
+    private List<String> leafValues;
+
+    private FlatMerkleTree merkleTree;
+
+    private Map<Integer, byte[]> sparseHashes;
+
+    @Setup
+    public void setUp()
+    {
+        hashService = new HashService(new DigestPool(() -> new KeccakDigest(256), 4 * Runtime.getRuntime().availableProcessors()));
+
+        buildPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+        merkleTreeEngine = new MerkleTreeEngine(hashService, buildPool, 16384);
+
+        numberOfLeafNodes = 1 << leafExponent;
+
+        leafValues = new ArrayList<>(numberOfLeafNodes);
+
+        for (int i = 0; i < numberOfLeafNodes; i++)
+        {
+            leafValues.add("leaf-" + i);
+        }
+
+        if (isSparse())
+        {
+            sparseHashes = createSparseMerkleTree();
+        } else
+        {
+            merkleTree = createMerkleTree();
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        buildPool.shutdown();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object create()
+    {
+        return isSparse() ? createSparseMerkleTree() : createMerkleTree();
+    }
+
+    /**
+     * Updates one leaf node like the service does: reads the sibling hashes of its path, rehashes the path and writes
+     * the new hashes back.
+     */
+    @Benchmark
+    public byte[] updateLeaf()
+    {
+        var leafIndex = getRandomLeafIndex();
+
+        var merkleTreePaths = new MerkleTreePaths(numberOfLeafNodes, List.of(leafIndex));
+
+        var hashes = new HashMap<Integer, byte[]>();
+
+        hashes.put(leafIndex, hashService.hashLeaf("updated-" + leafIndex));
+
+        for (var index : merkleTreePaths.getSiblingIndices())
+        {
+            var hash = getHash(index);
+
+            if (hash != null)
+            {
+                hashes.put(index, hash);
+            }
+        }
+
+        merkleTreeEngine.putDefaultHashes(merkleTreePaths, hashes, HashingScheme.BINARY);
+
+        merkleTreeEngine.hashPaths(merkleTreePaths, hashes, HashingScheme.BINARY);
+
+        if (isSparse())
+        {
+            sparseHashes.put(leafIndex, hashes.get(leafIndex));
+
+            merkleTreePaths.getNodeIndices().forEach(index -> sparseHashes.put(index, hashes.get(index)));
+        } else
+        {
+            merkleTree.setHash(leafIndex, hashes.get(leafIndex));
+
+            merkleTreePaths.getNodeIndices().forEach(index -> merkleTree.setHash(index, hashes.get(index)));
+        }
+
+        return hashes.get(2 * numberOfLeafNodes - 2);
+    }
+
+    @Benchmark
+    public List<byte[]> getProofOfMembership()
+    {
+        var index = getRandomLeafIndex();
+
+        var proofHashes = new ArrayList<byte[]>(leafExponent);
+
+        for (int level = 0; level < leafExponent; level++)
+        {
+            var siblingIndex = FlatMerkleTree.getSiblingIndex(index);
+
+            var hash = getHash(siblingIndex);
+
+            proofHashes.add(hash != null ? hash : merkleTreeEngine.getDefaultHash(HashingScheme.BINARY, level));
+
+            index = FlatMerkleTree.getParentIndex(numberOfLeafNodes, index);
+        }
+
+        return proofHashes;
+    }
+
+    private boolean isSparse()
+    {
+        return "SPARSE".equals(variant);
+    }
+
+    private FlatMerkleTree createMerkleTree()
+    {
+        return merkleTreeEngine.createMerkleTree(leafValues, HashingScheme.BINARY);
+    }
+
+    private Map<Integer, byte[]> createSparseMerkleTree()
+    {
+        var leafHashes = new HashMap<Integer, byte[]>();
+
+        for (int i = 0; i < numberOfLeafNodes; i += SPARSE_LEAF_DISTANCE)
+        {
+            leafHashes.put(i, hashService.hashLeaf(leafValues.get(i)));
+        }
+
+        return merkleTreeEngine.createSparseMerkleTree(numberOfLeafNodes, leafHashes, HashingScheme.BINARY);
+    }
+
+    /**
+     * Returns the hash of the node, null for an empty subtree of a sparse Merkle Tree.
+     */
+    private byte[] getHash(int index)
+    {
+        return isSparse() ? sparseHashes.get(index) : merkleTree.getHash(index);
+    }
+
+    /**
+     * Returns a random leaf index, one of the populated leaf nodes for a sparse Merkle Tree.
+     */
+    private int getRandomLeafIndex()
+    {
+        var leafIndex = ThreadLocalRandom.current().nextInt(numberOfLeafNodes);
+
+        return isSparse() ? leafIndex - leafIndex % SPARSE_LEAF_DISTANCE : leafIndex;
+    }
+}
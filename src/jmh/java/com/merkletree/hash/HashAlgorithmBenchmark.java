@@ -0,0 +1,50 @@
+package com.merkletree.hash;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the bundled hash algorithms on the parent hash of two binary nodes, the hash a Merkle Tree calculates
+ * most often, e.g. {@code ./gradlew jmh -Pjmh.includes=HashAlgorithmBenchmark -Pjmh.params=hashAlgorithm=SHA_256}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashAlgorithmBenchmark
+{
+    @Param({"KECCAK_256", "SHA_256", "SHA3_256", "BLAKE2B_256", "BLAKE2S_256", "BLAKE3_256"})
+    private String hashAlgorithm;
+
+    private HashService hashService;
+
+    private byte[] leftHash;
+
+    private byte[] rightHash;
+
+    @Setup
+    public void setUp()
+    {
+        var algorithm = BundledHashAlgorithm.valueOf(hashAlgorithm);
+
+        hashService = new HashService(new DigestPool(algorithm::createDigest, 4 * Runtime.getRuntime().availableProcessors()));
+
+        leftHash = hashService.hashLeaf("left");
+        rightHash = hashService.hashLeaf("right");
+    }
+
+    @Benchmark
+    public byte[] hashPair()
+    {
+        return hashService.hashPair(leftHash, rightHash, HashingScheme.BINARY);
+    }
+
+    @Benchmark
+    public byte[] hashLeaf()
+    {
+        return hashService.hashLeaf("data point");
+    }
+}
@@ -0,0 +1,63 @@
+package com.merkletree.hash;
+
+import org.bouncycastle.crypto.digests.KeccakDigest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the shared hash service. Run with {@code -t 1}, {@code -t 2}, ... up to the number of cores to obtain
+ * the scaling per core, e.g. {@code ./gradlew jmh -Pjmh.includes=HashServiceBenchmark -Pjmh.threads=4}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashServiceBenchmark
+{
+    private HashService hashService;
+
+    private Map<Integer, String> leafs;
+
+    private String leftHash;
+
+    private String rightHash;
+
+    @Setup
+    public void setUp()
+    {
+        hashService = new HashService(new DigestPool(() -> new KeccakDigest(256), 4 * Runtime.getRuntime().availableProcessors()));
+
+        leafs = new HashMap<>();
+
+        for (int i = 0; i < 1024; i++)
+        {
+            leafs.put(i, "leaf-" + i);
+        }
+
+        leftHash = hashService.hashData("left");
+        rightHash = hashService.hashData("right");
+    }
+
+    @Benchmark
+    public String hashData()
+    {
+        return hashService.hashData("data point");
+    }
+
+    @Benchmark
+    public String getParentHash()
+    {
+        return hashService.getParentHash(leftHash, rightHash);
+    }
+
+    @Benchmark
+    public String calculateMerkleProof()
+    {
+        return hashService.calculateMerkleProof(leafs);
+    }
+}
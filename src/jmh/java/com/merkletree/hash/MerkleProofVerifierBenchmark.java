@@ -0,0 +1,115 @@
+package com.merkletree.hash;
+
+import com.merkletree.engine.FlatMerkleTree;
+import com.merkletree.engine.MerkleTreeEngine;
+import org.bouncycastle.crypto.digests.KeccakDigest;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the proof verification for bulk jobs, every thread uses its own verifier. Run with {@code -prof gc} to
+ * confirm that the verification does not allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MerkleProofVerifierBenchmark
+{
+    private static final int NUMBER_OF_PROOFS = 1024;
+
+    @Param({"10", "20"})
+    private int leafExponent;
+
+    @Param({"BINARY", "HEX_CONCATENATION"})
+    private HashingScheme hashingScheme;
+
+    private HashService hashService;
+
+    private byte[][] leafHashes;
+
+    private int[] leafIndices;
+
+    private byte[][][] proofs;
+
+    private byte[] rootHash;
+
+    @State(Scope.Thread)
+    public static class VerifierState
+    {
+        private MerkleProofVerifier proofVerifier;
+
+        private int proofIndex;
+
+        @Setup
+        public void setUp(MerkleProofVerifierBenchmark benchmark)
+        {
+            proofVerifier = benchmark.hashService.createProofVerifier(benchmark.hashingScheme);
+        }
+    }
+
+    @Setup
+    public void setUp()
+    {
+        hashService = new HashService(new DigestPool(() -> new KeccakDigest(256), 4 * Runtime.getRuntime().availableProcessors()));
+
+        var leafValues = new ArrayList<String>();
+
+        for (int i = 0; i < 1 << leafExponent; i++)
+        {
+            leafValues.add("leaf-" + i);
+        }
+
+        var buildPool = new ForkJoinPool(1);
+
+        FlatMerkleTree flatMerkleTree;
+
+        try
+        {
+            flatMerkleTree = new MerkleTreeEngine(hashService, buildPool, Integer.MAX_VALUE)
+                    .createMerkleTree(leafValues, hashingScheme);
+        } finally
+        {
+            buildPool.shutdown();
+        }
+
+        var random = new Random(42);
+
+        leafHashes = new byte[NUMBER_OF_PROOFS][];
+        leafIndices = new int[NUMBER_OF_PROOFS];
+        proofs = new byte[NUMBER_OF_PROOFS][leafExponent][];
+
+        for (int i = 0; i < NUMBER_OF_PROOFS; i++)
+        {
+            var index = random.nextInt(1 << leafExponent);
+
+            leafHashes[i] = flatMerkleTree.getHash(index);
+            leafIndices[i] = index;
+
+            for (int level = 0; level < leafExponent; level++)
+            {
+                proofs[i][level] = flatMerkleTree.getHash(FlatMerkleTree.getSiblingIndex(index));
+
+                index = flatMerkleTree.getParentIndex(index);
+            }
+        }
+
+        rootHash = flatMerkleTree.getRootHash();
+    }
+
+    @Benchmark
+    public boolean verify(VerifierState state)
+    {
+        var i = state.proofIndex;
+
+        state.proofIndex = (i + 1) % NUMBER_OF_PROOFS;
+
+        return state.proofVerifier.verify(leafHashes[i], leafIndices[i], proofs[i], rootHash);
+    }
+}
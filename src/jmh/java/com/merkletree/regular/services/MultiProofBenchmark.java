@@ -0,0 +1,98 @@
+package com.merkletree.regular.services;
+
+import com.merkletree.MerkleTreeApplication;
+import com.merkletree.engine.MultiProof;
+import com.merkletree.model.LeafNodesDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the time of one multiproof against a proof of membership per leaf for the same batch of leafs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class MultiProofBenchmark
+{
+    @Param({"16"})
+    private int leafExponent;
+
+    @Param({"16", "256", "4096"})
+    private int numberOfProofs;
+
+    private ConfigurableApplicationContext applicationContext;
+
+    private MerkleTreeService merkleTreeService;
+
+    private UUID merkleTreeId;
+
+    private Map<Integer, String> proofLeafValues;
+
+    @Setup
+    public void setUp()
+    {
+        applicationContext = new SpringApplicationBuilder(MerkleTreeApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--logging.level.com.merkletree=WARN");
+
+        merkleTreeService = applicationContext.getBean(MerkleTreeService.class);
+
+        var numberOfLeafNodes = 1 << leafExponent;
+
+        var dataPoints = new HashMap<String, String>();
+
+        for (int i = 0; i < numberOfLeafNodes; i++)
+        {
+            dataPoints.put(String.valueOf(i), "leaf-" + i);
+        }
+
+        merkleTreeId = merkleTreeService.createMerkleTree(new LeafNodesDto().dataPoints(dataPoints));
+
+        var random = new Random(42);
+
+        proofLeafValues = new HashMap<>();
+
+        while (proofLeafValues.size() < numberOfProofs)
+        {
+            var leafIndex = random.nextInt(numberOfLeafNodes);
+
+            proofLeafValues.put(leafIndex, "leaf-" + leafIndex);
+        }
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public MultiProof multiProof()
+    {
+        return merkleTreeService.getMultiProof(merkleTreeId, proofLeafValues);
+    }
+
+    @Benchmark
+    public int singleProofs()
+    {
+        var proofHashes = 0;
+
+        for (var proofLeafValue : proofLeafValues.entrySet())
+        {
+            proofHashes += merkleTreeService.getProofOfMembership(merkleTreeId, proofLeafValue.getKey(), proofLeafValue.getValue()).size();
+        }
+
+        return proofHashes;
+    }
+}
@@ -0,0 +1,72 @@
+package com.merkletree.regular.services;
+
+import com.merkletree.MerkleTreeApplication;
+import com.merkletree.model.LeafNodesDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency distribution (p50, p99, ...) of proofs of membership read from the database for growing trees.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ProofOfMembershipBenchmark
+{
+    @Param({"10", "14", "17"})
+    private int leafExponent;
+
+    private ConfigurableApplicationContext applicationContext;
+
+    private MerkleTreeService merkleTreeService;
+
+    private UUID merkleTreeId;
+
+    private int numberOfLeafNodes;
+
+    @Setup
+    public void setUp()
+    {
+        applicationContext = new SpringApplicationBuilder(MerkleTreeApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--logging.level.com.merkletree=WARN");
+
+        merkleTreeService = applicationContext.getBean(MerkleTreeService.class);
+
+        numberOfLeafNodes = 1 << leafExponent;
+
+        var dataPoints = new HashMap<String, String>();
+
+        for (int i = 0; i < numberOfLeafNodes; i++)
+        {
+            dataPoints.put(String.valueOf(i), "leaf-" + i);
+        }
+
+        merkleTreeId = merkleTreeService.createMerkleTree(new LeafNodesDto().dataPoints(dataPoints));
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        applicationContext.close();
+    }
+
+    @Benchmark
+    public List<byte[]> getProofOfMembership()
+    {
+        var leafIndex = ThreadLocalRandom.current().nextInt(numberOfLeafNodes);
+
+        return merkleTreeService.getProofOfMembership(merkleTreeId, leafIndex, "leaf-" + leafIndex);
+    }
+}
@@ -0,0 +1,103 @@
+package com.merkletree.regular.store;
+
+import com.merkletree.MerkleTreeApplication;
+import com.merkletree.model.LeafNodesDto;
+import com.merkletree.regular.services.MerkleTreeService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of proofs of membership per node storage. The heap used after building the tree is printed in the setup, as
+ * the mapped files live outside the heap while the JPA paths keep their rows in the in-memory database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class NodeStoreBenchmark
+{
+    @Param({"ROWS", "CHUNKS", "MAPPED"})
+    private String storage;
+
+    @Param({"17"})
+    private int leafExponent;
+
+    private ConfigurableApplicationContext applicationContext;
+
+    private MerkleTreeService merkleTreeService;
+
+    private Path storageDirectory;
+
+    private UUID merkleTreeId;
+
+    private int numberOfLeafNodes;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        storageDirectory = Files.createTempDirectory("merkle-trees");
+
+        applicationContext = new SpringApplicationBuilder(MerkleTreeApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--logging.level.com.merkletree=WARN",
+                        "--merkle-tree.storage.layout=" + storage,
+                        "--merkle-tree.storage.directory=" + storageDirectory);
+
+        merkleTreeService = applicationContext.getBean(MerkleTreeService.class);
+
+        numberOfLeafNodes = 1 << leafExponent;
+
+        var heapBefore = usedHeapAfterGc();
+
+        var dataPoints = new HashMap<String, String>();
+
+        for (int i = 0; i < numberOfLeafNodes; i++)
+        {
+            dataPoints.put(String.valueOf(i), "leaf-" + i);
+        }
+
+        merkleTreeId = merkleTreeService.createMerkleTree(new LeafNodesDto().dataPoints(dataPoints));
+
+        dataPoints = null;
+
+        System.out.printf("%nHeap used by the stored tree (%s): %d KiB%n", storage, (usedHeapAfterGc() - heapBefore) / 1024);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        applicationContext.close();
+
+        FileSystemUtils.deleteRecursively(storageDirectory);
+    }
+
+    @Benchmark
+    public List<byte[]> getProofOfMembership()
+    {
+        var leafIndex = ThreadLocalRandom.current().nextInt(numberOfLeafNodes);
+
+        return merkleTreeService.getProofOfMembership(merkleTreeId, leafIndex, "leaf-" + leafIndex);
+    }
+
+    private static long usedHeapAfterGc()
+    {
+        System.gc();
+
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -1,32 +1,66 @@
 package com.merkletree.common;
 
+import com.merkletree.engine.BuildProgress;
+import com.merkletree.engine.FlatMerkleTree;
+import com.merkletree.engine.MerkleTreeEngine;
+import com.merkletree.engine.MerkleTreeEngines;
+import com.merkletree.engine.MerkleTreePaths;
+import com.merkletree.engine.MultiProof;
+import com.merkletree.model.HashingSchemeDto;
 import com.merkletree.model.LeafNodesDto;
 import com.merkletree.hash.HashService;
+import com.merkletree.hash.HashServices;
+import com.merkletree.hash.HashingScheme;
 import com.merkletree.regular.model.MerkleTree;
-import com.merkletree.regular.model.nodes.AbstractNode;
+import com.merkletree.regular.model.MerkleTreeHeader;
+import com.merkletree.regular.model.NodeStorage;
 import com.merkletree.regular.model.nodes.LeafNode;
 import com.merkletree.regular.model.nodes.Node;
 import com.merkletree.regular.repositories.MerkleTreeRepository;
 import com.merkletree.regular.services.LeafNodeService;
 import com.merkletree.regular.services.NodesService;
+import com.merkletree.regular.store.LeafHashIndex;
+import com.merkletree.regular.store.NodeHashCache;
+import com.merkletree.regular.store.NodeStore;
+import com.merkletree.regular.store.NodeStores;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.security.MessageDigest;
 import java.util.*;
+import java.util.stream.IntStream;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public abstract class AbstractMerkleTreeService
 {
+    /**
+     * Number of leaf nodes or nodes inserted between two progress updates of a build.
+     */
+    static final int PROGRESS_BATCH_SIZE = 16384;
+
     protected final MerkleTreeRepository merkleTreeRepository;
 
     protected final LeafNodeService leafNodeService;
 
     protected final NodesService nodesService;
 
-    protected final HashService hashService;
+    protected final NodeStores nodeStores;
+
+    protected final NodeHashCache nodeHashCache;
+
+    protected final LeafHashIndex leafHashIndex;
+
+    protected final HashServices hashServices;
+
+    protected final MerkleTreeEngines merkleTreeEngines;
+
+    protected final MerkleTreeMetrics merkleTreeMetrics;
 
     public void verifyMerkleTreeRequest(LeafNodesDto leafNodesDto)
     {
@@ -40,6 +74,8 @@ public abstract class AbstractMerkleTreeService
         {
             throw new IllegalArgumentException("Number of leaf nodes is not binary");
         }
+
+        FlatMerkleTree.verifyNumberOfLeafNodes(numberOfLeafNodes);
     }
 
     public static List<Integer> getPrimeFactors(int number)
@@ -73,52 +109,164 @@ public abstract class AbstractMerkleTreeService
 
     }
 
-    public ArrayList<Node> getNodes(List<? extends AbstractNode> nodes)
+    /**
+     * Trees persisted before the number of leaf nodes was stored count their leaf nodes. Append-only Merkle Trees do
+     * not use the node indices of a binary Merkle Tree and are rejected.
+     */
+    public int getNumberOfLeafNodes(MerkleTreeHeader merkleTree)
     {
-        if (nodes == null)
+        if (Boolean.TRUE.equals(merkleTree.getAppendOnly()))
         {
-            throw new IllegalArgumentException("Provided leaf node hashes are null");
+            throw new IllegalArgumentException("Merkle Tree with provided id is append-only");
         }
 
-        var parentNodes = new ArrayList<Node>();
+        if (merkleTree.getNumberOfLeafNodes() != null)
+        {
+            return merkleTree.getNumberOfLeafNodes();
+        }
+
+        return (int) leafNodeService.countLeafNodes(merkleTree.getId());
+    }
+
+    public HashingScheme getHashingScheme(MerkleTreeHeader merkleTree)
+    {
+        return merkleTree.getHashingScheme() == null ? HashingScheme.HEX_CONCATENATION : merkleTree.getHashingScheme();
+    }
 
-        for (int i = 0; i < nodes.size(); i += 2)
+    public HashingScheme getHashingScheme(LeafNodesDto leafNodesDto)
+    {
+        return getHashingScheme(leafNodesDto.getHashingScheme());
+    }
+
+    public HashingScheme getHashingScheme(HashingSchemeDto hashingSchemeDto)
+    {
+        if (hashingSchemeDto == null)
         {
-            var parentNode = new Node();
+            return HashingScheme.BINARY;
+        }
 
-            // Add child nodes to parent node
-            parentNode.setChildNodes(Arrays.asList(nodes.get(i).getIndex(), nodes.get(i + 1).getIndex()));
+        return HashingScheme.valueOf(hashingSchemeDto.name());
+    }
 
-            // Set the hash value of the node, calculated from the hash value of the respective child nodes
-            parentNode.setHashValue(hashService.getParentHash(nodes.get(i).getHashValue(), nodes.get(i + 1).getHashValue()));
+    /**
+     * Merkle Trees persisted before the hash algorithm was introduced use Keccak 256.
+     */
+    public String getHashAlgorithm(MerkleTreeHeader merkleTree)
+    {
+        return hashServices.getAlgorithm(merkleTree.getHashAlgorithm());
+    }
 
-            // set the node's index
-            int index;
-            if (parentNodes.isEmpty())
-            {
-                index = nodes.stream().max(Comparator.comparingInt(AbstractNode::getIndex)).orElseThrow().getIndex() + 1;
+    /**
+     * Returns the requested hash algorithm, Keccak 256 if none is requested. Throws if it is not supported.
+     */
+    public String getHashAlgorithm(LeafNodesDto leafNodesDto)
+    {
+        return hashServices.getAlgorithm(leafNodesDto.getHashAlgorithm());
+    }
 
-            } else
-            {
-                index = parentNodes.stream().max(Comparator.comparingInt(AbstractNode::getIndex)).orElseThrow().getIndex() + 1;
+    protected HashService getHashService(MerkleTreeHeader merkleTree)
+    {
+        return hashServices.getHashService(merkleTree.getHashAlgorithm());
+    }
+
+    protected MerkleTreeEngine getMerkleTreeEngine(MerkleTreeHeader merkleTree)
+    {
+        return merkleTreeEngines.getMerkleTreeEngine(merkleTree.getHashAlgorithm());
+    }
+
+    /**
+     * Returns the leaf values ordered by their index, so that the value of leaf node i is at position i.
+     */
+    public List<String> getLeafValues(List<LeafNode> leafNodes)
+    {
+        if (leafNodes == null)
+        {
+            throw new IllegalArgumentException("Provided leaf nodes are null");
+        }
 
+        var leafValues = new String[leafNodes.size()];
+
+        for (var leafNode : leafNodes)
+        {
+            var index = leafNode.getIndex();
+
+            if (index < 0 || index >= leafValues.length || leafValues[index] != null)
+            {
+                throw new IllegalArgumentException("Leaf node indices are not unique or out of range");
             }
-            parentNode.setIndex(index);
 
-            // add node to parent nodes list
-            parentNodes.add(parentNode);
+            leafValues[index] = leafNode.getLeafValue();
         }
 
-        return parentNodes;
+        return Arrays.asList(leafValues);
     }
 
-    public Map<Integer, String> getMerkleTree(UUID merkleTreeId)
+    /**
+     * Maps the inner nodes of the in-memory Merkle Tree to node entities for persistence.
+     */
+    public List<Node> getNodes(FlatMerkleTree flatMerkleTree)
     {
+        var numberOfLeafNodes = flatMerkleTree.getNumberOfLeafNodes();
+
+        var nodes = new ArrayList<Node>(numberOfLeafNodes - 1);
+
+        for (int index = numberOfLeafNodes; index < flatMerkleTree.getNumberOfNodes(); index++)
+        {
+            var leftChildIndex = flatMerkleTree.getLeftChildIndex(index);
+
+            nodes.add(Node.builder()
+                    .index(index)
+                    .childNodes(Arrays.asList(leftChildIndex, leftChildIndex + 1))
+                    .hashValue(flatMerkleTree.getHash(index))
+                    .build());
+        }
+
+        return nodes;
+    }
+
+    public Map<Integer, byte[]> getMerkleTree(UUID merkleTreeId)
+    {
+        var merkleTree = getMerkleTreeHeader(merkleTreeId);
+
+        var numberOfLeafNodes = getNumberOfLeafNodes(merkleTree);
+
+        // A cached sparse Merkle Tree contains its empty subtrees as well, which are not part of the stored nodes
+        if (!isSparse(merkleTree) && nodeHashCache.getFirstCachedIndex(numberOfLeafNodes) == 0)
+        {
+            var cachedHashes = getCachedHashes(merkleTree);
+
+            if (cachedHashes != null)
+            {
+                var merkleTreeNodes = new HashMap<Integer, byte[]>(4 * numberOfLeafNodes);
+
+                for (int index = 0; index < 2 * numberOfLeafNodes - 1; index++)
+                {
+                    merkleTreeNodes.put(index, cachedHashes.getHash(index));
+                }
+
+                return merkleTreeNodes;
+            }
+        }
+
+        if (!isStoredInRows(merkleTree))
+        {
+            var flatMerkleTree = getNodeStore(merkleTree).getMerkleTree(merkleTreeId, numberOfLeafNodes);
+
+            var merkleTreeNodes = new HashMap<Integer, byte[]>(2 * flatMerkleTree.getNumberOfNodes());
+
+            for (int index = 0; index < flatMerkleTree.getNumberOfNodes(); index++)
+            {
+                merkleTreeNodes.put(index, flatMerkleTree.getHash(index));
+            }
+
+            return merkleTreeNodes;
+        }
+
         var leafNodes = leafNodeService.getLeafNodes(merkleTreeId);
 
         var nodes = nodesService.getNodes(merkleTreeId);
 
-        var merkleTreeNodes = new HashMap<Integer, String>();
+        var merkleTreeNodes = new HashMap<Integer, byte[]>();
 
         leafNodes.forEach(
                 leafNode -> merkleTreeNodes.put(leafNode.getIndex(), leafNode.getHashValue()));
@@ -129,109 +277,937 @@ public abstract class AbstractMerkleTreeService
         return merkleTreeNodes;
     }
 
-    public String getMerkleProof()
+    /**
+     * Returns the root hash stored with the Merkle Tree. Trees persisted before the root hash was stored fall back to
+     * their node with the highest index.
+     */
+    public byte[] getMerkleProof(UUID merkleTreeId)
     {
-        var node = nodesService.getRootNode();
+        var sample = merkleTreeMetrics.start();
+
+        var merkleTree = getMerkleTreeHeader(merkleTreeId);
 
-        return node.getHashValue();
+        var rootHash = merkleTree.getRootHash();
+
+        if (rootHash == null)
+        {
+            var node = nodesService.getRootNode(merkleTreeId);
+
+            if (node == null)
+            {
+                throw new IllegalArgumentException("No root node present");
+            }
+
+            rootHash = node.getHashValue();
+        }
+
+        // Append-only Merkle Trees are read here as well, their number of leaf nodes is not the one of a binary tree
+        var numberOfLeafNodes = merkleTree.getNumberOfLeafNodes() == null ? 0 : merkleTree.getNumberOfLeafNodes();
+
+        merkleTreeMetrics.stop(sample, MerkleTreeMetrics.ROOT_LOOKUP, getVariant(merkleTree), numberOfLeafNodes);
+
+        return rootHash;
     }
 
-    public List<String> getProofOfMembership(UUID merkleTreeId, Integer proofLeafIndex, String proofLeafValue)
+    /**
+     * Returns the root hash of the provided version of a versioned Merkle Tree, the current root hash if no version
+     * is provided.
+     */
+    public byte[] getMerkleProof(UUID merkleTreeId, Integer version)
     {
-        var leafNodes = leafNodeService.getLeafNodes(merkleTreeId);
+        if (version == null)
+        {
+            return getMerkleProof(merkleTreeId);
+        }
 
-        verifyProofOfMembershipLeaf(leafNodes, proofLeafIndex, proofLeafValue);
+        var merkleTree = getMerkleTreeHeader(merkleTreeId);
 
-        var merkleTree = getMerkleTree(merkleTreeId);
+        if (version == getVersion(merkleTree))
+        {
+            return getMerkleProof(merkleTreeId);
+        }
+
+        // The lookups of the current root hash are recorded by the delegate
+        var sample = merkleTreeMetrics.start();
+
+        verifyVersion(merkleTree, version);
 
-        var proofOfMembership = new ArrayList<String>();
+        var numberOfLeafNodes = getNumberOfLeafNodes(merkleTree);
 
-        int levelOffset = 0;
-        int leafIndex = proofLeafIndex;
+        var rootNodes = numberOfLeafNodes == 1
+                ? leafNodeService.getLeafNodes(merkleTreeId, List.of(0), version)
+                : nodesService.getNodes(merkleTreeId, List.of(2 * numberOfLeafNodes - 2), version);
 
-        for (int levelSize = leafNodes.size(); levelSize > 1; levelSize = (levelSize + 1) / 2)
+        byte[] rootHash;
+
+        if (!rootNodes.isEmpty())
+        {
+            rootHash = rootNodes.get(0).getHashValue();
+        } else if (isSparse(merkleTree))
+        {
+            // The root of a sparse Merkle Tree is only stored once a leaf is populated
+            rootHash = getMerkleTreeEngine(merkleTree).getDefaultHash(getHashingScheme(merkleTree), Integer.numberOfTrailingZeros(numberOfLeafNodes));
+        } else
         {
-            int sibilingNodeIndex = (leafIndex % 2 == 0) ? leafIndex + 1 : leafIndex - 1;
+            throw new IllegalArgumentException("No root node present");
+        }
 
-            if (sibilingNodeIndex < levelSize)
+        merkleTreeMetrics.stop(sample, MerkleTreeMetrics.ROOT_LOOKUP, getVariant(merkleTree), numberOfLeafNodes);
+
+        return rootHash;
+    }
+
+    public MerkleTreeHeader getMerkleTreeHeader(UUID merkleTreeId)
+    {
+        return merkleTreeRepository.findHeaderById(merkleTreeId)
+                .orElseThrow(() -> new IllegalArgumentException("No Merkle Tree with provided id present"));
+    }
+
+    /**
+     * Returns the hashes of the sibling nodes on the path from the leaf node to the root, starting at the leaf level.
+     * Only the leaf node and the sibling nodes are read, using the index on the tree id and node index.
+     */
+    public List<byte[]> getProofOfMembership(UUID merkleTreeId, Integer proofLeafIndex, String proofLeafValue)
+    {
+        return getProofOfMembership(merkleTreeId, proofLeafIndex, proofLeafValue, null);
+    }
+
+    /**
+     * Returns the proof of membership against the root hash of the provided version of a versioned Merkle Tree, the
+     * current version if no version is provided.
+     */
+    public List<byte[]> getProofOfMembership(UUID merkleTreeId, Integer proofLeafIndex, String proofLeafValue, Integer version)
+    {
+        var sample = merkleTreeMetrics.start();
+
+        var merkleTree = getMerkleTreeHeader(merkleTreeId);
+
+        var proofVersion = version == null ? getVersion(merkleTree) : version;
+
+        verifyVersion(merkleTree, proofVersion);
+
+        if (isStoredInRows(merkleTree))
+        {
+            var leafNode = leafNodeService.getLeafNode(merkleTreeId, proofLeafIndex, proofVersion);
+
+            verifyProofOfMembershipLeaf(leafNode, proofLeafValue);
+        } else
+        {
+            verifyProofOfMembershipLeafHashes(merkleTree, Collections.singletonMap(proofLeafIndex, proofLeafValue));
+        }
+
+        var merkleTreePaths = new MerkleTreePaths(getNumberOfLeafNodes(merkleTree), List.of(proofLeafIndex));
+
+        var siblingHashes = getSiblingHashes(merkleTree, merkleTreePaths, proofVersion);
+
+        merkleTreeMetrics.stop(sample, MerkleTreeMetrics.PROOF, getVariant(merkleTree), merkleTreePaths.getNumberOfLeafNodes(),
+                "type", MerkleTreeMetrics.MEMBERSHIP);
+
+        return siblingHashes;
+    }
+
+    /**
+     * Returns the lowest index of a leaf node holding the provided value in the provided version of the Merkle Tree,
+     * the current version if no version is provided. Leaf nodes in rows are found via the index on the tree id and
+     * leaf value. A node store keeps only the leaf hashes, they are looked up in the in-memory leaf hash index or, if
+     * the index of the tree does not fit, scanned.
+     */
+    public int findLeafIndex(UUID merkleTreeId, String leafValue, Integer version)
+    {
+        if (leafValue == null)
+        {
+            throw new IllegalArgumentException("Provided data is null");
+        }
+
+        var merkleTree = getMerkleTreeHeader(merkleTreeId);
+
+        var searchVersion = version == null ? getVersion(merkleTree) : version;
+
+        verifyVersion(merkleTree, searchVersion);
+
+        var leafIndex = isStoredInRows(merkleTree)
+                ? leafNodeService.findLeafIndex(merkleTreeId, leafValue, searchVersion)
+                : findStoredLeafIndex(merkleTree, getHashService(merkleTree).hashLeaf(leafValue));
+
+        return leafIndex.orElseThrow(() -> new IllegalArgumentException("No leaf with provided leaf value present"));
+    }
+
+    private Optional<Integer> findStoredLeafIndex(MerkleTreeHeader merkleTree, byte[] leafHash)
+    {
+        var merkleTreeId = merkleTree.getId();
+
+        var numberOfLeafNodes = getNumberOfLeafNodes(merkleTree);
+
+        var nodeStore = getNodeStore(merkleTree);
+
+        var candidateIndices = leafHashIndex.getCandidateIndices(merkleTreeId, merkleTree.getRootHash(), numberOfLeafNodes,
+                leafHash, () -> nodeStore.getMerkleTree(merkleTreeId, numberOfLeafNodes));
+
+        if (candidateIndices == null)
+        {
+            var hashes = nodeStore.getMerkleTree(merkleTreeId, numberOfLeafNodes).getHashes();
+
+            for (int index = 0; index < numberOfLeafNodes; index++)
             {
-                int nodeIndex = levelOffset + sibilingNodeIndex;
-                proofOfMembership.add(merkleTree.get(nodeIndex));
+                if (Arrays.equals(hashes, index * HashService.HASH_SIZE, (index + 1) * HashService.HASH_SIZE, leafHash, 0, leafHash.length))
+                {
+                    return Optional.of(index);
+                }
             }
 
-            leafIndex /= 2;
+            return Optional.empty();
+        }
+
+        // The candidates share the first bytes of their hash, which is compared in full
+        var leafHashes = candidateIndices.isEmpty() ? Map.<Integer, byte[]>of()
+                : nodeStore.getHashes(merkleTreeId, numberOfLeafNodes, candidateIndices);
+
+        return candidateIndices.stream()
+                .filter(index -> MessageDigest.isEqual(leafHashes.get(index), leafHash))
+                .findFirst();
+    }
 
-            levelOffset += levelSize;
+    /**
+     * Checks the proof of membership against the stored root hash. Neither the leaf nodes nor the nodes are read.
+     */
+    public boolean verifyProofOfMembership(UUID merkleTreeId, Integer proofLeafIndex, String proofLeafValue,
+                                           List<byte[]> proofHashes)
+    {
+        if (proofLeafIndex == null || proofLeafValue == null || proofHashes == null)
+        {
+            throw new IllegalArgumentException("Provided data is null");
+        }
+
+        var merkleTree = getMerkleTreeHeader(merkleTreeId);
+
+        // the proof has to contain exactly one hash per level below the root
+        if (proofHashes.size() >= Integer.SIZE - 1 || getNumberOfLeafNodes(merkleTree) != 1 << proofHashes.size())
+        {
+            return false;
         }
 
-        return proofOfMembership;
+        var hashService = getHashService(merkleTree);
+
+        var proofVerifier = hashService.createProofVerifier(getHashingScheme(merkleTree));
+
+        var rootHash = merkleTree.getRootHash() != null ? merkleTree.getRootHash() : getMerkleProof(merkleTreeId);
+
+        return proofVerifier.verify(hashService.hashLeaf(proofLeafValue), proofLeafIndex, proofHashes, rootHash);
     }
 
-    public abstract void verifyProofOfMembershipLeaf(List<LeafNode> leafNodes, Integer proofLeafIndex, String proofLeafValue);
+    /**
+     * Returns a proof of membership for several leaf nodes. Sibling hashes shared by several paths are contained only
+     * once, hashes that can be calculated from the proven leaf nodes are not contained.
+     */
+    public MultiProof getMultiProof(UUID merkleTreeId, Map<Integer, String> proofLeafValues)
+    {
+        if (proofLeafValues == null || proofLeafValues.isEmpty())
+        {
+            throw new IllegalArgumentException("No leafs to prove provided");
+        }
+
+        var sample = merkleTreeMetrics.start();
+
+        var merkleTree = getMerkleTreeHeader(merkleTreeId);
+
+        if (isStoredInRows(merkleTree))
+        {
+            var leafNodes = leafNodeService.getLeafNodes(merkleTreeId, proofLeafValues.keySet());
+
+            if (leafNodes.size() != proofLeafValues.size())
+            {
+                throw new IllegalArgumentException("No leaf with provided index or leaf value present");
+            }
+
+            leafNodes.forEach(leafNode -> verifyProofOfMembershipLeaf(leafNode, proofLeafValues.get(leafNode.getIndex())));
+        } else
+        {
+            verifyProofOfMembershipLeafHashes(merkleTree, proofLeafValues);
+        }
+
+        var merkleTreePaths = new MerkleTreePaths(getNumberOfLeafNodes(merkleTree), proofLeafValues.keySet());
+
+        var leafIndices = new ArrayList<>(new TreeSet<>(proofLeafValues.keySet()));
+
+        var multiProof = new MultiProof(merkleTreePaths.getNumberOfLeafNodes(), leafIndices, getSiblingHashes(merkleTree, merkleTreePaths));
 
-    public UUID createMerkleTree(List<LeafNode> leafNodes, UUID merkleTreeId)
+        merkleTreeMetrics.stop(sample, MerkleTreeMetrics.PROOF, getVariant(merkleTree), merkleTreePaths.getNumberOfLeafNodes(),
+                "type", MerkleTreeMetrics.MULTI);
+
+        return multiProof;
+    }
+
+    /**
+     * Reads the hashes of the sibling nodes of the paths, ordered by their node index. Sibling nodes that are not
+     * stored in a sparse Merkle Tree are empty subtrees and take the default hash of their level.
+     */
+    protected List<byte[]> getSiblingHashes(MerkleTreeHeader merkleTree, MerkleTreePaths merkleTreePaths)
     {
-        var parentNodes = getNodes(leafNodes);
+        return getSiblingHashes(merkleTree, merkleTreePaths, getVersion(merkleTree));
+    }
+
+    protected List<byte[]> getSiblingHashes(MerkleTreeHeader merkleTree, MerkleTreePaths merkleTreePaths, int version)
+    {
+        var merkleTreeId = merkleTree.getId();
+
+        var hashes = new HashMap<Integer, byte[]>();
 
-        var completeNodeList = new ArrayList<>(parentNodes);
+        // Only the current version is cached, the sibling hashes below the cached levels are read
+        var cachedHashes = version == getVersion(merkleTree) ? getCachedHashes(merkleTree) : null;
 
-        while (parentNodes.size() != 1)
+        if (cachedHashes != null)
         {
-            parentNodes = getNodes(parentNodes);
+            merkleTreePaths.getSiblingIndices().stream()
+                    .filter(cachedHashes::contains)
+                    .forEach(index -> hashes.put(index, cachedHashes.getHash(index)));
+        }
+
+        if (!isStoredInRows(merkleTree))
+        {
+            var siblingIndices = getMissingIndices(merkleTreePaths.getSiblingIndices(), hashes);
 
-            completeNodeList.addAll(parentNodes);
+            if (!siblingIndices.isEmpty())
+            {
+                hashes.putAll(getNodeStore(merkleTree).getHashes(merkleTreeId, merkleTreePaths.getNumberOfLeafNodes(), siblingIndices));
+            }
+
+            return getOrderedSiblingHashes(merkleTreePaths, hashes);
         }
 
-        MerkleTree merkleTree;
+        var leafSiblingIndices = getMissingIndices(merkleTreePaths.getLeafSiblingIndices(), hashes);
 
-        if (merkleTreeId == null)
+        if (!leafSiblingIndices.isEmpty())
         {
-            merkleTree = MerkleTree.builder()
-                    .leafNodes(leafNodes)
-                    .nodes(completeNodeList)
-                    .build();
+            leafNodeService.getLeafNodes(merkleTreeId, leafSiblingIndices, version)
+                    .forEach(siblingNode -> hashes.put(siblingNode.getIndex(), siblingNode.getHashValue()));
+        }
+
+        var nodeSiblingIndices = getMissingIndices(merkleTreePaths.getNodeSiblingIndices(), hashes);
+
+        if (!nodeSiblingIndices.isEmpty())
+        {
+            nodesService.getNodes(merkleTreeId, nodeSiblingIndices, version)
+                    .forEach(siblingNode -> hashes.put(siblingNode.getIndex(), siblingNode.getHashValue()));
+        }
+
+        if (isSparse(merkleTree))
+        {
+            getMerkleTreeEngine(merkleTree).putDefaultHashes(merkleTreePaths, hashes, getHashingScheme(merkleTree));
+        }
+
+        return getOrderedSiblingHashes(merkleTreePaths, hashes);
+    }
+
+    private static List<Integer> getMissingIndices(Collection<Integer> indices, Map<Integer, byte[]> hashes)
+    {
+        return indices.stream()
+                .filter(index -> !hashes.containsKey(index))
+                .toList();
+    }
 
-            leafNodes.forEach(leafNode -> leafNode.setMerkleTree(merkleTree));
+    /**
+     * Returns the cached upper levels of the current version of the Merkle Tree, null if they are not cached.
+     */
+    private NodeHashCache.CachedHashes getCachedHashes(MerkleTreeHeader merkleTree)
+    {
+        return nodeHashCache.getHashes(merkleTree.getId(), merkleTree.getRootHash(), getNumberOfLeafNodes(merkleTree),
+                firstIndex -> getHashesFrom(merkleTree, firstIndex));
+    }
+
+    /**
+     * Reads the hashes of the current version of all nodes from the provided index to the root. Nodes that are not
+     * stored in a sparse Merkle Tree are empty subtrees and take the default hash of their level.
+     */
+    private Map<Integer, byte[]> getHashesFrom(MerkleTreeHeader merkleTree, int firstIndex)
+    {
+        var merkleTreeId = merkleTree.getId();
+
+        var numberOfLeafNodes = getNumberOfLeafNodes(merkleTree);
+
+        var indices = IntStream.rangeClosed(firstIndex, 2 * numberOfLeafNodes - 2).boxed().toList();
+
+        if (!isStoredInRows(merkleTree))
+        {
+            return getNodeStore(merkleTree).getHashes(merkleTreeId, numberOfLeafNodes, indices);
+        }
+
+        var hashes = new HashMap<Integer, byte[]>();
+
+        // The cached levels either start at the leaf level or above it
+        if (firstIndex == 0)
+        {
+            leafNodeService.getLeafNodes(merkleTreeId)
+                    .forEach(leafNode -> hashes.put(leafNode.getIndex(), leafNode.getHashValue()));
+        }
+
+        nodesService.getNodesFrom(merkleTreeId, Math.max(firstIndex, numberOfLeafNodes))
+                .forEach(node -> hashes.put(node.getIndex(), node.getHashValue()));
+
+        if (isSparse(merkleTree))
+        {
+            var hashingScheme = getHashingScheme(merkleTree);
+
+            var merkleTreeEngine = getMerkleTreeEngine(merkleTree);
+
+            indices.forEach(index -> hashes.computeIfAbsent(index,
+                    missingIndex -> merkleTreeEngine.getDefaultHash(hashingScheme, FlatMerkleTree.getLevel(numberOfLeafNodes, missingIndex))));
+        }
+
+        return hashes;
+    }
+
+    private static List<byte[]> getOrderedSiblingHashes(MerkleTreePaths merkleTreePaths, Map<Integer, byte[]> hashes)
+    {
+        // The sibling indices increase from level to level, so they are already ordered from the leafs to the root
+        var siblingHashes = new ArrayList<byte[]>();
+
+        merkleTreePaths.getSiblingIndices().forEach(index -> siblingHashes.add(hashes.get(index)));
+
+        return siblingHashes;
+    }
 
-            completeNodeList.forEach(node -> node.setMerkleTree(merkleTree));
+    /**
+     * Throws if the leaf node is not present or does not hold the provided value.
+     */
+    public abstract void verifyProofOfMembershipLeaf(LeafNode leafNode, String proofLeafValue);
+
+    /**
+     * Throws if a leaf node of a Merkle Tree in a node store is not present or does not hold the provided value. Node
+     * stores keep only the leaf hashes, so the hash of the provided value is compared.
+     */
+    private void verifyProofOfMembershipLeafHashes(MerkleTreeHeader merkleTree, Map<Integer, String> proofLeafValues)
+    {
+        var numberOfLeafNodes = getNumberOfLeafNodes(merkleTree);
+
+        proofLeafValues.forEach((index, leafValue) ->
+        {
+            if (index == null || index < 0 || index >= numberOfLeafNodes || leafValue == null)
+            {
+                throw new IllegalArgumentException("No leaf with provided index or leaf value present");
+            }
+        });
+
+        var cachedHashes = nodeHashCache.getFirstCachedIndex(numberOfLeafNodes) == 0 ? getCachedHashes(merkleTree) : null;
+
+        var leafHashes = new HashMap<Integer, byte[]>();
+
+        if (cachedHashes != null)
+        {
+            proofLeafValues.keySet().forEach(index -> leafHashes.put(index, cachedHashes.getHash(index)));
         } else
         {
-            merkleTree = merkleTreeRepository.findById(merkleTreeId).orElseThrow();
+            leafHashes.putAll(getNodeStore(merkleTree).getHashes(merkleTree.getId(), numberOfLeafNodes, proofLeafValues.keySet()));
+        }
+
+        var hashService = getHashService(merkleTree);
+
+        proofLeafValues.forEach((index, leafValue) ->
+        {
+            var leafHash = leafHashes.get(index);
+
+            if (leafHash == null || !MessageDigest.isEqual(leafHash, hashService.hashLeaf(leafValue)))
+            {
+                throw new IllegalArgumentException("No leaf with provided index or leaf value present");
+            }
+        });
+    }
+
+    public UUID createMerkleTree(List<LeafNode> leafNodes, HashingScheme hashingScheme)
+    {
+        return createMerkleTree(leafNodes, hashingScheme, false);
+    }
+
+    /**
+     * Creates the Merkle Tree in the configured node storage. Versioned Merkle Trees keep the nodes of every version
+     * and are always stored in rows.
+     */
+    public UUID createMerkleTree(List<LeafNode> leafNodes, HashingScheme hashingScheme, boolean versioned)
+    {
+        return createMerkleTree(leafNodes, hashingScheme, HashServices.DEFAULT_ALGORITHM, versioned, new BuildProgress());
+    }
+
+    /**
+     * Creates the Merkle Tree with the provided hash algorithm and reports the hashed leaf nodes, the hashed levels and
+     * the persisted nodes to the progress. Throws a CancellationException once the build is cancelled, the transaction
+     * then has to be rolled back.
+     */
+    public UUID createMerkleTree(List<LeafNode> leafNodes, HashingScheme hashingScheme, String hashAlgorithm, boolean versioned, BuildProgress progress)
+    {
+        var creation = merkleTreeMetrics.start();
+
+        var merkleTreeEngine = merkleTreeEngines.getMerkleTreeEngine(hashAlgorithm);
+
+        var leafValues = getLeafValues(leafNodes);
+
+        var numberOfLeafNodes = leafValues.size();
+
+        var flatMerkleTree = new FlatMerkleTree(numberOfLeafNodes);
+
+        var leafHashing = merkleTreeMetrics.start();
+
+        merkleTreeEngine.hashLeaves(flatMerkleTree, leafValues, progress);
+
+        var hashingTime = merkleTreeMetrics.stop(leafHashing, MerkleTreeMetrics.LEAF_HASHING, MerkleTreeMetrics.REGULAR, numberOfLeafNodes);
+
+        var construction = merkleTreeMetrics.start();
+
+        merkleTreeEngine.hashNodes(flatMerkleTree, hashingScheme, progress);
+
+        hashingTime += merkleTreeMetrics.stop(construction, MerkleTreeMetrics.CONSTRUCTION, MerkleTreeMetrics.REGULAR, numberOfLeafNodes);
+
+        merkleTreeMetrics.recordHashes(MerkleTreeMetrics.REGULAR, flatMerkleTree.getNumberOfNodes(), hashingTime);
+
+        var nodeStorage = versioned ? NodeStorage.ROWS : nodeStores.getDefaultStorage();
+
+        UUID merkleTreeId;
+
+        if (nodeStorage != NodeStorage.ROWS)
+        {
+            progress.checkCancelled();
+
+            var persistence = merkleTreeMetrics.start();
+
+            merkleTreeId = merkleTreeRepository.save(MerkleTree.builder()
+                    .hashingScheme(hashingScheme)
+                    .hashAlgorithm(hashAlgorithm)
+                    .numberOfLeafNodes(leafNodes.size())
+                    .rootHash(flatMerkleTree.getRootHash())
+                    .nodeStorage(nodeStorage)
+                    .leafNodes(new ArrayList<>())
+                    .nodes(new ArrayList<>())
+                    .build()).getId();
 
-            completeNodeList.forEach(node -> node.setMerkleTree(merkleTree));
+            nodeStores.getNodeStore(nodeStorage).saveMerkleTree(merkleTreeId, flatMerkleTree);
 
-            merkleTree.getLeafNodes().addAll(leafNodes);
+            progress.addNodesPersisted(flatMerkleTree.getNumberOfNodes());
 
-            merkleTree.getNodes().forEach(node ->
-                    completeNodeList.stream()
-                            .filter(completeNode -> completeNode.getIndex() == node.getIndex())
-                            .findFirst()
-                            .ifPresent(completeNode -> node.setHashValue(completeNode.getHashValue())));
+            merkleTreeMetrics.stop(persistence, MerkleTreeMetrics.PERSISTENCE, MerkleTreeMetrics.REGULAR, numberOfLeafNodes);
+        } else
+        {
+            leafNodes.forEach(leafNode -> leafNode.setHashValue(flatMerkleTree.getHash(leafNode.getIndex())));
+
+            merkleTreeId = saveMerkleTree(MerkleTree.builder()
+                    .hashingScheme(hashingScheme)
+                    .hashAlgorithm(hashAlgorithm)
+                    .numberOfLeafNodes(leafNodes.size())
+                    .rootHash(flatMerkleTree.getRootHash())
+                    .versioned(versioned)
+                    .nodeStorage(NodeStorage.ROWS)
+                    .leafNodes(leafNodes)
+                    .nodes(getNodes(flatMerkleTree))
+                    .build(), progress);
         }
 
-        var savedMerkleTree = merkleTreeRepository.save(merkleTree);
+        merkleTreeMetrics.stop(creation, MerkleTreeMetrics.CREATION, MerkleTreeMetrics.REGULAR, numberOfLeafNodes);
 
-        return savedMerkleTree.getId();
+        return merkleTreeId;
+    }
 
+    /**
+     * Saves the Merkle Tree and inserts its leaf nodes and nodes in JDBC batches instead of cascading the save to every
+     * single entity. Has to run in a transaction together with the creation of the Merkle Tree.
+     */
+    public UUID saveMerkleTree(MerkleTree merkleTree)
+    {
+        return saveMerkleTree(merkleTree, new BuildProgress());
     }
 
+    /**
+     * Saves the Merkle Tree and reports the inserted leaf nodes and nodes to the progress in batches of
+     * {@value #PROGRESS_BATCH_SIZE}. Throws a CancellationException once the build is cancelled.
+     */
+    public UUID saveMerkleTree(MerkleTree merkleTree, BuildProgress progress)
+    {
+        var persistence = merkleTreeMetrics.start();
+
+        var leafNodes = merkleTree.getLeafNodes();
+
+        var nodes = merkleTree.getNodes();
+
+        merkleTree.setLeafNodes(new ArrayList<>());
+        merkleTree.setNodes(new ArrayList<>());
+
+        // The rows reference the Merkle Tree, so it has to be written first
+        var merkleTreeId = merkleTreeRepository.saveAndFlush(merkleTree).getId();
+
+        var rows = 0L;
+
+        for (int from = 0; from < leafNodes.size(); from += PROGRESS_BATCH_SIZE)
+        {
+            progress.checkCancelled();
+
+            var inserted = leafNodeService.insertLeafNodes(merkleTreeId, leafNodes.subList(from, Math.min(from + PROGRESS_BATCH_SIZE, leafNodes.size())));
+
+            progress.addNodesPersisted(inserted);
+
+            rows += inserted;
+        }
+
+        for (int from = 0; from < nodes.size(); from += PROGRESS_BATCH_SIZE)
+        {
+            progress.checkCancelled();
+
+            var batch = nodes.subList(from, Math.min(from + PROGRESS_BATCH_SIZE, nodes.size()));
+
+            // The rows of the child node indices are written as well, but only the nodes count as progress
+            rows += nodesService.insertNodes(merkleTreeId, batch);
+
+            progress.addNodesPersisted(batch.size());
+        }
+
+        var variant = Boolean.TRUE.equals(merkleTree.getSparse()) ? MerkleTreeMetrics.SPARSE : MerkleTreeMetrics.REGULAR;
+
+        recordWrittenRows(variant, merkleTreeId, rows,
+                merkleTreeMetrics.stop(persistence, MerkleTreeMetrics.PERSISTENCE, variant, merkleTree.getNumberOfLeafNodes()));
+
+        return merkleTreeId;
+    }
+
+    protected void recordWrittenRows(String variant, UUID merkleTreeId, long rows, long elapsedTime)
+    {
+        merkleTreeMetrics.recordWrittenRows(variant, rows, elapsedTime);
+
+        log.debug("Wrote {} rows of Merkle Tree {} in {} ms, {} rows/s", rows, merkleTreeId, elapsedTime / 1_000_000,
+                rows * 1_000_000_000L / Math.max(elapsedTime, 1));
+    }
+
+    /**
+     * Updates the provided leaf values and recalculates only the nodes on the paths from the updated leaf nodes to
+     * the root. All leaf values are applied in one transaction: the stored hashes are read once, every node on the
+     * paths is hashed once and only the updated leaf nodes and nodes are written, in JDBC batches. In a sparse Merkle
+     * Tree leaf nodes and nodes that are not stored yet are created and missing sibling nodes take the default hash of
+     * their level. A versioned Merkle Tree keeps the updated leaf nodes and nodes and creates new ones in the next
+     * version instead.
+     */
+    @Transactional
     public UUID updateLeaf(UUID merkleTreeId, com.merkletree.model.LeafNodesDto leafNodesDto)
     {
-        leafNodesDto.getDataPoints().forEach((index, leafValue) ->
+        var sample = merkleTreeMetrics.start();
+
+        // Lock the Merkle Tree, so that concurrent updates do not overwrite each others paths or versions
+        var merkleTree = merkleTreeRepository.findLockedHeaderById(merkleTreeId)
+                .orElseThrow(() -> new IllegalArgumentException("No Merkle Tree with provided id present"));
+
+        invalidateOnRollback(merkleTreeId);
+
+        var hashingScheme = getHashingScheme(merkleTree);
+
+        var isSparse = isSparse(merkleTree);
+
+        var isVersioned = isVersioned(merkleTree);
+
+        var version = isVersioned ? getVersion(merkleTree) + 1 : getVersion(merkleTree);
+
+        var leafValues = new TreeMap<Integer, String>();
+
+        leafNodesDto.getDataPoints().forEach((index, leafValue) -> leafValues.put(Integer.parseInt(index), leafValue));
+
+        var numberOfLeafNodes = getNumberOfLeafNodes(merkleTree);
+
+        var merkleTreePaths = new MerkleTreePaths(numberOfLeafNodes, leafValues.keySet());
+
+        if (!isStoredInRows(merkleTree))
+        {
+            updateStoredLeafValues(merkleTree, merkleTreePaths, leafValues);
+
+            merkleTreeMetrics.stop(sample, MerkleTreeMetrics.UPDATE, getVariant(merkleTree), numberOfLeafNodes);
+
+            return merkleTreeId;
+        }
+
+        // One read of the stored leaf hashes and one of the stored node hashes, both in ranges of neighbouring indices
+        var leafIndices = new HashSet<>(leafValues.keySet());
+
+        leafIndices.addAll(merkleTreePaths.getLeafSiblingIndices());
+
+        var storedLeafHashes = leafNodeService.getLeafHashes(merkleTreeId, leafIndices, getVersion(merkleTree));
+
+        if (!isSparse && !storedLeafHashes.keySet().containsAll(leafValues.keySet()))
+        {
+            throw new IllegalArgumentException("No leaf with provided index present");
+        }
+
+        var nodeIndices = new HashSet<>(merkleTreePaths.getNodeIndices());
+
+        nodeIndices.addAll(merkleTreePaths.getNodeSiblingIndices());
+
+        var storedNodeHashes = nodesService.getNodeHashes(merkleTreeId, nodeIndices, getVersion(merkleTree));
+
+        var hashes = new HashMap<>(storedLeafHashes);
+
+        hashes.putAll(storedNodeHashes);
+
+        var hashService = getHashService(merkleTree);
+
+        var merkleTreeEngine = getMerkleTreeEngine(merkleTree);
+
+        leafValues.forEach((index, leafValue) -> hashes.put(index, hashService.hashLeaf(leafValue)));
+
+        if (isSparse)
+        {
+            merkleTreeEngine.putDefaultHashes(merkleTreePaths, hashes, hashingScheme);
+        }
+
+        // Every node on the paths is hashed once, level by level from the leafs to the root
+        merkleTreeEngine.hashPaths(merkleTreePaths, hashes, hashingScheme);
+
+        var persistence = merkleTreeMetrics.start();
+
+        var writtenRows = writePaths(merkleTree, merkleTreePaths, leafValues, hashes, storedLeafHashes.keySet(),
+                storedNodeHashes.keySet(), version);
+
+        recordWrittenRows(getVariant(merkleTree), merkleTreeId, writtenRows,
+                merkleTreeMetrics.stop(persistence, MerkleTreeMetrics.PERSISTENCE, getVariant(merkleTree), numberOfLeafNodes));
+
+        var rootHash = hashes.get(2 * numberOfLeafNodes - 2);
+
+        if (isVersioned)
+        {
+            merkleTreeRepository.updateVersion(merkleTreeId, version, rootHash);
+        } else
+        {
+            merkleTreeRepository.updateRootHash(merkleTreeId, rootHash);
+        }
+
+        nodeHashCache.updateHashes(merkleTreeId, hashes);
+
+        merkleTreeMetrics.stop(sample, MerkleTreeMetrics.UPDATE, getVariant(merkleTree), numberOfLeafNodes);
+
+        return merkleTreeId;
+    }
+
+    /**
+     * Drops the cached hashes and the leaf hash index of the Merkle Tree if the update is rolled back. Both are updated
+     * before the commit, so they would otherwise keep the hashes of a version that never existed until they are evicted.
+     */
+    private void invalidateOnRollback(UUID merkleTreeId)
+    {
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
         {
-            leafNodeService.updateLeafValue(merkleTreeId, Integer.parseInt(index), leafValue);
+            @Override
+            public void afterCompletion(int status)
+            {
+                if (status != STATUS_COMMITTED)
+                {
+                    nodeHashCache.invalidate(merkleTreeId);
+                    leafHashIndex.invalidate(merkleTreeId);
+                }
+            }
         });
+    }
 
-        var leafNodes = leafNodeService.getLeafNodes(merkleTreeId);
+    /**
+     * Updates the leaf hashes of a Merkle Tree in a node store. Only the sibling hashes are read, the hashes on the
+     * paths are recalculated and written back.
+     */
+    private void updateStoredLeafValues(MerkleTreeHeader merkleTree, MerkleTreePaths merkleTreePaths, Map<Integer, String> leafValues)
+    {
+        var nodeStore = getNodeStore(merkleTree);
+
+        var numberOfLeafNodes = merkleTreePaths.getNumberOfLeafNodes();
 
-        return createMerkleTree(leafNodes, merkleTreeId);
+        var hashes = new HashMap<>(nodeStore.getHashes(merkleTree.getId(), numberOfLeafNodes, merkleTreePaths.getSiblingIndices()));
+
+        var hashService = getHashService(merkleTree);
+
+        leafValues.forEach((index, leafValue) -> hashes.put(index, hashService.hashLeaf(leafValue)));
+
+        getMerkleTreeEngine(merkleTree).hashPaths(merkleTreePaths, hashes, getHashingScheme(merkleTree));
+
+        var updatedHashes = new HashMap<Integer, byte[]>();
+
+        leafValues.keySet().forEach(index -> updatedHashes.put(index, hashes.get(index)));
+
+        merkleTreePaths.getNodeIndices().forEach(index -> updatedHashes.put(index, hashes.get(index)));
+
+        var persistence = merkleTreeMetrics.start();
+
+        nodeStore.updateHashes(merkleTree.getId(), numberOfLeafNodes, updatedHashes);
+
+        merkleTreeMetrics.stop(persistence, MerkleTreeMetrics.PERSISTENCE, MerkleTreeMetrics.REGULAR, numberOfLeafNodes);
+
+        merkleTreeRepository.updateRootHash(merkleTree.getId(), hashes.get(2 * numberOfLeafNodes - 2));
+
+        nodeHashCache.updateHashes(merkleTree.getId(), updatedHashes);
+
+        var leafHashes = new HashMap<Integer, byte[]>();
+
+        leafValues.keySet().forEach(index -> leafHashes.put(index, hashes.get(index)));
+
+        // The index has to point to hashes that readers of the node store find
+        nodeStore.afterUpdate(merkleTree.getId(), () ->
+                leafHashIndex.addLeafHashes(merkleTree.getId(), leafHashes, hashes.get(2 * numberOfLeafNodes - 2)));
     }
 
+    /**
+     * Deletes the leaf nodes and nodes that belong only to versions before the provided version of a versioned Merkle
+     * Tree. Leaf nodes and nodes shared with the provided version or later ones are kept.
+     */
+    @Transactional
+    public void deleteVersionsBefore(UUID merkleTreeId, Integer version)
+    {
+        var merkleTree = merkleTreeRepository.findLockedHeaderById(merkleTreeId)
+                .orElseThrow(() -> new IllegalArgumentException("No Merkle Tree with provided id present"));
+
+        if (!isVersioned(merkleTree))
+        {
+            throw new IllegalArgumentException("Merkle Tree with provided id is not versioned");
+        }
+
+        verifyVersion(merkleTree, version);
+
+        var deletedNodes = leafNodeService.deleteVersionsBefore(merkleTreeId, version)
+                + nodesService.deleteVersionsBefore(merkleTreeId, version);
+
+        merkleTreeRepository.updateOldestVersion(merkleTreeId, version);
+
+        log.debug("Deleted {} nodes of versions before {} of Merkle Tree {}", deletedNodes, version, merkleTreeId);
+    }
+
+    /**
+     * Throws if the version is not present, i.e. newer than the current version or older than the oldest version kept.
+     */
+    private void verifyVersion(MerkleTreeHeader merkleTree, Integer version)
+    {
+        if (version == null || version < getOldestVersion(merkleTree) || version > getVersion(merkleTree))
+        {
+            throw new IllegalArgumentException("No version of the Merkle Tree with provided version present");
+        }
+    }
+
+    /**
+     * Writes the updated leaf nodes and the nodes on the paths in JDBC batches and returns the number of written rows.
+     * Stored rows of a Merkle Tree that is not versioned are updated. All other rows are inserted, i.e. the rows that
+     * were empty subtrees of a sparse Merkle Tree and all rows of a new version, as earlier versions keep their rows.
+     */
+    private long writePaths(MerkleTreeHeader merkleTree, MerkleTreePaths merkleTreePaths, Map<Integer, String> leafValues,
+                            Map<Integer, byte[]> hashes, Set<Integer> storedLeafIndices, Set<Integer> storedNodeIndices, int version)
+    {
+        var merkleTreeId = merkleTree.getId();
+
+        var isVersioned = isVersioned(merkleTree);
+
+        var nodeVersion = isVersioned ? Integer.valueOf(version) : null;
+
+        var updatedLeafValues = new HashMap<Integer, String>();
+
+        var insertedLeafNodes = new ArrayList<LeafNode>();
+
+        leafValues.forEach((index, leafValue) ->
+        {
+            if (!isVersioned && storedLeafIndices.contains(index))
+            {
+                updatedLeafValues.put(index, leafValue);
+            } else
+            {
+                insertedLeafNodes.add(LeafNode.builder()
+                        .index(index)
+                        .leafValue(leafValue)
+                        .hashValue(hashes.get(index))
+                        .version(nodeVersion)
+                        .build());
+            }
+        });
+
+        var updatedNodeIndices = new ArrayList<Integer>();
+
+        var insertedNodes = new ArrayList<Node>();
+
+        for (var index : merkleTreePaths.getNodeIndices())
+        {
+            if (!isVersioned && storedNodeIndices.contains(index))
+            {
+                updatedNodeIndices.add(index);
+            } else
+            {
+                var leftChildIndex = FlatMerkleTree.getLeftChildIndex(merkleTreePaths.getNumberOfLeafNodes(), index);
+
+                insertedNodes.add(Node.builder()
+                        .index(index)
+                        .childNodes(Arrays.asList(leftChildIndex, leftChildIndex + 1))
+                        .hashValue(hashes.get(index))
+                        .version(nodeVersion)
+                        .build());
+            }
+        }
+
+        return leafNodeService.updateLeafNodes(merkleTreeId, updatedLeafValues, hashes)
+                + leafNodeService.insertLeafNodes(merkleTreeId, insertedLeafNodes)
+                + nodesService.updateNodes(merkleTreeId, updatedNodeIndices, hashes)
+                + nodesService.insertNodes(merkleTreeId, insertedNodes);
+    }
+
+    public boolean isSparse(MerkleTreeHeader merkleTree)
+    {
+        return Boolean.TRUE.equals(merkleTree.getSparse());
+    }
+
+    /**
+     * Returns the variant of the Merkle Tree by which its metrics are tagged.
+     */
+    protected String getVariant(MerkleTreeHeader merkleTree)
+    {
+        return isSparse(merkleTree) ? MerkleTreeMetrics.SPARSE : MerkleTreeMetrics.REGULAR;
+    }
+
+    /**
+     * Merkle Trees persisted before the node storage was introduced store their nodes in rows.
+     */
+    public NodeStorage getNodeStorage(MerkleTreeHeader merkleTree)
+    {
+        return merkleTree.getNodeStorage() == null ? NodeStorage.ROWS : merkleTree.getNodeStorage();
+    }
+
+    private boolean isStoredInRows(MerkleTreeHeader merkleTree)
+    {
+        return getNodeStorage(merkleTree) == NodeStorage.ROWS;
+    }
+
+    private NodeStore getNodeStore(MerkleTreeHeader merkleTree)
+    {
+        return nodeStores.getNodeStore(getNodeStorage(merkleTree));
+    }
+
+    public boolean isVersioned(MerkleTreeHeader merkleTree)
+    {
+        return Boolean.TRUE.equals(merkleTree.getVersioned());
+    }
+
+    /**
+     * Merkle Trees that are not versioned stay in version 0.
+     */
+    public int getVersion(MerkleTreeHeader merkleTree)
+    {
+        return merkleTree.getVersion() == null ? 0 : merkleTree.getVersion();
+    }
+
+    public int getOldestVersion(MerkleTreeHeader merkleTree)
+    {
+        return merkleTree.getOldestVersion() == null ? 0 : merkleTree.getOldestVersion();
+    }
+
+    @Transactional
     public UUID createMerkleTree(com.merkletree.model.LeafNodesDto leafNodesDto)
+    {
+        return createMerkleTree(leafNodesDto, new BuildProgress());
+    }
+
+    /**
+     * Creates the Merkle Tree and reports its progress. A cancelled build rolls back the transaction, so no part of the
+     * Merkle Tree remains.
+     */
+    @Transactional
+    public UUID createMerkleTree(com.merkletree.model.LeafNodesDto leafNodesDto, BuildProgress progress)
     {
         var leafNodes = createLeafNodes(leafNodesDto);
 
-        return createMerkleTree(leafNodes, null);
+        return createMerkleTree(leafNodes, getHashingScheme(leafNodesDto), getHashAlgorithm(leafNodesDto),
+                Boolean.TRUE.equals(leafNodesDto.getVersioned()), progress);
     }
 
     public abstract List<LeafNode> createLeafNodes(com.merkletree.model.LeafNodesDto leafNodesDto);
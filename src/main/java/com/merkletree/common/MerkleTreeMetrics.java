@@ -0,0 +1,166 @@
+package com.merkletree.common;
+
+import com.merkletree.hash.HashServices;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Micrometer meters of the Merkle Tree operations, exposed by the Actuator metrics and Prometheus endpoints. The timers
+ * are tagged with the variant of the Merkle Tree and with a size bucket, the smallest of 2^10, 2^14, 2^18, ... that
+ * holds all leaf nodes, so the number of time series stays small. Creating a Merkle Tree is timed as a whole and in its
+ * phases leaf hashing, level construction and persistence, as far as they are separate.
+ */
+@Component
+public class MerkleTreeMetrics
+{
+    public static final String REGULAR = "regular";
+
+    public static final String SPARSE = "sparse";
+
+    public static final String SIMPLE = "simple";
+
+    public static final String CREATION = "merkle.tree.creation";
+
+    public static final String LEAF_HASHING = "merkle.tree.leaf.hashing";
+
+    public static final String CONSTRUCTION = "merkle.tree.construction";
+
+    public static final String PERSISTENCE = "merkle.tree.persistence";
+
+    public static final String UPDATE = "merkle.tree.update";
+
+    public static final String PROOF = "merkle.tree.proof";
+
+    public static final String ROOT_LOOKUP = "merkle.tree.root.lookup";
+
+    public static final String MEMBERSHIP = "membership";
+
+    public static final String MULTI = "multi";
+
+    public static final String NON_MEMBERSHIP = "non-membership";
+
+    /**
+     * Exponent of the smallest size bucket and the step between the exponents of neighbouring buckets.
+     */
+    static final int SIZE_BUCKET_EXPONENT = 10;
+
+    static final int SIZE_BUCKET_STEP = 4;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, AtomicLong> hashThroughputs = new HashMap<>();
+
+    private final Map<String, Counter> writtenRows = new HashMap<>();
+
+    private final Map<String, AtomicLong> rowThroughputs = new HashMap<>();
+
+    @Autowired
+    public MerkleTreeMetrics(MeterRegistry meterRegistry, HashServices hashServices)
+    {
+        this.meterRegistry = meterRegistry;
+
+        for (var hashAlgorithm : hashServices.getAlgorithms())
+        {
+            FunctionCounter.builder("merkle.tree.hashes", hashServices, services -> services.getHashCount(hashAlgorithm))
+                    .description("Hashes calculated by the hash service")
+                    .tag("algorithm", hashAlgorithm)
+                    .register(meterRegistry);
+        }
+
+        for (var variant : List.of(REGULAR, SPARSE, SIMPLE))
+        {
+            var hashThroughput = new AtomicLong();
+
+            Gauge.builder("merkle.tree.hashes.per.second", hashThroughput, AtomicLong::get)
+                    .description("Hashes per second of the last Merkle Tree built")
+                    .tag("variant", variant)
+                    .register(meterRegistry);
+
+            hashThroughputs.put(variant, hashThroughput);
+
+            writtenRows.put(variant, Counter.builder("merkle.tree.rows.written")
+                    .description("Leaf node and node rows written")
+                    .tag("variant", variant)
+                    .register(meterRegistry));
+
+            var rowThroughput = new AtomicLong();
+
+            Gauge.builder("merkle.tree.rows.per.second", rowThroughput, AtomicLong::get)
+                    .description("Rows per second of the last write of leaf nodes and nodes")
+                    .tag("variant", variant)
+                    .register(meterRegistry);
+
+            rowThroughputs.put(variant, rowThroughput);
+        }
+    }
+
+    /**
+     * Returns the size bucket of a Merkle Tree with the provided number of leaf nodes, e.g. 2^14 for 1025 to 16384.
+     */
+    public static String getSizeBucket(long numberOfLeafNodes)
+    {
+        var exponent = SIZE_BUCKET_EXPONENT;
+
+        while (exponent < Long.SIZE - 2 && 1L << exponent < numberOfLeafNodes)
+        {
+            exponent += SIZE_BUCKET_STEP;
+        }
+
+        return "2^" + exponent;
+    }
+
+    public Timer.Sample start()
+    {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * Records the time since the start of the sample with the timer of the provided name and returns it in
+     * nanoseconds. Further tags are passed as key value pairs.
+     */
+    public long stop(Timer.Sample sample, String name, String variant, long numberOfLeafNodes, String... tags)
+    {
+        return sample.stop(getTimer(name, variant, numberOfLeafNodes, tags));
+    }
+
+    /**
+     * Records the provided time in nanoseconds with the timer of the provided name, for operations that are measured
+     * in several parts.
+     */
+    public void record(String name, String variant, long numberOfLeafNodes, long elapsedTime, String... tags)
+    {
+        getTimer(name, variant, numberOfLeafNodes, tags).record(elapsedTime, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordHashes(String variant, long hashes, long elapsedTime)
+    {
+        hashThroughputs.get(variant).set(hashes * 1_000_000_000L / Math.max(elapsedTime, 1));
+    }
+
+    public void recordWrittenRows(String variant, long rows, long elapsedTime)
+    {
+        writtenRows.get(variant).increment(rows);
+
+        rowThroughputs.get(variant).set(rows * 1_000_000_000L / Math.max(elapsedTime, 1));
+    }
+
+    private Timer getTimer(String name, String variant, long numberOfLeafNodes, String... tags)
+    {
+        // The registry returns the timer registered before for the same name and tags
+        return Timer.builder(name)
+                .tags(Tags.of("variant", variant, "size", getSizeBucket(numberOfLeafNodes)).and(tags))
+                .register(meterRegistry);
+    }
+}
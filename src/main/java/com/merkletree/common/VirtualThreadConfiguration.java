@@ -0,0 +1,54 @@
+package com.merkletree.common;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Handles the requests of all controllers, and with them the repository access, on virtual threads if
+ * {@code merkle-tree.threads.virtual} is set. A blocking JPA call then parks a virtual thread instead of holding one of
+ * the {@code server.tomcat.threads.max} Tomcat threads, so bursts of proofs are bounded by the connection pool and the
+ * CPU. Virtual threads need a Java 21 runtime, on older runtimes the requests stay on the Tomcat threads.
+ */
+@Configuration
+@ConditionalOnProperty(name = "merkle-tree.threads.virtual", havingValue = "true")
+@Slf4j
+public class VirtualThreadConfiguration
+{
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer()
+    {
+        return protocolHandler ->
+        {
+            var executor = newVirtualThreadPerTaskExecutor();
+
+            if (executor != null)
+            {
+                protocolHandler.setExecutor(executor);
+            }
+        };
+    }
+
+    /**
+     * Returns an executor that starts a virtual thread per task, null if the runtime has no virtual threads.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor()
+    {
+        try
+        {
+            // Looked up reflectively, so the service still compiles for and runs on Java 17
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e)
+        {
+            log.warn("Virtual threads are not available on Java {}, requests are handled on platform threads", Runtime.version().feature());
+
+            return null;
+        }
+    }
+}
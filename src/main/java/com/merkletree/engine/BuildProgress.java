@@ -0,0 +1,77 @@
+package com.merkletree.engine;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress of building one Merkle Tree. It is updated by the threads that build the tree and read by any other thread.
+ * A cancelled build stops at the next chunk of leaf nodes, level or batch of persisted nodes it reaches.
+ */
+public class BuildProgress
+{
+    private final LongAdder leavesHashed = new LongAdder();
+
+    private final AtomicInteger levelsDone = new AtomicInteger();
+
+    private final LongAdder nodesPersisted = new LongAdder();
+
+    private volatile boolean cancelled;
+
+    public long getLeavesHashed()
+    {
+        return leavesHashed.sum();
+    }
+
+    public void addLeavesHashed(int numberOfLeafNodes)
+    {
+        leavesHashed.add(numberOfLeafNodes);
+    }
+
+    /**
+     * Returns the number of levels above the leaf level whose nodes are hashed.
+     */
+    public int getLevelsDone()
+    {
+        return levelsDone.get();
+    }
+
+    public void addLevelDone()
+    {
+        levelsDone.incrementAndGet();
+    }
+
+    /**
+     * Returns the number of written leaf nodes and nodes, i.e. rows in the row layout.
+     */
+    public long getNodesPersisted()
+    {
+        return nodesPersisted.sum();
+    }
+
+    public void addNodesPersisted(long numberOfNodes)
+    {
+        nodesPersisted.add(numberOfNodes);
+    }
+
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Throws a CancellationException if the build was cancelled.
+     */
+    public void checkCancelled()
+    {
+        if (cancelled)
+        {
+            throw new CancellationException("Build of the Merkle Tree was cancelled");
+        }
+    }
+}
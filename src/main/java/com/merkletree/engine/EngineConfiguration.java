@@ -0,0 +1,17 @@
+package com.merkletree.engine;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ForkJoinPool;
+
+@Configuration
+public class EngineConfiguration
+{
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool merkleTreeBuildPool(@Value("${merkle-tree.build.parallelism:0}") int parallelism)
+    {
+        return new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+}
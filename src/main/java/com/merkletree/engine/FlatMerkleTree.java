@@ -0,0 +1,153 @@
+package com.merkletree.engine;
+
+import com.merkletree.hash.HashService;
+
+import java.util.Arrays;
+
+/**
+ * In-memory Merkle Tree that keeps all hashes in one contiguous array of fixed-width digests. The nodes are stored
+ * level by level from the leafs to the root, so the position of a hash in the array equals the node index used by the
+ * persisted nodes. For a tree with n leafs the parent of node i is node n + i / 2 and the children of node n + i are
+ * the nodes 2i and 2i + 1.
+ */
+public class FlatMerkleTree
+{
+    /**
+     * The hashes of 2^26 leafs and their nodes exceed the maximum length of an array, so larger Merkle Trees can be
+     * neither built nor read in memory.
+     */
+    public static final int MAX_NUMBER_OF_LEAF_NODES = 1 << 25;
+
+    private final int numberOfLeafNodes;
+
+    private final byte[] hashes;
+
+    public FlatMerkleTree(int numberOfLeafNodes)
+    {
+        if (numberOfLeafNodes < 1 || Integer.bitCount(numberOfLeafNodes) != 1)
+        {
+            throw new IllegalArgumentException("Number of leaf nodes is not binary");
+        }
+
+        verifyNumberOfLeafNodes(numberOfLeafNodes);
+
+        this.numberOfLeafNodes = numberOfLeafNodes;
+        this.hashes = new byte[(int) getSize(numberOfLeafNodes)];
+    }
+
+    /**
+     * Returns the bytes of the hashes of a Merkle Tree with the provided number of leaf nodes.
+     */
+    public static long getSize(int numberOfLeafNodes)
+    {
+        return (2L * numberOfLeafNodes - 1) * HashService.HASH_SIZE;
+    }
+
+    /**
+     * Throws if a Merkle Tree with the provided number of leaf nodes does not fit in memory.
+     */
+    public static void verifyNumberOfLeafNodes(int numberOfLeafNodes)
+    {
+        if (numberOfLeafNodes > MAX_NUMBER_OF_LEAF_NODES)
+        {
+            throw new IllegalArgumentException("Number of leaf nodes exceeds the maximum of 2^" + Integer.numberOfTrailingZeros(MAX_NUMBER_OF_LEAF_NODES));
+        }
+    }
+
+    public int getNumberOfLeafNodes()
+    {
+        return numberOfLeafNodes;
+    }
+
+    public int getNumberOfNodes()
+    {
+        return 2 * numberOfLeafNodes - 1;
+    }
+
+    public int getRootIndex()
+    {
+        return getNumberOfNodes() - 1;
+    }
+
+    public int getParentIndex(int index)
+    {
+        return getParentIndex(numberOfLeafNodes, index);
+    }
+
+    public int getLeftChildIndex(int index)
+    {
+        return getLeftChildIndex(numberOfLeafNodes, index);
+    }
+
+    public static int getParentIndex(int numberOfLeafNodes, int index)
+    {
+        return numberOfLeafNodes + index / 2;
+    }
+
+    public static int getLeftChildIndex(int numberOfLeafNodes, int index)
+    {
+        return 2 * (index - numberOfLeafNodes);
+    }
+
+    /**
+     * Returns the level of the node, counted from the leaf level 0 up to the root. Level l starts at index
+     * 2n - 2n / 2^l, so the level follows from the distance of the node to the end of the array.
+     */
+    public static int getLevel(int numberOfLeafNodes, int index)
+    {
+        var distanceToEnd = 2L * numberOfLeafNodes - index;
+
+        return Long.numberOfTrailingZeros(2L * numberOfLeafNodes) - (Long.SIZE - Long.numberOfLeadingZeros(distanceToEnd - 1));
+    }
+
+    /**
+     * Returns the index of the first node of the level, the leftmost leaf for level 0.
+     */
+    public static int getLevelStartIndex(int numberOfLeafNodes, int level)
+    {
+        return (int) (2L * numberOfLeafNodes - (2L * numberOfLeafNodes >> level));
+    }
+
+    public static int getLevelSize(int numberOfLeafNodes, int level)
+    {
+        return numberOfLeafNodes >> level;
+    }
+
+    /**
+     * Every level starts at an even index, so siblings only differ in the lowest bit.
+     */
+    public static int getSiblingIndex(int index)
+    {
+        return index ^ 1;
+    }
+
+    /**
+     * Returns the backing array of the tree. The hash of node i is stored at offset i * HASH_SIZE.
+     */
+    public byte[] getHashes()
+    {
+        return hashes;
+    }
+
+    public byte[] getHash(int index)
+    {
+        var offset = index * HashService.HASH_SIZE;
+
+        return Arrays.copyOfRange(hashes, offset, offset + HashService.HASH_SIZE);
+    }
+
+    public void setHash(int index, byte[] hash)
+    {
+        if (hash == null || hash.length != HashService.HASH_SIZE)
+        {
+            throw new IllegalArgumentException("Provided hash has an invalid size");
+        }
+
+        System.arraycopy(hash, 0, hashes, index * HashService.HASH_SIZE, HashService.HASH_SIZE);
+    }
+
+    public byte[] getRootHash()
+    {
+        return getHash(getRootIndex());
+    }
+}
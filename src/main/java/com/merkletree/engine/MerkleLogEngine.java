@@ -0,0 +1,311 @@
+package com.merkletree.engine;
+
+import com.merkletree.hash.HashService;
+import com.merkletree.hash.HashingScheme;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Append-only Merkle Trees of arbitrary size in the style of the RFC 6962 transparency logs. The root of a tree with n
+ * leafs is the parent hash of the root of the first k leafs and the root of the remaining leafs, where k is the largest
+ * power of two smaller than n. Every node therefore consists of perfect subtrees, which never change once complete.
+ * Only perfect subtrees are stored, addressed by the in-order index of {@link MerkleLogRange#getNodeIndex()}, so the
+ * roots and proofs of every historical tree size can be calculated from them.
+ */
+@Component
+@RequiredArgsConstructor
+public class MerkleLogEngine
+{
+    /**
+     * Largest number of leafs of an append-only Merkle Tree, so that all in-order indices fit into an integer.
+     */
+    public static final int MAX_TREE_SIZE = 1 << 30;
+
+    private final HashService hashService;
+
+    /**
+     * Returns the root hash of the tree without leafs, the hash of empty data.
+     */
+    public byte[] getEmptyRootHash()
+    {
+        return hashService.hashLeaf("");
+    }
+
+    /**
+     * Appends leaf hashes to a tree of the provided size. The subtree hashes have to contain the perfect subtrees of
+     * the tree, i.e. {@code new MerkleLogRange(0, treeSize).getPerfectSubtrees()}. The appended leafs and the perfect
+     * subtrees that are completed by them are added to the subtree hashes, the completed perfect subtrees are also
+     * handed to the node consumer with their index. Every append hashes on average one node.
+     */
+    public void appendLeafHashes(int treeSize, List<byte[]> leafHashes, Map<Integer, byte[]> subtreeHashes,
+                                 HashingScheme hashingScheme, ObjIntConsumer<byte[]> nodeConsumer)
+    {
+        if (treeSize < 0 || leafHashes.size() > MAX_TREE_SIZE - treeSize)
+        {
+            throw new IllegalArgumentException("Tree size exceeds the maximum tree size");
+        }
+
+        for (var leafHash : leafHashes)
+        {
+            var start = treeSize++;
+
+            var size = 1;
+
+            var hash = leafHash;
+
+            subtreeHashes.put(2 * start, leafHash);
+
+            // A perfect subtree at an odd position is a right child and completes its parent
+            while ((start / size & 1) == 1)
+            {
+                var leftHash = subtreeHashes.get(2 * (start - size) + size - 1);
+
+                if (leftHash == null)
+                {
+                    throw new IllegalArgumentException("Hash of the subtree left of leaf " + start + " is missing");
+                }
+
+                hash = hashService.hashPair(leftHash, hash, hashingScheme);
+
+                start -= size;
+                size *= 2;
+
+                subtreeHashes.put(2 * start + size - 1, hash);
+
+                nodeConsumer.accept(hash, 2 * start + size - 1);
+            }
+        }
+    }
+
+    /**
+     * Calculates the hash of the node covering the range from the hashes of its perfect subtrees.
+     */
+    public byte[] hashRange(MerkleLogRange range, Map<Integer, byte[]> subtreeHashes, HashingScheme hashingScheme)
+    {
+        var perfectSubtrees = range.getPerfectSubtrees();
+
+        byte[] hash = null;
+
+        for (int i = perfectSubtrees.size() - 1; i >= 0; i--)
+        {
+            var subtreeHash = subtreeHashes.get(perfectSubtrees.get(i).getNodeIndex());
+
+            if (subtreeHash == null)
+            {
+                throw new IllegalArgumentException("Hash of subtree " + perfectSubtrees.get(i) + " is missing");
+            }
+
+            hash = hash == null ? subtreeHash : hashService.hashPair(subtreeHash, hash, hashingScheme);
+        }
+
+        return hash;
+    }
+
+    /**
+     * Returns the ranges of the nodes whose hashes form the inclusion proof of the leaf in the tree of the provided
+     * size, ordered from the leaf level to the root.
+     */
+    public List<MerkleLogRange> getInclusionProofRanges(int leafIndex, int treeSize)
+    {
+        if (leafIndex < 0 || leafIndex >= treeSize)
+        {
+            throw new IllegalArgumentException("No leaf with provided index present");
+        }
+
+        var ranges = new ArrayList<MerkleLogRange>();
+
+        addInclusionProofRanges(leafIndex, 0, treeSize, ranges);
+
+        return ranges;
+    }
+
+    /**
+     * Returns the ranges of the nodes whose hashes form the consistency proof between the two tree sizes, i.e. prove
+     * that the tree of the second size is the tree of the first size with leafs appended.
+     */
+    public List<MerkleLogRange> getConsistencyProofRanges(int firstTreeSize, int secondTreeSize)
+    {
+        if (firstTreeSize < 0 || firstTreeSize > secondTreeSize)
+        {
+            throw new IllegalArgumentException("First tree size is larger than the second tree size");
+        }
+
+        var ranges = new ArrayList<MerkleLogRange>();
+
+        if (firstTreeSize > 0 && firstTreeSize < secondTreeSize)
+        {
+            addConsistencyProofRanges(firstTreeSize, 0, secondTreeSize, true, ranges);
+        }
+
+        return ranges;
+    }
+
+    /**
+     * Verifies an inclusion proof as described in RFC 9162, section 2.1.3.2.
+     */
+    public boolean verifyInclusion(byte[] leafHash, int leafIndex, int treeSize, List<byte[]> proofHashes,
+                                   byte[] rootHash, HashingScheme hashingScheme)
+    {
+        if (leafIndex < 0 || leafIndex >= treeSize)
+        {
+            return false;
+        }
+
+        var firstNode = leafIndex;
+
+        var lastNode = treeSize - 1;
+
+        var hash = leafHash;
+
+        for (var proofHash : proofHashes)
+        {
+            if (lastNode == 0)
+            {
+                return false;
+            }
+
+            if ((firstNode & 1) == 1 || firstNode == lastNode)
+            {
+                hash = hashService.hashPair(proofHash, hash, hashingScheme);
+
+                while ((firstNode & 1) == 0 && firstNode != 0)
+                {
+                    firstNode >>= 1;
+                    lastNode >>= 1;
+                }
+            } else
+            {
+                hash = hashService.hashPair(hash, proofHash, hashingScheme);
+            }
+
+            firstNode >>= 1;
+            lastNode >>= 1;
+        }
+
+        return lastNode == 0 && Arrays.equals(hash, rootHash);
+    }
+
+    /**
+     * Verifies a consistency proof as described in RFC 9162, section 2.1.4.2.
+     */
+    public boolean verifyConsistency(int firstTreeSize, int secondTreeSize, byte[] firstRootHash, byte[] secondRootHash,
+                                     List<byte[]> proofHashes, HashingScheme hashingScheme)
+    {
+        if (firstTreeSize < 0 || firstTreeSize > secondTreeSize)
+        {
+            return false;
+        }
+
+        if (firstTreeSize == 0 || firstTreeSize == secondTreeSize)
+        {
+            return proofHashes.isEmpty() && (firstTreeSize == 0 || Arrays.equals(firstRootHash, secondRootHash));
+        }
+
+        if (proofHashes.isEmpty())
+        {
+            return false;
+        }
+
+        var path = new ArrayList<>(proofHashes);
+
+        // The root of a first tree with a power of two size is a node of the second tree and starts the path
+        if (Integer.bitCount(firstTreeSize) == 1)
+        {
+            path.add(0, firstRootHash);
+        }
+
+        var firstNode = firstTreeSize - 1;
+
+        var lastNode = secondTreeSize - 1;
+
+        while ((firstNode & 1) == 1)
+        {
+            firstNode >>= 1;
+            lastNode >>= 1;
+        }
+
+        var firstHash = path.get(0);
+
+        var secondHash = path.get(0);
+
+        for (var proofHash : path.subList(1, path.size()))
+        {
+            if (lastNode == 0)
+            {
+                return false;
+            }
+
+            if ((firstNode & 1) == 1 || firstNode == lastNode)
+            {
+                firstHash = hashService.hashPair(proofHash, firstHash, hashingScheme);
+                secondHash = hashService.hashPair(proofHash, secondHash, hashingScheme);
+
+                while ((firstNode & 1) == 0 && firstNode != 0)
+                {
+                    firstNode >>= 1;
+                    lastNode >>= 1;
+                }
+            } else
+            {
+                secondHash = hashService.hashPair(secondHash, proofHash, hashingScheme);
+            }
+
+            firstNode >>= 1;
+            lastNode >>= 1;
+        }
+
+        return lastNode == 0 && Arrays.equals(firstHash, firstRootHash) && Arrays.equals(secondHash, secondRootHash);
+    }
+
+    private void addInclusionProofRanges(int leafIndex, int start, int end, List<MerkleLogRange> ranges)
+    {
+        if (end - start == 1)
+        {
+            return;
+        }
+
+        var split = start + Integer.highestOneBit(end - start - 1);
+
+        if (start + leafIndex < split)
+        {
+            addInclusionProofRanges(leafIndex, start, split, ranges);
+            ranges.add(new MerkleLogRange(split, end));
+        } else
+        {
+            addInclusionProofRanges(leafIndex - (split - start), split, end, ranges);
+            ranges.add(new MerkleLogRange(start, split));
+        }
+    }
+
+    private void addConsistencyProofRanges(int firstTreeSize, int start, int end, boolean isFirstTree, List<MerkleLogRange> ranges)
+    {
+        if (firstTreeSize == end - start)
+        {
+            // The root of the first tree is known to the verifier and not part of the proof
+            if (!isFirstTree)
+            {
+                ranges.add(new MerkleLogRange(start, end));
+            }
+
+            return;
+        }
+
+        var split = Integer.highestOneBit(end - start - 1);
+
+        if (firstTreeSize <= split)
+        {
+            addConsistencyProofRanges(firstTreeSize, start, start + split, isFirstTree, ranges);
+            ranges.add(new MerkleLogRange(start + split, end));
+        } else
+        {
+            addConsistencyProofRanges(firstTreeSize - split, start + split, end, false, ranges);
+            ranges.add(new MerkleLogRange(start, start + split));
+        }
+    }
+}
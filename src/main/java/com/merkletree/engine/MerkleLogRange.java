@@ -0,0 +1,85 @@
+package com.merkletree.engine;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Range of leaf nodes [start, end) of an append-only Merkle Tree. Every node of the tree covers such a range. A range
+ * whose size is a power of two and whose start is a multiple of its size is a perfect subtree, which never changes once
+ * all of its leaf nodes are appended.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class MerkleLogRange
+{
+    private final int start;
+
+    private final int end;
+
+    public MerkleLogRange(int start, int end)
+    {
+        if (start < 0 || end <= start)
+        {
+            throw new IllegalArgumentException("Range of leaf nodes is empty");
+        }
+
+        this.start = start;
+        this.end = end;
+    }
+
+    public int getSize()
+    {
+        return end - start;
+    }
+
+    public boolean isPerfect()
+    {
+        return Integer.bitCount(getSize()) == 1 && start % getSize() == 0;
+    }
+
+    /**
+     * Returns the in-order index of a perfect subtree. Leaf node i has the index 2i and the root of the perfect
+     * subtree [start, end) the index start + end - 1, so the index does not depend on the size of the tree.
+     */
+    public int getNodeIndex()
+    {
+        if (!isPerfect())
+        {
+            throw new IllegalArgumentException("Range of leaf nodes is not a perfect subtree");
+        }
+
+        return start + end - 1;
+    }
+
+    /**
+     * Splits the range into the largest perfect subtrees from left to right. For the range of a node the sizes of the
+     * subtrees decrease from left to right.
+     */
+    public List<MerkleLogRange> getPerfectSubtrees()
+    {
+        var perfectSubtrees = new ArrayList<MerkleLogRange>();
+
+        var from = start;
+
+        while (from < end)
+        {
+            var size = Integer.highestOneBit(end - from);
+
+            if (from != 0)
+            {
+                size = Math.min(size, Integer.lowestOneBit(from));
+            }
+
+            perfectSubtrees.add(new MerkleLogRange(from, from + size));
+
+            from += size;
+        }
+
+        return perfectSubtrees;
+    }
+}
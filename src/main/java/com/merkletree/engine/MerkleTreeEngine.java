@@ -0,0 +1,379 @@
+package com.merkletree.engine;
+
+import com.merkletree.hash.HashService;
+import com.merkletree.hash.HashingScheme;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Builds Merkle Trees in memory on top of a {@link FlatMerkleTree}. Construction is a single linear pass over the
+ * hash array without creating objects per node. Trees with at least {@code merkle-tree.build.parallel-threshold} leafs
+ * are built on the build pool: leafs and every level with enough nodes are hashed in independent chunks, the upper
+ * levels are hashed sequentially. Both modes produce identical hashes. There is one engine per hash algorithm, see
+ * {@link MerkleTreeEngines}.
+ */
+public class MerkleTreeEngine
+{
+    /**
+     * Number of hashes calculated by one task of a parallel build.
+     */
+    static final int PARALLEL_CHUNK_SIZE = 1024;
+
+    /**
+     * Number of leaf nodes hashed between two checks for cancellation of a sequential build.
+     */
+    static final int PROGRESS_CHUNK_SIZE = 16384;
+
+    /**
+     * Value of the leaf nodes that are not populated in a sparse Merkle Tree.
+     */
+    public static final String SPARSE_LEAF_VALUE = "DUMMY";
+
+    /**
+     * Number of levels below the root of the largest Merkle Tree that can be addressed with integer node indices. This
+     * is a hard limit of regular and sparse Merkle Trees, i.e. a sparse Merkle Tree has at most 2^30 leafs or 30 bit
+     * keys.
+     */
+    public static final int MAX_DEPTH = 30;
+
+    private final HashService hashService;
+
+    private final ForkJoinPool buildPool;
+
+    private final int parallelThreshold;
+
+    private final Map<HashingScheme, byte[][]> defaultHashes = new EnumMap<>(HashingScheme.class);
+
+    public MerkleTreeEngine(HashService hashService, ForkJoinPool merkleTreeBuildPool, int parallelThreshold)
+    {
+        this.hashService = hashService;
+        this.buildPool = merkleTreeBuildPool;
+        this.parallelThreshold = parallelThreshold;
+
+        for (var hashingScheme : HashingScheme.values())
+        {
+            var levelHashes = new byte[MAX_DEPTH + 1][];
+
+            levelHashes[0] = hashService.hashLeaf(SPARSE_LEAF_VALUE);
+
+            for (int level = 1; level <= MAX_DEPTH; level++)
+            {
+                levelHashes[level] = hashService.hashPair(levelHashes[level - 1], levelHashes[level - 1], hashingScheme);
+            }
+
+            defaultHashes.put(hashingScheme, levelHashes);
+        }
+    }
+
+    /**
+     * Creates the Merkle Tree of the provided leaf values, the value at position i becomes leaf node i.
+     */
+    public FlatMerkleTree createMerkleTree(List<String> leafValues, HashingScheme hashingScheme)
+    {
+        if (leafValues == null)
+        {
+            throw new IllegalArgumentException("Provided leaf values are null");
+        }
+
+        var merkleTree = new FlatMerkleTree(leafValues.size());
+
+        hashLeaves(merkleTree, leafValues);
+
+        hashNodes(merkleTree, hashingScheme);
+
+        return merkleTree;
+    }
+
+    /**
+     * Calculates the hashes of the leaf nodes from the leaf values, the value at position i becomes leaf node i.
+     */
+    public void hashLeaves(FlatMerkleTree merkleTree, List<String> leafValues)
+    {
+        hashLeaves(merkleTree, leafValues, new BuildProgress());
+    }
+
+    /**
+     * Calculates the hashes of the leaf nodes and reports the hashed leaf nodes to the progress. Throws a
+     * CancellationException once the build is cancelled.
+     */
+    public void hashLeaves(FlatMerkleTree merkleTree, List<String> leafValues, BuildProgress progress)
+    {
+        if (leafValues == null || leafValues.size() != merkleTree.getNumberOfLeafNodes())
+        {
+            throw new IllegalArgumentException("Number of leaf values does not match the Merkle Tree");
+        }
+
+        var hashes = merkleTree.getHashes();
+
+        if (isParallel(merkleTree))
+        {
+            invokeInChunks(leafValues.size(), (from, to) ->
+            {
+                progress.checkCancelled();
+
+                hashService.hashLeaves(leafValues, from, to, hashes);
+
+                progress.addLeavesHashed(to - from);
+            });
+        } else
+        {
+            for (int from = 0; from < leafValues.size(); from += PROGRESS_CHUNK_SIZE)
+            {
+                progress.checkCancelled();
+
+                var to = Math.min(from + PROGRESS_CHUNK_SIZE, leafValues.size());
+
+                hashService.hashLeaves(leafValues, from, to, hashes);
+
+                progress.addLeavesHashed(to - from);
+            }
+        }
+    }
+
+    /**
+     * Calculates the hashes of all nodes from the hashes of the leaf nodes.
+     */
+    public void hashNodes(FlatMerkleTree merkleTree, HashingScheme hashingScheme)
+    {
+        hashNodes(merkleTree, hashingScheme, new BuildProgress());
+    }
+
+    /**
+     * Calculates the hashes of all nodes and reports every finished level to the progress. Throws a
+     * CancellationException once the build is cancelled.
+     */
+    public void hashNodes(FlatMerkleTree merkleTree, HashingScheme hashingScheme, BuildProgress progress)
+    {
+        var numberOfLeafNodes = merkleTree.getNumberOfLeafNodes();
+
+        var hashes = merkleTree.getHashes();
+
+        var childIndex = 0;
+
+        var levelSize = numberOfLeafNodes;
+
+        if (isParallel(merkleTree))
+        {
+            // Hash the lower levels level by level, the nodes of one level only depend on the level below
+            for (; levelSize / 2 >= PARALLEL_CHUNK_SIZE; levelSize /= 2)
+            {
+                progress.checkCancelled();
+
+                var levelChildIndex = childIndex;
+
+                var levelParentIndex = numberOfLeafNodes + childIndex / 2;
+
+                invokeInChunks(levelSize / 2, (from, to) ->
+                        hashService.hashPairs(hashes, levelChildIndex + 2 * from, levelParentIndex + from, to - from, hashingScheme));
+
+                childIndex += levelSize;
+
+                progress.addLevelDone();
+            }
+        }
+
+        // Parents are stored after their children, so hashing the remaining levels from the bottom to the top is one
+        // pass over the hash array
+        for (; levelSize > 1; levelSize /= 2)
+        {
+            progress.checkCancelled();
+
+            hashService.hashPairs(hashes, childIndex, numberOfLeafNodes + childIndex / 2, levelSize / 2, hashingScheme);
+
+            childIndex += levelSize;
+
+            progress.addLevelDone();
+        }
+    }
+
+    /**
+     * Recalculates the hashes of the nodes on the provided paths. The hash map has to contain the hashes of the changed
+     * leaf nodes and of all sibling nodes of the paths, the recalculated hashes are added to it. Every node is hashed
+     * exactly once, even if it is shared by several paths.
+     */
+    public void hashPaths(MerkleTreePaths merkleTreePaths, Map<Integer, byte[]> hashes, HashingScheme hashingScheme)
+    {
+        for (var index : merkleTreePaths.getNodeIndices())
+        {
+            var leftChildIndex = FlatMerkleTree.getLeftChildIndex(merkleTreePaths.getNumberOfLeafNodes(), index);
+
+            var leftHash = hashes.get(leftChildIndex);
+
+            var rightHash = hashes.get(leftChildIndex + 1);
+
+            if (leftHash == null || rightHash == null)
+            {
+                throw new IllegalArgumentException("Hash of a child of node " + index + " is missing");
+            }
+
+            hashes.put(index, hashService.hashPair(leftHash, rightHash, hashingScheme));
+        }
+    }
+
+    /**
+     * Returns the hash of an empty subtree whose root is on the provided level, i.e. of a subtree in which every leaf
+     * node holds the sparse leaf value.
+     */
+    public byte[] getDefaultHash(HashingScheme hashingScheme, int level)
+    {
+        if (level < 0 || level > MAX_DEPTH)
+        {
+            throw new IllegalArgumentException("No level " + level + " present");
+        }
+
+        return defaultHashes.get(hashingScheme)[level];
+    }
+
+    /**
+     * Adds the default hash of their level for all sibling nodes of the paths whose hash is missing. In a sparse Merkle
+     * Tree only the nodes with a populated leaf node below them are stored, all other nodes are empty subtrees.
+     */
+    public void putDefaultHashes(MerkleTreePaths merkleTreePaths, Map<Integer, byte[]> hashes, HashingScheme hashingScheme)
+    {
+        var numberOfLeafNodes = merkleTreePaths.getNumberOfLeafNodes();
+
+        for (var index : merkleTreePaths.getSiblingIndices())
+        {
+            if (!hashes.containsKey(index))
+            {
+                hashes.put(index, getDefaultHash(hashingScheme, FlatMerkleTree.getLevel(numberOfLeafNodes, index)));
+            }
+        }
+    }
+
+    /**
+     * Creates a sparse Merkle Tree from the hashes of its populated leaf nodes. Only the nodes on the paths from the
+     * populated leaf nodes to the root are hashed, all other nodes are empty subtrees with the default hash of their
+     * level. The returned map contains the populated leaf nodes and the hashed nodes, so the effort grows with the
+     * number of populated leaf nodes times the depth and not with the size of the tree.
+     */
+    public Map<Integer, byte[]> createSparseMerkleTree(int numberOfLeafNodes, Map<Integer, byte[]> leafHashes, HashingScheme hashingScheme)
+    {
+        var merkleTreePaths = new MerkleTreePaths(numberOfLeafNodes, leafHashes.keySet());
+
+        var hashes = new HashMap<>(leafHashes);
+
+        putDefaultHashes(merkleTreePaths, hashes, hashingScheme);
+
+        hashPaths(merkleTreePaths, hashes, hashingScheme);
+
+        merkleTreePaths.getSiblingIndices().forEach(hashes::remove);
+
+        // Without any populated leaf node the root is an empty subtree as well
+        hashes.putIfAbsent(2 * numberOfLeafNodes - 2, getDefaultHash(hashingScheme, Integer.numberOfTrailingZeros(numberOfLeafNodes)));
+
+        return hashes;
+    }
+
+    /**
+     * Creates a non-membership proof from the hashes of the sibling nodes of the leaf node, ordered from the leaf
+     * level to the root. Siblings that are empty subtrees are replaced by a bit in the default hashes.
+     */
+    public NonMembershipProof createNonMembershipProof(int numberOfLeafNodes, int leafIndex, List<byte[]> siblingHashes, HashingScheme hashingScheme)
+    {
+        var defaultHashes = new BitSet(siblingHashes.size());
+
+        var proofHashes = new ArrayList<byte[]>();
+
+        for (int level = 0; level < siblingHashes.size(); level++)
+        {
+            if (Arrays.equals(getDefaultHash(hashingScheme, level), siblingHashes.get(level)))
+            {
+                defaultHashes.set(level);
+            } else
+            {
+                proofHashes.add(siblingHashes.get(level));
+            }
+        }
+
+        return new NonMembershipProof(numberOfLeafNodes, leafIndex, defaultHashes, proofHashes);
+    }
+
+    /**
+     * Returns the hashes of all sibling nodes of a non-membership proof, ordered from the leaf level to the root.
+     */
+    public List<byte[]> getSiblingHashes(NonMembershipProof nonMembershipProof, HashingScheme hashingScheme)
+    {
+        var depth = Integer.numberOfTrailingZeros(nonMembershipProof.getNumberOfLeafNodes());
+
+        var proofHashes = nonMembershipProof.getProofHashes().iterator();
+
+        var siblingHashes = new ArrayList<byte[]>(depth);
+
+        for (int level = 0; level < depth; level++)
+        {
+            if (nonMembershipProof.getDefaultHashes().get(level))
+            {
+                siblingHashes.add(getDefaultHash(hashingScheme, level));
+            } else if (proofHashes.hasNext())
+            {
+                siblingHashes.add(proofHashes.next());
+            } else
+            {
+                throw new IllegalArgumentException("Proof hash of level " + level + " is missing");
+            }
+        }
+
+        return siblingHashes;
+    }
+
+    private boolean isParallel(FlatMerkleTree merkleTree)
+    {
+        return merkleTree.getNumberOfLeafNodes() >= parallelThreshold && buildPool.getParallelism() > 1;
+    }
+
+    private void invokeInChunks(int size, RangeAction rangeAction)
+    {
+        buildPool.invoke(new RangeTask(0, size, rangeAction));
+    }
+
+    @FunctionalInterface
+    private interface RangeAction
+    {
+        void run(int from, int to);
+    }
+
+    /**
+     * Splits a range of indices in halves until a chunk is small enough to be processed by one task.
+     */
+    private static class RangeTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+
+        private final int to;
+
+        private final RangeAction rangeAction;
+
+        RangeTask(int from, int to, RangeAction rangeAction)
+        {
+            this.from = from;
+            this.to = to;
+            this.rangeAction = rangeAction;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= PARALLEL_CHUNK_SIZE)
+            {
+                rangeAction.run(from, to);
+
+                return;
+            }
+
+            var middle = (from + to) >>> 1;
+
+            invokeAll(new RangeTask(from, middle, rangeAction), new RangeTask(middle, to, rangeAction));
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.merkletree.engine;
+
+import com.merkletree.hash.HashServices;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Merkle Tree engines of all hash algorithms, which share the build pool.
+ */
+@Component
+public class MerkleTreeEngines
+{
+    private final HashServices hashServices;
+
+    private final Map<String, MerkleTreeEngine> merkleTreeEngines = new HashMap<>();
+
+    @Autowired
+    public MerkleTreeEngines(HashServices hashServices, ForkJoinPool merkleTreeBuildPool, @Value("${merkle-tree.build.parallel-threshold:16384}") int parallelThreshold)
+    {
+        this.hashServices = hashServices;
+
+        for (var hashAlgorithm : hashServices.getAlgorithms())
+        {
+            merkleTreeEngines.put(hashAlgorithm, new MerkleTreeEngine(hashServices.getHashService(hashAlgorithm), merkleTreeBuildPool, parallelThreshold));
+        }
+    }
+
+    /**
+     * Returns the engine of the provided hash algorithm, of the default algorithm if none is provided.
+     */
+    public MerkleTreeEngine getMerkleTreeEngine(String hashAlgorithm)
+    {
+        return merkleTreeEngines.get(hashServices.getAlgorithm(hashAlgorithm));
+    }
+}
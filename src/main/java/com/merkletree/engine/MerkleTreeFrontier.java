@@ -0,0 +1,101 @@
+package com.merkletree.engine;
+
+import com.merkletree.hash.HashService;
+import com.merkletree.hash.HashingScheme;
+
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Builds a Merkle Tree from leaf hashes that arrive one after another in index order. Only the hash of the pending
+ * left child per level is kept, so the memory use is logarithmic in the number of leafs. Every node is handed to the
+ * node consumer as soon as both of its children are known, together with its index in the flat layout of
+ * {@link FlatMerkleTree}.
+ */
+public class MerkleTreeFrontier
+{
+    private final HashService hashService;
+
+    private final HashingScheme hashingScheme;
+
+    private final int numberOfLeafNodes;
+
+    private final ObjIntConsumer<byte[]> nodeConsumer;
+
+    private final byte[][] leftHashes;
+
+    private int leafCount;
+
+    private byte[] rootHash;
+
+    public MerkleTreeFrontier(HashService hashService, HashingScheme hashingScheme, int numberOfLeafNodes,
+                              ObjIntConsumer<byte[]> nodeConsumer)
+    {
+        if (numberOfLeafNodes < 1 || Integer.bitCount(numberOfLeafNodes) != 1)
+        {
+            throw new IllegalArgumentException("Number of leaf nodes is not binary");
+        }
+
+        this.hashService = hashService;
+        this.hashingScheme = hashingScheme;
+        this.numberOfLeafNodes = numberOfLeafNodes;
+        this.nodeConsumer = nodeConsumer;
+        this.leftHashes = new byte[Integer.numberOfTrailingZeros(numberOfLeafNodes) + 1][];
+    }
+
+    /**
+     * Adds the hash of the next leaf and hashes all nodes that are completed by it.
+     */
+    public void addLeafHash(byte[] leafHash)
+    {
+        if (leafCount == numberOfLeafNodes)
+        {
+            throw new IllegalArgumentException("More leaf nodes provided than announced");
+        }
+
+        var index = leafCount++;
+
+        var hash = leafHash;
+
+        var level = 0;
+
+        // A node with an odd index is a right child and completes its parent
+        while ((index & 1) == 1)
+        {
+            hash = hashService.hashPair(leftHashes[level], hash, hashingScheme);
+
+            leftHashes[level++] = null;
+
+            index = FlatMerkleTree.getParentIndex(numberOfLeafNodes, index);
+
+            nodeConsumer.accept(hash, index);
+        }
+
+        if (leafCount == numberOfLeafNodes)
+        {
+            rootHash = hash;
+        } else
+        {
+            leftHashes[level] = hash;
+        }
+    }
+
+    public int getLeafCount()
+    {
+        return leafCount;
+    }
+
+    public boolean isComplete()
+    {
+        return leafCount == numberOfLeafNodes;
+    }
+
+    public byte[] getRootHash()
+    {
+        if (!isComplete())
+        {
+            throw new IllegalArgumentException("Fewer leaf nodes provided than announced");
+        }
+
+        return rootHash;
+    }
+}
@@ -0,0 +1,91 @@
+package com.merkletree.engine;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * The nodes on the paths from a set of leaf nodes to the root of a Merkle Tree, using the node indices of
+ * {@link FlatMerkleTree}. Paths that meet share their common ancestors, so every node is contained only once. The
+ * sibling indices are the nodes next to a path that are needed to hash it but are not part of any path themselves.
+ */
+public class MerkleTreePaths
+{
+    private final int numberOfLeafNodes;
+
+    private final SortedSet<Integer> nodeIndices = new TreeSet<>();
+
+    private final SortedSet<Integer> siblingIndices = new TreeSet<>();
+
+    public MerkleTreePaths(int numberOfLeafNodes, Collection<Integer> leafIndices)
+    {
+        if (numberOfLeafNodes < 1 || Integer.bitCount(numberOfLeafNodes) != 1)
+        {
+            throw new IllegalArgumentException("Number of leaf nodes is not binary");
+        }
+
+        this.numberOfLeafNodes = numberOfLeafNodes;
+
+        var levelIndices = new TreeSet<Integer>();
+
+        for (var leafIndex : leafIndices)
+        {
+            if (leafIndex == null || leafIndex < 0 || leafIndex >= numberOfLeafNodes)
+            {
+                throw new IllegalArgumentException("No leaf with provided index present");
+            }
+
+            levelIndices.add(leafIndex);
+        }
+
+        for (int levelSize = numberOfLeafNodes; levelSize > 1; levelSize /= 2)
+        {
+            var parentIndices = new TreeSet<Integer>();
+
+            for (var index : levelIndices)
+            {
+                var siblingIndex = FlatMerkleTree.getSiblingIndex(index);
+
+                if (!levelIndices.contains(siblingIndex))
+                {
+                    siblingIndices.add(siblingIndex);
+                }
+
+                parentIndices.add(FlatMerkleTree.getParentIndex(numberOfLeafNodes, index));
+            }
+
+            nodeIndices.addAll(parentIndices);
+
+            levelIndices = parentIndices;
+        }
+    }
+
+    public int getNumberOfLeafNodes()
+    {
+        return numberOfLeafNodes;
+    }
+
+    /**
+     * Returns the indices of the nodes on the paths in ascending order, so children always come before their parents.
+     */
+    public SortedSet<Integer> getNodeIndices()
+    {
+        return Collections.unmodifiableSortedSet(nodeIndices);
+    }
+
+    public SortedSet<Integer> getSiblingIndices()
+    {
+        return Collections.unmodifiableSortedSet(siblingIndices);
+    }
+
+    public SortedSet<Integer> getLeafSiblingIndices()
+    {
+        return getSiblingIndices().headSet(numberOfLeafNodes);
+    }
+
+    public SortedSet<Integer> getNodeSiblingIndices()
+    {
+        return getSiblingIndices().tailSet(numberOfLeafNodes);
+    }
+}
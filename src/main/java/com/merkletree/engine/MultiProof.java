@@ -0,0 +1,21 @@
+package com.merkletree.engine;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Proof of membership for several leaf nodes of the same Merkle Tree. The proof hashes are the hashes of the sibling
+ * nodes returned by {@link MerkleTreePaths#getSiblingIndices()}, so hashes shared by several paths are contained once.
+ */
+@Getter
+@AllArgsConstructor
+public class MultiProof
+{
+    private final int numberOfLeafNodes;
+
+    private final List<Integer> leafIndices;
+
+    private final List<byte[]> proofHashes;
+}
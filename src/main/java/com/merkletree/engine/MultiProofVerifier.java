@@ -0,0 +1,58 @@
+package com.merkletree.engine;
+
+import com.merkletree.hash.HashingScheme;
+import lombok.RequiredArgsConstructor;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Verifies multiproofs with the engine, and thereby the hash algorithm, of the Merkle Tree they belong to.
+ */
+@RequiredArgsConstructor
+public class MultiProofVerifier
+{
+    private final MerkleTreeEngine merkleTreeEngine;
+
+    /**
+     * Returns true if the leaf hashes, ordered like the leaf indices of the proof, together with the proof hashes
+     * result in the provided root hash.
+     */
+    public boolean verify(MultiProof multiProof, List<byte[]> leafHashes, byte[] rootHash, HashingScheme hashingScheme)
+    {
+        if (multiProof == null || leafHashes == null || rootHash == null)
+        {
+            throw new IllegalArgumentException("Provided data is null");
+        }
+
+        var leafIndices = multiProof.getLeafIndices();
+
+        if (leafIndices.size() != leafHashes.size())
+        {
+            return false;
+        }
+
+        var merkleTreePaths = new MerkleTreePaths(multiProof.getNumberOfLeafNodes(), leafIndices);
+
+        if (merkleTreePaths.getSiblingIndices().size() != multiProof.getProofHashes().size())
+        {
+            return false;
+        }
+
+        var hashes = new HashMap<Integer, byte[]>();
+
+        for (int i = 0; i < leafIndices.size(); i++)
+        {
+            hashes.put(leafIndices.get(i), leafHashes.get(i));
+        }
+
+        var proofHashes = multiProof.getProofHashes().iterator();
+
+        merkleTreePaths.getSiblingIndices().forEach(index -> hashes.put(index, proofHashes.next()));
+
+        merkleTreeEngine.hashPaths(merkleTreePaths, hashes, hashingScheme);
+
+        return Arrays.equals(rootHash, hashes.get(2 * multiProof.getNumberOfLeafNodes() - 2));
+    }
+}
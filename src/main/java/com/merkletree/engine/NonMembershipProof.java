@@ -0,0 +1,26 @@
+package com.merkletree.engine;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Proof that a leaf node of a sparse Merkle Tree is not populated, i.e. holds the sparse leaf value. Bit i of the
+ * default hashes is set if the sibling on level i is an empty subtree. Those siblings are not contained in the proof
+ * hashes, since their hash follows from the level, so the proof hashes contain only the remaining siblings from the
+ * leaf level to the root.
+ */
+@Getter
+@AllArgsConstructor
+public class NonMembershipProof
+{
+    private final int numberOfLeafNodes;
+
+    private final int leafIndex;
+
+    private final BitSet defaultHashes;
+
+    private final List<byte[]> proofHashes;
+}
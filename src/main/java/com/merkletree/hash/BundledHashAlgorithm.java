@@ -0,0 +1,56 @@
+package com.merkletree.hash;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.Blake2bDigest;
+import org.bouncycastle.crypto.digests.Blake2sDigest;
+import org.bouncycastle.crypto.digests.Blake3Digest;
+import org.bouncycastle.crypto.digests.KeccakDigest;
+import org.bouncycastle.crypto.digests.SHA3Digest;
+
+import java.util.function.Supplier;
+
+/**
+ * Hash algorithms that are always available, all with 32 byte digests.
+ */
+public enum BundledHashAlgorithm implements HashAlgorithm
+{
+    /**
+     * Keccak 256 as used by Ethereum, the algorithm of all Merkle Trees created before it could be selected.
+     */
+    KECCAK_256(() -> new KeccakDigest(256)),
+
+    /**
+     * SHA-256 of the JDK, which uses the SHA extensions of the CPU where the JVM has intrinsics for them.
+     */
+    SHA_256(() -> new JdkDigest("SHA-256")),
+
+    SHA3_256(() -> new SHA3Digest(256)),
+
+    BLAKE2B_256(() -> new Blake2bDigest(256)),
+
+    /**
+     * BLAKE2s, which works on 32 bit words and is the faster BLAKE2 variant for inputs of one or two hashes.
+     */
+    BLAKE2S_256(() -> new Blake2sDigest(256)),
+
+    BLAKE3_256(Blake3Digest::new);
+
+    private final Supplier<Digest> digestFactory;
+
+    BundledHashAlgorithm(Supplier<Digest> digestFactory)
+    {
+        this.digestFactory = digestFactory;
+    }
+
+    @Override
+    public String getName()
+    {
+        return name();
+    }
+
+    @Override
+    public Digest createDigest()
+    {
+        return digestFactory.get();
+    }
+}
@@ -0,0 +1,150 @@
+package com.merkletree.hash;
+
+import org.bouncycastle.crypto.Digest;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Lock-free pool of digest instances. Every call borrows a digest exclusively, so concurrent callers never share
+ * digest state. The pool holds no thread locals and takes no monitors, which keeps it cheap for short-lived and
+ * virtual threads alike.
+ */
+public class DigestPool
+{
+    private final Supplier<Digest> digestFactory;
+
+    private final Queue<Digest> idleDigests = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    private final int maxIdle;
+
+    public DigestPool(Supplier<Digest> digestFactory, int maxIdle)
+    {
+        if (digestFactory == null)
+        {
+            throw new IllegalArgumentException("Provided digest factory is null");
+        }
+
+        if (maxIdle < 1)
+        {
+            throw new IllegalArgumentException("Maximum number of idle digests must be positive");
+        }
+
+        this.digestFactory = digestFactory;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Returns a new digest that is not managed by the pool, for callers that keep a digest for their own use.
+     */
+    public Digest createDigest()
+    {
+        return digestFactory.get();
+    }
+
+    public int getDigestSize()
+    {
+        var digest = borrow();
+
+        try
+        {
+            return digest.getDigestSize();
+        } finally
+        {
+            release(digest);
+        }
+    }
+
+    /**
+     * Returns the hash of the provided data.
+     */
+    public byte[] digest(byte[] data)
+    {
+        return digest(data, 0, data.length);
+    }
+
+    public byte[] digest(byte[] data, int offset, int length)
+    {
+        var digest = borrow();
+
+        try
+        {
+            var hash = new byte[digest.getDigestSize()];
+
+            digest.update(data, offset, length);
+            digest.doFinal(hash, 0);
+
+            return hash;
+        } finally
+        {
+            release(digest);
+        }
+    }
+
+    /**
+     * Hashes the provided data and writes the result into the output buffer at the given offset.
+     */
+    public void digest(byte[] data, int offset, int length, byte[] out, int outOffset)
+    {
+        var digest = borrow();
+
+        try
+        {
+            digest.update(data, offset, length);
+            digest.doFinal(out, outOffset);
+        } finally
+        {
+            release(digest);
+        }
+    }
+
+    /**
+     * Runs the action with a digest that is borrowed exclusively for its whole duration. Used to hash many inputs in
+     * a row without returning the digest to the pool in between.
+     */
+    public void withDigest(Consumer<Digest> action)
+    {
+        var digest = borrow();
+
+        try
+        {
+            action.accept(digest);
+        } finally
+        {
+            release(digest);
+        }
+    }
+
+    private Digest borrow()
+    {
+        var digest = idleDigests.poll();
+
+        if (digest == null)
+        {
+            return digestFactory.get();
+        }
+
+        idleCount.decrementAndGet();
+
+        return digest;
+    }
+
+    private void release(Digest digest)
+    {
+        // doFinal already resets the digest, reset again in case an update failed half way
+        digest.reset();
+
+        if (idleCount.incrementAndGet() <= maxIdle)
+        {
+            idleDigests.offer(digest);
+        } else
+        {
+            idleCount.decrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.merkletree.hash;
+
+import org.bouncycastle.crypto.Digest;
+
+/**
+ * Hash function of the leaf nodes and nodes of a Merkle Tree. Besides the {@link BundledHashAlgorithm}s, further
+ * algorithms are plugged in by declaring a bean of this type. The name is stored with every Merkle Tree created with
+ * the algorithm, so it must not change, and the digests must be {@link HashService#HASH_SIZE} bytes long.
+ */
+public interface HashAlgorithm
+{
+    String getName();
+
+    /**
+     * Returns a new digest. Digests are not thread-safe, the hash service borrows them from a pool.
+     */
+    Digest createDigest();
+}
@@ -1,15 +1,18 @@
 package com.merkletree.hash;
 
-import org.bouncycastle.jcajce.provider.digest.Keccak;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class HashConfiguration
 {
+    /**
+     * Hash service of the default algorithm, for hashing that does not belong to a stored Merkle Tree with an
+     * algorithm of its own.
+     */
     @Bean
-    public Keccak.Digest256 keccakDigest256()
+    public HashService hashService(HashServices hashServices)
     {
-        return new Keccak.Digest256();
+        return hashServices.getHashService(HashServices.DEFAULT_ALGORITHM);
     }
 }
@@ -1,23 +1,41 @@
 package com.merkletree.hash;
 
 import lombok.RequiredArgsConstructor;
-import org.bouncycastle.jcajce.provider.digest.Keccak;
 import org.bouncycastle.util.encoders.Hex;
-import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
 
-@Component
+/**
+ * Hashes leaf values and nodes with the digests of one hash algorithm, see {@link HashServices}.
+ */
 @RequiredArgsConstructor
 public class HashService
 {
-    private final Keccak.Digest256 digest256;
+    /**
+     * Size of the hashes in bytes.
+     */
+    public static final int HASH_SIZE = 32;
+
+    private static final byte[] HEX_CHARACTERS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final DigestPool digestPool;
 
     /**
-     * Returns the hex encoded Keccak 256 hash of data provided in String format.
+     * Number of hashes calculated since the start of the service, exposed as a metric.
+     */
+    private final LongAdder hashCount = new LongAdder();
+
+    public long getHashCount()
+    {
+        return hashCount.sum();
+    }
+
+    /**
+     * Returns the hex encoded hash of data provided in String format.
      */
     public String hashData(String data)
     {
@@ -26,11 +44,152 @@ public class HashService
             throw new IllegalArgumentException("Provided data is null");
         }
 
-        var hashedBytes = digest256.digest(data.getBytes(StandardCharsets.UTF_8));
+        hashCount.increment();
+
+        var hashedBytes = digestPool.digest(data.getBytes(StandardCharsets.UTF_8));
 
         return new String(Hex.encode(hashedBytes));
     }
 
+    /**
+     * Returns the hash of data provided in String format.
+     */
+    public byte[] hashLeaf(String data)
+    {
+        if (data == null)
+        {
+            throw new IllegalArgumentException("Provided data is null");
+        }
+
+        hashCount.increment();
+
+        return digestPool.digest(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the parent hash of two child hashes, combined according to the provided hashing scheme.
+     */
+    public byte[] hashPair(byte[] leftHash, byte[] rightHash, HashingScheme hashingScheme)
+    {
+        if (leftHash == null || rightHash == null || hashingScheme == null)
+        {
+            throw new IllegalArgumentException("Provided data is null");
+        }
+
+        byte[] joinedData;
+
+        if (hashingScheme == HashingScheme.BINARY)
+        {
+            joinedData = new byte[leftHash.length + rightHash.length];
+
+            System.arraycopy(leftHash, 0, joinedData, 0, leftHash.length);
+            System.arraycopy(rightHash, 0, joinedData, leftHash.length, rightHash.length);
+        } else
+        {
+            joinedData = new byte[2 * (leftHash.length + rightHash.length)];
+
+            encodeHex(leftHash, 0, leftHash.length, joinedData, 0);
+            encodeHex(rightHash, 0, rightHash.length, joinedData, 2 * leftHash.length);
+        }
+
+        hashCount.increment();
+
+        return digestPool.digest(joinedData);
+    }
+
+    /**
+     * Creates a verifier for proofs of membership of Merkle Trees with the provided hashing scheme. The verifier is not
+     * thread-safe.
+     */
+    public MerkleProofVerifier createProofVerifier(HashingScheme hashingScheme)
+    {
+        return new MerkleProofVerifier(digestPool.createDigest(), hashingScheme);
+    }
+
+    /**
+     * Hashes the leaf values from the start index (inclusive) to the end index (exclusive) and writes the hash of the
+     * value at position i to position i of the hash array.
+     */
+    public void hashLeaves(List<String> leafValues, int fromIndex, int toIndex, byte[] hashes)
+    {
+        if (leafValues == null || hashes == null)
+        {
+            throw new IllegalArgumentException("Provided leaf values are null");
+        }
+
+        digestPool.withDigest(digest ->
+        {
+            for (int i = fromIndex; i < toIndex; i++)
+            {
+                var leafValue = leafValues.get(i);
+
+                if (leafValue == null)
+                {
+                    throw new IllegalArgumentException("Provided data is null");
+                }
+
+                var data = leafValue.getBytes(StandardCharsets.UTF_8);
+
+                digest.update(data, 0, data.length);
+                digest.doFinal(hashes, i * HASH_SIZE);
+            }
+        });
+
+        hashCount.add(toIndex - fromIndex);
+    }
+
+    /**
+     * Hashes a number of adjacent child hash pairs into their parent hashes. The children of the parent at position
+     * parentIndex + i are expected at the positions childIndex + 2i and childIndex + 2i + 1 of the same hash array.
+     */
+    public void hashPairs(byte[] hashes, int childIndex, int parentIndex, int count, HashingScheme hashingScheme)
+    {
+        if (hashes == null || hashingScheme == null)
+        {
+            throw new IllegalArgumentException("Provided data is null");
+        }
+
+        digestPool.withDigest(digest ->
+        {
+            var hexBuffer = hashingScheme == HashingScheme.HEX_CONCATENATION ? new byte[4 * HASH_SIZE] : null;
+
+            for (int i = 0; i < count; i++)
+            {
+                var childOffset = (childIndex + 2 * i) * HASH_SIZE;
+
+                if (hexBuffer == null)
+                {
+                    // both children are stored next to each other, so they are hashed in place
+                    digest.update(hashes, childOffset, 2 * HASH_SIZE);
+                } else
+                {
+                    encodeHex(hashes, childOffset, 2 * HASH_SIZE, hexBuffer, 0);
+
+                    digest.update(hexBuffer, 0, hexBuffer.length);
+                }
+
+                digest.doFinal(hashes, (parentIndex + i) * HASH_SIZE);
+            }
+        });
+
+        hashCount.add(count);
+    }
+
+    /**
+     * Writes the lower case hex characters of the input as ASCII bytes, which equals the UTF-8 encoding of the
+     * hex String, without creating intermediate Strings.
+     */
+    static void encodeHex(byte[] input, int offset, int length, byte[] output, int outputOffset)
+    {
+        for (int i = 0; i < length; i++)
+        {
+            var value = input[offset + i] & 0xff;
+
+            output[outputOffset + 2 * i] = HEX_CHARACTERS[value >>> 4];
+            output[outputOffset + 2 * i + 1] = HEX_CHARACTERS[value & 0x0f];
+        }
+    }
+
     public String getParentHash(String leftHash, String rightHash)
     {
         if (leftHash == null || rightHash == null)
@@ -40,7 +199,9 @@ public class HashService
 
         var joinedData = leftHash + rightHash;
 
-        var hashedBytes = digest256.digest(joinedData.getBytes(StandardCharsets.UTF_8));
+        hashCount.increment();
+
+        var hashedBytes = digestPool.digest(joinedData.getBytes(StandardCharsets.UTF_8));
 
         return new String(Hex.encode(hashedBytes));
     }
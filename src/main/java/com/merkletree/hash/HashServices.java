@@ -0,0 +1,88 @@
+package com.merkletree.hash;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Hash services of all hash algorithms, the bundled ones and the plugged in {@link HashAlgorithm} beans. Every hash
+ * service has a digest pool of its own. Merkle Trees without a stored hash algorithm use {@link #DEFAULT_ALGORITHM}.
+ */
+@Component
+public class HashServices
+{
+    public static final String DEFAULT_ALGORITHM = BundledHashAlgorithm.KECCAK_256.getName();
+
+    private final Map<String, HashService> hashServices = new LinkedHashMap<>();
+
+    @Autowired
+    public HashServices(ObjectProvider<HashAlgorithm> hashAlgorithms, @Value("${merkle-tree.hash.max-idle-digests:0}") int maxIdleDigests)
+    {
+        // By default keep a few idle digests per core and algorithm, enough to cover all threads that hash at the same time
+        var maxIdle = maxIdleDigests > 0 ? maxIdleDigests : 4 * Runtime.getRuntime().availableProcessors();
+
+        for (var hashAlgorithm : BundledHashAlgorithm.values())
+        {
+            addHashAlgorithm(hashAlgorithm, maxIdle);
+        }
+
+        hashAlgorithms.orderedStream().forEach(hashAlgorithm -> addHashAlgorithm(hashAlgorithm, maxIdle));
+    }
+
+    private void addHashAlgorithm(HashAlgorithm hashAlgorithm, int maxIdle)
+    {
+        if (hashServices.containsKey(hashAlgorithm.getName()))
+        {
+            throw new IllegalArgumentException("Hash algorithm " + hashAlgorithm.getName() + " is provided twice");
+        }
+
+        if (hashAlgorithm.createDigest().getDigestSize() != HashService.HASH_SIZE)
+        {
+            throw new IllegalArgumentException("Hash algorithm " + hashAlgorithm.getName() + " does not have 32 byte digests");
+        }
+
+        hashServices.put(hashAlgorithm.getName(), new HashService(new DigestPool(hashAlgorithm::createDigest, maxIdle)));
+    }
+
+    public Set<String> getAlgorithms()
+    {
+        return Collections.unmodifiableSet(hashServices.keySet());
+    }
+
+    /**
+     * Returns the provided hash algorithm, the default algorithm if none is provided. Throws if it is not supported.
+     */
+    public String getAlgorithm(String hashAlgorithm)
+    {
+        if (hashAlgorithm == null)
+        {
+            return DEFAULT_ALGORITHM;
+        }
+
+        if (!hashServices.containsKey(hashAlgorithm))
+        {
+            throw new IllegalArgumentException("Hash algorithm is not supported, supported are " + hashServices.keySet());
+        }
+
+        return hashAlgorithm;
+    }
+
+    public HashService getHashService(String hashAlgorithm)
+    {
+        return hashServices.get(getAlgorithm(hashAlgorithm));
+    }
+
+    /**
+     * Returns the number of hashes calculated with the provided algorithm since the start of the service.
+     */
+    public long getHashCount(String hashAlgorithm)
+    {
+        return getHashService(hashAlgorithm).getHashCount();
+    }
+}
@@ -0,0 +1,18 @@
+package com.merkletree.hash;
+
+/**
+ * Defines how the hashes of two child nodes are combined before they are hashed into the parent hash. The scheme is
+ * stored per Merkle Tree, so trees created with an older scheme keep producing the same root hash.
+ */
+public enum HashingScheme
+{
+    /**
+     * The child hashes are hex encoded, concatenated and hashed as UTF-8 bytes. This is the original scheme.
+     */
+    HEX_CONCATENATION,
+
+    /**
+     * The raw bytes of the child hashes are concatenated and hashed.
+     */
+    BINARY
+}
@@ -0,0 +1,70 @@
+package com.merkletree.hash;
+
+import org.bouncycastle.crypto.Digest;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Digest backed by a {@link MessageDigest} of the JDK, so algorithms for which the JVM has intrinsics are calculated
+ * with them.
+ */
+public class JdkDigest implements Digest
+{
+    private final MessageDigest messageDigest;
+
+    public JdkDigest(String algorithm)
+    {
+        try
+        {
+            this.messageDigest = MessageDigest.getInstance(algorithm);
+        } catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalArgumentException("Hash algorithm " + algorithm + " is not available", e);
+        }
+    }
+
+    @Override
+    public String getAlgorithmName()
+    {
+        return messageDigest.getAlgorithm();
+    }
+
+    @Override
+    public int getDigestSize()
+    {
+        return messageDigest.getDigestLength();
+    }
+
+    @Override
+    public void update(byte input)
+    {
+        messageDigest.update(input);
+    }
+
+    @Override
+    public void update(byte[] input, int offset, int length)
+    {
+        messageDigest.update(input, offset, length);
+    }
+
+    @Override
+    public int doFinal(byte[] output, int offset)
+    {
+        try
+        {
+            // Resets the message digest like the digests of Bouncy Castle
+            return messageDigest.digest(output, offset, getDigestSize());
+        } catch (DigestException e)
+        {
+            throw new IllegalArgumentException("Output buffer is too short", e);
+        }
+    }
+
+    @Override
+    public void reset()
+    {
+        messageDigest.reset();
+    }
+}
@@ -0,0 +1,137 @@
+package com.merkletree.hash;
+
+import org.bouncycastle.crypto.Digest;
+
+import java.util.List;
+
+/**
+ * Verifies proofs of membership without allocating memory per proof. The proof contains the sibling hashes from the
+ * leaf level up to the root, the position of the sibling at level i is given by bit i of the leaf index: if the bit is
+ * set the sibling is the left child, otherwise the right child.
+ * <p>
+ * An instance keeps its own digest and buffers and is therefore not thread-safe. Bulk verification uses one instance
+ * per thread, created via {@link HashService#createProofVerifier(HashingScheme)}.
+ */
+public class MerkleProofVerifier
+{
+    private final Digest digest;
+
+    private final HashingScheme hashingScheme;
+
+    private final byte[] hash = new byte[HashService.HASH_SIZE];
+
+    private final byte[] pair;
+
+    public MerkleProofVerifier(Digest digest, HashingScheme hashingScheme)
+    {
+        if (digest == null || hashingScheme == null)
+        {
+            throw new IllegalArgumentException("Provided data is null");
+        }
+
+        if (digest.getDigestSize() != HashService.HASH_SIZE)
+        {
+            throw new IllegalArgumentException("Digest size does not match the hash size");
+        }
+
+        this.digest = digest;
+        this.hashingScheme = hashingScheme;
+        this.pair = new byte[hashingScheme == HashingScheme.BINARY ? 2 * HashService.HASH_SIZE : 4 * HashService.HASH_SIZE];
+    }
+
+    public boolean verify(byte[] leafHash, long leafIndex, byte[][] proofHashes, byte[] rootHash)
+    {
+        if (!isValid(leafHash, leafIndex, proofHashes.length, rootHash))
+        {
+            return false;
+        }
+
+        System.arraycopy(leafHash, 0, hash, 0, HashService.HASH_SIZE);
+
+        for (int level = 0; level < proofHashes.length; level++)
+        {
+            if (!hashLevel(proofHashes[level], leafIndex, level))
+            {
+                return false;
+            }
+        }
+
+        return isRootHash(rootHash);
+    }
+
+    public boolean verify(byte[] leafHash, long leafIndex, List<byte[]> proofHashes, byte[] rootHash)
+    {
+        if (!isValid(leafHash, leafIndex, proofHashes.size(), rootHash))
+        {
+            return false;
+        }
+
+        System.arraycopy(leafHash, 0, hash, 0, HashService.HASH_SIZE);
+
+        for (int level = 0; level < proofHashes.size(); level++)
+        {
+            if (!hashLevel(proofHashes.get(level), leafIndex, level))
+            {
+                return false;
+            }
+        }
+
+        return isRootHash(rootHash);
+    }
+
+    private boolean isValid(byte[] leafHash, long leafIndex, int numberOfLevels, byte[] rootHash)
+    {
+        if (leafHash == null || rootHash == null)
+        {
+            throw new IllegalArgumentException("Provided data is null");
+        }
+
+        // the leaf index has to fit into the number of levels of the proof
+        return leafHash.length == HashService.HASH_SIZE
+                && rootHash.length == HashService.HASH_SIZE
+                && leafIndex >= 0
+                && numberOfLevels < Long.SIZE
+                && (leafIndex >>> numberOfLevels) == 0;
+    }
+
+    private boolean hashLevel(byte[] proofHash, long leafIndex, int level)
+    {
+        if (proofHash == null || proofHash.length != HashService.HASH_SIZE)
+        {
+            return false;
+        }
+
+        var isLeftSibling = ((leafIndex >>> level) & 1) == 1;
+
+        var left = isLeftSibling ? proofHash : hash;
+
+        var right = isLeftSibling ? hash : proofHash;
+
+        if (hashingScheme == HashingScheme.BINARY)
+        {
+            System.arraycopy(left, 0, pair, 0, HashService.HASH_SIZE);
+            System.arraycopy(right, 0, pair, HashService.HASH_SIZE, HashService.HASH_SIZE);
+        } else
+        {
+            HashService.encodeHex(left, 0, HashService.HASH_SIZE, pair, 0);
+            HashService.encodeHex(right, 0, HashService.HASH_SIZE, pair, 2 * HashService.HASH_SIZE);
+        }
+
+        digest.update(pair, 0, pair.length);
+        digest.doFinal(hash, 0);
+
+        return true;
+    }
+
+    private boolean isRootHash(byte[] rootHash)
+    {
+        var difference = 0;
+
+        for (int i = 0; i < HashService.HASH_SIZE; i++)
+        {
+            difference |= hash[i] ^ rootHash[i];
+        }
+
+        return difference == 0;
+    }
+}
@@ -0,0 +1,72 @@
+package com.merkletree.log.controller;
+
+import com.merkletree.api.MerkleLogApi;
+import com.merkletree.log.service.MerkleLogService;
+import com.merkletree.model.HashingSchemeDto;
+import com.merkletree.model.MerkleLogRootDto;
+import com.merkletree.regular.mapper.NodesMapper;
+import com.merkletree.hash.HashingScheme;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequiredArgsConstructor
+public class MerkleLogController implements MerkleLogApi
+{
+    private final MerkleLogService merkleLogService;
+
+    private final NodesMapper nodesMapper;
+
+    @Override
+    public ResponseEntity<UUID> createMerkleLog(HashingSchemeDto hashingScheme)
+    {
+        var merkleTreeId = merkleLogService.createMerkleLog(hashingScheme == null ? HashingScheme.BINARY : HashingScheme.valueOf(hashingScheme.name()));
+
+        return new ResponseEntity<>(merkleTreeId, HttpStatus.CREATED);
+    }
+
+    @Override
+    public ResponseEntity<MerkleLogRootDto> appendLeafValues(UUID merkleTreeId, List<String> leafValues)
+    {
+        var merkleTree = merkleLogService.appendLeafValues(merkleTreeId, leafValues);
+
+        var merkleLogRoot = new MerkleLogRootDto()
+                .treeSize(merkleTree.getNumberOfLeafNodes())
+                .rootHash(nodesMapper.hashToDto(merkleTree.getRootHash()));
+
+        return new ResponseEntity<>(merkleLogRoot, HttpStatus.OK);
+    }
+
+    @Override
+    public ResponseEntity<MerkleLogRootDto> getMerkleLogRoot(UUID merkleTreeId, Integer treeSize)
+    {
+        var rootHash = merkleLogService.getRootHash(merkleTreeId, treeSize);
+
+        var merkleLogRoot = new MerkleLogRootDto()
+                .treeSize(treeSize != null ? treeSize : merkleLogService.getMerkleLogHeader(merkleTreeId).getNumberOfLeafNodes())
+                .rootHash(nodesMapper.hashToDto(rootHash));
+
+        return new ResponseEntity<>(merkleLogRoot, HttpStatus.OK);
+    }
+
+    @Override
+    public ResponseEntity<List<String>> getInclusionProof(UUID merkleTreeId, Integer leafIndex, String leafValue, Integer treeSize)
+    {
+        var inclusionProof = merkleLogService.getInclusionProof(merkleTreeId, leafIndex, leafValue, treeSize);
+
+        return new ResponseEntity<>(nodesMapper.hashesToDto(inclusionProof), HttpStatus.OK);
+    }
+
+    @Override
+    public ResponseEntity<List<String>> getConsistencyProof(UUID merkleTreeId, Integer firstTreeSize, Integer treeSize)
+    {
+        var consistencyProof = merkleLogService.getConsistencyProof(merkleTreeId, firstTreeSize, treeSize);
+
+        return new ResponseEntity<>(nodesMapper.hashesToDto(consistencyProof), HttpStatus.OK);
+    }
+}
@@ -0,0 +1,260 @@
+package com.merkletree.log.service;
+
+import com.merkletree.engine.MerkleLogEngine;
+import com.merkletree.engine.MerkleLogRange;
+import com.merkletree.hash.HashService;
+import com.merkletree.hash.HashingScheme;
+import com.merkletree.regular.model.MerkleTree;
+import com.merkletree.regular.model.MerkleTreeHeader;
+import com.merkletree.regular.model.nodes.LeafNode;
+import com.merkletree.regular.model.nodes.Node;
+import com.merkletree.regular.repositories.MerkleTreeRepository;
+import com.merkletree.regular.services.LeafNodeService;
+import com.merkletree.regular.services.NodesService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * Append-only Merkle Trees, which store their leaf nodes and perfect subtrees. The nodes are addressed by the
+ * in-order index of {@link MerkleLogRange#getNodeIndex()}, the leaf nodes by their leaf index.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MerkleLogService
+{
+    private final MerkleTreeRepository merkleTreeRepository;
+
+    private final LeafNodeService leafNodeService;
+
+    private final NodesService nodesService;
+
+    private final HashService hashService;
+
+    private final MerkleLogEngine merkleLogEngine;
+
+    public UUID createMerkleLog(HashingScheme hashingScheme)
+    {
+        var merkleTree = MerkleTree.builder()
+                .hashingScheme(hashingScheme)
+                .numberOfLeafNodes(0)
+                .appendOnly(true)
+                .rootHash(merkleLogEngine.getEmptyRootHash())
+                .leafNodes(new ArrayList<>())
+                .nodes(new ArrayList<>())
+                .build();
+
+        return merkleTreeRepository.save(merkleTree).getId();
+    }
+
+    /**
+     * Appends the leaf values and inserts the new leaf nodes and the perfect subtrees completed by them in JDBC batches.
+     * Only the perfect subtrees of the current tree are read, concurrent appends to the same tree are serialized.
+     */
+    @Transactional
+    public MerkleTreeHeader appendLeafValues(UUID merkleTreeId, List<String> leafValues)
+    {
+        if (leafValues == null || leafValues.isEmpty() || leafValues.contains(null))
+        {
+            throw new IllegalArgumentException("No leaf values to append provided");
+        }
+
+        var merkleTreeHeader = merkleTreeRepository.findLockedHeaderById(merkleTreeId)
+                .orElseThrow(() -> new IllegalArgumentException("No Merkle Tree with provided id present"));
+
+        verifyAppendOnly(merkleTreeHeader);
+
+        var treeSize = merkleTreeHeader.getNumberOfLeafNodes();
+
+        var hashingScheme = merkleTreeHeader.getHashingScheme();
+
+        var subtreeHashes = treeSize == 0 ? new HashMap<Integer, byte[]>()
+                : getSubtreeHashes(merkleTreeId, List.of(new MerkleLogRange(0, treeSize)));
+
+        var leafNodes = new ArrayList<LeafNode>(leafValues.size());
+
+        var leafHashes = new ArrayList<byte[]>(leafValues.size());
+
+        for (var leafValue : leafValues)
+        {
+            var hashValue = hashService.hashLeaf(leafValue);
+
+            leafHashes.add(hashValue);
+
+            leafNodes.add(LeafNode.builder()
+                    .index(treeSize + leafNodes.size())
+                    .leafValue(leafValue)
+                    .hashValue(hashValue)
+                    .build());
+        }
+
+        var nodes = new ArrayList<Node>();
+
+        merkleLogEngine.appendLeafHashes(treeSize, leafHashes, subtreeHashes, hashingScheme, (hashValue, index) ->
+                nodes.add(Node.builder()
+                        .index(index)
+                        .hashValue(hashValue)
+                        .build()));
+
+        leafNodeService.insertLeafNodes(merkleTreeId, leafNodes);
+
+        nodesService.insertNodes(merkleTreeId, nodes);
+
+        var newTreeSize = treeSize + leafValues.size();
+
+        var rootHash = merkleLogEngine.hashRange(new MerkleLogRange(0, newTreeSize), subtreeHashes, hashingScheme);
+
+        merkleTreeRepository.updateNumberOfLeafNodes(merkleTreeId, newTreeSize, rootHash);
+
+        return getMerkleLogHeader(merkleTreeId);
+    }
+
+    /**
+     * Returns the root hash of the tree when it had the provided size, or of the current tree if no size is provided.
+     */
+    public byte[] getRootHash(UUID merkleTreeId, Integer treeSize)
+    {
+        var merkleTreeHeader = getMerkleLogHeader(merkleTreeId);
+
+        var size = getTreeSize(merkleTreeHeader, treeSize);
+
+        if (size == merkleTreeHeader.getNumberOfLeafNodes())
+        {
+            return merkleTreeHeader.getRootHash();
+        }
+
+        if (size == 0)
+        {
+            return merkleLogEngine.getEmptyRootHash();
+        }
+
+        var range = new MerkleLogRange(0, size);
+
+        return merkleLogEngine.hashRange(range, getSubtreeHashes(merkleTreeId, List.of(range)), merkleTreeHeader.getHashingScheme());
+    }
+
+    /**
+     * Returns the hashes proving that the leaf is contained in the tree of the provided size, ordered from the leaf
+     * level to the root.
+     */
+    public List<byte[]> getInclusionProof(UUID merkleTreeId, Integer leafIndex, String leafValue, Integer treeSize)
+    {
+        var merkleTreeHeader = getMerkleLogHeader(merkleTreeId);
+
+        var size = getTreeSize(merkleTreeHeader, treeSize);
+
+        if (leafIndex == null || leafIndex >= size)
+        {
+            throw new IllegalArgumentException("No leaf with provided index or leaf value present");
+        }
+
+        var leafNode = leafNodeService.getLeafNode(merkleTreeId, leafIndex);
+
+        if (leafNode == null || !leafNode.getLeafValue().equals(leafValue))
+        {
+            throw new IllegalArgumentException("No leaf with provided index or leaf value present");
+        }
+
+        return getProofHashes(merkleTreeHeader, merkleLogEngine.getInclusionProofRanges(leafIndex, size));
+    }
+
+    /**
+     * Returns the hashes proving that the tree of the second size contains the tree of the first size as prefix.
+     */
+    public List<byte[]> getConsistencyProof(UUID merkleTreeId, Integer firstTreeSize, Integer secondTreeSize)
+    {
+        var merkleTreeHeader = getMerkleLogHeader(merkleTreeId);
+
+        var size = getTreeSize(merkleTreeHeader, secondTreeSize);
+
+        if (firstTreeSize == null)
+        {
+            throw new IllegalArgumentException("Provided data is null");
+        }
+
+        return getProofHashes(merkleTreeHeader, merkleLogEngine.getConsistencyProofRanges(firstTreeSize, size));
+    }
+
+    public MerkleTreeHeader getMerkleLogHeader(UUID merkleTreeId)
+    {
+        var merkleTreeHeader = merkleTreeRepository.findHeaderById(merkleTreeId)
+                .orElseThrow(() -> new IllegalArgumentException("No Merkle Tree with provided id present"));
+
+        verifyAppendOnly(merkleTreeHeader);
+
+        return merkleTreeHeader;
+    }
+
+    private void verifyAppendOnly(MerkleTreeHeader merkleTreeHeader)
+    {
+        if (!Boolean.TRUE.equals(merkleTreeHeader.getAppendOnly()))
+        {
+            throw new IllegalArgumentException("Merkle Tree with provided id is not append-only");
+        }
+    }
+
+    private int getTreeSize(MerkleTreeHeader merkleTreeHeader, Integer treeSize)
+    {
+        if (treeSize == null)
+        {
+            return merkleTreeHeader.getNumberOfLeafNodes();
+        }
+
+        if (treeSize < 0 || treeSize > merkleTreeHeader.getNumberOfLeafNodes())
+        {
+            throw new IllegalArgumentException("Tree size is larger than the Merkle Tree");
+        }
+
+        return treeSize;
+    }
+
+    private List<byte[]> getProofHashes(MerkleTreeHeader merkleTreeHeader, List<MerkleLogRange> ranges)
+    {
+        var subtreeHashes = getSubtreeHashes(merkleTreeHeader.getId(), ranges);
+
+        return ranges.stream()
+                .map(range -> merkleLogEngine.hashRange(range, subtreeHashes, merkleTreeHeader.getHashingScheme()))
+                .toList();
+    }
+
+    /**
+     * Reads the hashes of the perfect subtrees of the ranges with one query for leaf nodes and one for nodes.
+     */
+    private Map<Integer, byte[]> getSubtreeHashes(UUID merkleTreeId, Collection<MerkleLogRange> ranges)
+    {
+        var leafIndices = new HashSet<Integer>();
+
+        var nodeIndices = new HashSet<Integer>();
+
+        ranges.forEach(range -> range.getPerfectSubtrees().forEach(perfectSubtree ->
+        {
+            if (perfectSubtree.getSize() == 1)
+            {
+                leafIndices.add(perfectSubtree.getStart());
+            } else
+            {
+                nodeIndices.add(perfectSubtree.getNodeIndex());
+            }
+        }));
+
+        var subtreeHashes = new HashMap<Integer, byte[]>();
+
+        if (!leafIndices.isEmpty())
+        {
+            leafNodeService.getLeafNodes(merkleTreeId, leafIndices)
+                    .forEach(leafNode -> subtreeHashes.put(2 * leafNode.getIndex(), leafNode.getHashValue()));
+        }
+
+        if (!nodeIndices.isEmpty())
+        {
+            nodesService.getNodes(merkleTreeId, nodeIndices)
+                    .forEach(node -> subtreeHashes.put(node.getIndex(), node.getHashValue()));
+        }
+
+        return subtreeHashes;
+    }
+}
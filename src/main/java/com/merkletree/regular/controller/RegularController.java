@@ -1,18 +1,37 @@
 package com.merkletree.regular.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merkletree.model.BuildJobDto;
+import com.merkletree.model.BuildJobStatusDto;
+import com.merkletree.model.HashingSchemeDto;
 import com.merkletree.model.LeafNodesDto;
+import com.merkletree.model.MerkleTreeRootDto;
+import com.merkletree.model.MerkleTreeVersionsDto;
+import com.merkletree.model.MultiProofDto;
+import com.merkletree.model.MultiProofRequestDto;
+import com.merkletree.model.NodeCacheStatisticsDto;
+import com.merkletree.model.ProofOfMembershipDto;
 import com.merkletree.regular.mapper.NodesMapper;
+import com.merkletree.regular.services.BuildJob;
+import com.merkletree.regular.services.BuildJobService;
 import com.merkletree.regular.services.MerkleTreeService;
+import com.merkletree.regular.store.NodeHashCache;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RestController;
 import com.merkletree.api.MerkleTreeApi;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequiredArgsConstructor
@@ -21,8 +40,14 @@ public class RegularController implements MerkleTreeApi
 {
     private final MerkleTreeService merkleTreeService;
 
+    private final BuildJobService buildJobService;
+
+    private final NodeHashCache nodeHashCache;
+
     private final NodesMapper nodesMapper;
 
+    private final ObjectMapper objectMapper;
+
     @Override
     public ResponseEntity<UUID> createMerkleTree(LeafNodesDto leafNodesDto)
     {
@@ -32,11 +57,60 @@ public class RegularController implements MerkleTreeApi
     }
 
     @Override
-    public ResponseEntity<String> getMerkleProof(UUID merkleTreeId)
+    public ResponseEntity<MerkleTreeRootDto> createMerkleTreeFromStream(Integer size, Resource body, HashingSchemeDto hashingScheme, String hashAlgorithm)
+    {
+        try (var inputStream = body.getInputStream();
+             MappingIterator<String> leafValues = objectMapper.readerFor(String.class).readValues(inputStream))
+        {
+            var merkleTreeId = merkleTreeService.createMerkleTree(leafValues, size, merkleTreeService.getHashingScheme(hashingScheme), hashAlgorithm);
+
+            var merkleTreeRoot = new MerkleTreeRootDto()
+                    .merkleTreeId(merkleTreeId)
+                    .rootHash(nodesMapper.hashToDto(merkleTreeService.getMerkleProof(merkleTreeId)));
+
+            return new ResponseEntity<>(merkleTreeRoot, HttpStatus.CREATED);
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public ResponseEntity<BuildJobDto> createMerkleTreeJob(LeafNodesDto leafNodesDto)
+    {
+        try
+        {
+            var buildJob = buildJobService.submit(leafNodesDto);
+
+            return new ResponseEntity<>(buildJobToDto(buildJob), HttpStatus.ACCEPTED);
+        } catch (RejectedExecutionException e)
+        {
+            return new ResponseEntity<>(HttpStatus.TOO_MANY_REQUESTS);
+        }
+    }
+
+    @Override
+    public ResponseEntity<BuildJobDto> getMerkleTreeJob(UUID jobId)
+    {
+        var buildJob = buildJobService.getJob(jobId);
+
+        return new ResponseEntity<>(buildJobToDto(buildJob), HttpStatus.OK);
+    }
+
+    @Override
+    public ResponseEntity<BuildJobDto> cancelMerkleTreeJob(UUID jobId)
     {
-        var merkleProof = merkleTreeService.getMerkleProof();
+        var buildJob = buildJobService.cancel(jobId);
 
-        return new ResponseEntity<>(merkleProof, HttpStatus.OK);
+        return new ResponseEntity<>(buildJobToDto(buildJob), HttpStatus.OK);
+    }
+
+    @Override
+    public ResponseEntity<String> getMerkleProof(UUID merkleTreeId, Integer version)
+    {
+        var merkleProof = merkleTreeService.getMerkleProof(merkleTreeId, version);
+
+        return new ResponseEntity<>(nodesMapper.hashToDto(merkleProof), HttpStatus.OK);
     }
 
     @Override
@@ -50,13 +124,86 @@ public class RegularController implements MerkleTreeApi
     }
 
     @Override
-    public ResponseEntity<List<String>> getProofOfMembership(UUID merkleTreeId, Integer leafIndex, String leafValue)
+    public ResponseEntity<List<String>> getProofOfMembership(UUID merkleTreeId, Integer leafIndex, String leafValue, Integer version)
     {
-        var proofOfMembership = merkleTreeService.getProofOfMembership(merkleTreeId, leafIndex, leafValue);
+        var proofOfMembership = merkleTreeService.getProofOfMembership(merkleTreeId, leafIndex, leafValue, version);
+
+        return new ResponseEntity<>(nodesMapper.hashesToDto(proofOfMembership), HttpStatus.OK);
+    }
+
+    @Override
+    public ResponseEntity<ProofOfMembershipDto> findProofOfMembership(UUID merkleTreeId, String leafValue, Integer version)
+    {
+        var leafIndex = merkleTreeService.findLeafIndex(merkleTreeId, leafValue, version);
+
+        var proofOfMembership = new ProofOfMembershipDto()
+                .leafIndex(leafIndex)
+                .leafValue(leafValue)
+                .proofHashes(nodesMapper.hashesToDto(merkleTreeService.getProofOfMembership(merkleTreeId, leafIndex, leafValue, version)));
 
         return new ResponseEntity<>(proofOfMembership, HttpStatus.OK);
     }
 
+    @Override
+    public ResponseEntity<Boolean> verifyProofOfMembership(UUID merkleTreeId, ProofOfMembershipDto proofOfMembershipDto)
+    {
+        var proofHashes = proofOfMembershipDto.getProofHashes() == null ? List.<byte[]>of()
+                : nodesMapper.hashesFromDto(proofOfMembershipDto.getProofHashes());
+
+        var isValid = merkleTreeService.verifyProofOfMembership(merkleTreeId, proofOfMembershipDto.getLeafIndex(),
+                proofOfMembershipDto.getLeafValue(), proofHashes);
+
+        return new ResponseEntity<>(isValid, HttpStatus.OK);
+    }
+
+    @Override
+    public ResponseEntity<MultiProofDto> getMultiProof(UUID merkleTreeId, MultiProofRequestDto multiProofRequestDto)
+    {
+        var proofLeafValues = new HashMap<Integer, String>();
+
+        multiProofRequestDto.getDataPoints().forEach((index, leafValue) -> proofLeafValues.put(Integer.parseInt(index), leafValue));
+
+        var multiProof = merkleTreeService.getMultiProof(merkleTreeId, proofLeafValues);
+
+        return new ResponseEntity<>(nodesMapper.multiProofToDto(multiProof), HttpStatus.OK);
+    }
+
+    @Override
+    public ResponseEntity<MerkleTreeVersionsDto> getMerkleTreeVersions(UUID merkleTreeId)
+    {
+        var merkleTree = merkleTreeService.getMerkleTreeHeader(merkleTreeId);
+
+        var merkleTreeVersions = new MerkleTreeVersionsDto()
+                .version(merkleTreeService.getVersion(merkleTree))
+                .oldestVersion(merkleTreeService.getOldestVersion(merkleTree));
+
+        return new ResponseEntity<>(merkleTreeVersions, HttpStatus.OK);
+    }
+
+    @Override
+    public ResponseEntity<Void> deleteMerkleTreeVersions(UUID merkleTreeId, Integer before)
+    {
+        merkleTreeService.deleteVersionsBefore(merkleTreeId, before);
+
+        return new ResponseEntity<>(HttpStatus.OK);
+    }
+
+    @Override
+    public ResponseEntity<NodeCacheStatisticsDto> getNodeCacheStatistics()
+    {
+        var statistics = nodeHashCache.getStatistics();
+
+        var nodeCacheStatistics = new NodeCacheStatisticsDto()
+                .hits(statistics.getHits())
+                .misses(statistics.getMisses())
+                .evictions(statistics.getEvictions())
+                .entries(statistics.getEntries())
+                .bytes(statistics.getBytes())
+                .maxBytes(statistics.getMaxBytes());
+
+        return new ResponseEntity<>(nodeCacheStatistics, HttpStatus.OK);
+    }
+
     @Override
     public ResponseEntity<Void> updateLeaf(UUID merkleTreeId, LeafNodesDto leafNodesDto)
     {
@@ -65,4 +212,20 @@ public class RegularController implements MerkleTreeApi
         return new ResponseEntity<>(HttpStatus.OK);
     }
 
+    private BuildJobDto buildJobToDto(BuildJob buildJob)
+    {
+        var progress = buildJob.getProgress();
+
+        return new BuildJobDto()
+                .jobId(buildJob.getId())
+                .status(BuildJobStatusDto.valueOf(buildJob.getStatus().name()))
+                .numberOfLeafNodes(buildJob.getNumberOfLeafNodes())
+                .leavesHashed(progress.getLeavesHashed())
+                .levelsDone(progress.getLevelsDone())
+                .numberOfLevels(buildJob.getNumberOfLevels())
+                .nodesPersisted(progress.getNodesPersisted())
+                .merkleTreeId(buildJob.getMerkleTreeId())
+                .error(buildJob.getError());
+    }
+
 }
@@ -0,0 +1,47 @@
+package com.merkletree.regular.controller;
+
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+
+/**
+ * Reads newline delimited JSON request bodies as a resource on top of the request stream. The default resource
+ * converter copies the whole body into memory, which defeats the streaming ingestion of leaf values.
+ */
+public class StreamingResourceHttpMessageConverter extends AbstractHttpMessageConverter<Resource>
+{
+    public StreamingResourceHttpMessageConverter()
+    {
+        super(MediaType.APPLICATION_NDJSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz)
+    {
+        return Resource.class == clazz;
+    }
+
+    @Override
+    protected boolean canWrite(MediaType mediaType)
+    {
+        return false;
+    }
+
+    @Override
+    protected Resource readInternal(Class<? extends Resource> clazz, HttpInputMessage inputMessage) throws IOException
+    {
+        return new InputStreamResource(inputMessage.getBody());
+    }
+
+    @Override
+    protected void writeInternal(Resource resource, HttpOutputMessage outputMessage)
+    {
+        throw new HttpMessageNotWritableException("Resources are not written as newline delimited JSON");
+    }
+}
@@ -0,0 +1,18 @@
+package com.merkletree.regular.controller;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer
+{
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters)
+    {
+        // Has to be asked before the default resource converter, which buffers the whole request body
+        converters.add(0, new StreamingResourceHttpMessageConverter());
+    }
+}
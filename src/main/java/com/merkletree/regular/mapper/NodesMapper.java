@@ -1,10 +1,53 @@
 package com.merkletree.regular.mapper;
 
+import com.merkletree.engine.MultiProof;
+import com.merkletree.engine.NonMembershipProof;
+import com.merkletree.model.MultiProofDto;
+import com.merkletree.model.NonMembershipProofDto;
+import org.bouncycastle.util.encoders.DecoderException;
+import org.bouncycastle.util.encoders.Hex;
 import org.mapstruct.Mapper;
+
+import java.util.BitSet;
+import java.util.List;
 import java.util.Map;
 
 @Mapper(componentModel = "spring")
 public interface NodesMapper
 {
-    Map<String, String> nodeDboToDto(Map<Integer, String> map);
+    Map<String, String> nodeDboToDto(Map<Integer, byte[]> map);
+
+    List<String> hashesToDto(List<byte[]> hashes);
+
+    List<byte[]> hashesFromDto(List<String> hashes);
+
+    MultiProofDto multiProofToDto(MultiProof multiProof);
+
+    NonMembershipProofDto nonMembershipProofToDto(NonMembershipProof nonMembershipProof);
+
+    default String bitmapToDto(BitSet bitmap)
+    {
+        return bitmap == null ? null : Hex.toHexString(bitmap.toByteArray());
+    }
+
+    default String hashToDto(byte[] hash)
+    {
+        return hash == null ? null : Hex.toHexString(hash);
+    }
+
+    default byte[] hashFromDto(String hash)
+    {
+        if (hash == null)
+        {
+            return null;
+        }
+
+        try
+        {
+            return Hex.decode(hash);
+        } catch (DecoderException e)
+        {
+            throw new IllegalArgumentException("Provided hash is not hex encoded");
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package com.merkletree.regular.model;
 
+import com.merkletree.hash.HashingScheme;
 import com.merkletree.regular.model.nodes.LeafNode;
 import com.merkletree.regular.model.nodes.Node;
 import jakarta.persistence.*;
@@ -25,12 +26,68 @@ public class MerkleTree
     @Column(name = "id", nullable = false, updatable = false)
     private UUID id;
 
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "merkleTree", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Enumerated(EnumType.STRING)
+    @Column(name = "hashing_scheme")
+    private HashingScheme hashingScheme;
+
+    /**
+     * Name of the hash algorithm, trees persisted before the hash algorithm was introduced use Keccak 256.
+     */
+    @Column(name = "hash_algorithm")
+    private String hashAlgorithm;
+
+    @Column(name = "number_of_leaf_nodes")
+    private Integer numberOfLeafNodes;
+
+    @Column(name = "root_hash", length = 32)
+    private byte[] rootHash;
+
+    /**
+     * Sparse Merkle Trees store only their populated leaf nodes and the nodes above them.
+     */
+    @Column(name = "sparse")
+    private Boolean sparse;
+
+    /**
+     * Append-only Merkle Trees have an arbitrary number of leaf nodes and store only their perfect subtrees.
+     */
+    @Column(name = "append_only")
+    private Boolean appendOnly;
+
+    /**
+     * Versioned Merkle Trees keep the nodes of earlier versions. An update adds new nodes only for the updated leaf
+     * nodes and their paths, all other nodes are shared with the earlier versions.
+     */
+    @Column(name = "versioned")
+    private Boolean versioned;
+
+    @Column(name = "tree_version")
+    private Integer version;
+
+    @Column(name = "oldest_version")
+    private Integer oldestVersion;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "node_storage")
+    private NodeStorage nodeStorage;
+
+    /**
+     * Only used to save new Merkle Trees, the leaf nodes and nodes are read by index through their services.
+     */
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "merkleTree", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<LeafNode> leafNodes = new ArrayList<>();
 
-    @OneToMany(fetch = FetchType.EAGER, mappedBy = "merkleTree", cascade = CascadeType.ALL, orphanRemoval = true)
+    @OneToMany(fetch = FetchType.LAZY, mappedBy = "merkleTree", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Node> nodes = new ArrayList<>();
 
+    /**
+     * Trees persisted before the hashing scheme was introduced use the hex concatenation scheme.
+     */
+    public HashingScheme getHashingScheme()
+    {
+        return hashingScheme == null ? HashingScheme.HEX_CONCATENATION : hashingScheme;
+    }
+
     public int getNumberOfNodes()
     {
         return (2*(leafNodes.size()) -1);
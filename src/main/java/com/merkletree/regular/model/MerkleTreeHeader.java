@@ -0,0 +1,33 @@
+package com.merkletree.regular.model;
+
+import com.merkletree.hash.HashingScheme;
+
+import java.util.UUID;
+
+/**
+ * Projection on the columns of a Merkle Tree, which can be read without loading its leaf nodes and nodes.
+ */
+public interface MerkleTreeHeader
+{
+    UUID getId();
+
+    HashingScheme getHashingScheme();
+
+    String getHashAlgorithm();
+
+    Integer getNumberOfLeafNodes();
+
+    byte[] getRootHash();
+
+    Boolean getSparse();
+
+    Boolean getAppendOnly();
+
+    Boolean getVersioned();
+
+    Integer getVersion();
+
+    Integer getOldestVersion();
+
+    NodeStorage getNodeStorage();
+}
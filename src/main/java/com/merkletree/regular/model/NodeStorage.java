@@ -0,0 +1,22 @@
+package com.merkletree.regular.model;
+
+/**
+ * How the leaf nodes and nodes of a Merkle Tree are persisted.
+ */
+public enum NodeStorage
+{
+    /**
+     * One row per leaf node and node, required for sparse, versioned and append-only Merkle Trees.
+     */
+    ROWS,
+
+    /**
+     * The hashes of every level in fixed-size chunks of packed digests. Leaf values are not kept, only their hashes.
+     */
+    CHUNKS,
+
+    /**
+     * The hashes of every Merkle Tree in a memory-mapped file, level by level. Leaf values are not kept either.
+     */
+    MAPPED
+}
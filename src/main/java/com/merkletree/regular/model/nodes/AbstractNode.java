@@ -6,6 +6,7 @@ import lombok.*;
 import lombok.experimental.SuperBuilder;
 import org.hibernate.annotations.GenericGenerator;
 
+import java.util.Arrays;
 import java.util.Objects;
 import java.util.UUID;
 
@@ -27,8 +28,14 @@ public abstract class AbstractNode
     @Column(name ="node_index")
     private int index;
 
-    @Column(name ="node_hash_value")
-    private String hashValue;
+    @Column(name ="node_hash_value", length = 32)
+    private byte[] hashValue;
+
+    /**
+     * The version of the Merkle Tree in which the node got this hash. Nodes without a version belong to version 0.
+     */
+    @Column(name = "node_version")
+    private Integer version;
 
     @ManyToOne(fetch = FetchType.LAZY, cascade = CascadeType.ALL)
     @JoinColumn(name = "merkle_tree_id")
@@ -40,12 +47,12 @@ public abstract class AbstractNode
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         AbstractNode that = (AbstractNode) o;
-        return index == that.index && Objects.equals(id, that.id) && Objects.equals(hashValue, that.hashValue) && Objects.equals(merkleTree, that.merkleTree);
+        return index == that.index && Objects.equals(id, that.id) && Arrays.equals(hashValue, that.hashValue) && Objects.equals(merkleTree, that.merkleTree);
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(id, index, hashValue, merkleTree);
+        return Objects.hash(id, index, Arrays.hashCode(hashValue), merkleTree);
     }
 }
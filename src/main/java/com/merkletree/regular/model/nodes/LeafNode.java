@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import lombok.*;
 import lombok.experimental.SuperBuilder;
 
-@Table(name = "leaf_nodes")
+@Table(name = "leaf_nodes", indexes = {
+        @Index(name = "leaf_nodes_merkle_tree_id_node_index", columnList = "merkle_tree_id, node_index"),
+        @Index(name = "leaf_nodes_merkle_tree_id_leaf_value", columnList = "merkle_tree_id, leaf_value")})
 @Entity
 @SuperBuilder
 @NoArgsConstructor
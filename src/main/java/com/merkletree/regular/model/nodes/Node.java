@@ -9,7 +9,7 @@ import lombok.experimental.SuperBuilder;
 
 import java.util.List;
 
-@Table(name = "node")
+@Table(name = "node", indexes = @Index(name = "node_merkle_tree_id_node_index", columnList = "merkle_tree_id, node_index"))
 @Entity
 @SuperBuilder
 @NoArgsConstructor
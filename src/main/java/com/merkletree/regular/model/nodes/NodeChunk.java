@@ -0,0 +1,27 @@
+package com.merkletree.regular.model.nodes;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Consecutive hashes of one level of a Merkle Tree, packed into one array of fixed-width digests. The chunk c of a
+ * level holds the hashes of the nodes c * CHUNK_SIZE to (c + 1) * CHUNK_SIZE - 1 of that level.
+ */
+@Table(name = "node_chunks")
+@Entity
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class NodeChunk
+{
+    @EmbeddedId
+    private NodeChunkId id;
+
+    @Lob
+    @Column(name = "hashes", nullable = false)
+    private byte[] hashes;
+}
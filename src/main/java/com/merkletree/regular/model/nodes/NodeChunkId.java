@@ -0,0 +1,30 @@
+package com.merkletree.regular.model.nodes;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+@Embeddable
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@EqualsAndHashCode
+public class NodeChunkId implements Serializable
+{
+    private static final long serialVersionUID = 1L;
+
+    @Column(name = "merkle_tree_id", nullable = false)
+    private UUID merkleTreeId;
+
+    @Column(name = "node_level", nullable = false)
+    private int level;
+
+    @Column(name = "chunk_index", nullable = false)
+    private int chunk;
+}
@@ -2,8 +2,12 @@ package com.merkletree.regular.repositories;
 
 import com.merkletree.regular.model.nodes.LeafNode;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -15,4 +19,20 @@ public interface LeafNodesRepository extends JpaRepository<LeafNode, UUID>
     LeafNode findLeafNodeByIndexAndMerkleTree_Id(Integer integer, UUID merkleTreeId);
 
     List<LeafNode> findAllByMerkleTree_Id(UUID merkleTreeId);
+
+    long countByMerkleTree_Id(UUID merkleTreeId);
+
+    List<LeafNode> findAllByMerkleTree_IdAndIndexIn(UUID merkleTreeId, Collection<Integer> indices);
+
+    List<LeafNode> findAllByMerkleTree_IdAndLeafValue(UUID merkleTreeId, String leafValue);
+
+    /**
+     * Deletes the leaf nodes that are replaced by a newer leaf node with the same index in the provided version or
+     * earlier, i.e. that belong only to versions before the provided version.
+     */
+    @Modifying
+    @Query("delete from LeafNode l where l.merkleTree.id = :merkleTreeId and coalesce(l.version, 0) < :version "
+            + "and exists (select 1 from LeafNode n where n.merkleTree.id = :merkleTreeId and n.index = l.index "
+            + "and coalesce(n.version, 0) > coalesce(l.version, 0) and coalesce(n.version, 0) <= :version)")
+    int deleteSupersededVersions(@Param("merkleTreeId") UUID merkleTreeId, @Param("version") int version);
 }
@@ -1,12 +1,47 @@
 package com.merkletree.regular.repositories;
 
 import com.merkletree.regular.model.MerkleTree;
+import com.merkletree.regular.model.MerkleTreeHeader;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface MerkleTreeRepository extends JpaRepository<MerkleTree, UUID>
 {
+    Optional<MerkleTreeHeader> findHeaderById(UUID merkleTreeId);
+
+    /**
+     * Reads the header and locks the Merkle Tree until the end of the transaction, so that appends are serialized.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<MerkleTreeHeader> findLockedHeaderById(UUID merkleTreeId);
+
+    @Transactional
+    @Modifying
+    @Query("update MerkleTree m set m.rootHash = :rootHash where m.id = :merkleTreeId")
+    void updateRootHash(@Param("merkleTreeId") UUID merkleTreeId, @Param("rootHash") byte[] rootHash);
+
+    @Transactional
+    @Modifying
+    @Query("update MerkleTree m set m.numberOfLeafNodes = :numberOfLeafNodes, m.rootHash = :rootHash where m.id = :merkleTreeId")
+    void updateNumberOfLeafNodes(@Param("merkleTreeId") UUID merkleTreeId, @Param("numberOfLeafNodes") int numberOfLeafNodes, @Param("rootHash") byte[] rootHash);
+
+    @Transactional
+    @Modifying
+    @Query("update MerkleTree m set m.version = :version, m.rootHash = :rootHash where m.id = :merkleTreeId")
+    void updateVersion(@Param("merkleTreeId") UUID merkleTreeId, @Param("version") int version, @Param("rootHash") byte[] rootHash);
+
+    @Transactional
+    @Modifying
+    @Query("update MerkleTree m set m.oldestVersion = :oldestVersion where m.id = :merkleTreeId")
+    void updateOldestVersion(@Param("merkleTreeId") UUID merkleTreeId, @Param("oldestVersion") int oldestVersion);
 }
@@ -0,0 +1,15 @@
+package com.merkletree.regular.repositories;
+
+import com.merkletree.regular.model.nodes.NodeChunk;
+import com.merkletree.regular.model.nodes.NodeChunkId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface NodeChunksRepository extends JpaRepository<NodeChunk, NodeChunkId>
+{
+    List<NodeChunk> findAllById_MerkleTreeId(UUID merkleTreeId);
+}
@@ -0,0 +1,192 @@
+package com.merkletree.regular.repositories;
+
+import com.merkletree.regular.model.nodes.LeafNode;
+import com.merkletree.regular.model.nodes.Node;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Reads and writes leaf nodes and nodes of a Merkle Tree with batched JDBC statements, bypassing the persistence
+ * context. Meant for bulk reads and writes of rows that are not read as entities in the same transaction. The Merkle
+ * Tree has to be flushed before.
+ */
+@Repository
+@RequiredArgsConstructor
+public class NodeRowsBatchRepository
+{
+    /**
+     * Number of rows sent to the database in one JDBC batch.
+     */
+    static final int BATCH_SIZE = 1024;
+
+    /**
+     * Sorted indices at most this far apart are read with one range query, as reading the rows in between is cheaper
+     * than another query.
+     */
+    static final int MAX_RANGE_GAP = 64;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the leaf nodes, assigns ids to leaf nodes without one and returns the number of written rows.
+     */
+    public int insertLeafNodes(UUID merkleTreeId, List<LeafNode> leafNodes)
+    {
+        leafNodes.stream().filter(leafNode -> leafNode.getId() == null).forEach(leafNode -> leafNode.setId(UUID.randomUUID()));
+
+        jdbcTemplate.batchUpdate("insert into leaf_nodes (id, node_index, node_hash_value, node_version, leaf_value, merkle_tree_id) values (?, ?, ?, ?, ?, ?)",
+                leafNodes, BATCH_SIZE, (statement, leafNode) ->
+                {
+                    statement.setObject(1, leafNode.getId());
+                    statement.setInt(2, leafNode.getIndex());
+                    statement.setBytes(3, leafNode.getHashValue());
+                    statement.setObject(4, leafNode.getVersion(), Types.INTEGER);
+                    statement.setString(5, leafNode.getLeafValue());
+                    statement.setObject(6, merkleTreeId);
+                });
+
+        return leafNodes.size();
+    }
+
+    /**
+     * Inserts the nodes together with their child node indices, assigns ids to nodes without one and returns the number
+     * of written rows.
+     */
+    public int insertNodes(UUID merkleTreeId, List<Node> nodes)
+    {
+        nodes.stream().filter(node -> node.getId() == null).forEach(node -> node.setId(UUID.randomUUID()));
+
+        jdbcTemplate.batchUpdate("insert into node (id, node_index, node_hash_value, node_version, merkle_tree_id) values (?, ?, ?, ?, ?)",
+                nodes, BATCH_SIZE, (statement, node) ->
+                {
+                    statement.setObject(1, node.getId());
+                    statement.setInt(2, node.getIndex());
+                    statement.setBytes(3, node.getHashValue());
+                    statement.setObject(4, node.getVersion(), Types.INTEGER);
+                    statement.setObject(5, merkleTreeId);
+                });
+
+        var childNodes = new ArrayList<Object[]>(2 * nodes.size());
+
+        nodes.stream()
+                .filter(node -> node.getChildNodes() != null)
+                .forEach(node -> node.getChildNodes().forEach(childNode -> childNodes.add(new Object[]{node.getId(), childNode})));
+
+        jdbcTemplate.batchUpdate("insert into node_child_nodes (node_id, child_nodes) values (?, ?)", childNodes, BATCH_SIZE,
+                (statement, childNode) ->
+                {
+                    statement.setObject(1, childNode[0]);
+                    statement.setInt(2, (Integer) childNode[1]);
+                });
+
+        return nodes.size() + childNodes.size();
+    }
+
+    /**
+     * Returns the hashes of the leaf nodes with the provided indices as they were in the provided version, leaf nodes
+     * that are not stored are left out.
+     */
+    public Map<Integer, byte[]> getLeafHashes(UUID merkleTreeId, Collection<Integer> indices, int version)
+    {
+        return getHashes("leaf_nodes", merkleTreeId, indices, version);
+    }
+
+    /**
+     * Returns the hashes of the nodes with the provided indices as they were in the provided version, nodes that are
+     * not stored are left out.
+     */
+    public Map<Integer, byte[]> getNodeHashes(UUID merkleTreeId, Collection<Integer> indices, int version)
+    {
+        return getHashes("node", merkleTreeId, indices, version);
+    }
+
+    /**
+     * Updates the values and hashes of the leaf nodes with the provided indices and returns the number of written rows.
+     * Only for Merkle Trees that store one row per leaf node, i.e. that are not versioned.
+     */
+    public int updateLeafNodes(UUID merkleTreeId, Map<Integer, String> leafValues, Map<Integer, byte[]> hashes)
+    {
+        jdbcTemplate.batchUpdate("update leaf_nodes set leaf_value = ?, node_hash_value = ? where merkle_tree_id = ? and node_index = ?",
+                leafValues.entrySet(), BATCH_SIZE, (statement, leafValue) ->
+                {
+                    statement.setString(1, leafValue.getValue());
+                    statement.setBytes(2, hashes.get(leafValue.getKey()));
+                    statement.setObject(3, merkleTreeId);
+                    statement.setInt(4, leafValue.getKey());
+                });
+
+        return leafValues.size();
+    }
+
+    /**
+     * Updates the hashes of the nodes with the provided indices and returns the number of written rows. Only for Merkle
+     * Trees that store one row per node, i.e. that are not versioned.
+     */
+    public int updateNodes(UUID merkleTreeId, Collection<Integer> indices, Map<Integer, byte[]> hashes)
+    {
+        jdbcTemplate.batchUpdate("update node set node_hash_value = ? where merkle_tree_id = ? and node_index = ?",
+                indices, BATCH_SIZE, (statement, index) ->
+                {
+                    statement.setBytes(1, hashes.get(index));
+                    statement.setObject(2, merkleTreeId);
+                    statement.setInt(3, index);
+                });
+
+        return indices.size();
+    }
+
+    /**
+     * Reads the row with the highest version up to the provided version per index. The database evaluates a large IN
+     * list row by row, so the sorted indices are read as ranges of neighbouring indices via the index on the tree id
+     * and node index instead.
+     */
+    private Map<Integer, byte[]> getHashes(String table, UUID merkleTreeId, Collection<Integer> indices, int version)
+    {
+        var sortedIndices = indices.stream().mapToInt(Integer::intValue).sorted().distinct().toArray();
+
+        var hashes = new HashMap<Integer, byte[]>(2 * sortedIndices.length);
+
+        var versions = new HashMap<Integer, Integer>();
+
+        var sql = "select node_index, node_hash_value, node_version from " + table
+                + " where merkle_tree_id = ? and node_index between ? and ?";
+
+        for (int start = 0, end; start < sortedIndices.length; start = end + 1)
+        {
+            end = start;
+
+            while (end + 1 < sortedIndices.length && sortedIndices[end + 1] - sortedIndices[end] <= MAX_RANGE_GAP)
+            {
+                end++;
+            }
+
+            jdbcTemplate.query(sql, resultSet ->
+            {
+                var index = resultSet.getInt(1);
+
+                // Rows without a version belong to version 0
+                var rowVersion = resultSet.getInt(3);
+
+                if (rowVersion <= version && Arrays.binarySearch(sortedIndices, index) >= 0
+                        && rowVersion >= versions.getOrDefault(index, rowVersion))
+                {
+                    hashes.put(index, resultSet.getBytes(2));
+
+                    versions.put(index, rowVersion);
+                }
+            }, merkleTreeId, sortedIndices[start], sortedIndices[end]);
+        }
+
+        return hashes;
+    }
+}
@@ -2,16 +2,33 @@ package com.merkletree.regular.repositories;
 
 import com.merkletree.regular.model.nodes.Node;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface NodesRepository extends JpaRepository<Node, UUID>
 {
-    Node findFirstByOrderByIndexDesc();
+    Node findFirstByMerkleTree_IdOrderByIndexDesc(UUID merkleTreeId);
 
     List<Node> findAllByMerkleTree_Id(UUID merkleTreeId);
 
+    List<Node> findAllByMerkleTree_IdAndIndexIn(UUID merkleTreeId, Collection<Integer> indices);
+
+    List<Node> findAllByMerkleTree_IdAndIndexGreaterThanEqual(UUID merkleTreeId, int index);
+
+    /**
+     * Deletes the nodes that are replaced by a newer node with the same index in the provided version or earlier, i.e.
+     * that belong only to versions before the provided version.
+     */
+    @Modifying
+    @Query("delete from Node o where o.merkleTree.id = :merkleTreeId and coalesce(o.version, 0) < :version "
+            + "and exists (select 1 from Node n where n.merkleTree.id = :merkleTreeId and n.index = o.index "
+            + "and coalesce(n.version, 0) > coalesce(o.version, 0) and coalesce(n.version, 0) <= :version)")
+    int deleteSupersededVersions(@Param("merkleTreeId") UUID merkleTreeId, @Param("version") int version);
 }
@@ -0,0 +1,141 @@
+package com.merkletree.regular.services;
+
+import com.merkletree.engine.BuildProgress;
+
+import java.util.UUID;
+import java.util.concurrent.Future;
+
+/**
+ * Build of a Merkle Tree in the background. A job is queued until a build thread is free, then running until the
+ * Merkle Tree is stored, the build failed or it was cancelled.
+ */
+public class BuildJob
+{
+    public enum Status
+    {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    private final UUID id;
+
+    private final int numberOfLeafNodes;
+
+    private final BuildProgress progress = new BuildProgress();
+
+    private Status status = Status.QUEUED;
+
+    private UUID merkleTreeId;
+
+    private String error;
+
+    private Future<?> future;
+
+    BuildJob(UUID id, int numberOfLeafNodes)
+    {
+        this.id = id;
+        this.numberOfLeafNodes = numberOfLeafNodes;
+    }
+
+    public UUID getId()
+    {
+        return id;
+    }
+
+    public int getNumberOfLeafNodes()
+    {
+        return numberOfLeafNodes;
+    }
+
+    /**
+     * Returns the number of levels above the leaf level, i.e. the levels hashed once the job is completed.
+     */
+    public int getNumberOfLevels()
+    {
+        return Integer.numberOfTrailingZeros(numberOfLeafNodes);
+    }
+
+    public BuildProgress getProgress()
+    {
+        return progress;
+    }
+
+    public synchronized Status getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * Returns the id of the created Merkle Tree, null until the job is completed.
+     */
+    public synchronized UUID getMerkleTreeId()
+    {
+        return merkleTreeId;
+    }
+
+    public synchronized String getError()
+    {
+        return error;
+    }
+
+    public synchronized boolean isFinished()
+    {
+        return status != Status.QUEUED && status != Status.RUNNING;
+    }
+
+    synchronized Future<?> getFuture()
+    {
+        return future;
+    }
+
+    synchronized void setFuture(Future<?> future)
+    {
+        this.future = future;
+    }
+
+    /**
+     * Moves a queued job to running, returns false if it was cancelled before.
+     */
+    synchronized boolean start()
+    {
+        if (status != Status.QUEUED)
+        {
+            return false;
+        }
+
+        status = Status.RUNNING;
+
+        return true;
+    }
+
+    /**
+     * Cancels the job if it is still queued, a running job only stops at its next check of the progress.
+     */
+    synchronized boolean cancelIfQueued()
+    {
+        if (status != Status.QUEUED)
+        {
+            return false;
+        }
+
+        status = Status.CANCELLED;
+
+        return true;
+    }
+
+    synchronized void complete(UUID merkleTreeId)
+    {
+        this.status = Status.COMPLETED;
+        this.merkleTreeId = merkleTreeId;
+    }
+
+    synchronized void cancelled()
+    {
+        this.status = Status.CANCELLED;
+    }
+
+    synchronized void fail(String error)
+    {
+        this.status = Status.FAILED;
+        this.error = error;
+    }
+}
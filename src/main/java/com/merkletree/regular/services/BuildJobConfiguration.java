@@ -0,0 +1,34 @@
+package com.merkletree.regular.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class BuildJobConfiguration
+{
+    /**
+     * Executor of the build jobs with a fixed number of threads and a bounded queue, a job submitted to a full queue is
+     * rejected with a RejectedExecutionException.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor merkleTreeJobExecutor(@Value("${merkle-tree.jobs.threads:2}") int threads,
+                                                    @Value("${merkle-tree.jobs.queue-capacity:16}") int queueCapacity)
+    {
+        var threadNumber = new AtomicInteger();
+
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity), runnable ->
+        {
+            var thread = new Thread(runnable, "merkle-tree-job-" + threadNumber.incrementAndGet());
+
+            thread.setDaemon(true);
+
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,150 @@
+package com.merkletree.regular.services;
+
+import com.merkletree.model.LeafNodesDto;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Builds Merkle Trees in the background. Jobs wait in a queue of {@code merkle-tree.jobs.queue-capacity} jobs for one
+ * of the {@code merkle-tree.jobs.threads} build threads and are rejected once the queue is full, so a burst of large
+ * Merkle Trees cannot exhaust the heap. Finished jobs are kept until {@code merkle-tree.jobs.history} newer jobs exist.
+ */
+@Service
+@Slf4j
+public class BuildJobService
+{
+    private final MerkleTreeService merkleTreeService;
+
+    private final ThreadPoolExecutor jobExecutor;
+
+    private final int history;
+
+    private final Map<UUID, BuildJob> jobs = new LinkedHashMap<>();
+
+    @Autowired
+    public BuildJobService(MerkleTreeService merkleTreeService, ThreadPoolExecutor merkleTreeJobExecutor, MeterRegistry meterRegistry,
+                           @Value("${merkle-tree.jobs.history:1024}") int history)
+    {
+        this.merkleTreeService = merkleTreeService;
+        this.jobExecutor = merkleTreeJobExecutor;
+        this.history = history;
+
+        Gauge.builder("merkle.tree.jobs.queued", jobExecutor, executor -> executor.getQueue().size())
+                .description("Build jobs waiting for a build thread")
+                .register(meterRegistry);
+
+        Gauge.builder("merkle.tree.jobs.running", jobExecutor, ThreadPoolExecutor::getActiveCount)
+                .description("Build jobs building a Merkle Tree")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Verifies the request and queues the build of its Merkle Tree. Throws a RejectedExecutionException if the queue
+     * is full.
+     */
+    public BuildJob submit(LeafNodesDto leafNodesDto)
+    {
+        merkleTreeService.verifyMerkleTreeRequest(leafNodesDto);
+
+        var job = new BuildJob(UUID.randomUUID(), leafNodesDto.getDataPoints().size());
+
+        addJob(job);
+
+        try
+        {
+            job.setFuture(jobExecutor.submit(() -> run(job, leafNodesDto)));
+        } catch (RejectedExecutionException e)
+        {
+            removeJob(job);
+
+            throw e;
+        }
+
+        return job;
+    }
+
+    public synchronized BuildJob getJob(UUID jobId)
+    {
+        var job = jobs.get(jobId);
+
+        if (job == null)
+        {
+            throw new IllegalArgumentException("No build job with provided id present");
+        }
+
+        return job;
+    }
+
+    /**
+     * Cancels the job. A queued job is removed from the queue, a running job stops at its next chunk of leaf nodes,
+     * level or batch of rows and its transaction is rolled back. A finished job stays as it is.
+     */
+    public BuildJob cancel(UUID jobId)
+    {
+        var job = getJob(jobId);
+
+        job.getProgress().cancel();
+
+        if (job.cancelIfQueued() && job.getFuture() instanceof Runnable runnable)
+        {
+            jobExecutor.remove(runnable);
+        }
+
+        return job;
+    }
+
+    private void run(BuildJob job, LeafNodesDto leafNodesDto)
+    {
+        if (!job.start())
+        {
+            return;
+        }
+
+        try
+        {
+            job.complete(merkleTreeService.createMerkleTree(leafNodesDto, job.getProgress()));
+        } catch (CancellationException e)
+        {
+            log.debug("Cancelled build job {}", job.getId());
+
+            job.cancelled();
+        } catch (RuntimeException e)
+        {
+            log.warn("Build job {} failed", job.getId(), e);
+
+            job.fail(e.getMessage());
+        }
+    }
+
+    private synchronized void addJob(BuildJob job)
+    {
+        jobs.put(job.getId(), job);
+
+        // Forget the oldest finished jobs, queued and running jobs are bounded by the executor
+        var iterator = jobs.values().iterator();
+
+        while (jobs.size() > history && iterator.hasNext())
+        {
+            if (iterator.next().isFinished())
+            {
+                iterator.remove();
+            }
+        }
+    }
+
+    private synchronized void removeJob(BuildJob job)
+    {
+        jobs.remove(job.getId());
+    }
+}
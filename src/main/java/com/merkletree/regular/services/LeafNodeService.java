@@ -1,14 +1,17 @@
 package com.merkletree.regular.services;
 
-import com.merkletree.hash.HashService;
 import com.merkletree.regular.model.nodes.LeafNode;
 import com.merkletree.regular.repositories.LeafNodesRepository;
+import com.merkletree.regular.repositories.NodeRowsBatchRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -16,21 +19,99 @@ public class LeafNodeService
 {
     private final LeafNodesRepository leafNodesRepository;
 
-    private final HashService hashService;
+    private final NodeRowsBatchRepository nodeRowsBatchRepository;
 
     public List<LeafNode> getLeafNodes(UUID merkleTreeId)
     {
-        return leafNodesRepository.findAllByMerkleTree_Id(merkleTreeId);
+        return NodeVersions.selectVersion(leafNodesRepository.findAllByMerkleTree_Id(merkleTreeId), NodeVersions.LATEST_VERSION);
     }
 
-    public void updateLeafValue(UUID merkleTreeId,Integer leafIndex, String leafValue)
+    public LeafNode getLeafNode(UUID merkleTreeId, Integer leafIndex)
     {
-        var leafNode = leafNodesRepository.findLeafNodeByIndexAndMerkleTree_Id(leafIndex, merkleTreeId);
+        return getLeafNode(merkleTreeId, leafIndex, NodeVersions.LATEST_VERSION);
+    }
+
+    /**
+     * Returns the leaf node as it was in the provided version of the Merkle Tree or null if it was not present.
+     */
+    public LeafNode getLeafNode(UUID merkleTreeId, Integer leafIndex, int version)
+    {
+        var leafNodes = getLeafNodes(merkleTreeId, List.of(leafIndex), version);
 
-        leafNode.setLeafValue(leafValue);
+        return leafNodes.isEmpty() ? null : leafNodes.get(0);
+    }
 
-        leafNode.setHashValue(hashService.hashData(leafValue));
+    public long countLeafNodes(UUID merkleTreeId)
+    {
+        return leafNodesRepository.countByMerkleTree_Id(merkleTreeId);
+    }
 
-        leafNodesRepository.save(leafNode);
+    public List<LeafNode> getLeafNodes(UUID merkleTreeId, Collection<Integer> leafIndices)
+    {
+        return getLeafNodes(merkleTreeId, leafIndices, NodeVersions.LATEST_VERSION);
     }
+
+    public List<LeafNode> getLeafNodes(UUID merkleTreeId, Collection<Integer> leafIndices, int version)
+    {
+        return NodeVersions.selectVersion(leafNodesRepository.findAllByMerkleTree_IdAndIndexIn(merkleTreeId, leafIndices), version);
+    }
+
+    /**
+     * Returns the lowest index of a leaf node holding the provided value in the provided version. Leaf nodes of other
+     * versions with the value are found via the index on the tree id and leaf value, so their indices are read again
+     * in the provided version.
+     */
+    public Optional<Integer> findLeafIndex(UUID merkleTreeId, String leafValue, int version)
+    {
+        var leafIndices = new HashSet<Integer>();
+
+        leafNodesRepository.findAllByMerkleTree_IdAndLeafValue(merkleTreeId, leafValue)
+                .forEach(leafNode -> leafIndices.add(leafNode.getIndex()));
+
+        if (leafIndices.isEmpty())
+        {
+            return Optional.empty();
+        }
+
+        return getLeafNodes(merkleTreeId, leafIndices, version).stream()
+                .filter(leafNode -> leafValue.equals(leafNode.getLeafValue()))
+                .map(LeafNode::getIndex)
+                .min(Integer::compare);
+    }
+
+    /**
+     * Inserts the leaf nodes of a new Merkle Tree or appended to an append-only Merkle Tree in JDBC batches and returns
+     * the number of written rows.
+     */
+    public int insertLeafNodes(UUID merkleTreeId, List<LeafNode> leafNodes)
+    {
+        return nodeRowsBatchRepository.insertLeafNodes(merkleTreeId, leafNodes);
+    }
+
+    /**
+     * Returns the hashes of the leaf nodes with the provided indices as they were in the provided version, read in
+     * ranges of neighbouring indices.
+     */
+    public Map<Integer, byte[]> getLeafHashes(UUID merkleTreeId, Collection<Integer> leafIndices, int version)
+    {
+        return nodeRowsBatchRepository.getLeafHashes(merkleTreeId, leafIndices, version);
+    }
+
+    /**
+     * Updates the values and hashes of the leaf nodes with the provided indices in JDBC batches and returns the number
+     * of written rows.
+     */
+    public int updateLeafNodes(UUID merkleTreeId, Map<Integer, String> leafValues, Map<Integer, byte[]> hashes)
+    {
+        return nodeRowsBatchRepository.updateLeafNodes(merkleTreeId, leafValues, hashes);
+    }
+
+    /**
+     * Deletes the leaf nodes that belong only to versions before the provided version.
+     */
+    public int deleteVersionsBefore(UUID merkleTreeId, int version)
+    {
+        return leafNodesRepository.deleteSupersededVersions(merkleTreeId, version);
+    }
+
 }
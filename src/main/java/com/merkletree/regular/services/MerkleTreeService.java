@@ -1,33 +1,193 @@
 package com.merkletree.regular.services;
 
 import com.merkletree.common.AbstractMerkleTreeService;
-import com.merkletree.hash.HashService;
+import com.merkletree.common.MerkleTreeMetrics;
+import com.merkletree.engine.FlatMerkleTree;
+import com.merkletree.engine.MerkleTreeEngines;
+import com.merkletree.engine.MerkleTreeFrontier;
+import com.merkletree.hash.HashServices;
+import com.merkletree.hash.HashingScheme;
+import com.merkletree.regular.model.MerkleTree;
+import com.merkletree.regular.model.NodeStorage;
 import com.merkletree.regular.model.nodes.LeafNode;
+import com.merkletree.regular.model.nodes.Node;
 import com.merkletree.regular.repositories.MerkleTreeRepository;
+import com.merkletree.regular.store.LeafHashIndex;
+import com.merkletree.regular.store.NodeHashCache;
+import com.merkletree.regular.store.NodeStores;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.UUID;
 
 @Service
 @Slf4j
 public class MerkleTreeService extends AbstractMerkleTreeService
 {
+    /**
+     * Number of leaf nodes written at once while a Merkle Tree is created from a stream.
+     */
+    static final int STREAM_BATCH_SIZE = 1024;
+
     @Autowired
-    public MerkleTreeService(MerkleTreeRepository merkleTreeRepository, LeafNodeService leafNodeService, NodesService nodesService, HashService hashService)
+    public MerkleTreeService(MerkleTreeRepository merkleTreeRepository, LeafNodeService leafNodeService, NodesService nodesService, NodeStores nodeStores, NodeHashCache nodeHashCache, LeafHashIndex leafHashIndex, HashServices hashServices, MerkleTreeEngines merkleTreeEngines, MerkleTreeMetrics merkleTreeMetrics)
     {
-        super(merkleTreeRepository, leafNodeService, nodesService, hashService);
+        super(merkleTreeRepository, leafNodeService, nodesService, nodeStores, nodeHashCache, leafHashIndex, hashServices, merkleTreeEngines, merkleTreeMetrics);
     }
 
-    @Override
-    public void verifyProofOfMembershipLeaf(List<LeafNode> leafNodes, Integer proofLeafIndex, String proofLeafValue)
+    /**
+     * Creates a Merkle Tree from leaf values that are read one after another in index order. The leaf nodes and the
+     * completed nodes are inserted in JDBC batches, so the memory use does not grow with the number of leaf nodes. In a
+     * node store the hashes are written chunk by chunk instead. The tree is written in one transaction and rolled back
+     * if the stream does not contain exactly the announced number of leaf values.
+     */
+    @Transactional
+    public UUID createMerkleTree(Iterator<String> leafValues, Integer numberOfLeafNodes, HashingScheme hashingScheme, String hashAlgorithm)
     {
-        var containsLeafNode = leafNodes.stream().anyMatch(
-                leafNode -> leafNode.getIndex() == proofLeafIndex && leafNode.getLeafValue().equals(proofLeafValue));
+        if (numberOfLeafNodes == null || numberOfLeafNodes < 1 || Integer.bitCount(numberOfLeafNodes) != 1)
+        {
+            throw new IllegalArgumentException("Number of leaf nodes is not binary");
+        }
+
+        // Finding a leaf and indexing the leaf hashes read a tree in a node store into memory as a whole
+        FlatMerkleTree.verifyNumberOfLeafNodes(numberOfLeafNodes);
+
+        var hashService = hashServices.getHashService(hashAlgorithm);
+
+        var nodeStorage = nodeStores.getDefaultStorage();
+
+        var creation = merkleTreeMetrics.start();
+
+        // The rows reference the Merkle Tree, so it has to be written first
+        var merkleTreeId = merkleTreeRepository.saveAndFlush(MerkleTree.builder()
+                .hashingScheme(hashingScheme)
+                .hashAlgorithm(hashServices.getAlgorithm(hashAlgorithm))
+                .numberOfLeafNodes(numberOfLeafNodes)
+                .nodeStorage(nodeStorage)
+                .leafNodes(new ArrayList<>())
+                .nodes(new ArrayList<>())
+                .build()).getId();
+
+        if (nodeStorage != NodeStorage.ROWS)
+        {
+            try (var writer = nodeStores.getNodeStore(nodeStorage).createWriter(merkleTreeId, numberOfLeafNodes))
+            {
+                var merkleTreeFrontier = new MerkleTreeFrontier(hashService, hashingScheme, numberOfLeafNodes, writer);
+
+                while (leafValues.hasNext())
+                {
+                    var leafIndex = merkleTreeFrontier.getLeafCount();
+
+                    var hashValue = hashService.hashLeaf(nextLeafValue(leafValues));
+
+                    merkleTreeFrontier.addLeafHash(hashValue);
+
+                    writer.accept(hashValue, leafIndex);
+                }
+
+                merkleTreeRepository.updateRootHash(merkleTreeId, merkleTreeFrontier.getRootHash());
+            }
+
+            merkleTreeMetrics.stop(creation, MerkleTreeMetrics.CREATION, MerkleTreeMetrics.REGULAR, numberOfLeafNodes);
+
+            return merkleTreeId;
+        }
+
+        var leafNodes = new ArrayList<LeafNode>(STREAM_BATCH_SIZE);
+
+        var rows = 0L;
+
+        // Hashing and writing alternate batch by batch, so only the time spent in the batches counts as persistence
+        var persistenceTime = 0L;
+
+        var nodes = new ArrayList<Node>(STREAM_BATCH_SIZE);
+
+        var merkleTreeFrontier = new MerkleTreeFrontier(hashService, hashingScheme, numberOfLeafNodes, (hashValue, index) ->
+        {
+            var leftChildIndex = FlatMerkleTree.getLeftChildIndex(numberOfLeafNodes, index);
+
+            nodes.add(Node.builder()
+                    .index(index)
+                    .childNodes(Arrays.asList(leftChildIndex, leftChildIndex + 1))
+                    .hashValue(hashValue)
+                    .build());
+        });
+
+        while (leafValues.hasNext())
+        {
+            var leafValue = nextLeafValue(leafValues);
+
+            var leafIndex = merkleTreeFrontier.getLeafCount();
+
+            var hashValue = hashService.hashLeaf(leafValue);
 
-        if (!containsLeafNode)
+            merkleTreeFrontier.addLeafHash(hashValue);
+
+            leafNodes.add(LeafNode.builder()
+                    .index(leafIndex)
+                    .leafValue(leafValue)
+                    .hashValue(hashValue)
+                    .build());
+
+            if (leafNodes.size() == STREAM_BATCH_SIZE)
+            {
+                var startTime = System.nanoTime();
+
+                rows += insertBatch(merkleTreeId, leafNodes, nodes);
+
+                persistenceTime += System.nanoTime() - startTime;
+            }
+        }
+
+        var startTime = System.nanoTime();
+
+        rows += insertBatch(merkleTreeId, leafNodes, nodes);
+
+        persistenceTime += System.nanoTime() - startTime;
+
+        merkleTreeRepository.updateRootHash(merkleTreeId, merkleTreeFrontier.getRootHash());
+
+        merkleTreeMetrics.record(MerkleTreeMetrics.PERSISTENCE, MerkleTreeMetrics.REGULAR, numberOfLeafNodes, persistenceTime);
+
+        recordWrittenRows(MerkleTreeMetrics.REGULAR, merkleTreeId, rows, persistenceTime);
+
+        merkleTreeMetrics.stop(creation, MerkleTreeMetrics.CREATION, MerkleTreeMetrics.REGULAR, numberOfLeafNodes);
+
+        return merkleTreeId;
+    }
+
+    private static String nextLeafValue(Iterator<String> leafValues)
+    {
+        var leafValue = leafValues.next();
+
+        if (leafValue == null)
+        {
+            throw new IllegalArgumentException("Provided leaf value is null");
+        }
+
+        return leafValue;
+    }
+
+    private int insertBatch(UUID merkleTreeId, List<LeafNode> leafNodes, List<Node> nodes)
+    {
+        var rows = leafNodeService.insertLeafNodes(merkleTreeId, leafNodes) + nodesService.insertNodes(merkleTreeId, nodes);
+
+        leafNodes.clear();
+        nodes.clear();
+
+        return rows;
+    }
+
+    @Override
+    public void verifyProofOfMembershipLeaf(LeafNode leafNode, String proofLeafValue)
+    {
+        if (leafNode == null || !leafNode.getLeafValue().equals(proofLeafValue))
         {
             throw new IllegalArgumentException("No leaf with provided index or leaf value present");
         }
@@ -45,7 +205,6 @@ public class MerkleTreeService extends AbstractMerkleTreeService
                         LeafNode.builder()
                                 .index(Integer.parseInt(index))
                                 .leafValue(value)
-                                .hashValue(hashService.hashData(value))
                                 .build()));
         return leafNodesDbo;
     }
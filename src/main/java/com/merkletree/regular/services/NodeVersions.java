@@ -0,0 +1,44 @@
+package com.merkletree.regular.services;
+
+import com.merkletree.regular.model.nodes.AbstractNode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * A versioned Merkle Tree stores a node once for every version in which its hash changed. The node of a version is the
+ * one with the highest version that is not newer than the version.
+ */
+final class NodeVersions
+{
+    static final int LATEST_VERSION = Integer.MAX_VALUE;
+
+    private NodeVersions()
+    {
+    }
+
+    static int getVersion(AbstractNode node)
+    {
+        return node.getVersion() == null ? 0 : node.getVersion();
+    }
+
+    static <T extends AbstractNode> List<T> selectVersion(Collection<T> nodes, int version)
+    {
+        var selectedNodes = new LinkedHashMap<Integer, T>();
+
+        for (var node : nodes)
+        {
+            if (getVersion(node) > version)
+            {
+                continue;
+            }
+
+            selectedNodes.merge(node.getIndex(), node,
+                    (selectedNode, otherNode) -> getVersion(otherNode) > getVersion(selectedNode) ? otherNode : selectedNode);
+        }
+
+        return new ArrayList<>(selectedNodes.values());
+    }
+}
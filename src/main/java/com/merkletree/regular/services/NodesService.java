@@ -1,11 +1,14 @@
 package com.merkletree.regular.services;
 
 import com.merkletree.regular.model.nodes.Node;
+import com.merkletree.regular.repositories.NodeRowsBatchRepository;
 import com.merkletree.regular.repositories.NodesRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Service
@@ -14,18 +17,70 @@ public class NodesService
 {
     private final NodesRepository nodesRepository;
 
+    private final NodeRowsBatchRepository nodeRowsBatchRepository;
+
     public List<Node> getNodes(UUID merkleTreeId)
     {
-        return nodesRepository.findAllByMerkleTree_Id(merkleTreeId);
+        return NodeVersions.selectVersion(nodesRepository.findAllByMerkleTree_Id(merkleTreeId), NodeVersions.LATEST_VERSION);
+    }
+
+    public List<Node> getNodes(UUID merkleTreeId, Collection<Integer> nodeIndices)
+    {
+        return getNodes(merkleTreeId, nodeIndices, NodeVersions.LATEST_VERSION);
+    }
+
+    /**
+     * Returns the nodes as they were in the provided version of the Merkle Tree.
+     */
+    public List<Node> getNodes(UUID merkleTreeId, Collection<Integer> nodeIndices, int version)
+    {
+        return NodeVersions.selectVersion(nodesRepository.findAllByMerkleTree_IdAndIndexIn(merkleTreeId, nodeIndices), version);
+    }
+
+    /**
+     * Returns the current version of the nodes from the provided index up to the root.
+     */
+    public List<Node> getNodesFrom(UUID merkleTreeId, int firstIndex)
+    {
+        return NodeVersions.selectVersion(nodesRepository.findAllByMerkleTree_IdAndIndexGreaterThanEqual(merkleTreeId, firstIndex), NodeVersions.LATEST_VERSION);
+    }
+
+    public Node getRootNode(UUID merkleTreeId)
+    {
+        return nodesRepository.findFirstByMerkleTree_IdOrderByIndexDesc(merkleTreeId);
+    }
+
+    /**
+     * Inserts the nodes of a new Merkle Tree or appended to an append-only Merkle Tree in JDBC batches and returns the
+     * number of written rows.
+     */
+    public int insertNodes(UUID merkleTreeId, List<Node> nodes)
+    {
+        return nodeRowsBatchRepository.insertNodes(merkleTreeId, nodes);
+    }
+
+    /**
+     * Returns the hashes of the nodes with the provided indices as they were in the provided version, read in ranges of
+     * neighbouring indices.
+     */
+    public Map<Integer, byte[]> getNodeHashes(UUID merkleTreeId, Collection<Integer> nodeIndices, int version)
+    {
+        return nodeRowsBatchRepository.getNodeHashes(merkleTreeId, nodeIndices, version);
     }
 
-    public Node getRootNode()
+    /**
+     * Updates the hashes of the nodes with the provided indices in JDBC batches and returns the number of written rows.
+     */
+    public int updateNodes(UUID merkleTreeId, Collection<Integer> nodeIndices, Map<Integer, byte[]> hashes)
     {
-        return nodesRepository.findFirstByOrderByIndexDesc();
+        return nodeRowsBatchRepository.updateNodes(merkleTreeId, nodeIndices, hashes);
     }
 
-    public void saveNodes(List<Node> nodes)
+    /**
+     * Deletes the nodes that belong only to versions before the provided version.
+     */
+    public int deleteVersionsBefore(UUID merkleTreeId, int version)
     {
-        nodesRepository.saveAll(nodes);
+        return nodesRepository.deleteSupersededVersions(merkleTreeId, version);
     }
 }
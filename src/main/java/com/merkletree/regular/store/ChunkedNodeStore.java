@@ -0,0 +1,302 @@
+package com.merkletree.regular.store;
+
+import com.merkletree.engine.FlatMerkleTree;
+import com.merkletree.hash.HashService;
+import com.merkletree.regular.model.NodeStorage;
+import com.merkletree.regular.model.nodes.NodeChunk;
+import com.merkletree.regular.model.nodes.NodeChunkId;
+import com.merkletree.regular.repositories.NodeChunksRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.Predicate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+
+/**
+ * Stores every level of a Merkle Tree in chunks of {@link #CHUNK_SIZE} packed digests, keyed by the tree id, the level
+ * and the chunk index. A whole tree is read with one query returning about 2n / CHUNK_SIZE rows, a proof reads one
+ * chunk per level. Writers need a surrounding transaction.
+ */
+@Component
+@RequiredArgsConstructor
+public class ChunkedNodeStore implements NodeStore
+{
+    /**
+     * Number of hashes per chunk. The chunk of a node follows from it, so it cannot be changed for stored trees.
+     */
+    public static final int CHUNK_SIZE = 512;
+
+    private final NodeChunksRepository nodeChunksRepository;
+
+    private final EntityManager entityManager;
+
+    @Override
+    public NodeStorage getNodeStorage()
+    {
+        return NodeStorage.CHUNKS;
+    }
+
+    @Override
+    public Writer createWriter(UUID merkleTreeId, int numberOfLeafNodes)
+    {
+        return new ChunkWriter(merkleTreeId, numberOfLeafNodes);
+    }
+
+    /**
+     * The levels of a flat Merkle Tree are contiguous, so every chunk is copied from the backing array in one piece.
+     */
+    @Override
+    @Transactional
+    public void saveMerkleTree(UUID merkleTreeId, FlatMerkleTree flatMerkleTree)
+    {
+        var numberOfLeafNodes = flatMerkleTree.getNumberOfLeafNodes();
+
+        var hashes = flatMerkleTree.getHashes();
+
+        for (int level = 0; level <= Integer.numberOfTrailingZeros(numberOfLeafNodes); level++)
+        {
+            var levelStartIndex = FlatMerkleTree.getLevelStartIndex(numberOfLeafNodes, level);
+
+            for (int chunk = 0; chunk * CHUNK_SIZE < FlatMerkleTree.getLevelSize(numberOfLeafNodes, level); chunk++)
+            {
+                var offset = (levelStartIndex + chunk * CHUNK_SIZE) * HashService.HASH_SIZE;
+
+                var length = getChunkLength(numberOfLeafNodes, level, chunk);
+
+                saveChunk(merkleTreeId, level, chunk, Arrays.copyOfRange(hashes, offset, offset + length));
+            }
+        }
+    }
+
+    @Override
+    public FlatMerkleTree getMerkleTree(UUID merkleTreeId, int numberOfLeafNodes)
+    {
+        var nodeChunks = nodeChunksRepository.findAllById_MerkleTreeId(merkleTreeId);
+
+        if (nodeChunks.isEmpty())
+        {
+            throw new IllegalArgumentException("No nodes of the Merkle Tree with provided id present");
+        }
+
+        var flatMerkleTree = new FlatMerkleTree(numberOfLeafNodes);
+
+        for (var nodeChunk : nodeChunks)
+        {
+            var id = nodeChunk.getId();
+
+            var index = FlatMerkleTree.getLevelStartIndex(numberOfLeafNodes, id.getLevel()) + id.getChunk() * CHUNK_SIZE;
+
+            System.arraycopy(nodeChunk.getHashes(), 0, flatMerkleTree.getHashes(), index * HashService.HASH_SIZE, nodeChunk.getHashes().length);
+        }
+
+        return flatMerkleTree;
+    }
+
+    @Override
+    public Map<Integer, byte[]> getHashes(UUID merkleTreeId, int numberOfLeafNodes, Collection<Integer> indices)
+    {
+        var nodeChunks = getNodeChunks(merkleTreeId, numberOfLeafNodes, indices);
+
+        var hashes = new HashMap<Integer, byte[]>();
+
+        for (var index : indices)
+        {
+            var nodeChunk = nodeChunks.get(getNodeChunkId(merkleTreeId, numberOfLeafNodes, index));
+
+            if (nodeChunk != null)
+            {
+                var offset = getOffset(numberOfLeafNodes, index);
+
+                hashes.put(index, Arrays.copyOfRange(nodeChunk.getHashes(), offset, offset + HashService.HASH_SIZE));
+            }
+        }
+
+        return hashes;
+    }
+
+    @Override
+    @Transactional
+    public void updateHashes(UUID merkleTreeId, int numberOfLeafNodes, Map<Integer, byte[]> hashes)
+    {
+        var nodeChunks = getNodeChunks(merkleTreeId, numberOfLeafNodes, hashes.keySet());
+
+        // Every chunk gets a new array, so that the change is detected when the chunk is flushed
+        var updatedChunkHashes = new HashMap<NodeChunkId, byte[]>();
+
+        hashes.forEach((index, hash) ->
+        {
+            var nodeChunkId = getNodeChunkId(merkleTreeId, numberOfLeafNodes, index);
+
+            var nodeChunk = nodeChunks.get(nodeChunkId);
+
+            if (nodeChunk == null)
+            {
+                throw new IllegalArgumentException("No node with index " + index + " present");
+            }
+
+            var chunkHashes = updatedChunkHashes.computeIfAbsent(nodeChunkId, id -> nodeChunk.getHashes().clone());
+
+            System.arraycopy(hash, 0, chunkHashes, getOffset(numberOfLeafNodes, index), HashService.HASH_SIZE);
+        });
+
+        updatedChunkHashes.forEach((nodeChunkId, chunkHashes) -> nodeChunks.get(nodeChunkId).setHashes(chunkHashes));
+
+        nodeChunksRepository.saveAll(nodeChunks.values());
+    }
+
+    /**
+     * Reads the chunks holding the provided indices with one query, selecting the chunks level by level.
+     */
+    private Map<NodeChunkId, NodeChunk> getNodeChunks(UUID merkleTreeId, int numberOfLeafNodes, Collection<Integer> indices)
+    {
+        var nodeChunks = new HashMap<NodeChunkId, NodeChunk>();
+
+        var chunksByLevel = new TreeMap<Integer, Set<Integer>>();
+
+        for (var index : indices)
+        {
+            if (index < 0 || index >= 2 * numberOfLeafNodes - 1)
+            {
+                continue;
+            }
+
+            var nodeChunkId = getNodeChunkId(merkleTreeId, numberOfLeafNodes, index);
+
+            chunksByLevel.computeIfAbsent(nodeChunkId.getLevel(), level -> new TreeSet<>()).add(nodeChunkId.getChunk());
+        }
+
+        if (chunksByLevel.isEmpty())
+        {
+            return nodeChunks;
+        }
+
+        var criteriaBuilder = entityManager.getCriteriaBuilder();
+
+        var query = criteriaBuilder.createQuery(NodeChunk.class);
+
+        var id = query.from(NodeChunk.class).get("id");
+
+        var levelPredicates = new ArrayList<Predicate>();
+
+        chunksByLevel.forEach((level, chunks) -> levelPredicates.add(criteriaBuilder.and(
+                criteriaBuilder.equal(id.get("level"), level),
+                id.get("chunk").in(chunks))));
+
+        query.where(criteriaBuilder.equal(id.get("merkleTreeId"), merkleTreeId),
+                criteriaBuilder.or(levelPredicates.toArray(Predicate[]::new)));
+
+        entityManager.createQuery(query).getResultList()
+                .forEach(nodeChunk -> nodeChunks.put(nodeChunk.getId(), nodeChunk));
+
+        return nodeChunks;
+    }
+
+    private void saveChunk(UUID merkleTreeId, int level, int chunk, byte[] hashes)
+    {
+        var nodeChunk = new NodeChunk(new NodeChunkId(merkleTreeId, level, chunk), hashes);
+
+        // Chunks are written once, so they are detached right away and do not pile up in the persistence context
+        entityManager.persist(nodeChunk);
+        entityManager.flush();
+        entityManager.detach(nodeChunk);
+    }
+
+    private static NodeChunkId getNodeChunkId(UUID merkleTreeId, int numberOfLeafNodes, int index)
+    {
+        var level = FlatMerkleTree.getLevel(numberOfLeafNodes, index);
+
+        var position = index - FlatMerkleTree.getLevelStartIndex(numberOfLeafNodes, level);
+
+        return new NodeChunkId(merkleTreeId, level, position / CHUNK_SIZE);
+    }
+
+    /**
+     * Returns the offset of the hash of the node within its chunk.
+     */
+    private static int getOffset(int numberOfLeafNodes, int index)
+    {
+        var level = FlatMerkleTree.getLevel(numberOfLeafNodes, index);
+
+        var position = index - FlatMerkleTree.getLevelStartIndex(numberOfLeafNodes, level);
+
+        return position % CHUNK_SIZE * HashService.HASH_SIZE;
+    }
+
+    /**
+     * The last chunk of a level is shorter if the level is not a multiple of the chunk size.
+     */
+    private static int getChunkLength(int numberOfLeafNodes, int level, int chunk)
+    {
+        return Math.min(CHUNK_SIZE, FlatMerkleTree.getLevelSize(numberOfLeafNodes, level) - chunk * CHUNK_SIZE) * HashService.HASH_SIZE;
+    }
+
+    /**
+     * Collects the hashes of every level in one pending chunk and writes the chunk once its last hash arrived.
+     */
+    private class ChunkWriter implements Writer
+    {
+        private final UUID merkleTreeId;
+
+        private final int numberOfLeafNodes;
+
+        private final byte[][] pendingChunks;
+
+        ChunkWriter(UUID merkleTreeId, int numberOfLeafNodes)
+        {
+            if (numberOfLeafNodes < 1 || Integer.bitCount(numberOfLeafNodes) != 1)
+            {
+                throw new IllegalArgumentException("Number of leaf nodes is not binary");
+            }
+
+            this.merkleTreeId = merkleTreeId;
+            this.numberOfLeafNodes = numberOfLeafNodes;
+            this.pendingChunks = new byte[Integer.numberOfTrailingZeros(numberOfLeafNodes) + 1][];
+        }
+
+        @Override
+        public void accept(byte[] hash, int index)
+        {
+            var level = FlatMerkleTree.getLevel(numberOfLeafNodes, index);
+
+            var chunk = (index - FlatMerkleTree.getLevelStartIndex(numberOfLeafNodes, level)) / CHUNK_SIZE;
+
+            if (pendingChunks[level] == null)
+            {
+                pendingChunks[level] = new byte[getChunkLength(numberOfLeafNodes, level, chunk)];
+            }
+
+            var offset = getOffset(numberOfLeafNodes, index);
+
+            System.arraycopy(hash, 0, pendingChunks[level], offset, HashService.HASH_SIZE);
+
+            if (offset + HashService.HASH_SIZE == pendingChunks[level].length)
+            {
+                saveChunk(merkleTreeId, level, chunk, pendingChunks[level]);
+
+                pendingChunks[level] = null;
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            for (var pendingChunk : pendingChunks)
+            {
+                if (pendingChunk != null)
+                {
+                    throw new IllegalArgumentException("Not all nodes of the Merkle Tree were written");
+                }
+            }
+        }
+    }
+}
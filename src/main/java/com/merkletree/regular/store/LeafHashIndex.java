@@ -0,0 +1,262 @@
+package com.merkletree.regular.store;
+
+import com.merkletree.engine.FlatMerkleTree;
+import com.merkletree.hash.HashService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * In-memory index from leaf hashes to leaf indices of Merkle Trees in a node store, which keep only the hashes of
+ * their leaf values. Every tree gets an open addressing table of the first 8 bytes of its leaf hashes, so a lookup
+ * returns candidate indices whose full hashes the caller compares. Updates add the new leaf hashes, replaced hashes
+ * stay in the table as candidates that no longer match. The indices are bounded by their bytes, also when updates
+ * grow a table, and the least recently used one is evicted first.
+ */
+@Component
+public class LeafHashIndex
+{
+    /**
+     * Bytes of one slot of a table, the hash prefix and the leaf index.
+     */
+    static final int SLOT_SIZE = Long.BYTES + Integer.BYTES;
+
+    private final long maxBytes;
+
+    private final Map<UUID, Table> tables = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes;
+
+    @Autowired
+    public LeafHashIndex(@Value("${merkle-tree.leaf-index.max-bytes:67108864}") long maxBytes)
+    {
+        this.maxBytes = maxBytes;
+    }
+
+    public boolean isEnabled()
+    {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Returns the candidate indices of the leaf hash in ascending order, null if the index of the Merkle Tree does not
+     * fit. The index is built from the Merkle Tree returned by the loader if it is missing or was built for another
+     * root hash than the provided one.
+     */
+    public List<Integer> getCandidateIndices(UUID merkleTreeId, byte[] rootHash, int numberOfLeafNodes, byte[] leafHash,
+                                             Supplier<FlatMerkleTree> merkleTreeLoader)
+    {
+        if (!isEnabled() || rootHash == null || (long) Table.getCapacity(numberOfLeafNodes) * SLOT_SIZE > maxBytes)
+        {
+            return null;
+        }
+
+        Table table;
+
+        synchronized (this)
+        {
+            table = tables.get(merkleTreeId);
+        }
+
+        if (table == null || !table.matches(rootHash))
+        {
+            table = new Table(rootHash, merkleTreeLoader.get());
+
+            put(merkleTreeId, table);
+        }
+
+        return table.get(leafHash);
+    }
+
+    /**
+     * Adds the updated leaf hashes to the index of the Merkle Tree, if it is indexed, and moves it to the new root hash.
+     * If the grown table exceeds the maximum, the least recently used indices are evicted, finally the updated one.
+     */
+    public synchronized void addLeafHashes(UUID merkleTreeId, Map<Integer, byte[]> leafHashes, byte[] rootHash)
+    {
+        var table = tables.get(merkleTreeId);
+
+        if (table != null)
+        {
+            var previousSize = table.getSize();
+
+            table.add(leafHashes, rootHash);
+
+            bytes += table.getSize() - previousSize;
+
+            evict();
+        }
+    }
+
+    public synchronized void invalidate(UUID merkleTreeId)
+    {
+        var table = tables.remove(merkleTreeId);
+
+        if (table != null)
+        {
+            bytes -= table.getSize();
+        }
+    }
+
+    public synchronized long getBytes()
+    {
+        return bytes;
+    }
+
+    private synchronized void put(UUID merkleTreeId, Table table)
+    {
+        var replacedTable = tables.put(merkleTreeId, table);
+
+        bytes += table.getSize() - (replacedTable == null ? 0 : replacedTable.getSize());
+
+        evict();
+    }
+
+    private void evict()
+    {
+        var iterator = tables.values().iterator();
+
+        while (bytes > maxBytes && iterator.hasNext())
+        {
+            bytes -= iterator.next().getSize();
+
+            iterator.remove();
+        }
+    }
+
+    private static long getPrefix(byte[] hash)
+    {
+        return getPrefix(hash, 0);
+    }
+
+    private static long getPrefix(byte[] hashes, int offset)
+    {
+        var prefix = ByteBuffer.wrap(hashes, offset, Long.BYTES).getLong();
+
+        // 0 marks an empty slot, the caller compares the full hashes anyway
+        return prefix == 0 ? 1 : prefix;
+    }
+
+    /**
+     * Open addressing table with linear probing, filled to at most half of its capacity. A prefix that occurs several
+     * times takes one slot per leaf index.
+     */
+    private static class Table
+    {
+        private byte[] rootHash;
+
+        private long[] prefixes;
+
+        private int[] indices;
+
+        private int numberOfEntries;
+
+        private Table(byte[] rootHash, FlatMerkleTree flatMerkleTree)
+        {
+            this.rootHash = rootHash;
+            this.prefixes = new long[getCapacity(flatMerkleTree.getNumberOfLeafNodes())];
+            this.indices = new int[prefixes.length];
+
+            // The leaf level is the start of the backing array
+            for (int index = 0; index < flatMerkleTree.getNumberOfLeafNodes(); index++)
+            {
+                insert(getPrefix(flatMerkleTree.getHashes(), index * HashService.HASH_SIZE), index);
+            }
+        }
+
+        private static int getCapacity(int numberOfEntries)
+        {
+            return Integer.highestOneBit(Math.max(2, numberOfEntries) * 2 - 1) << 1;
+        }
+
+        private synchronized boolean matches(byte[] rootHash)
+        {
+            return Arrays.equals(this.rootHash, rootHash);
+        }
+
+        private synchronized long getSize()
+        {
+            return (long) prefixes.length * SLOT_SIZE;
+        }
+
+        private synchronized List<Integer> get(byte[] leafHash)
+        {
+            var prefix = getPrefix(leafHash);
+
+            var candidateIndices = new ArrayList<Integer>();
+
+            for (int slot = getSlot(prefix); prefixes[slot] != 0; slot = (slot + 1) & (prefixes.length - 1))
+            {
+                if (prefixes[slot] == prefix)
+                {
+                    candidateIndices.add(indices[slot]);
+                }
+            }
+
+            candidateIndices.sort(null);
+
+            return candidateIndices;
+        }
+
+        private synchronized void add(Map<Integer, byte[]> leafHashes, byte[] rootHash)
+        {
+            if (getCapacity(numberOfEntries + leafHashes.size()) > prefixes.length)
+            {
+                var previousPrefixes = prefixes;
+
+                var previousIndices = indices;
+
+                prefixes = new long[getCapacity(numberOfEntries + leafHashes.size())];
+                indices = new int[prefixes.length];
+                numberOfEntries = 0;
+
+                for (int slot = 0; slot < previousPrefixes.length; slot++)
+                {
+                    if (previousPrefixes[slot] != 0)
+                    {
+                        insert(previousPrefixes[slot], previousIndices[slot]);
+                    }
+                }
+            }
+
+            leafHashes.forEach((index, leafHash) -> insert(getPrefix(leafHash), index));
+
+            this.rootHash = rootHash;
+        }
+
+        private void insert(long prefix, int index)
+        {
+            var slot = getSlot(prefix);
+
+            while (prefixes[slot] != 0)
+            {
+                if (prefixes[slot] == prefix && indices[slot] == index)
+                {
+                    return;
+                }
+
+                slot = (slot + 1) & (prefixes.length - 1);
+            }
+
+            prefixes[slot] = prefix;
+            indices[slot] = index;
+
+            numberOfEntries++;
+        }
+
+        private int getSlot(long prefix)
+        {
+            // The prefix of a hash is uniformly distributed already, fold it into the table size
+            return (int) (prefix ^ (prefix >>> 32)) & (prefixes.length - 1);
+        }
+    }
+}
@@ -0,0 +1,511 @@
+package com.merkletree.regular.store;
+
+import com.merkletree.engine.FlatMerkleTree;
+import com.merkletree.hash.HashService;
+import com.merkletree.regular.model.NodeStorage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keeps the hashes of every Merkle Tree in its own file in the layout of {@link FlatMerkleTree}, level by level from
+ * the leafs to the root. The files are memory-mapped, so a proof reads its hashes from the page cache without going
+ * through the database or the heap, and the trees are available again after a restart. The Merkle Trees themselves
+ * are still stored in the database, which therefore has to be persistent as well. Updates in a transaction are kept
+ * aside and written to the file right before the commit, while the transaction still holds the lock of the Merkle
+ * Tree, so the next update reads them. If the commit fails or the transaction is rolled back, the replaced hashes are
+ * written back.
+ */
+@Component
+public class MappedFileNodeStore implements NodeStore
+{
+    /**
+     * A mapping is limited to 2 GB, larger files are mapped in segments of this size. It is a multiple of the hash
+     * size, so a hash never spans two segments.
+     */
+    static final int SEGMENT_SIZE = 1 << 30;
+
+    private final Path directory;
+
+    private final Map<UUID, MappedFile> mappedFiles = new ConcurrentHashMap<>();
+
+    @Autowired
+    public MappedFileNodeStore(@Value("${merkle-tree.storage.directory:merkle-trees}") Path directory)
+    {
+        this.directory = directory;
+    }
+
+    @Override
+    public NodeStorage getNodeStorage()
+    {
+        return NodeStorage.MAPPED;
+    }
+
+    /**
+     * Creates the file of the Merkle Tree. The hashes can be written in any order. If the surrounding transaction is
+     * rolled back, the file is deleted again.
+     */
+    @Override
+    public Writer createWriter(UUID merkleTreeId, int numberOfLeafNodes)
+    {
+        var mappedFile = createMappedFile(merkleTreeId, numberOfLeafNodes);
+
+        return new Writer()
+        {
+            private int writtenNodes;
+
+            @Override
+            public void accept(byte[] hash, int index)
+            {
+                mappedFile.put(index, hash);
+
+                writtenNodes++;
+            }
+
+            @Override
+            public void close()
+            {
+                mappedFile.force();
+
+                if (writtenNodes != 2 * numberOfLeafNodes - 1)
+                {
+                    throw new IllegalArgumentException("Not all nodes of the Merkle Tree were written");
+                }
+            }
+        };
+    }
+
+    @Override
+    public void saveMerkleTree(UUID merkleTreeId, FlatMerkleTree flatMerkleTree)
+    {
+        var mappedFile = createMappedFile(merkleTreeId, flatMerkleTree.getNumberOfLeafNodes());
+
+        mappedFile.put(0, flatMerkleTree.getHashes(), flatMerkleTree.getHashes().length);
+
+        mappedFile.force();
+    }
+
+    @Override
+    public FlatMerkleTree getMerkleTree(UUID merkleTreeId, int numberOfLeafNodes)
+    {
+        var flatMerkleTree = new FlatMerkleTree(numberOfLeafNodes);
+
+        getMappedFile(merkleTreeId, numberOfLeafNodes).get(0, flatMerkleTree.getHashes(), flatMerkleTree.getHashes().length);
+
+        getPendingUpdates().getHashes(merkleTreeId).forEach(flatMerkleTree::setHash);
+
+        return flatMerkleTree;
+    }
+
+    @Override
+    public Map<Integer, byte[]> getHashes(UUID merkleTreeId, int numberOfLeafNodes, Collection<Integer> indices)
+    {
+        var hashes = getMappedFile(merkleTreeId, numberOfLeafNodes).get(indices, 2 * numberOfLeafNodes - 1);
+
+        getPendingUpdates().getHashes(merkleTreeId).forEach((index, hash) -> hashes.replace(index, hash.clone()));
+
+        return hashes;
+    }
+
+    /**
+     * Writes the hashes right before the surrounding transaction is committed, until then they are only visible to the
+     * transaction itself. Without a transaction they are written right away.
+     */
+    @Override
+    public void updateHashes(UUID merkleTreeId, int numberOfLeafNodes, Map<Integer, byte[]> hashes)
+    {
+        var mappedFile = getMappedFile(merkleTreeId, numberOfLeafNodes);
+
+        hashes.keySet().forEach(index ->
+        {
+            if (index < 0 || index >= 2 * numberOfLeafNodes - 1)
+            {
+                throw new IllegalArgumentException("No node with index " + index + " present");
+            }
+        });
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive())
+        {
+            mappedFile.update(hashes);
+
+            return;
+        }
+
+        var pendingHashes = bindPendingUpdates().hashes.computeIfAbsent(merkleTreeId, id -> new HashMap<>());
+
+        hashes.forEach((index, hash) -> pendingHashes.put(index, hash.clone()));
+    }
+
+    /**
+     * Runs the action after the hashes of the Merkle Tree updated in the current transaction are written to the file.
+     */
+    @Override
+    public void afterUpdate(UUID merkleTreeId, Runnable action)
+    {
+        var pendingUpdates = getPendingUpdates();
+
+        if (pendingUpdates.hashes.containsKey(merkleTreeId))
+        {
+            pendingUpdates.actions.add(action);
+        } else
+        {
+            action.run();
+        }
+    }
+
+    /**
+     * Returns the updates of the current transaction that are not written yet, none outside of a transaction.
+     */
+    private PendingUpdates getPendingUpdates()
+    {
+        var pendingUpdates = (PendingUpdates) TransactionSynchronizationManager.getResource(this);
+
+        return pendingUpdates == null ? PendingUpdates.NONE : pendingUpdates;
+    }
+
+    /**
+     * Returns the updates of the current transaction, which are bound to it on the first update. They are written
+     * before the commit, the replaced hashes are written back if the transaction does not commit after all.
+     */
+    private PendingUpdates bindPendingUpdates()
+    {
+        var pendingUpdates = (PendingUpdates) TransactionSynchronizationManager.getResource(this);
+
+        if (pendingUpdates == null)
+        {
+            var updates = new PendingUpdates();
+
+            var replacedHashes = new HashMap<UUID, Map<Integer, byte[]>>();
+
+            TransactionSynchronizationManager.bindResource(this, updates);
+
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void beforeCommit(boolean readOnly)
+                {
+                    // The files of updated Merkle Trees were mapped by the update
+                    updates.hashes.forEach((merkleTreeId, hashes) ->
+                            replacedHashes.put(merkleTreeId, mappedFiles.get(merkleTreeId).update(hashes)));
+
+                    updates.actions.forEach(Runnable::run);
+                }
+
+                @Override
+                public void afterCompletion(int status)
+                {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MappedFileNodeStore.this);
+
+                    if (status != STATUS_COMMITTED)
+                    {
+                        replacedHashes.forEach((merkleTreeId, hashes) -> mappedFiles.get(merkleTreeId).update(hashes));
+                    }
+                }
+            });
+
+            pendingUpdates = updates;
+        }
+
+        return pendingUpdates;
+    }
+
+    private Path getPath(UUID merkleTreeId)
+    {
+        return directory.resolve(merkleTreeId + ".tree");
+    }
+
+    private MappedFile createMappedFile(UUID merkleTreeId, int numberOfLeafNodes)
+    {
+        if (numberOfLeafNodes < 1 || Integer.bitCount(numberOfLeafNodes) != 1)
+        {
+            throw new IllegalArgumentException("Number of leaf nodes is not binary");
+        }
+
+        try
+        {
+            Files.createDirectories(directory);
+
+            var mappedFile = MappedFile.create(getPath(merkleTreeId), numberOfLeafNodes);
+
+            mappedFiles.put(merkleTreeId, mappedFile);
+
+            if (TransactionSynchronizationManager.isSynchronizationActive())
+            {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+                {
+                    @Override
+                    public void afterCompletion(int status)
+                    {
+                        if (status != STATUS_COMMITTED)
+                        {
+                            deleteMappedFile(merkleTreeId);
+                        }
+                    }
+                });
+            }
+
+            return mappedFile;
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Maps the file of the Merkle Tree on first access, e.g. after a restart, and keeps it mapped afterwards.
+     */
+    private MappedFile getMappedFile(UUID merkleTreeId, int numberOfLeafNodes)
+    {
+        return mappedFiles.computeIfAbsent(merkleTreeId, id ->
+        {
+            var path = getPath(id);
+
+            if (!Files.exists(path))
+            {
+                throw new IllegalArgumentException("No nodes of the Merkle Tree with provided id present");
+            }
+
+            try
+            {
+                return MappedFile.open(path, numberOfLeafNodes);
+            } catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void deleteMappedFile(UUID merkleTreeId)
+    {
+        // The mapping itself is released once it is garbage collected
+        mappedFiles.remove(merkleTreeId);
+
+        try
+        {
+            Files.deleteIfExists(getPath(merkleTreeId));
+        } catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The hashes updated in a transaction per Merkle Tree and the actions to run once they are written.
+     */
+    private static class PendingUpdates
+    {
+        private static final PendingUpdates NONE = new PendingUpdates(Map.of(), List.of());
+
+        private final Map<UUID, Map<Integer, byte[]>> hashes;
+
+        private final List<Runnable> actions;
+
+        private PendingUpdates()
+        {
+            this(new HashMap<>(), new ArrayList<>());
+        }
+
+        private PendingUpdates(Map<UUID, Map<Integer, byte[]>> hashes, List<Runnable> actions)
+        {
+            this.hashes = hashes;
+            this.actions = actions;
+        }
+
+        private Map<Integer, byte[]> getHashes(UUID merkleTreeId)
+        {
+            return hashes.getOrDefault(merkleTreeId, Map.of());
+        }
+    }
+
+    /**
+     * The segments of a mapped file. The hash of node i is stored at offset i * HASH_SIZE. All accesses use absolute
+     * positions, so concurrent readers do not interfere. Updates hold the write lock of the file, so readers never see
+     * a partially updated path. The hashes of a new Merkle Tree are written without it, as the tree is not visible to
+     * other transactions before it is committed.
+     */
+    private static class MappedFile
+    {
+        private final MappedByteBuffer[] segments;
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        private MappedFile(FileChannel fileChannel, long size) throws IOException
+        {
+            segments = new MappedByteBuffer[(int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+
+            for (int segment = 0; segment < segments.length; segment++)
+            {
+                var position = (long) segment * SEGMENT_SIZE;
+
+                segments[segment] = fileChannel.map(FileChannel.MapMode.READ_WRITE, position, Math.min(SEGMENT_SIZE, size - position));
+            }
+        }
+
+        static MappedFile create(Path path, int numberOfLeafNodes) throws IOException
+        {
+            try (var fileChannel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE))
+            {
+                return new MappedFile(fileChannel, getSize(numberOfLeafNodes));
+            }
+        }
+
+        static MappedFile open(Path path, int numberOfLeafNodes) throws IOException
+        {
+            try (var fileChannel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE))
+            {
+                if (fileChannel.size() != getSize(numberOfLeafNodes))
+                {
+                    throw new IllegalArgumentException("File of the Merkle Tree with provided id has an invalid size");
+                }
+
+                return new MappedFile(fileChannel, fileChannel.size());
+            }
+        }
+
+        private static long getSize(int numberOfLeafNodes)
+        {
+            return (2L * numberOfLeafNodes - 1) * HashService.HASH_SIZE;
+        }
+
+        void get(int index, byte[] hashes, int length)
+        {
+            lock.readLock().lock();
+
+            try
+            {
+                copy(index, hashes, length, false);
+            } finally
+            {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Returns the hashes of the nodes with the provided indices below the number of nodes, all read under one lock.
+         */
+        Map<Integer, byte[]> get(Collection<Integer> indices, int numberOfNodes)
+        {
+            var hashes = new HashMap<Integer, byte[]>();
+
+            lock.readLock().lock();
+
+            try
+            {
+                for (var index : indices)
+                {
+                    if (index >= 0 && index < numberOfNodes)
+                    {
+                        var hash = new byte[HashService.HASH_SIZE];
+
+                        copy(index, hash, HashService.HASH_SIZE, false);
+
+                        hashes.put(index, hash);
+                    }
+                }
+            } finally
+            {
+                lock.readLock().unlock();
+            }
+
+            return hashes;
+        }
+
+        /**
+         * Writes the hashes and returns the ones they replaced.
+         */
+        Map<Integer, byte[]> update(Map<Integer, byte[]> hashes)
+        {
+            var replacedHashes = new HashMap<Integer, byte[]>();
+
+            lock.writeLock().lock();
+
+            try
+            {
+                hashes.forEach((index, hash) ->
+                {
+                    var replacedHash = new byte[HashService.HASH_SIZE];
+
+                    copy(index, replacedHash, HashService.HASH_SIZE, false);
+
+                    replacedHashes.put(index, replacedHash);
+
+                    put(index, hash);
+                });
+            } finally
+            {
+                lock.writeLock().unlock();
+            }
+
+            force();
+
+            return replacedHashes;
+        }
+
+        void put(int index, byte[] hash)
+        {
+            put(index, hash, HashService.HASH_SIZE);
+        }
+
+        void put(int index, byte[] hashes, int length)
+        {
+            copy(index, hashes, length, true);
+        }
+
+        /**
+         * Copies between the array and the file starting at the node index, segment by segment.
+         */
+        private void copy(int index, byte[] hashes, int length, boolean toFile)
+        {
+            var position = (long) index * HashService.HASH_SIZE;
+
+            var offset = 0;
+
+            while (offset < length)
+            {
+                var segment = segments[(int) (position / SEGMENT_SIZE)];
+
+                var segmentPosition = (int) (position % SEGMENT_SIZE);
+
+                var chunkLength = Math.min(length - offset, segment.capacity() - segmentPosition);
+
+                if (toFile)
+                {
+                    segment.put(segmentPosition, hashes, offset, chunkLength);
+                } else
+                {
+                    segment.get(segmentPosition, hashes, offset, chunkLength);
+                }
+
+                offset += chunkLength;
+                position += chunkLength;
+            }
+        }
+
+        void force()
+        {
+            for (var segment : segments)
+            {
+                segment.force();
+            }
+        }
+    }
+}
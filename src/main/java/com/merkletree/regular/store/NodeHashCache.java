@@ -0,0 +1,277 @@
+package com.merkletree.regular.store;
+
+import com.merkletree.engine.FlatMerkleTree;
+import com.merkletree.hash.HashService;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * Least recently used cache of the upper levels of the current version of Merkle Trees, bounded by the bytes of the
+ * cached hashes. The upper {@code merkle-tree.cache.levels} levels of a tree are contiguous in the layout of
+ * {@link FlatMerkleTree}, so they are kept as one array of packed hashes. Smaller trees are cached as a whole.
+ * <p>
+ * An entry is only used while its root hash matches the root hash of the Merkle Tree, so an entry of an update that
+ * was rolled back or of a reader that raced an update is never returned for the new version. Entries of rolled back
+ * updates are invalidated right away.
+ */
+@Component
+public class NodeHashCache
+{
+    /**
+     * Rough heap size of an entry besides its hashes, i.e. the map entry, the key and the entry itself.
+     */
+    static final int ENTRY_OVERHEAD = 128;
+
+    private final long maxBytes;
+
+    private final int levels;
+
+    private final Map<UUID, CachedHashes> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public NodeHashCache(@Value("${merkle-tree.cache.max-bytes:67108864}") long maxBytes,
+                         @Value("${merkle-tree.cache.levels:16}") int levels)
+    {
+        if (levels < 0)
+        {
+            throw new IllegalArgumentException("Number of cached levels must not be negative");
+        }
+
+        this.maxBytes = maxBytes;
+        this.levels = levels;
+    }
+
+    public boolean isEnabled()
+    {
+        return maxBytes > 0 && levels > 0;
+    }
+
+    /**
+     * Returns the index of the first cached node of a Merkle Tree with the provided number of leaf nodes, 0 if the
+     * whole tree is cached.
+     */
+    public int getFirstCachedIndex(int numberOfLeafNodes)
+    {
+        var rootLevel = Integer.numberOfTrailingZeros(numberOfLeafNodes);
+
+        return FlatMerkleTree.getLevelStartIndex(numberOfLeafNodes, Math.max(0, rootLevel + 1 - levels));
+    }
+
+    /**
+     * Returns the cached upper levels of the Merkle Tree with the provided root hash. On a miss the hashes from the
+     * first cached index to the root are read with the hash loader and cached. Returns null if the cache is disabled,
+     * the levels do not fit into the cache or the loaded hashes do not belong to the provided root hash.
+     */
+    public CachedHashes getHashes(UUID merkleTreeId, byte[] rootHash, int numberOfLeafNodes, IntFunction<Map<Integer, byte[]>> hashLoader)
+    {
+        if (!isEnabled() || rootHash == null)
+        {
+            return null;
+        }
+
+        synchronized (this)
+        {
+            var cachedHashes = entries.get(merkleTreeId);
+
+            if (cachedHashes != null && cachedHashes.matches(numberOfLeafNodes, rootHash))
+            {
+                hits.increment();
+
+                return cachedHashes;
+            }
+        }
+
+        misses.increment();
+
+        var firstIndex = getFirstCachedIndex(numberOfLeafNodes);
+
+        var rootIndex = 2 * numberOfLeafNodes - 2;
+
+        if ((long) (rootIndex - firstIndex + 1) * HashService.HASH_SIZE + ENTRY_OVERHEAD > maxBytes)
+        {
+            return null;
+        }
+
+        var loadedHashes = hashLoader.apply(firstIndex);
+
+        var hashes = new byte[(rootIndex - firstIndex + 1) * HashService.HASH_SIZE];
+
+        for (int index = firstIndex; index <= rootIndex; index++)
+        {
+            var hash = loadedHashes.get(index);
+
+            if (hash == null)
+            {
+                return null;
+            }
+
+            System.arraycopy(hash, 0, hashes, (index - firstIndex) * HashService.HASH_SIZE, HashService.HASH_SIZE);
+        }
+
+        var cachedHashes = new CachedHashes(numberOfLeafNodes, firstIndex, hashes);
+
+        // The Merkle Tree was updated between reading its root hash and its nodes
+        if (!cachedHashes.matches(numberOfLeafNodes, rootHash))
+        {
+            return null;
+        }
+
+        put(merkleTreeId, cachedHashes);
+
+        return cachedHashes;
+    }
+
+    /**
+     * Writes the updated hashes into the cached levels of the Merkle Tree, if it is cached. The entry is copied, so
+     * readers of the previous version keep a consistent view. Hashes below the cached levels are ignored.
+     */
+    public void updateHashes(UUID merkleTreeId, Map<Integer, byte[]> updatedHashes)
+    {
+        CachedHashes cachedHashes;
+
+        synchronized (this)
+        {
+            cachedHashes = entries.get(merkleTreeId);
+        }
+
+        if (cachedHashes == null)
+        {
+            return;
+        }
+
+        var hashes = cachedHashes.hashes.clone();
+
+        updatedHashes.forEach((index, hash) ->
+        {
+            if (cachedHashes.contains(index))
+            {
+                System.arraycopy(hash, 0, hashes, (index - cachedHashes.firstIndex) * HashService.HASH_SIZE, HashService.HASH_SIZE);
+            }
+        });
+
+        put(merkleTreeId, new CachedHashes(cachedHashes.numberOfLeafNodes, cachedHashes.firstIndex, hashes));
+    }
+
+    public synchronized void invalidate(UUID merkleTreeId)
+    {
+        var cachedHashes = entries.remove(merkleTreeId);
+
+        if (cachedHashes != null)
+        {
+            bytes -= cachedHashes.getSize();
+        }
+    }
+
+    public synchronized Statistics getStatistics()
+    {
+        return new Statistics(hits.sum(), misses.sum(), evictions.sum(), entries.size(), bytes, maxBytes);
+    }
+
+    private synchronized void put(UUID merkleTreeId, CachedHashes cachedHashes)
+    {
+        var replacedHashes = entries.put(merkleTreeId, cachedHashes);
+
+        bytes += cachedHashes.getSize() - (replacedHashes == null ? 0 : replacedHashes.getSize());
+
+        var iterator = entries.values().iterator();
+
+        while (bytes > maxBytes && iterator.hasNext())
+        {
+            bytes -= iterator.next().getSize();
+
+            iterator.remove();
+
+            evictions.increment();
+        }
+    }
+
+    /**
+     * The hashes of the nodes from the first cached index to the root of a Merkle Tree.
+     */
+    public static class CachedHashes
+    {
+        private final int numberOfLeafNodes;
+
+        private final int firstIndex;
+
+        private final byte[] hashes;
+
+        private CachedHashes(int numberOfLeafNodes, int firstIndex, byte[] hashes)
+        {
+            this.numberOfLeafNodes = numberOfLeafNodes;
+            this.firstIndex = firstIndex;
+            this.hashes = hashes;
+        }
+
+        /**
+         * Returns true if all nodes including the leaf nodes are cached.
+         */
+        public boolean isComplete()
+        {
+            return firstIndex == 0;
+        }
+
+        public boolean contains(int index)
+        {
+            return index >= firstIndex && index <= 2 * numberOfLeafNodes - 2;
+        }
+
+        public byte[] getHash(int index)
+        {
+            var offset = (index - firstIndex) * HashService.HASH_SIZE;
+
+            return Arrays.copyOfRange(hashes, offset, offset + HashService.HASH_SIZE);
+        }
+
+        private boolean matches(int numberOfLeafNodes, byte[] rootHash)
+        {
+            var offset = hashes.length - HashService.HASH_SIZE;
+
+            return this.numberOfLeafNodes == numberOfLeafNodes
+                    && Arrays.equals(hashes, offset, hashes.length, rootHash, 0, rootHash.length);
+        }
+
+        private long getSize()
+        {
+            return hashes.length + ENTRY_OVERHEAD;
+        }
+    }
+
+    /**
+     * Counters since the start of the service and the current size of the cache.
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class Statistics
+    {
+        private final long hits;
+
+        private final long misses;
+
+        private final long evictions;
+
+        private final int entries;
+
+        private final long bytes;
+
+        private final long maxBytes;
+    }
+}
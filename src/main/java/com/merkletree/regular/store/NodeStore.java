@@ -0,0 +1,62 @@
+package com.merkletree.regular.store;
+
+import com.merkletree.engine.FlatMerkleTree;
+import com.merkletree.regular.model.NodeStorage;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Persists the hashes of a Merkle Tree level by level in the layout of {@link FlatMerkleTree}. The child and parent
+ * indices follow from the node index, so neither the structure nor the leaf values are stored.
+ */
+public interface NodeStore
+{
+    NodeStorage getNodeStorage();
+
+    /**
+     * Returns a writer for the hashes of a new Merkle Tree. The hashes of a level have to be written in ascending index
+     * order, the levels may be interleaved like the nodes emitted by a {@link com.merkletree.engine.MerkleTreeFrontier}.
+     */
+    Writer createWriter(UUID merkleTreeId, int numberOfLeafNodes);
+
+    default void saveMerkleTree(UUID merkleTreeId, FlatMerkleTree flatMerkleTree)
+    {
+        try (var writer = createWriter(merkleTreeId, flatMerkleTree.getNumberOfLeafNodes()))
+        {
+            for (int index = 0; index < flatMerkleTree.getNumberOfNodes(); index++)
+            {
+                writer.accept(flatMerkleTree.getHash(index), index);
+            }
+        }
+    }
+
+    FlatMerkleTree getMerkleTree(UUID merkleTreeId, int numberOfLeafNodes);
+
+    /**
+     * Returns the hashes of the nodes with the provided indices, indices that are not stored are left out.
+     */
+    Map<Integer, byte[]> getHashes(UUID merkleTreeId, int numberOfLeafNodes, Collection<Integer> indices);
+
+    void updateHashes(UUID merkleTreeId, int numberOfLeafNodes, Map<Integer, byte[]> hashes);
+
+    /**
+     * Runs the action once the hashes of the Merkle Tree updated in the current transaction are written. Node stores
+     * that write the hashes right away run it immediately.
+     */
+    default void afterUpdate(UUID merkleTreeId, Runnable action)
+    {
+        action.run();
+    }
+
+    interface Writer extends ObjIntConsumer<byte[]>, AutoCloseable
+    {
+        /**
+         * Writes the remaining hashes and throws if not all nodes of the Merkle Tree were written.
+         */
+        @Override
+        void close();
+    }
+}
@@ -0,0 +1,51 @@
+package com.merkletree.regular.store;
+
+import com.merkletree.regular.model.NodeStorage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The available node stores and the node storage of new Merkle Trees, set by {@code merkle-tree.storage.layout}.
+ */
+@Component
+public class NodeStores
+{
+    private final Map<NodeStorage, NodeStore> nodeStores = new EnumMap<>(NodeStorage.class);
+
+    private final NodeStorage defaultStorage;
+
+    @Autowired
+    public NodeStores(List<NodeStore> nodeStores, @Value("${merkle-tree.storage.layout:CHUNKS}") NodeStorage defaultStorage)
+    {
+        nodeStores.forEach(nodeStore -> this.nodeStores.put(nodeStore.getNodeStorage(), nodeStore));
+
+        this.defaultStorage = defaultStorage;
+
+        if (defaultStorage != NodeStorage.ROWS)
+        {
+            getNodeStore(defaultStorage);
+        }
+    }
+
+    public NodeStorage getDefaultStorage()
+    {
+        return defaultStorage;
+    }
+
+    public NodeStore getNodeStore(NodeStorage nodeStorage)
+    {
+        var nodeStore = nodeStores.get(nodeStorage);
+
+        if (nodeStore == null)
+        {
+            throw new IllegalArgumentException("No node store for node storage " + nodeStorage + " present");
+        }
+
+        return nodeStore;
+    }
+}
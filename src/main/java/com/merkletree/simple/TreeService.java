@@ -1,9 +1,12 @@
 package com.merkletree.simple;
 
+import com.merkletree.common.MerkleTreeMetrics;
 import com.merkletree.hash.HashService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -15,8 +18,16 @@ public class TreeService
 
     private final HashService hashService;
 
+    private final MerkleTreeMetrics merkleTreeMetrics;
+
+    /**
+     * Saves all leafs in one transaction, so that they are inserted in JDBC batches with one flush.
+     */
+    @Transactional
     public void createSimpleMerkleTree()
     {
+        var creation = merkleTreeMetrics.start();
+
         var merkleTree = new HashMap<Integer, String>();
 
         merkleTree.put(0, "zero");
@@ -28,6 +39,8 @@ public class TreeService
         merkleTree.put(6, "six");
         merkleTree.put(7, "seven");
 
+        var leafs = new ArrayList<LeafDbo>(merkleTree.size());
+
         for (Map.Entry<Integer, String> entry : merkleTree.entrySet())
         {
             var leaf = new LeafDbo();
@@ -35,12 +48,23 @@ public class TreeService
             leaf.setKey(entry.getKey());
             leaf.setValue(entry.getValue());
 
-            leafRepository.save(leaf);
+            leafs.add(leaf);
         }
+
+        leafRepository.saveAll(leafs);
+
+        var elapsedTime = merkleTreeMetrics.stop(creation, MerkleTreeMetrics.CREATION, MerkleTreeMetrics.SIMPLE, merkleTree.size());
+
+        merkleTreeMetrics.recordWrittenRows(MerkleTreeMetrics.SIMPLE, merkleTree.size(), elapsedTime);
     }
 
+    /**
+     * Returns the root hash, which is calculated from all leafs on every call.
+     */
     public String getMerkleProof()
     {
+        var rootLookup = merkleTreeMetrics.start();
+
         var leafs = leafRepository.findAll();
 
         var leafMap = new HashMap<Integer, String>();
@@ -49,7 +73,17 @@ public class TreeService
                 leaf -> leafMap.put(leaf.getKey(), leaf.getValue())
         );
 
-        return hashService.calculateMerkleProof(leafMap);
+        var construction = merkleTreeMetrics.start();
+
+        var rootHash = hashService.calculateMerkleProof(leafMap);
+
+        var hashingTime = merkleTreeMetrics.stop(construction, MerkleTreeMetrics.CONSTRUCTION, MerkleTreeMetrics.SIMPLE, leafMap.size());
+
+        merkleTreeMetrics.recordHashes(MerkleTreeMetrics.SIMPLE, 2L * leafMap.size() - 1, hashingTime);
+
+        merkleTreeMetrics.stop(rootLookup, MerkleTreeMetrics.ROOT_LOOKUP, MerkleTreeMetrics.SIMPLE, leafMap.size());
+
+        return rootHash;
     }
 
     public void updateLeaf(Integer key, String value)
@@ -1,6 +1,8 @@
 package com.merkletree.sparse.controller;
 
 import com.merkletree.model.LeafNodesDto;
+import com.merkletree.model.NonMembershipProofDto;
+import com.merkletree.regular.mapper.NodesMapper;
 import com.merkletree.sparse.service.SparseMerkleTreeService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -15,6 +17,8 @@ public class SparseController implements com.merkletree.api.SparseMerkleTreeApi
 {
     private final SparseMerkleTreeService sparseMerkleTreeService;
 
+    private final NodesMapper nodesMapper;
+
     @Override
     public ResponseEntity<UUID> createSparseMerkleTree(LeafNodesDto leafNodesDto)
     {
@@ -22,4 +26,12 @@ public class SparseController implements com.merkletree.api.SparseMerkleTreeApi
 
         return new ResponseEntity<>(merkelTreeId, HttpStatus.CREATED);
     }
+
+    @Override
+    public ResponseEntity<NonMembershipProofDto> getProofOfNonMembership(UUID merkleTreeId, Integer leafIndex)
+    {
+        var nonMembershipProof = sparseMerkleTreeService.getProofOfNonMembership(merkleTreeId, leafIndex);
+
+        return new ResponseEntity<>(nodesMapper.nonMembershipProofToDto(nonMembershipProof), HttpStatus.OK);
+    }
 }
@@ -1,7 +1,13 @@
 package com.merkletree.sparse.service;
 
 import com.merkletree.common.AbstractMerkleTreeService;
-import com.merkletree.hash.HashService;
+import com.merkletree.common.MerkleTreeMetrics;
+import com.merkletree.engine.FlatMerkleTree;
+import com.merkletree.engine.MerkleTreeEngine;
+import com.merkletree.engine.MerkleTreeEngines;
+import com.merkletree.engine.MerkleTreePaths;
+import com.merkletree.engine.NonMembershipProof;
+import com.merkletree.hash.HashServices;
 import com.merkletree.regular.model.MerkleTree;
 import com.merkletree.regular.model.nodes.AbstractNode;
 import com.merkletree.regular.model.nodes.LeafNode;
@@ -9,10 +15,14 @@ import com.merkletree.regular.model.nodes.Node;
 import com.merkletree.regular.repositories.MerkleTreeRepository;
 import com.merkletree.regular.services.LeafNodeService;
 import com.merkletree.regular.services.NodesService;
+import com.merkletree.regular.store.LeafHashIndex;
+import com.merkletree.regular.store.NodeHashCache;
+import com.merkletree.regular.store.NodeStores;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import com.merkletree.model.LeafNodesDto;
 
 import java.util.*;
@@ -22,52 +32,173 @@ import java.util.*;
 public class SparseMerkleTreeService extends AbstractMerkleTreeService
 {
     @Autowired
-    public SparseMerkleTreeService(MerkleTreeRepository merkleTreeRepository, LeafNodeService leafNodeService, NodesService nodesService, HashService hashService)
+    public SparseMerkleTreeService(MerkleTreeRepository merkleTreeRepository, LeafNodeService leafNodeService, NodesService nodesService, NodeStores nodeStores, NodeHashCache nodeHashCache, LeafHashIndex leafHashIndex, HashServices hashServices, MerkleTreeEngines merkleTreeEngines, MerkleTreeMetrics merkleTreeMetrics)
     {
-        super( merkleTreeRepository,  leafNodeService,  nodesService,  hashService);
+        super( merkleTreeRepository,  leafNodeService,  nodesService,  nodeStores,  nodeHashCache,  leafHashIndex,  hashServices,  merkleTreeEngines,  merkleTreeMetrics);
     }
 
 
     @Override
-    public void verifyProofOfMembershipLeaf(List<LeafNode> leafNodes, Integer proofLeafIndex, String proofLeafValue)
+    public void verifyProofOfMembershipLeaf(LeafNode leafNode, String proofLeafValue)
     {
-        var containsLeafNode = leafNodes.stream().anyMatch(
-                leafNode -> leafNode.getIndex() == proofLeafIndex && leafNode.getLeafValue().equals(proofLeafValue) && !leafNode.getLeafValue().equals("DUMMY"));
-
-        if (!containsLeafNode)
+        // Sparse Merkle Trees created before only populated leaf nodes were stored contain dummy leaf nodes
+        if (leafNode == null || !leafNode.getLeafValue().equals(proofLeafValue) || leafNode.getLeafValue().equals(MerkleTreeEngine.SPARSE_LEAF_VALUE))
         {
             throw new IllegalArgumentException("No leaf with provided index or leaf value present");
         }
     }
 
+    /**
+     * Returns a proof that the leaf node with the provided index is not populated. Only the leaf node and the sibling
+     * nodes on its path are read, so the effort grows with the depth of the tree.
+     */
+    public NonMembershipProof getProofOfNonMembership(UUID merkleTreeId, Integer leafIndex)
+    {
+        var sample = merkleTreeMetrics.start();
+
+        var merkleTree = getMerkleTreeHeader(merkleTreeId);
+
+        if (!isSparse(merkleTree))
+        {
+            throw new IllegalArgumentException("Merkle Tree with provided id is not sparse");
+        }
+
+        var leafNode = leafNodeService.getLeafNode(merkleTreeId, leafIndex);
+
+        if (leafNode != null && !MerkleTreeEngine.SPARSE_LEAF_VALUE.equals(leafNode.getLeafValue()))
+        {
+            throw new IllegalArgumentException("Leaf with provided index is populated");
+        }
+
+        var merkleTreePaths = new MerkleTreePaths(getNumberOfLeafNodes(merkleTree), List.of(leafIndex));
+
+        var nonMembershipProof = getMerkleTreeEngine(merkleTree).createNonMembershipProof(merkleTreePaths.getNumberOfLeafNodes(), leafIndex,
+                getSiblingHashes(merkleTree, merkleTreePaths), getHashingScheme(merkleTree));
+
+        merkleTreeMetrics.stop(sample, MerkleTreeMetrics.PROOF, MerkleTreeMetrics.SPARSE, merkleTreePaths.getNumberOfLeafNodes(),
+                "type", MerkleTreeMetrics.NON_MEMBERSHIP);
+
+        return nonMembershipProof;
+    }
+
+    /**
+     * Creates a sparse Merkle Tree that stores only the populated leaf nodes and the nodes above them. All other nodes
+     * are empty subtrees, whose hashes are taken from the precomputed default hash of their level.
+     */
+    @Override
+    @Transactional
+    public UUID createMerkleTree(LeafNodesDto leafNodesDto)
+    {
+        var creation = merkleTreeMetrics.start();
+
+        var leafNodes = createLeafNodes(leafNodesDto);
+
+        var hashingScheme = getHashingScheme(leafNodesDto);
+
+        var hashAlgorithm = getHashAlgorithm(leafNodesDto);
+
+        var hashService = hashServices.getHashService(hashAlgorithm);
+
+        var numberOfLeafNodes = leafNodesDto.getSize();
+
+        var leafHashes = new HashMap<Integer, byte[]>();
+
+        var leafHashing = merkleTreeMetrics.start();
+
+        for (var leafNode : leafNodes)
+        {
+            leafNode.setHashValue(hashService.hashLeaf(leafNode.getLeafValue()));
+
+            if (leafHashes.put(leafNode.getIndex(), leafNode.getHashValue()) != null)
+            {
+                throw new IllegalArgumentException("Leaf node indices are not unique or out of range");
+            }
+        }
+
+        var hashingTime = merkleTreeMetrics.stop(leafHashing, MerkleTreeMetrics.LEAF_HASHING, MerkleTreeMetrics.SPARSE, numberOfLeafNodes);
+
+        var construction = merkleTreeMetrics.start();
+
+        var hashes = merkleTreeEngines.getMerkleTreeEngine(hashAlgorithm).createSparseMerkleTree(numberOfLeafNodes, leafHashes, hashingScheme);
+
+        hashingTime += merkleTreeMetrics.stop(construction, MerkleTreeMetrics.CONSTRUCTION, MerkleTreeMetrics.SPARSE, numberOfLeafNodes);
+
+        // Only the populated leaf nodes and the nodes above them are hashed
+        merkleTreeMetrics.recordHashes(MerkleTreeMetrics.SPARSE, hashes.size(), hashingTime);
+
+        var nodes = new ArrayList<Node>();
+
+        hashes.forEach((index, hashValue) ->
+        {
+            if (index >= numberOfLeafNodes)
+            {
+                var leftChildIndex = FlatMerkleTree.getLeftChildIndex(numberOfLeafNodes, index);
+
+                nodes.add(Node.builder()
+                        .index(index)
+                        .childNodes(Arrays.asList(leftChildIndex, leftChildIndex + 1))
+                        .hashValue(hashValue)
+                        .build());
+            }
+        });
+
+        var merkleTree = MerkleTree.builder()
+                .hashingScheme(hashingScheme)
+                .hashAlgorithm(hashAlgorithm)
+                .numberOfLeafNodes(numberOfLeafNodes)
+                .sparse(true)
+                .versioned(Boolean.TRUE.equals(leafNodesDto.getVersioned()))
+                .rootHash(hashes.get(2 * numberOfLeafNodes - 2))
+                .leafNodes(leafNodes)
+                .nodes(nodes)
+                .build();
+
+        var merkleTreeId = saveMerkleTree(merkleTree);
+
+        merkleTreeMetrics.stop(creation, MerkleTreeMetrics.CREATION, MerkleTreeMetrics.SPARSE, numberOfLeafNodes);
+
+        return merkleTreeId;
+    }
+
+    /**
+     * Creates only the populated leaf nodes, the leaf nodes in between are not stored.
+     */
     @Override
     public List<LeafNode> createLeafNodes(LeafNodesDto leafNodesDto)
     {
-        verifyMerkleTreeRequest(leafNodesDto);
+        var numberOfLeafNodes = leafNodesDto.getSize();
+
+        if (numberOfLeafNodes == null || numberOfLeafNodes < 1 || Integer.bitCount(numberOfLeafNodes) != 1)
+        {
+            throw new IllegalArgumentException("Number of leaf nodes is not binary");
+        }
+
+        if (Integer.numberOfTrailingZeros(numberOfLeafNodes) > MerkleTreeEngine.MAX_DEPTH)
+        {
+            throw new IllegalArgumentException("Number of leaf nodes exceeds the maximum of 2^" + MerkleTreeEngine.MAX_DEPTH);
+        }
 
         var leafNodesDbo = new ArrayList<LeafNode>();
 
-        // Create leaf nodes with values
-        leafNodesDto.getDataPoints().forEach(
-                (index, value) -> leafNodesDbo.add(
-                        LeafNode.builder()
-                                .index(Integer.parseInt(index))
-                                .leafValue(value)
-                                .hashValue(hashService.hashData(value))
-                                .build()));
+        if (leafNodesDto.getDataPoints() == null)
+        {
+            return leafNodesDbo;
+        }
 
-        for (int i = 0; i < leafNodesDto.getSize(); i++)
+        leafNodesDto.getDataPoints().forEach((index, value) ->
         {
-            if (!leafNodesDto.getDataPoints().containsKey(String.valueOf(i)))
+            var leafIndex = Integer.parseInt(index);
+
+            if (leafIndex < 0 || leafIndex >= numberOfLeafNodes || value == null)
             {
-                leafNodesDbo.add(
-                        LeafNode.builder()
-                                .index(i)
-                                .leafValue("DUMMY")
-                                .hashValue(hashService.hashData("DUMMY"))
-                                .build());
+                throw new IllegalArgumentException("Leaf node indices are not unique or out of range");
             }
-        }
+
+            leafNodesDbo.add(LeafNode.builder()
+                    .index(leafIndex)
+                    .leafValue(value)
+                    .build());
+        });
 
         return leafNodesDbo;
     }
@@ -0,0 +1,172 @@
+package com.merkletree.engine;
+
+import com.merkletree.hash.DigestPool;
+import com.merkletree.hash.HashService;
+import com.merkletree.hash.HashingScheme;
+import org.bouncycastle.crypto.digests.KeccakDigest;
+import org.instancio.Instancio;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Tests for the Merkle Log Engine")
+class MerkleLogEngineTest
+{
+    static final int MAX_TREE_SIZE = 40;
+
+    HashService hashService = new HashService(new DigestPool(() -> new KeccakDigest(256), 4));
+
+    MerkleLogEngine merkleLogEngine = new MerkleLogEngine(hashService);
+
+    List<byte[]> leafHashes = createLeafHashes();
+
+    Map<Integer, byte[]> subtreeHashes = createSubtreeHashes();
+
+    static List<byte[]> createLeafHashes()
+    {
+        var hashService = new HashService(new DigestPool(() -> new KeccakDigest(256), 1));
+
+        var leafHashes = new ArrayList<byte[]>();
+
+        for (int i = 0; i < MAX_TREE_SIZE; i++)
+        {
+            leafHashes.add(hashService.hashLeaf(Instancio.create(String.class)));
+        }
+
+        return leafHashes;
+    }
+
+    Map<Integer, byte[]> createSubtreeHashes()
+    {
+        var hashes = new HashMap<Integer, byte[]>();
+
+        // Append in batches of different sizes
+        for (int treeSize = 0; treeSize < MAX_TREE_SIZE; treeSize += treeSize % 3 + 1)
+        {
+            var batch = leafHashes.subList(treeSize, Math.min(MAX_TREE_SIZE, treeSize + treeSize % 3 + 1));
+
+            merkleLogEngine.appendLeafHashes(treeSize, batch, hashes, HashingScheme.BINARY, (hash, index) -> {});
+        }
+
+        return hashes;
+    }
+
+    /**
+     * Root hash as defined by RFC 6962, section 2.1.
+     */
+    byte[] referenceRootHash(List<byte[]> leafs)
+    {
+        if (leafs.size() == 1)
+        {
+            return leafs.get(0);
+        }
+
+        var split = Integer.highestOneBit(leafs.size() - 1);
+
+        return hashService.hashPair(referenceRootHash(leafs.subList(0, split)), referenceRootHash(leafs.subList(split, leafs.size())), HashingScheme.BINARY);
+    }
+
+    @Nested
+    @DisplayName("Tests for appending leafs")
+    class AppendLeafHashes
+    {
+        @Test
+        @DisplayName("Root hashes of all tree sizes match the reference")
+        void hashRange_allTreeSizes_matchesReference()
+        {
+            for (int treeSize = 1; treeSize <= MAX_TREE_SIZE; treeSize++)
+            {
+                // when
+                var actualResponse = merkleLogEngine.hashRange(new MerkleLogRange(0, treeSize), subtreeHashes, HashingScheme.BINARY);
+
+                // then
+                assertArrayEquals(referenceRootHash(leafHashes.subList(0, treeSize)), actualResponse);
+            }
+        }
+
+        @Test
+        @DisplayName("Only perfect subtrees are stored, one node less than leafs for every power of two")
+        void appendLeafHashes_storesPerfectSubtrees()
+        {
+            // given
+            var nodeIndices = new ArrayList<Integer>();
+
+            // when
+            merkleLogEngine.appendLeafHashes(0, leafHashes.subList(0, 16), new HashMap<>(), HashingScheme.BINARY, (hash, index) -> nodeIndices.add(index));
+
+            // then
+            assertEquals(15, nodeIndices.size());
+            assertEquals(List.of(1, 5, 3, 9, 13, 11, 7), nodeIndices.subList(0, 7));
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for inclusion proofs")
+    class GetInclusionProofRanges
+    {
+        @Test
+        @DisplayName("Inclusion proofs of all leafs of all tree sizes are verified")
+        void getInclusionProofRanges_verifies()
+        {
+            for (int treeSize = 1; treeSize <= MAX_TREE_SIZE; treeSize++)
+            {
+                var rootHash = referenceRootHash(leafHashes.subList(0, treeSize));
+
+                for (int leafIndex = 0; leafIndex < treeSize; leafIndex++)
+                {
+                    // when
+                    var proofHashes = merkleLogEngine.getInclusionProofRanges(leafIndex, treeSize).stream()
+                            .map(range -> merkleLogEngine.hashRange(range, subtreeHashes, HashingScheme.BINARY))
+                            .toList();
+
+                    // then
+                    assertTrue(merkleLogEngine.verifyInclusion(leafHashes.get(leafIndex), leafIndex, treeSize, proofHashes, rootHash, HashingScheme.BINARY));
+                    assertFalse(merkleLogEngine.verifyInclusion(leafHashes.get(MAX_TREE_SIZE - 1 - leafIndex), leafIndex, treeSize, proofHashes, rootHash, HashingScheme.BINARY));
+                }
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for consistency proofs")
+    class GetConsistencyProofRanges
+    {
+        @Test
+        @DisplayName("Consistency proofs between all tree sizes are verified")
+        void getConsistencyProofRanges_verifies()
+        {
+            for (int secondTreeSize = 1; secondTreeSize <= MAX_TREE_SIZE; secondTreeSize++)
+            {
+                var secondRootHash = referenceRootHash(leafHashes.subList(0, secondTreeSize));
+
+                for (int firstTreeSize = 1; firstTreeSize <= secondTreeSize; firstTreeSize++)
+                {
+                    var firstRootHash = referenceRootHash(leafHashes.subList(0, firstTreeSize));
+
+                    // when
+                    var proofHashes = merkleLogEngine.getConsistencyProofRanges(firstTreeSize, secondTreeSize).stream()
+                            .map(range -> merkleLogEngine.hashRange(range, subtreeHashes, HashingScheme.BINARY))
+                            .toList();
+
+                    // then
+                    assertTrue(merkleLogEngine.verifyConsistency(firstTreeSize, secondTreeSize, firstRootHash, secondRootHash, proofHashes, HashingScheme.BINARY));
+
+                    if (firstTreeSize < secondTreeSize)
+                    {
+                        assertFalse(merkleLogEngine.verifyConsistency(firstTreeSize, secondTreeSize, secondRootHash, secondRootHash, proofHashes, HashingScheme.BINARY));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package com.merkletree.engine;
+
+import com.merkletree.hash.DigestPool;
+import com.merkletree.hash.HashService;
+import com.merkletree.hash.HashingScheme;
+import org.bouncycastle.crypto.digests.KeccakDigest;
+import org.bouncycastle.util.encoders.Hex;
+import org.instancio.Instancio;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Tests for the Merkle Tree Engine")
+class MerkleTreeEngineTest
+{
+    HashService hashService = new HashService(new DigestPool(() -> new KeccakDigest(256), 4));
+
+    MerkleTreeEngine merkleTreeEngine = new MerkleTreeEngine(hashService, ForkJoinPool.commonPool(), Integer.MAX_VALUE);
+
+    static List<String> createLeafValues(int numberOfLeafNodes)
+    {
+        var leafValues = new ArrayList<String>();
+
+        for (int i = 0; i < numberOfLeafNodes; i++)
+        {
+            leafValues.add(Instancio.create(String.class));
+        }
+
+        return leafValues;
+    }
+
+    @Nested
+    @DisplayName("Tests for the creation of Merkle Trees")
+    class CreateMerkleTree
+    {
+        @ParameterizedTest
+        @ValueSource(ints = {2, 8, 64})
+        @DisplayName("Root hash of the hex concatenation scheme matches the root hash of the hash service")
+        void createMerkleTree_hexConcatenation_matchesHashService(int numberOfLeafNodes)
+        {
+            // given
+            var leafValues = createLeafValues(numberOfLeafNodes);
+
+            var leafs = new HashMap<Integer, String>();
+
+            for (int i = 0; i < numberOfLeafNodes; i++)
+            {
+                leafs.put(i, leafValues.get(i));
+            }
+
+            var expectedResponse = hashService.calculateMerkleProof(leafs);
+
+            // when
+            var actualResponse = merkleTreeEngine.createMerkleTree(leafValues, HashingScheme.HEX_CONCATENATION);
+
+            // then
+            assertEquals(expectedResponse, Hex.toHexString(actualResponse.getRootHash()));
+        }
+
+        @Test
+        @DisplayName("Every node of the binary scheme is the hash of its children")
+        void createMerkleTree_binary_works()
+        {
+            // given
+            var leafValues = createLeafValues(16);
+
+            // when
+            var actualResponse = merkleTreeEngine.createMerkleTree(leafValues, HashingScheme.BINARY);
+
+            // then
+            assertEquals(31, actualResponse.getNumberOfNodes());
+
+            for (int i = 0; i < 16; i++)
+            {
+                assertArrayEquals(hashService.hashLeaf(leafValues.get(i)), actualResponse.getHash(i));
+            }
+
+            for (int index = 16; index < actualResponse.getNumberOfNodes(); index++)
+            {
+                var leftChildIndex = actualResponse.getLeftChildIndex(index);
+
+                var expectedHash = hashService.hashPair(actualResponse.getHash(leftChildIndex),
+                        actualResponse.getHash(leftChildIndex + 1), HashingScheme.BINARY);
+
+                assertArrayEquals(expectedHash, actualResponse.getHash(index));
+                assertEquals(index, actualResponse.getParentIndex(leftChildIndex));
+            }
+        }
+
+        @Test
+        @DisplayName("Illegal Argument Exception is thrown if the number of leafs is not binary")
+        void createMerkleTree_throws()
+        {
+            var leafValues = createLeafValues(6);
+
+            assertThrows(IllegalArgumentException.class, () -> merkleTreeEngine.createMerkleTree(leafValues, HashingScheme.BINARY));
+        }
+
+        @Test
+        @DisplayName("Illegal Argument Exception is thrown if the hashes of the Merkle Tree exceed the maximum length of an array")
+        void flatMerkleTree_aboveMaximum_throws()
+        {
+            assertTrue(FlatMerkleTree.getSize(FlatMerkleTree.MAX_NUMBER_OF_LEAF_NODES) < Integer.MAX_VALUE - 8);
+            assertTrue(FlatMerkleTree.getSize(2 * FlatMerkleTree.MAX_NUMBER_OF_LEAF_NODES) > Integer.MAX_VALUE);
+
+            assertThrows(IllegalArgumentException.class, () -> new FlatMerkleTree(2 * FlatMerkleTree.MAX_NUMBER_OF_LEAF_NODES));
+            assertThrows(IllegalArgumentException.class, () -> new FlatMerkleTree(1 << MerkleTreeEngine.MAX_DEPTH));
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for the parallel creation of Merkle Trees")
+    class CreateMerkleTreeParallel
+    {
+        @ParameterizedTest
+        @ValueSource(strings = {"HEX_CONCATENATION", "BINARY"})
+        @DisplayName("Parallel build produces the same hashes as the sequential build")
+        void createMerkleTree_parallel_matchesSequential(HashingScheme hashingScheme)
+        {
+            // given
+            var leafValues = createLeafValues(8 * MerkleTreeEngine.PARALLEL_CHUNK_SIZE);
+
+            var buildPool = new ForkJoinPool(4);
+
+            var parallelMerkleTreeEngine = new MerkleTreeEngine(hashService, buildPool, 1);
+
+            var expectedResponse = merkleTreeEngine.createMerkleTree(leafValues, hashingScheme);
+
+            // when
+            var actualResponse = parallelMerkleTreeEngine.createMerkleTree(leafValues, hashingScheme);
+
+            // then
+            assertArrayEquals(expectedResponse.getHashes(), actualResponse.getHashes());
+
+            buildPool.shutdown();
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for the creation of Merkle Trees from a stream of leafs")
+    class AddLeafHash
+    {
+        @ParameterizedTest
+        @ValueSource(strings = {"HEX_CONCATENATION", "BINARY"})
+        @DisplayName("Streamed nodes match the nodes of the in-memory build")
+        void addLeafHash_matchesCreateMerkleTree(HashingScheme hashingScheme)
+        {
+            // given
+            var leafValues = createLeafValues(64);
+
+            var expectedResponse = merkleTreeEngine.createMerkleTree(leafValues, hashingScheme);
+
+            var actualHashes = new HashMap<Integer, byte[]>();
+
+            var merkleTreeFrontier = new MerkleTreeFrontier(hashService, hashingScheme, leafValues.size(), (hash, index) -> actualHashes.put(index, hash));
+
+            // when
+            leafValues.forEach(leafValue -> merkleTreeFrontier.addLeafHash(hashService.hashLeaf(leafValue)));
+
+            // then
+            assertEquals(leafValues.size() - 1, actualHashes.size());
+            actualHashes.forEach((index, hash) -> assertArrayEquals(expectedResponse.getHash(index), hash));
+            assertArrayEquals(expectedResponse.getRootHash(), merkleTreeFrontier.getRootHash());
+        }
+
+        @Test
+        @DisplayName("Illegal Argument Exception is thrown if more or fewer leafs than announced are provided")
+        void addLeafHash_wrongNumberOfLeafs_throws()
+        {
+            // given
+            var merkleTreeFrontier = new MerkleTreeFrontier(hashService, HashingScheme.BINARY, 2, (hash, index) -> {});
+
+            merkleTreeFrontier.addLeafHash(hashService.hashLeaf("a"));
+
+            // when, then
+            assertThrows(IllegalArgumentException.class, merkleTreeFrontier::getRootHash);
+
+            merkleTreeFrontier.addLeafHash(hashService.hashLeaf("b"));
+
+            assertThrows(IllegalArgumentException.class, () -> merkleTreeFrontier.addLeafHash(hashService.hashLeaf("c")));
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for the creation of sparse Merkle Trees")
+    class CreateSparseMerkleTree
+    {
+        @ParameterizedTest
+        @ValueSource(strings = {"HEX_CONCATENATION", "BINARY"})
+        @DisplayName("Sparse tree has the same hashes as the tree with all empty leafs populated by the sparse leaf value")
+        void createSparseMerkleTree_matchesCreateMerkleTree(HashingScheme hashingScheme)
+        {
+            // given
+            var leafValues = new ArrayList<String>();
+
+            var leafHashes = new HashMap<Integer, byte[]>();
+
+            for (int i = 0; i < 64; i++)
+            {
+                var leafValue = i % 7 == 3 ? Instancio.create(String.class) : MerkleTreeEngine.SPARSE_LEAF_VALUE;
+
+                leafValues.add(leafValue);
+
+                if (i % 7 == 3)
+                {
+                    leafHashes.put(i, hashService.hashLeaf(leafValue));
+                }
+            }
+
+            var expectedResponse = merkleTreeEngine.createMerkleTree(leafValues, hashingScheme);
+
+            // when
+            var actualResponse = merkleTreeEngine.createSparseMerkleTree(leafValues.size(), leafHashes, hashingScheme);
+
+            // then
+            actualResponse.forEach((index, hash) -> assertArrayEquals(expectedResponse.getHash(index), hash));
+            assertArrayEquals(expectedResponse.getRootHash(), actualResponse.get(expectedResponse.getRootIndex()));
+            assertArrayEquals(merkleTreeEngine.getDefaultHash(hashingScheme, 2), expectedResponse.getHash(97));
+        }
+
+        @Test
+        @DisplayName("Sparse tree with the maximum size hashes only the paths of the populated leafs")
+        void createSparseMerkleTree_maximumSize_works()
+        {
+            // given
+            var numberOfLeafNodes = 1 << MerkleTreeEngine.MAX_DEPTH;
+
+            var leafHashes = new HashMap<Integer, byte[]>();
+
+            for (int i = 0; i < 1000; i++)
+            {
+                leafHashes.put(i * 1_000_003, hashService.hashLeaf(Instancio.create(String.class)));
+            }
+
+            // when
+            var actualResponse = merkleTreeEngine.createSparseMerkleTree(numberOfLeafNodes, leafHashes, HashingScheme.BINARY);
+
+            // then
+            var leafIndex = 7 * 1_000_003;
+
+            var merkleTreePaths = new MerkleTreePaths(numberOfLeafNodes, List.of(leafIndex));
+
+            var siblingHashes = new HashMap<>(actualResponse);
+
+            merkleTreeEngine.putDefaultHashes(merkleTreePaths, siblingHashes, HashingScheme.BINARY);
+
+            var proofHashes = merkleTreePaths.getSiblingIndices().stream().map(siblingHashes::get).toList();
+
+            assertTrue(hashService.createProofVerifier(HashingScheme.BINARY)
+                    .verify(leafHashes.get(leafIndex), leafIndex, proofHashes, actualResponse.get(2 * numberOfLeafNodes - 2)));
+        }
+
+        @Test
+        @DisplayName("Level of a node is calculated from its index")
+        void getLevel_works()
+        {
+            assertEquals(0, FlatMerkleTree.getLevel(8, 0));
+            assertEquals(0, FlatMerkleTree.getLevel(8, 7));
+            assertEquals(1, FlatMerkleTree.getLevel(8, 8));
+            assertEquals(1, FlatMerkleTree.getLevel(8, 11));
+            assertEquals(2, FlatMerkleTree.getLevel(8, 12));
+            assertEquals(3, FlatMerkleTree.getLevel(8, 14));
+            assertEquals(MerkleTreeEngine.MAX_DEPTH, FlatMerkleTree.getLevel(1 << MerkleTreeEngine.MAX_DEPTH, Integer.MAX_VALUE - 1));
+        }
+
+        @Test
+        @DisplayName("Illegal Argument Exception is thrown for default hashes above the maximum depth")
+        void getDefaultHash_aboveMaximumDepth_throws()
+        {
+            assertThrows(IllegalArgumentException.class, () -> merkleTreeEngine.getDefaultHash(HashingScheme.BINARY, MerkleTreeEngine.MAX_DEPTH + 1));
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for non-membership proofs of sparse Merkle Trees")
+    class CreateNonMembershipProof
+    {
+        @Test
+        @DisplayName("Compressed proof of an empty leaf leads to the root hash")
+        void createNonMembershipProof_works()
+        {
+            // given
+            var numberOfLeafNodes = 1 << 20;
+
+            var leafHashes = new HashMap<Integer, byte[]>();
+
+            leafHashes.put(5, hashService.hashLeaf(Instancio.create(String.class)));
+            leafHashes.put(70_000, hashService.hashLeaf(Instancio.create(String.class)));
+
+            var hashes = merkleTreeEngine.createSparseMerkleTree(numberOfLeafNodes, leafHashes, HashingScheme.BINARY);
+
+            var leafIndex = 4;
+
+            var merkleTreePaths = new MerkleTreePaths(numberOfLeafNodes, List.of(leafIndex));
+
+            merkleTreeEngine.putDefaultHashes(merkleTreePaths, hashes, HashingScheme.BINARY);
+
+            var siblingHashes = merkleTreePaths.getSiblingIndices().stream().map(hashes::get).toList();
+
+            // when
+            var actualResponse = merkleTreeEngine.createNonMembershipProof(numberOfLeafNodes, leafIndex, siblingHashes, HashingScheme.BINARY);
+
+            // then
+            assertEquals(2, actualResponse.getProofHashes().size());
+            assertEquals(18, actualResponse.getDefaultHashes().cardinality());
+            assertFalse(actualResponse.getDefaultHashes().get(0));
+            assertFalse(actualResponse.getDefaultHashes().get(16));
+
+            var expandedHashes = merkleTreeEngine.getSiblingHashes(actualResponse, HashingScheme.BINARY);
+
+            assertTrue(hashService.createProofVerifier(HashingScheme.BINARY).verify(merkleTreeEngine.getDefaultHash(HashingScheme.BINARY, 0),
+                    leafIndex, expandedHashes, hashes.get(2 * numberOfLeafNodes - 2)));
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for the recalculation of the paths of updated leafs")
+    class HashPaths
+    {
+        @Test
+        @DisplayName("Recalculated paths match a complete rebuild of the Merkle Tree")
+        void hashPaths_matchesRebuild()
+        {
+            // given
+            var leafValues = createLeafValues(32);
+
+            var merkleTree = merkleTreeEngine.createMerkleTree(leafValues, HashingScheme.BINARY);
+
+            var updatedLeafIndices = List.of(3, 4, 5, 30);
+
+            updatedLeafIndices.forEach(index -> leafValues.set(index, Instancio.create(String.class)));
+
+            var expectedResponse = merkleTreeEngine.createMerkleTree(leafValues, HashingScheme.BINARY);
+
+            var merkleTreePaths = new MerkleTreePaths(32, updatedLeafIndices);
+
+            var hashes = new HashMap<Integer, byte[]>();
+
+            updatedLeafIndices.forEach(index -> hashes.put(index, hashService.hashLeaf(leafValues.get(index))));
+
+            merkleTreePaths.getSiblingIndices().forEach(index -> hashes.put(index, merkleTree.getHash(index)));
+
+            // when
+            merkleTreeEngine.hashPaths(merkleTreePaths, hashes, HashingScheme.BINARY);
+
+            // then
+            assertEquals(List.of(2, 31, 32, 35, 46, 54, 57, 58), List.copyOf(merkleTreePaths.getSiblingIndices()));
+            assertEquals(List.of(33, 34, 47, 48, 49, 55, 56, 59, 60, 61, 62), List.copyOf(merkleTreePaths.getNodeIndices()));
+
+            merkleTreePaths.getNodeIndices().forEach(index -> assertArrayEquals(expectedResponse.getHash(index), hashes.get(index)));
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for the verification of multiproofs")
+    class VerifyMultiProof
+    {
+        MultiProofVerifier multiProofVerifier = new MultiProofVerifier(merkleTreeEngine);
+
+        FlatMerkleTree merkleTree = merkleTreeEngine.createMerkleTree(createLeafValues(64), HashingScheme.BINARY);
+
+        List<Integer> leafIndices = List.of(0, 1, 17, 40, 63);
+
+        MultiProof createMultiProof()
+        {
+            var proofHashes = new ArrayList<byte[]>();
+
+            new MerkleTreePaths(64, leafIndices).getSiblingIndices().forEach(index -> proofHashes.add(merkleTree.getHash(index)));
+
+            return new MultiProof(64, leafIndices, proofHashes);
+        }
+
+        List<byte[]> getLeafHashes()
+        {
+            return leafIndices.stream().map(merkleTree::getHash).toList();
+        }
+
+        @Test
+        @DisplayName("Multiproof of the stored hashes is valid and smaller than the single proofs")
+        void verify_works()
+        {
+            // given
+            var multiProof = createMultiProof();
+
+            // when
+            var actualResponse = multiProofVerifier.verify(multiProof, getLeafHashes(), merkleTree.getRootHash(), HashingScheme.BINARY);
+
+            // then
+            assertTrue(actualResponse);
+            assertTrue(multiProof.getProofHashes().size() < leafIndices.size() * 6);
+        }
+
+        @Test
+        @DisplayName("Multiproof with a tampered leaf hash is invalid")
+        void verify_tamperedLeaf_fails()
+        {
+            // given
+            var multiProof = createMultiProof();
+
+            var leafHashes = new ArrayList<>(getLeafHashes());
+
+            leafHashes.set(2, hashService.hashLeaf(Instancio.create(String.class)));
+
+            // when
+            var actualResponse = multiProofVerifier.verify(multiProof, leafHashes, merkleTree.getRootHash(), HashingScheme.BINARY);
+
+            // then
+            assertFalse(actualResponse);
+        }
+    }
+}
@@ -1,34 +1,42 @@
 package com.merkletree.hash;
 
+import org.bouncycastle.crypto.digests.KeccakDigest;
 import org.bouncycastle.jcajce.provider.digest.Keccak;
 import org.bouncycastle.util.encoders.Hex;
 import org.instancio.Instancio;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
-import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.EnumSource;
 import org.junit.jupiter.params.provider.MethodSource;
-import org.mockito.InjectMocks;
-import org.mockito.Mock;
-import org.mockito.junit.jupiter.MockitoExtension;
+
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.mockito.BDDMockito.given;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @DisplayName("Tests for the Hash Service")
-@ExtendWith(MockitoExtension.class)
 class HashServiceTest
 {
-    @InjectMocks
-    HashService hashService;
+    HashService hashService = new HashService(new DigestPool(() -> new KeccakDigest(256), 4));
 
-    @Mock
-    Keccak.Digest256 digest256;
+    static byte[] referenceHash(String data)
+    {
+        return new Keccak.Digest256().digest(data.getBytes(StandardCharsets.UTF_8));
+    }
 
     @Nested
     @DisplayName("Tests for hashing of arbitrary data")
@@ -41,11 +49,7 @@ class HashServiceTest
             // given
             var data = Instancio.create(String.class);
 
-            var expectedHashedBytes = Instancio.create(byte[].class);
-
-            var expectedResponse = new String(Hex.encode(expectedHashedBytes));
-
-            given(digest256.digest(data.getBytes(StandardCharsets.UTF_8))).willReturn(expectedHashedBytes);
+            var expectedResponse = new String(Hex.encode(referenceHash(data)));
 
             // when
             var actualResponse = hashService.hashData(data);
@@ -76,13 +80,7 @@ class HashServiceTest
 
             var rightHash = Instancio.create(String.class);
 
-            var expectedHashedBytes = Instancio.create(byte[].class);
-
-            var expectedResponse = new String(Hex.encode(expectedHashedBytes));
-
-            var data = leftHash + rightHash;
-
-            given(digest256.digest(data.getBytes(StandardCharsets.UTF_8))).willReturn(expectedHashedBytes);
+            var expectedResponse = new String(Hex.encode(referenceHash(leftHash + rightHash)));
 
             // when
             var actualResponse = hashService.getParentHash(leftHash, rightHash);
@@ -110,7 +108,171 @@ class HashServiceTest
 
     }
 
+    @Nested
+    @DisplayName("Tests for hashing two binary child hashes")
+    class HashPair
+    {
+        @Test
+        @DisplayName("Hex concatenation scheme matches the hash of the concatenated hex Strings")
+        void hashPair_hexConcatenation_matchesParentHash()
+        {
+            // given
+            var leftHash = referenceHash(Instancio.create(String.class));
+
+            var rightHash = referenceHash(Instancio.create(String.class));
 
+            var expectedResponse = hashService.getParentHash(Hex.toHexString(leftHash), Hex.toHexString(rightHash));
+
+            // when
+            var actualResponse = hashService.hashPair(leftHash, rightHash, HashingScheme.HEX_CONCATENATION);
 
+            // then
+            assertEquals(expectedResponse, Hex.toHexString(actualResponse));
+        }
 
-}
\ No newline at end of file
+        @Test
+        @DisplayName("Binary scheme hashes the concatenated raw child hashes")
+        void hashPair_binary_works()
+        {
+            // given
+            var leftHash = referenceHash(Instancio.create(String.class));
+
+            var rightHash = referenceHash(Instancio.create(String.class));
+
+            var digest = new Keccak.Digest256();
+
+            digest.update(leftHash);
+            digest.update(rightHash);
+
+            var expectedResponse = digest.digest();
+
+            // when
+            var actualResponse = hashService.hashPair(leftHash, rightHash, HashingScheme.BINARY);
+
+            // then
+            assertArrayEquals(expectedResponse, actualResponse);
+        }
+
+        @Test
+        @DisplayName("Illegal Argument exception is thrown if any of the input arguments is null")
+        void hashPair_throws()
+        {
+            assertThrows(IllegalArgumentException.class, () -> hashService.hashPair(null, new byte[32], HashingScheme.BINARY));
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for the verification of proofs of membership")
+    class VerifyProof
+    {
+        @ParameterizedTest
+        @EnumSource(HashingScheme.class)
+        @DisplayName("Proofs of all leafs of a tree lead to the root hash")
+        void verify_validProof_returnsTrue(HashingScheme hashingScheme)
+        {
+            // given
+            var leafHashes = new byte[4][];
+
+            for (int i = 0; i < leafHashes.length; i++)
+            {
+                leafHashes[i] = hashService.hashLeaf(Instancio.create(String.class));
+            }
+
+            var leftHash = hashService.hashPair(leafHashes[0], leafHashes[1], hashingScheme);
+
+            var rightHash = hashService.hashPair(leafHashes[2], leafHashes[3], hashingScheme);
+
+            var rootHash = hashService.hashPair(leftHash, rightHash, hashingScheme);
+
+            var proofVerifier = hashService.createProofVerifier(hashingScheme);
+
+            // when, then
+            assertTrue(proofVerifier.verify(leafHashes[0], 0, new byte[][]{leafHashes[1], rightHash}, rootHash));
+            assertTrue(proofVerifier.verify(leafHashes[1], 1, new byte[][]{leafHashes[0], rightHash}, rootHash));
+            assertTrue(proofVerifier.verify(leafHashes[2], 2, List.of(leafHashes[3], leftHash), rootHash));
+            assertTrue(proofVerifier.verify(leafHashes[3], 3, List.of(leafHashes[2], leftHash), rootHash));
+        }
+
+        @Test
+        @DisplayName("Proofs with a wrong leaf, index or length do not lead to the root hash")
+        void verify_invalidProof_returnsFalse()
+        {
+            // given
+            var leftHash = hashService.hashLeaf(Instancio.create(String.class));
+
+            var rightHash = hashService.hashLeaf(Instancio.create(String.class));
+
+            var rootHash = hashService.hashPair(leftHash, rightHash, HashingScheme.BINARY);
+
+            var proofVerifier = hashService.createProofVerifier(HashingScheme.BINARY);
+
+            // when, then
+            assertTrue(proofVerifier.verify(leftHash, 0, new byte[][]{rightHash}, rootHash));
+            assertFalse(proofVerifier.verify(rightHash, 0, new byte[][]{rightHash}, rootHash));
+            assertFalse(proofVerifier.verify(leftHash, 1, new byte[][]{rightHash}, rootHash));
+            assertFalse(proofVerifier.verify(leftHash, 2, new byte[][]{rightHash}, rootHash));
+            assertFalse(proofVerifier.verify(leftHash, 0, new byte[][]{rightHash, rightHash}, rootHash));
+            assertFalse(proofVerifier.verify(leftHash, 0, new byte[][]{new byte[16]}, rootHash));
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for the calculation of the root hash under concurrent load")
+    class CalculateMerkleProof
+    {
+        @Test
+        @DisplayName("Root hashes calculated concurrently match the single threaded reference")
+        void calculateMerkleProof_concurrent_matchesReference() throws Exception
+        {
+            // given
+            var numberOfTrees = 32;
+
+            var trees = new ArrayList<Map<Integer, String>>();
+
+            var expectedRoots = new ArrayList<String>();
+
+            for (int i = 0; i < numberOfTrees; i++)
+            {
+                var leafs = new HashMap<Integer, String>();
+
+                for (int leafIndex = 0; leafIndex < 64; leafIndex++)
+                {
+                    leafs.put(leafIndex, Instancio.create(String.class));
+                }
+
+                trees.add(leafs);
+                expectedRoots.add(hashService.calculateMerkleProof(leafs));
+            }
+
+            var tasks = new ArrayList<Callable<Boolean>>();
+
+            for (int i = 0; i < 16 * numberOfTrees; i++)
+            {
+                var treeIndex = i % numberOfTrees;
+
+                tasks.add(() -> expectedRoots.get(treeIndex).equals(hashService.calculateMerkleProof(trees.get(treeIndex))));
+            }
+
+            var executor = Executors.newFixedThreadPool(16);
+
+            // when
+            List<Boolean> results = new ArrayList<>();
+
+            try
+            {
+                for (var future : executor.invokeAll(tasks))
+                {
+                    results.add(future.get());
+                }
+            } finally
+            {
+                executor.shutdown();
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            }
+
+            // then
+            assertEquals(tasks.size(), results.size());
+            assertTrue(results.stream().allMatch(Boolean::booleanValue));
+        }
+    }
+}
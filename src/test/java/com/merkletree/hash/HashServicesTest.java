@@ -0,0 +1,211 @@
+package com.merkletree.hash;
+
+import org.bouncycastle.crypto.Digest;
+import org.bouncycastle.crypto.digests.SHA512Digest;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DisplayName("Tests for the Hash Services")
+class HashServicesTest
+{
+    static HashServices createHashServices(HashAlgorithm... hashAlgorithms)
+    {
+        var beanFactory = new StaticListableBeanFactory();
+
+        for (int i = 0; i < hashAlgorithms.length; i++)
+        {
+            beanFactory.addBean("hashAlgorithm" + i, hashAlgorithms[i]);
+        }
+
+        return new HashServices(beanFactory.getBeanProvider(HashAlgorithm.class), 4);
+    }
+
+    static HashAlgorithm createHashAlgorithm(String name, Supplier<Digest> digestFactory)
+    {
+        return new HashAlgorithm()
+        {
+            @Override
+            public String getName()
+            {
+                return name;
+            }
+
+            @Override
+            public Digest createDigest()
+            {
+                return digestFactory.get();
+            }
+        };
+    }
+
+    static byte[] digest(Digest digest, byte[] data)
+    {
+        var hash = new byte[digest.getDigestSize()];
+
+        digest.update(data, 0, data.length);
+        digest.doFinal(hash, 0);
+
+        return hash;
+    }
+
+    @Nested
+    @DisplayName("Tests for selecting the hash algorithm")
+    class GetHashService
+    {
+        @ParameterizedTest
+        @EnumSource(BundledHashAlgorithm.class)
+        @DisplayName("Hash service of a bundled algorithm hashes with the digest of that algorithm")
+        void getHashService_bundled_works(BundledHashAlgorithm hashAlgorithm)
+        {
+            // given
+            var hashServices = createHashServices();
+
+            var data = "data point";
+
+            var expectedResponse = digest(hashAlgorithm.createDigest(), data.getBytes(StandardCharsets.UTF_8));
+
+            // when
+            var actualResponse = hashServices.getHashService(hashAlgorithm.getName()).hashLeaf(data);
+
+            // then
+            assertArrayEquals(expectedResponse, actualResponse);
+            assertEquals(hashAlgorithm.getName(), hashServices.getAlgorithm(hashAlgorithm.getName()));
+        }
+
+        @Test
+        @DisplayName("Hash service without a provided algorithm is the one of the default algorithm")
+        void getHashService_default_works()
+        {
+            var hashServices = createHashServices();
+
+            assertEquals(BundledHashAlgorithm.KECCAK_256.getName(), hashServices.getAlgorithm(null));
+            assertArrayEquals(hashServices.getHashService(HashServices.DEFAULT_ALGORITHM).hashLeaf("data point"),
+                    hashServices.getHashService(null).hashLeaf("data point"));
+        }
+
+        @Test
+        @DisplayName("Hash algorithm declared as a bean is available next to the bundled ones")
+        void getHashService_pluggedIn_works()
+        {
+            // given
+            var hashServices = createHashServices(createHashAlgorithm("SHA_512_256", () -> new JdkDigest("SHA-512/256")));
+
+            // when
+            var actualResponse = hashServices.getHashService("SHA_512_256").hashLeaf("data point");
+
+            // then
+            assertTrue(hashServices.getAlgorithms().contains("SHA_512_256"));
+            assertEquals(BundledHashAlgorithm.values().length + 1, hashServices.getAlgorithms().size());
+            assertArrayEquals(digest(new JdkDigest("SHA-512/256"), "data point".getBytes(StandardCharsets.UTF_8)), actualResponse);
+        }
+
+        @Test
+        @DisplayName("Illegal Argument Exception is thrown for an unknown hash algorithm")
+        void getHashService_unknown_throws()
+        {
+            var hashServices = createHashServices();
+
+            assertThrows(IllegalArgumentException.class, () -> hashServices.getHashService("MD5"));
+            assertThrows(IllegalArgumentException.class, () -> hashServices.getAlgorithm("keccak_256"));
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for plugging in hash algorithms")
+    class AddHashAlgorithm
+    {
+        @Test
+        @DisplayName("Illegal Argument Exception is thrown for a hash algorithm without 32 byte digests")
+        void addHashAlgorithm_digestSize_throws()
+        {
+            var hashAlgorithm = createHashAlgorithm("SHA_512", SHA512Digest::new);
+
+            assertThrows(IllegalArgumentException.class, () -> createHashServices(hashAlgorithm));
+        }
+
+        @Test
+        @DisplayName("Illegal Argument Exception is thrown for a hash algorithm with the name of another one")
+        void addHashAlgorithm_duplicateName_throws()
+        {
+            var hashAlgorithm = createHashAlgorithm(BundledHashAlgorithm.SHA_256.getName(), () -> new JdkDigest("SHA-256"));
+
+            assertThrows(IllegalArgumentException.class, () -> createHashServices(hashAlgorithm));
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for the digests of the bundled algorithms")
+    class Digests
+    {
+        @ParameterizedTest
+        @EnumSource(BundledHashAlgorithm.class)
+        @DisplayName("Digests of all bundled algorithms are 32 bytes long")
+        void createDigest_size_works(BundledHashAlgorithm hashAlgorithm)
+        {
+            var digest = hashAlgorithm.createDigest();
+
+            assertEquals(HashService.HASH_SIZE, digest.getDigestSize());
+            assertEquals(HashService.HASH_SIZE, digest(digest, new byte[0]).length);
+        }
+
+        @Test
+        @DisplayName("BLAKE3 digest of the empty input is the reference hash")
+        void createDigest_blake3_works()
+        {
+            // given
+            var digest = BundledHashAlgorithm.BLAKE3_256.createDigest();
+
+            // when
+            var actualResponse = digest(digest, new byte[0]);
+
+            // then
+            assertEquals("af1349b9f5f9a1a6a0404dea36dcc9499bcb25c9adc112b7cc9a93cae41f3262", Hex.toHexString(actualResponse));
+            assertArrayEquals(actualResponse, digest(digest, new byte[0]));
+        }
+
+        @Test
+        @DisplayName("JDK digest hashes like its message digest and is reset after every digest")
+        void jdkDigest_works() throws Exception
+        {
+            // given
+            var digest = new JdkDigest("SHA-256");
+
+            var data = "abc".getBytes(StandardCharsets.UTF_8);
+
+            var expectedResponse = MessageDigest.getInstance("SHA-256").digest(data);
+
+            // when
+            var actualResponse = digest(digest, data);
+
+            // then
+            assertArrayEquals(expectedResponse, actualResponse);
+            assertArrayEquals(expectedResponse, digest(digest, data));
+
+            digest.update(data[0]);
+            digest.reset();
+
+            assertArrayEquals(expectedResponse, digest(digest, data));
+        }
+
+        @Test
+        @DisplayName("Illegal Argument Exception is thrown for a message digest the JDK does not provide")
+        void jdkDigest_unknown_throws()
+        {
+            assertThrows(IllegalArgumentException.class, () -> new JdkDigest("SHA-999"));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.merkletree.log.service;
+
+import com.merkletree.engine.MerkleLogEngine;
+import com.merkletree.engine.MerkleLogRange;
+import com.merkletree.hash.HashService;
+import com.merkletree.hash.HashingScheme;
+import com.merkletree.regular.repositories.LeafNodesRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@DisplayName("Tests for the Merkle Log Service")
+class MerkleLogServiceTest
+{
+    /**
+     * Spans several JDBC batches of leaf nodes and of nodes.
+     */
+    static final int NUMBER_OF_LEAF_NODES = 3000;
+
+    @Autowired
+    MerkleLogService merkleLogService;
+
+    @Autowired
+    MerkleLogEngine merkleLogEngine;
+
+    @Autowired
+    HashService hashService;
+
+    @Autowired
+    LeafNodesRepository leafNodesRepository;
+
+    static List<String> createLeafValues(int from, int to)
+    {
+        var leafValues = new ArrayList<String>();
+
+        for (int i = from; i < to; i++)
+        {
+            leafValues.add("leaf " + i);
+        }
+
+        return leafValues;
+    }
+
+    /**
+     * Calculates the root hash of the first leaf values independently of the stored rows.
+     */
+    byte[] calculateRootHash(List<String> leafValues, int treeSize)
+    {
+        var subtreeHashes = new HashMap<Integer, byte[]>();
+
+        var leafHashes = leafValues.subList(0, treeSize).stream().map(hashService::hashLeaf).toList();
+
+        merkleLogEngine.appendLeafHashes(0, leafHashes, subtreeHashes, HashingScheme.BINARY, (hash, index) -> {});
+
+        return merkleLogEngine.hashRange(new MerkleLogRange(0, treeSize), subtreeHashes, HashingScheme.BINARY);
+    }
+
+    @Nested
+    @DisplayName("Tests for appending leaf values")
+    class AppendLeafValues
+    {
+        @Test
+        @DisplayName("Leaf nodes and subtrees appended in JDBC batches result in the root hashes of every appended size")
+        void appendLeafValues_batches_works()
+        {
+            // given
+            var merkleTreeId = merkleLogService.createMerkleLog(HashingScheme.BINARY);
+
+            var leafValues = createLeafValues(0, NUMBER_OF_LEAF_NODES + 5);
+
+            // when
+            merkleLogService.appendLeafValues(merkleTreeId, leafValues.subList(0, NUMBER_OF_LEAF_NODES));
+
+            // The second append reads the subtree hashes written by the first one
+            var actualResponse = merkleLogService.appendLeafValues(merkleTreeId, leafValues.subList(NUMBER_OF_LEAF_NODES, leafValues.size()));
+
+            // then
+            assertEquals(leafValues.size(), actualResponse.getNumberOfLeafNodes());
+            assertEquals(leafValues.size(), leafNodesRepository.countByMerkleTree_Id(merkleTreeId));
+
+            assertArrayEquals(calculateRootHash(leafValues, leafValues.size()), actualResponse.getRootHash());
+            assertArrayEquals(calculateRootHash(leafValues, NUMBER_OF_LEAF_NODES), merkleLogService.getRootHash(merkleTreeId, NUMBER_OF_LEAF_NODES));
+            assertArrayEquals(calculateRootHash(leafValues, 1234), merkleLogService.getRootHash(merkleTreeId, 1234));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.merkletree.regular.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merkletree.engine.MerkleTreeEngines;
+import com.merkletree.engine.MerkleTreePaths;
+import com.merkletree.hash.HashingScheme;
+import com.merkletree.model.LeafNodesDto;
+import com.merkletree.model.MultiProofDto;
+import com.merkletree.model.MultiProofRequestDto;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DisplayName("Tests for the Regular Controller")
+class RegularControllerTest
+{
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    MerkleTreeEngines merkleTreeEngines;
+
+    static List<String> createLeafValues(int numberOfLeafNodes)
+    {
+        var leafValues = new ArrayList<String>();
+
+        for (int i = 0; i < numberOfLeafNodes; i++)
+        {
+            leafValues.add("leaf " + i);
+        }
+
+        return leafValues;
+    }
+
+    UUID createMerkleTree(List<String> leafValues) throws Exception
+    {
+        var leafNodesDto = new LeafNodesDto();
+
+        for (int i = 0; i < leafValues.size(); i++)
+        {
+            leafNodesDto.putDataPointsItem(String.valueOf(i), leafValues.get(i));
+        }
+
+        var content = mockMvc.perform(post("/merkle-tree").contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(leafNodesDto)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        return objectMapper.readValue(content, UUID.class);
+    }
+
+    @Nested
+    @DisplayName("Tests for the multiproof endpoint")
+    class GetMultiProof
+    {
+        @Test
+        @DisplayName("Multiproof response contains the proven leaf indices and the hashes of their siblings")
+        void getMultiProof_works() throws Exception
+        {
+            // given
+            var leafValues = createLeafValues(16);
+
+            var merkleTreeId = createMerkleTree(leafValues);
+
+            var flatMerkleTree = merkleTreeEngines.getMerkleTreeEngine(null).createMerkleTree(leafValues, HashingScheme.BINARY);
+
+            var multiProofRequestDto = new MultiProofRequestDto().dataPoints(Map.of("3", leafValues.get(3), "10", leafValues.get(10)));
+
+            var expectedProofHashes = new MerkleTreePaths(16, List.of(3, 10)).getSiblingIndices().stream()
+                    .map(index -> Hex.toHexString(flatMerkleTree.getHash(index)))
+                    .toList();
+
+            // when
+            var actualResponse = mockMvc.perform(post("/merkle-tree/{merkleTreeId}/multiproof", merkleTreeId)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(multiProofRequestDto)));
+
+            // then
+            var multiProofDto = objectMapper.readValue(actualResponse.andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString(), MultiProofDto.class);
+
+            assertEquals(16, multiProofDto.getNumberOfLeafNodes());
+            assertEquals(List.of(3, 10), multiProofDto.getLeafIndices());
+            assertEquals(expectedProofHashes, multiProofDto.getProofHashes());
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.merkletree.regular.repositories;
+
+import com.merkletree.engine.FlatMerkleTree;
+import com.merkletree.engine.MerkleTreeEngines;
+import com.merkletree.hash.HashingScheme;
+import com.merkletree.model.LeafNodesDto;
+import com.merkletree.regular.model.nodes.AbstractNode;
+import com.merkletree.regular.services.LeafNodeService;
+import com.merkletree.regular.services.MerkleTreeService;
+import com.merkletree.regular.services.NodesService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "merkle-tree.storage.layout=ROWS")
+@DisplayName("Tests for the Node Rows Batch Repository")
+class NodeRowsBatchRepositoryTest
+{
+    /**
+     * Large enough that scattered indices are further apart than {@value NodeRowsBatchRepository#MAX_RANGE_GAP} and are
+     * read with several range queries.
+     */
+    static final int NUMBER_OF_LEAF_NODES = 256;
+
+    /**
+     * Leaf indices close to each other, far apart and at the borders of the tree, together with indices that are not
+     * stored.
+     */
+    static final List<Integer> SCATTERED_LEAF_INDICES = List.of(-1, 0, 3, 5, 64, 100, 130, 200, 254, 255, 256, 999);
+
+    @Autowired
+    NodeRowsBatchRepository nodeRowsBatchRepository;
+
+    @Autowired
+    LeafNodeService leafNodeService;
+
+    @Autowired
+    NodesService nodesService;
+
+    @Autowired
+    MerkleTreeService merkleTreeService;
+
+    @Autowired
+    MerkleTreeEngines merkleTreeEngines;
+
+    static List<String> createLeafValues()
+    {
+        return IntStream.range(0, NUMBER_OF_LEAF_NODES).mapToObj(index -> "leaf " + index).toList();
+    }
+
+    static LeafNodesDto createLeafNodesDto(List<String> leafValues)
+    {
+        var leafNodesDto = new LeafNodesDto();
+
+        for (int i = 0; i < leafValues.size(); i++)
+        {
+            leafNodesDto.putDataPointsItem(String.valueOf(i), leafValues.get(i));
+        }
+
+        return leafNodesDto;
+    }
+
+    static List<Integer> getScatteredNodeIndices()
+    {
+        var rootIndex = 2 * NUMBER_OF_LEAF_NODES - 2;
+
+        return List.of(NUMBER_OF_LEAF_NODES - 1, NUMBER_OF_LEAF_NODES, NUMBER_OF_LEAF_NODES + 1, NUMBER_OF_LEAF_NODES + 50,
+                NUMBER_OF_LEAF_NODES + 127, NUMBER_OF_LEAF_NODES + 128, rootIndex - 3, rootIndex, rootIndex + 1);
+    }
+
+    static Map<Integer, byte[]> getHashes(List<? extends AbstractNode> nodes)
+    {
+        var hashes = new HashMap<Integer, byte[]>();
+
+        nodes.forEach(node -> hashes.put(node.getIndex(), node.getHashValue()));
+
+        return hashes;
+    }
+
+    static void assertSameHashes(Map<Integer, byte[]> expectedResponse, Map<Integer, byte[]> actualResponse)
+    {
+        assertEquals(expectedResponse.keySet(), actualResponse.keySet());
+
+        expectedResponse.forEach((index, hash) -> assertArrayEquals(hash, actualResponse.get(index)));
+    }
+
+    FlatMerkleTree createFlatMerkleTree(List<String> leafValues)
+    {
+        return merkleTreeEngines.getMerkleTreeEngine(null).createMerkleTree(leafValues, HashingScheme.BINARY);
+    }
+
+    /**
+     * Compares the range reads with the reads of entities via the IN list of indices and the selection of their version.
+     */
+    void assertSameAsEntities(UUID merkleTreeId, int version)
+    {
+        var leafIndices = new ArrayList<>(IntStream.range(0, NUMBER_OF_LEAF_NODES).boxed().toList());
+
+        var nodeIndices = IntStream.range(NUMBER_OF_LEAF_NODES, 2 * NUMBER_OF_LEAF_NODES - 1).boxed().toList();
+
+        for (var indices : List.of(leafIndices, SCATTERED_LEAF_INDICES))
+        {
+            assertSameHashes(getHashes(leafNodeService.getLeafNodes(merkleTreeId, indices, version)),
+                    nodeRowsBatchRepository.getLeafHashes(merkleTreeId, indices, version));
+        }
+
+        for (var indices : List.of(nodeIndices, getScatteredNodeIndices()))
+        {
+            assertSameHashes(getHashes(nodesService.getNodes(merkleTreeId, indices, version)),
+                    nodeRowsBatchRepository.getNodeHashes(merkleTreeId, indices, version));
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for Merkle Trees with one row per node")
+    class RegularMerkleTree
+    {
+        @Test
+        @DisplayName("Range reads return the hashes of the entities before and after batched updates")
+        void getHashes_afterBatchedUpdates_works()
+        {
+            // given
+            var leafValues = new ArrayList<>(createLeafValues());
+
+            var merkleTreeId = merkleTreeService.createMerkleTree(createLeafNodesDto(leafValues));
+
+            assertSameAsEntities(merkleTreeId, 0);
+
+            // when
+            var updatedLeafValues = Map.of(0, "first", 3, "second", 130, "third", 255, "fourth");
+
+            var leafNodesDto = new LeafNodesDto();
+
+            updatedLeafValues.forEach((index, leafValue) ->
+            {
+                leafValues.set(index, leafValue);
+
+                leafNodesDto.putDataPointsItem(String.valueOf(index), leafValue);
+            });
+
+            merkleTreeService.updateLeaf(merkleTreeId, leafNodesDto);
+
+            // then
+            assertSameAsEntities(merkleTreeId, 0);
+
+            var flatMerkleTree = createFlatMerkleTree(leafValues);
+
+            var expectedResponse = new HashMap<Integer, byte[]>();
+
+            for (int index = 0; index < flatMerkleTree.getNumberOfNodes(); index++)
+            {
+                expectedResponse.put(index, flatMerkleTree.getHash(index));
+            }
+
+            var actualResponse = new HashMap<>(getHashes(leafNodeService.getLeafNodes(merkleTreeId)));
+
+            actualResponse.putAll(getHashes(nodesService.getNodesFrom(merkleTreeId, NUMBER_OF_LEAF_NODES)));
+
+            assertSameHashes(expectedResponse, actualResponse);
+
+            updatedLeafValues.forEach((index, leafValue) ->
+                    assertEquals(leafValue, leafNodeService.getLeafNode(merkleTreeId, index).getLeafValue()));
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for versioned Merkle Trees")
+    class VersionedMerkleTree
+    {
+        @Test
+        @DisplayName("Range reads return the hashes of the entities selected for every version")
+        void getHashes_allVersions_works()
+        {
+            // given
+            var leafValues = new ArrayList<>(createLeafValues());
+
+            var merkleTreeId = merkleTreeService.createMerkleTree(createLeafNodesDto(leafValues).versioned(true));
+
+            var versions = new ArrayList<List<String>>();
+
+            versions.add(List.copyOf(leafValues));
+
+            // when
+            for (var updatedLeafValues : List.of(Map.of(3, "first", 100, "second"), Map.of(3, "third", 200, "fourth"),
+                    Map.of(3, "fifth", 5, "sixth", 255, "seventh")))
+            {
+                var leafNodesDto = new LeafNodesDto();
+
+                updatedLeafValues.forEach((index, leafValue) ->
+                {
+                    leafValues.set(index, leafValue);
+
+                    leafNodesDto.putDataPointsItem(String.valueOf(index), leafValue);
+                });
+
+                merkleTreeService.updateLeaf(merkleTreeId, leafNodesDto);
+
+                versions.add(List.copyOf(leafValues));
+            }
+
+            // then
+            for (int version = 0; version < versions.size(); version++)
+            {
+                assertSameAsEntities(merkleTreeId, version);
+
+                var flatMerkleTree = createFlatMerkleTree(versions.get(version));
+
+                var leafIndices = IntStream.range(0, NUMBER_OF_LEAF_NODES).boxed().toList();
+
+                var leafHashes = nodeRowsBatchRepository.getLeafHashes(merkleTreeId, leafIndices, version);
+
+                leafIndices.forEach(index -> assertArrayEquals(flatMerkleTree.getHash(index), leafHashes.get(index)));
+
+                assertArrayEquals(flatMerkleTree.getRootHash(), nodeRowsBatchRepository.getNodeHashes(merkleTreeId,
+                        List.of(flatMerkleTree.getRootIndex()), version).get(flatMerkleTree.getRootIndex()));
+            }
+        }
+
+        @Test
+        @DisplayName("Nodes from an index read as entities and as a range are the current version")
+        void getNodesFrom_works()
+        {
+            // given
+            var leafValues = new ArrayList<>(createLeafValues());
+
+            var merkleTreeId = merkleTreeService.createMerkleTree(createLeafNodesDto(leafValues).versioned(true));
+
+            merkleTreeService.updateLeaf(merkleTreeId, new LeafNodesDto().dataPoints(Map.of("7", "first", "250", "second")));
+            merkleTreeService.updateLeaf(merkleTreeId, new LeafNodesDto().dataPoints(Map.of("7", "third")));
+
+            leafValues.set(7, "third");
+            leafValues.set(250, "second");
+
+            var flatMerkleTree = createFlatMerkleTree(leafValues);
+
+            var firstIndex = FlatMerkleTree.getLevelStartIndex(NUMBER_OF_LEAF_NODES, 3);
+
+            var indices = IntStream.range(firstIndex, flatMerkleTree.getNumberOfNodes()).boxed().toList();
+
+            // when
+            var actualResponse = getHashes(nodesService.getNodesFrom(merkleTreeId, firstIndex));
+
+            // then
+            assertSameHashes(actualResponse, nodeRowsBatchRepository.getNodeHashes(merkleTreeId, indices, 2));
+
+            indices.forEach(index -> assertArrayEquals(flatMerkleTree.getHash(index), actualResponse.get(index)));
+        }
+
+        @Test
+        @DisplayName("Proofs of membership of every version contain the sibling hashes of the tree of that version")
+        void getProofOfMembership_allVersions_works()
+        {
+            // given
+            var leafValues = new ArrayList<>(createLeafValues());
+
+            var merkleTreeId = merkleTreeService.createMerkleTree(createLeafNodesDto(leafValues).versioned(true));
+
+            var versions = new ArrayList<List<String>>();
+
+            versions.add(List.copyOf(leafValues));
+
+            for (var leafValue : List.of("first", "second", "third"))
+            {
+                merkleTreeService.updateLeaf(merkleTreeId, new LeafNodesDto().dataPoints(Map.of("64", leafValue, "65", leafValue)));
+
+                leafValues.set(64, leafValue);
+                leafValues.set(65, leafValue);
+
+                versions.add(List.copyOf(leafValues));
+            }
+
+            for (int version = 0; version < versions.size(); version++)
+            {
+                var flatMerkleTree = createFlatMerkleTree(versions.get(version));
+
+                for (var leafIndex : List.of(0, 64, 65, 255))
+                {
+                    // when
+                    var actualResponse = merkleTreeService.getProofOfMembership(merkleTreeId, leafIndex,
+                            versions.get(version).get(leafIndex), version);
+
+                    // then
+                    var index = leafIndex;
+
+                    for (var siblingHash : actualResponse)
+                    {
+                        assertArrayEquals(flatMerkleTree.getHash(index ^ 1), siblingHash);
+
+                        index = flatMerkleTree.getParentIndex(index);
+                    }
+
+                    assertEquals(flatMerkleTree.getRootIndex(), index);
+                }
+            }
+        }
+    }
+}
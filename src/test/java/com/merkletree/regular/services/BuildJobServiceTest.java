@@ -0,0 +1,267 @@
+package com.merkletree.regular.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merkletree.engine.MerkleTreeEngines;
+import com.merkletree.hash.HashingScheme;
+import com.merkletree.model.LeafNodesDto;
+import com.merkletree.regular.repositories.LeafNodesRepository;
+import com.merkletree.regular.repositories.MerkleTreeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {"merkle-tree.storage.layout=ROWS", "merkle-tree.jobs.threads=1", "merkle-tree.jobs.queue-capacity=1"})
+@AutoConfigureMockMvc
+@DisplayName("Tests for the Build Job Service")
+class BuildJobServiceTest
+{
+    @Autowired
+    BuildJobService buildJobService;
+
+    @Autowired
+    ThreadPoolExecutor merkleTreeJobExecutor;
+
+    @Autowired
+    MerkleTreeService merkleTreeService;
+
+    @Autowired
+    MerkleTreeRepository merkleTreeRepository;
+
+    @Autowired
+    LeafNodesRepository leafNodesRepository;
+
+    @Autowired
+    MerkleTreeEngines merkleTreeEngines;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    /**
+     * Released after every test, so that a build thread blocked by a test is free again.
+     */
+    final CountDownLatch release = new CountDownLatch(1);
+
+    static List<String> createLeafValues(int numberOfLeafNodes)
+    {
+        var leafValues = new ArrayList<String>(numberOfLeafNodes);
+
+        for (int i = 0; i < numberOfLeafNodes; i++)
+        {
+            leafValues.add("leaf " + i);
+        }
+
+        return leafValues;
+    }
+
+    static LeafNodesDto createLeafNodesDto(List<String> leafValues)
+    {
+        var leafNodesDto = new LeafNodesDto();
+
+        for (int i = 0; i < leafValues.size(); i++)
+        {
+            leafNodesDto.putDataPointsItem(String.valueOf(i), leafValues.get(i));
+        }
+
+        return leafNodesDto;
+    }
+
+    /**
+     * Occupies the only build thread until the end of the test, so submitted jobs stay queued.
+     */
+    void blockBuildThread() throws InterruptedException
+    {
+        var started = new CountDownLatch(1);
+
+        merkleTreeJobExecutor.submit(() ->
+        {
+            started.countDown();
+
+            release.await();
+
+            return null;
+        });
+
+        started.await();
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        release.countDown();
+    }
+
+    @Nested
+    @DisplayName("Tests for the progress of build jobs")
+    class Progress
+    {
+        @Test
+        @DisplayName("Completed job reports all hashed leafs, levels and persisted nodes and the created Merkle Tree")
+        void submit_works() throws Exception
+        {
+            // given
+            var leafValues = createLeafValues(1024);
+
+            // when
+            var job = buildJobService.submit(createLeafNodesDto(leafValues));
+
+            job.getFuture().get(60, TimeUnit.SECONDS);
+
+            // then
+            assertSame(job, buildJobService.getJob(job.getId()));
+            assertEquals(BuildJob.Status.COMPLETED, job.getStatus());
+
+            var progress = job.getProgress();
+
+            assertEquals(1024, progress.getLeavesHashed());
+            assertEquals(10, progress.getLevelsDone());
+            assertEquals(job.getNumberOfLevels(), progress.getLevelsDone());
+            assertEquals(2 * 1024 - 1, progress.getNodesPersisted());
+
+            var expectedResponse = merkleTreeEngines.getMerkleTreeEngine(null).createMerkleTree(leafValues, HashingScheme.BINARY).getRootHash();
+
+            assertArrayEquals(expectedResponse, merkleTreeService.getMerkleProof(job.getMerkleTreeId()));
+        }
+
+        @Test
+        @DisplayName("Illegal Argument Exception is thrown for an unknown job id")
+        void getJob_throws()
+        {
+            var jobId = UUID.randomUUID();
+
+            assertThrows(IllegalArgumentException.class, () -> buildJobService.getJob(jobId));
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for the cancellation of build jobs")
+    class Cancel
+    {
+        @Test
+        @DisplayName("Queued job that is cancelled is removed from the queue and never runs")
+        void cancel_queued_works() throws Exception
+        {
+            // given
+            blockBuildThread();
+
+            var job = buildJobService.submit(createLeafNodesDto(createLeafValues(8)));
+
+            assertEquals(BuildJob.Status.QUEUED, job.getStatus());
+
+            // when
+            buildJobService.cancel(job.getId());
+
+            // then
+            assertEquals(BuildJob.Status.CANCELLED, job.getStatus());
+            assertTrue(merkleTreeJobExecutor.getQueue().isEmpty());
+
+            release.countDown();
+
+            assertEquals(BuildJob.Status.CANCELLED, job.getStatus());
+            assertNull(job.getMerkleTreeId());
+            assertEquals(0, job.getProgress().getLeavesHashed());
+        }
+
+        @Test
+        @DisplayName("Running job that is cancelled while persisting rolls back the Merkle Tree and its written rows")
+        void cancel_running_rollsBack() throws Exception
+        {
+            // given
+            var numberOfMerkleTrees = merkleTreeRepository.count();
+
+            var numberOfLeafNodes = leafNodesRepository.count();
+
+            var job = buildJobService.submit(createLeafNodesDto(createLeafValues(1 << 17)));
+
+            // The first batch of rows is written in the transaction of the job
+            var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+
+            while (job.getProgress().getNodesPersisted() == 0 && System.nanoTime() < deadline)
+            {
+                Thread.onSpinWait();
+            }
+
+            assertEquals(BuildJob.Status.RUNNING, job.getStatus());
+
+            // when
+            buildJobService.cancel(job.getId());
+
+            job.getFuture().get(60, TimeUnit.SECONDS);
+
+            // then
+            assertEquals(BuildJob.Status.CANCELLED, job.getStatus());
+            assertNull(job.getMerkleTreeId());
+            assertTrue(job.getProgress().getNodesPersisted() < 2L * (1 << 17) - 1);
+
+            assertEquals(numberOfMerkleTrees, merkleTreeRepository.count());
+            assertEquals(numberOfLeafNodes, leafNodesRepository.count());
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for the bounded queue of build jobs")
+    class QueueFull
+    {
+        @Test
+        @DisplayName("Rejected Execution Exception is thrown once the queue is full")
+        void submit_queueFull_throws() throws Exception
+        {
+            blockBuildThread();
+
+            var queuedJob = buildJobService.submit(createLeafNodesDto(createLeafValues(8)));
+
+            var leafNodesDto = createLeafNodesDto(createLeafValues(8));
+
+            assertThrows(RejectedExecutionException.class, () -> buildJobService.submit(leafNodesDto));
+
+            buildJobService.cancel(queuedJob.getId());
+        }
+
+        @Test
+        @DisplayName("Job request is answered with Too Many Requests once the queue is full")
+        void createMerkleTreeJob_queueFull_works() throws Exception
+        {
+            // given
+            blockBuildThread();
+
+            var content = objectMapper.writeValueAsString(createLeafNodesDto(createLeafValues(8)));
+
+            var queuedJob = objectMapper.readTree(mockMvc.perform(post("/merkle-tree/jobs").contentType(MediaType.APPLICATION_JSON).content(content))
+                    .andExpect(status().isAccepted())
+                    .andReturn().getResponse().getContentAsString());
+
+            // when
+            var actualResponse = mockMvc.perform(post("/merkle-tree/jobs").contentType(MediaType.APPLICATION_JSON).content(content));
+
+            // then
+            actualResponse.andExpect(status().isTooManyRequests());
+
+            buildJobService.cancel(UUID.fromString(queuedJob.get("jobId").asText()));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.merkletree.regular.services;
+
+import com.merkletree.engine.MerkleTreeEngines;
+import com.merkletree.hash.HashingScheme;
+import com.merkletree.model.LeafNodesDto;
+import com.merkletree.regular.store.MappedFileNodeStore;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"merkle-tree.storage.layout=MAPPED", "merkle-tree.storage.directory=${java.io.tmpdir}/merkle-tree-tests"})
+@DisplayName("Tests for the Merkle Tree Service with memory-mapped files")
+class MappedMerkleTreeServiceTest
+{
+    static final int NUMBER_OF_LEAF_NODES = 16;
+
+    @Autowired
+    MerkleTreeService merkleTreeService;
+
+    @Autowired
+    MappedFileNodeStore mappedFileNodeStore;
+
+    @Autowired
+    MerkleTreeEngines merkleTreeEngines;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Nested
+    @DisplayName("Tests for concurrent updates")
+    class ConcurrentUpdates
+    {
+        @Test
+        @DisplayName("Update that locks the Merkle Tree right after the commit of another one reads its hashes")
+        void updateLeaf_concurrent_works() throws Exception
+        {
+            // given
+            var leafValues = new ArrayList<String>();
+
+            var leafNodesDto = new LeafNodesDto();
+
+            for (int i = 0; i < NUMBER_OF_LEAF_NODES; i++)
+            {
+                leafValues.add("leaf " + i);
+
+                leafNodesDto.putDataPointsItem(String.valueOf(i), leafValues.get(i));
+            }
+
+            var merkleTreeId = merkleTreeService.createMerkleTree(leafNodesDto);
+
+            var committed = new CountDownLatch(1);
+
+            var updated = new CountDownLatch(1);
+
+            // when
+            // The first update is held right after its commit until the second one is done
+            var firstUpdate = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(status ->
+            {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+                {
+                    @Override
+                    public void afterCommit()
+                    {
+                        committed.countDown();
+
+                        try
+                        {
+                            updated.await(60, TimeUnit.SECONDS);
+                        } catch (InterruptedException e)
+                        {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                });
+
+                merkleTreeService.updateLeaf(merkleTreeId, new LeafNodesDto().dataPoints(Map.of("0", "first")));
+            }));
+
+            try
+            {
+                assertTrue(committed.await(60, TimeUnit.SECONDS));
+
+                // Leaf in the other half, the paths share only the root
+                merkleTreeService.updateLeaf(merkleTreeId, new LeafNodesDto().dataPoints(Map.of(String.valueOf(NUMBER_OF_LEAF_NODES - 1), "second")));
+            } finally
+            {
+                updated.countDown();
+            }
+
+            firstUpdate.get(60, TimeUnit.SECONDS);
+
+            // then
+            leafValues.set(0, "first");
+            leafValues.set(NUMBER_OF_LEAF_NODES - 1, "second");
+
+            var expectedResponse = merkleTreeEngines.getMerkleTreeEngine(null).createMerkleTree(leafValues, HashingScheme.BINARY);
+
+            assertArrayEquals(expectedResponse.getRootHash(), merkleTreeService.getMerkleProof(merkleTreeId));
+            assertArrayEquals(expectedResponse.getHashes(), mappedFileNodeStore.getMerkleTree(merkleTreeId, NUMBER_OF_LEAF_NODES).getHashes());
+
+            assertEquals(0, merkleTreeService.findLeafIndex(merkleTreeId, "first", null));
+            assertEquals(NUMBER_OF_LEAF_NODES - 1, merkleTreeService.findLeafIndex(merkleTreeId, "second", null));
+        }
+    }
+}
@@ -0,0 +1,567 @@
+package com.merkletree.regular.services;
+
+import com.merkletree.common.MerkleTreeMetrics;
+import com.merkletree.engine.FlatMerkleTree;
+import com.merkletree.engine.MerkleTreeEngine;
+import com.merkletree.engine.MerkleTreeEngines;
+import com.merkletree.hash.BundledHashAlgorithm;
+import com.merkletree.hash.HashServices;
+import com.merkletree.hash.HashingScheme;
+import com.merkletree.model.LeafNodesDto;
+import com.merkletree.regular.model.nodes.AbstractNode;
+import com.merkletree.regular.model.nodes.LeafNode;
+import com.merkletree.regular.repositories.LeafNodesRepository;
+import com.merkletree.regular.repositories.MerkleTreeRepository;
+import com.merkletree.regular.repositories.NodesRepository;
+import com.merkletree.regular.store.ChunkedNodeStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.instancio.Instancio;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "merkle-tree.storage.layout=ROWS")
+@DisplayName("Tests for the Merkle Tree Service")
+class MerkleTreeServiceTest
+{
+    @Autowired
+    MerkleTreeService merkleTreeService;
+
+    @Autowired
+    MerkleTreeRepository merkleTreeRepository;
+
+    @Autowired
+    LeafNodesRepository leafNodesRepository;
+
+    @Autowired
+    NodesRepository nodesRepository;
+
+    @Autowired
+    MerkleTreeEngines merkleTreeEngines;
+
+    @Autowired
+    HashServices hashServices;
+
+    @Autowired
+    ChunkedNodeStore chunkedNodeStore;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    static List<String> createLeafValues(int numberOfLeafNodes)
+    {
+        var leafValues = new ArrayList<String>();
+
+        for (int i = 0; i < numberOfLeafNodes; i++)
+        {
+            leafValues.add(Instancio.create(String.class));
+        }
+
+        return leafValues;
+    }
+
+    static LeafNodesDto createLeafNodesDto(List<String> leafValues)
+    {
+        var leafNodesDto = new LeafNodesDto();
+
+        for (int i = 0; i < leafValues.size(); i++)
+        {
+            leafNodesDto.putDataPointsItem(String.valueOf(i), leafValues.get(i));
+        }
+
+        return leafNodesDto;
+    }
+
+    MerkleTreeEngine getMerkleTreeEngine()
+    {
+        return merkleTreeEngines.getMerkleTreeEngine(null);
+    }
+
+    byte[] getRootHash(List<String> leafValues)
+    {
+        return getMerkleTreeEngine().createMerkleTree(leafValues, HashingScheme.BINARY).getRootHash();
+    }
+
+    @Nested
+    @DisplayName("Tests for writing Merkle Trees in rows and in chunks")
+    class CreateMerkleTree
+    {
+        /**
+         * Spans several JDBC batches of leaf nodes and of nodes.
+         */
+        static final int NUMBER_OF_LEAF_NODES = 4096;
+
+        void assertSameHashes(FlatMerkleTree expectedResponse, Map<Integer, byte[]> actualResponse)
+        {
+            assertEquals(expectedResponse.getNumberOfNodes(), actualResponse.size());
+
+            for (int index = 0; index < expectedResponse.getNumberOfNodes(); index++)
+            {
+                assertArrayEquals(expectedResponse.getHash(index), actualResponse.get(index));
+            }
+        }
+
+        @Test
+        @DisplayName("Merkle Tree inserted in JDBC batches has one row per node and the hashes of the same tree in chunks")
+        void createMerkleTree_rowsAndChunks_works()
+        {
+            // given
+            var leafValues = createLeafValues(NUMBER_OF_LEAF_NODES);
+
+            var flatMerkleTree = getMerkleTreeEngine().createMerkleTree(leafValues, HashingScheme.BINARY);
+
+            var chunksMerkleTreeId = UUID.randomUUID();
+
+            chunkedNodeStore.saveMerkleTree(chunksMerkleTreeId, flatMerkleTree);
+
+            // when
+            var rowsMerkleTreeId = merkleTreeService.createMerkleTree(createLeafNodesDto(leafValues));
+
+            // then
+            assertEquals(NUMBER_OF_LEAF_NODES, leafNodesRepository.countByMerkleTree_Id(rowsMerkleTreeId));
+            assertEquals(NUMBER_OF_LEAF_NODES - 1, nodesRepository.findAllByMerkleTree_Id(rowsMerkleTreeId).size());
+
+            var chunksMerkleTree = chunkedNodeStore.getMerkleTree(chunksMerkleTreeId, NUMBER_OF_LEAF_NODES);
+
+            assertArrayEquals(flatMerkleTree.getHashes(), chunksMerkleTree.getHashes());
+            assertSameHashes(chunksMerkleTree, merkleTreeService.getMerkleTree(rowsMerkleTreeId));
+        }
+
+        @Test
+        @DisplayName("Merkle Tree streamed into rows in batches has the hashes of the same tree in chunks")
+        void createMerkleTree_streamed_works()
+        {
+            // given
+            var leafValues = createLeafValues(NUMBER_OF_LEAF_NODES);
+
+            var chunksMerkleTreeId = UUID.randomUUID();
+
+            chunkedNodeStore.saveMerkleTree(chunksMerkleTreeId, getMerkleTreeEngine().createMerkleTree(leafValues, HashingScheme.BINARY));
+
+            // when
+            var rowsMerkleTreeId = merkleTreeService.createMerkleTree(leafValues.iterator(), NUMBER_OF_LEAF_NODES, HashingScheme.BINARY, null);
+
+            // then
+            assertEquals(NUMBER_OF_LEAF_NODES, leafNodesRepository.countByMerkleTree_Id(rowsMerkleTreeId));
+            assertEquals(NUMBER_OF_LEAF_NODES - 1, nodesRepository.findAllByMerkleTree_Id(rowsMerkleTreeId).size());
+
+            assertSameHashes(chunkedNodeStore.getMerkleTree(chunksMerkleTreeId, NUMBER_OF_LEAF_NODES), merkleTreeService.getMerkleTree(rowsMerkleTreeId));
+        }
+
+        @Test
+        @DisplayName("Illegal Argument Exception is thrown before anything is written if the Merkle Tree does not fit in memory")
+        void createMerkleTree_streamedAboveMaximum_throws()
+        {
+            var numberOfMerkleTrees = merkleTreeRepository.count();
+
+            var leafValues = List.<String>of().iterator();
+
+            assertThrows(IllegalArgumentException.class, () -> merkleTreeService.createMerkleTree(leafValues,
+                    2 * FlatMerkleTree.MAX_NUMBER_OF_LEAF_NODES, HashingScheme.BINARY, null));
+
+            assertEquals(numberOfMerkleTrees, merkleTreeRepository.count());
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for reading the root hash of Merkle Trees")
+    class GetMerkleProof
+    {
+        @Test
+        @DisplayName("Root hash stored on creation is the root hash of the leaf values")
+        void getMerkleProof_works()
+        {
+            // given
+            var leafValues = createLeafValues(16);
+
+            var merkleTreeId = merkleTreeService.createMerkleTree(createLeafNodesDto(leafValues));
+
+            // when
+            var actualResponse = merkleTreeService.getMerkleProof(merkleTreeId);
+
+            // then
+            assertArrayEquals(getRootHash(leafValues), actualResponse);
+        }
+
+        @Test
+        @DisplayName("Root hash stored on update is the root hash of the updated leaf values")
+        void getMerkleProof_afterUpdate_works()
+        {
+            // given
+            var leafValues = createLeafValues(16);
+
+            var merkleTreeId = merkleTreeService.createMerkleTree(createLeafNodesDto(leafValues));
+
+            leafValues.set(5, "updated");
+
+            merkleTreeService.updateLeaf(merkleTreeId, new LeafNodesDto().dataPoints(Map.of("5", "updated")));
+
+            // when
+            var actualResponse = merkleTreeService.getMerkleProof(merkleTreeId);
+
+            // then
+            assertArrayEquals(getRootHash(leafValues), actualResponse);
+        }
+
+        @Test
+        @DisplayName("Merkle Trees without a stored root hash fall back to their root node")
+        void getMerkleProof_withoutRootHash_works()
+        {
+            // given
+            var leafValues = createLeafValues(8);
+
+            var merkleTreeId = merkleTreeService.createMerkleTree(createLeafNodesDto(leafValues));
+
+            merkleTreeRepository.updateRootHash(merkleTreeId, null);
+
+            // when
+            var actualResponse = merkleTreeService.getMerkleProof(merkleTreeId);
+
+            // then
+            assertArrayEquals(getRootHash(leafValues), actualResponse);
+        }
+
+        @Test
+        @DisplayName("Illegal Argument Exception is thrown if the Merkle Tree is not present")
+        void getMerkleProof_throws()
+        {
+            var merkleTreeId = UUID.randomUUID();
+
+            assertThrows(IllegalArgumentException.class, () -> merkleTreeService.getMerkleProof(merkleTreeId));
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for proofs of membership")
+    class GetProofOfMembership
+    {
+        @ParameterizedTest
+        @ValueSource(ints = {0, 5, 10, 15})
+        @DisplayName("Proof of membership contains the sibling hashes from the leaf to the root")
+        void getProofOfMembership_works(int leafIndex)
+        {
+            // given
+            var leafValues = createLeafValues(16);
+
+            var merkleTreeId = merkleTreeService.createMerkleTree(createLeafNodesDto(leafValues));
+
+            var flatMerkleTree = getMerkleTreeEngine().createMerkleTree(leafValues, HashingScheme.BINARY);
+
+            // when
+            var actualResponse = merkleTreeService.getProofOfMembership(merkleTreeId, leafIndex, leafValues.get(leafIndex));
+
+            // then
+            assertEquals(4, actualResponse.size());
+
+            var index = leafIndex;
+
+            for (var siblingHash : actualResponse)
+            {
+                assertArrayEquals(flatMerkleTree.getHash(index ^ 1), siblingHash);
+
+                index = flatMerkleTree.getParentIndex(index);
+            }
+
+            var hashService = hashServices.getHashService(null);
+
+            assertTrue(hashService.createProofVerifier(HashingScheme.BINARY)
+                    .verify(hashService.hashLeaf(leafValues.get(leafIndex)), leafIndex, actualResponse, flatMerkleTree.getRootHash()));
+        }
+
+        @Test
+        @DisplayName("Proof of membership of an updated leaf verifies against the updated root hash")
+        void getProofOfMembership_afterUpdate_works()
+        {
+            // given
+            var leafValues = createLeafValues(8);
+
+            var merkleTreeId = merkleTreeService.createMerkleTree(createLeafNodesDto(leafValues));
+
+            merkleTreeService.updateLeaf(merkleTreeId, new LeafNodesDto().dataPoints(Map.of("3", "updated")));
+
+            // when
+            var actualResponse = merkleTreeService.getProofOfMembership(merkleTreeId, 3, "updated");
+
+            // then
+            assertTrue(merkleTreeService.verifyProofOfMembership(merkleTreeId, 3, "updated", actualResponse));
+        }
+
+        @Test
+        @DisplayName("Illegal Argument Exception is thrown if the leaf does not hold the provided value")
+        void getProofOfMembership_wrongLeafValue_throws()
+        {
+            var leafValues = createLeafValues(8);
+
+            var merkleTreeId = merkleTreeService.createMerkleTree(createLeafNodesDto(leafValues));
+
+            assertThrows(IllegalArgumentException.class, () -> merkleTreeService.getProofOfMembership(merkleTreeId, 2, leafValues.get(3)));
+        }
+
+        @Test
+        @DisplayName("Illegal Argument Exception is thrown if the leaf index is out of range")
+        void getProofOfMembership_wrongLeafIndex_throws()
+        {
+            var leafValues = createLeafValues(8);
+
+            var merkleTreeId = merkleTreeService.createMerkleTree(createLeafNodesDto(leafValues));
+
+            assertThrows(IllegalArgumentException.class, () -> merkleTreeService.getProofOfMembership(merkleTreeId, 8, leafValues.get(0)));
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for versioned Merkle Trees")
+    class VersionedMerkleTree
+    {
+        UUID createVersionedMerkleTree(List<String> leafValues)
+        {
+            return merkleTreeService.createMerkleTree(createLeafNodesDto(leafValues).versioned(true));
+        }
+
+        boolean verify(List<byte[]> proofHashes, String leafValue, int leafIndex, byte[] rootHash)
+        {
+            var hashService = hashServices.getHashService(null);
+
+            return hashService.createProofVerifier(HashingScheme.BINARY).verify(hashService.hashLeaf(leafValue), leafIndex, proofHashes, rootHash);
+        }
+
+        @Test
+        @DisplayName("Node of a version is the node with the highest version that is not newer")
+        void selectVersion_works()
+        {
+            // given
+            var leafNodes = List.of(
+                    LeafNode.builder().index(0).leafValue("a").build(),
+                    LeafNode.builder().index(0).leafValue("b").version(2).build(),
+                    LeafNode.builder().index(0).leafValue("c").version(4).build(),
+                    LeafNode.builder().index(1).leafValue("d").version(3).build());
+
+            // when
+            var actualResponse = NodeVersions.selectVersion(leafNodes, 3);
+
+            // then
+            assertEquals(2, actualResponse.size());
+            assertEquals("b", actualResponse.get(0).getLeafValue());
+            assertEquals("d", actualResponse.get(1).getLeafValue());
+            assertTrue(NodeVersions.selectVersion(leafNodes, 1).stream().allMatch(leafNode -> leafNode.getIndex() == 0));
+        }
+
+        @Test
+        @DisplayName("Every root hash lookup is recorded once, of the current as well as of an old version")
+        void getMerkleProof_version_recordsOnce()
+        {
+            // given
+            var merkleTreeId = createVersionedMerkleTree(createLeafValues(8));
+
+            merkleTreeService.updateLeaf(merkleTreeId, new LeafNodesDto().dataPoints(Map.of("2", "updated")));
+
+            var rootLookups = getRootLookups();
+
+            // when
+            merkleTreeService.getMerkleProof(merkleTreeId, null);
+            merkleTreeService.getMerkleProof(merkleTreeId, 1);
+            merkleTreeService.getMerkleProof(merkleTreeId, 0);
+
+            // then
+            assertEquals(rootLookups + 3, getRootLookups());
+        }
+
+        long getRootLookups()
+        {
+            return meterRegistry.find(MerkleTreeMetrics.ROOT_LOOKUP).timers().stream().mapToLong(Timer::count).sum();
+        }
+
+        @Test
+        @DisplayName("Proof of an old version verifies against the root hash of that version after an update")
+        void getProofOfMembership_oldVersion_works()
+        {
+            // given
+            var leafValues = createLeafValues(16);
+
+            var merkleTreeId = createVersionedMerkleTree(leafValues);
+
+            var oldRootHash = getRootHash(leafValues);
+
+            merkleTreeService.updateLeaf(merkleTreeId, new LeafNodesDto().dataPoints(Map.of("6", "updated", "9", "updated")));
+
+            // when
+            var actualResponse = merkleTreeService.getProofOfMembership(merkleTreeId, 6, leafValues.get(6), 0);
+
+            // then
+            assertArrayEquals(oldRootHash, merkleTreeService.getMerkleProof(merkleTreeId, 0));
+            assertTrue(verify(actualResponse, leafValues.get(6), 6, oldRootHash));
+
+            var currentRootHash = merkleTreeService.getMerkleProof(merkleTreeId, 1);
+
+            assertFalse(verify(actualResponse, leafValues.get(6), 6, currentRootHash));
+            assertTrue(verify(merkleTreeService.getProofOfMembership(merkleTreeId, 6, "updated", 1), "updated", 6, currentRootHash));
+            assertThrows(IllegalArgumentException.class, () -> merkleTreeService.getProofOfMembership(merkleTreeId, 6, "updated", 0));
+        }
+
+        @Test
+        @DisplayName("Pruning keeps only the latest node version rows up to the provided version")
+        void deleteVersionsBefore_works()
+        {
+            // given
+            var leafValues = createLeafValues(8);
+
+            var merkleTreeId = createVersionedMerkleTree(leafValues);
+
+            merkleTreeService.updateLeaf(merkleTreeId, new LeafNodesDto().dataPoints(Map.of("3", "first")));
+            merkleTreeService.updateLeaf(merkleTreeId, new LeafNodesDto().dataPoints(Map.of("3", "second")));
+            merkleTreeService.updateLeaf(merkleTreeId, new LeafNodesDto().dataPoints(Map.of("5", "third")));
+
+            var rootHash = merkleTreeService.getMerkleProof(merkleTreeId);
+
+            // when
+            merkleTreeService.deleteVersionsBefore(merkleTreeId, 2);
+
+            // then
+            var leafNodes = leafNodesRepository.findAllByMerkleTree_Id(merkleTreeId);
+
+            var nodes = nodesRepository.findAllByMerkleTree_Id(merkleTreeId);
+
+            // Leaf 3 keeps only version 2, leaf 5 keeps version 0 for version 2 and version 3 for the current version
+            assertEquals(9, leafNodes.size());
+            assertEquals(Map.of(3, 1, 5, 2), countRowsPerIndex(leafNodes, List.of(3, 5)));
+            assertEquals("second", leafNodes.stream().filter(leafNode -> leafNode.getIndex() == 3).findFirst().orElseThrow().getLeafValue());
+
+            // The root and the nodes on the path of leaf 5 are kept in versions 2 and 3, all others once
+            assertEquals(7 + 3, nodes.size());
+            assertTrue(nodes.stream().noneMatch(node -> node.getVersion() != null && node.getVersion() == 1));
+
+            assertArrayEquals(rootHash, merkleTreeService.getMerkleProof(merkleTreeId));
+            assertArrayEquals(getRootHash(List.of(leafValues.get(0), leafValues.get(1), leafValues.get(2), "second",
+                    leafValues.get(4), leafValues.get(5), leafValues.get(6), leafValues.get(7))), merkleTreeService.getMerkleProof(merkleTreeId, 2));
+        }
+
+        @Test
+        @DisplayName("Illegal Argument Exception is thrown for unknown or pruned versions")
+        void getMerkleProof_unknownVersion_throws()
+        {
+            // given
+            var merkleTreeId = createVersionedMerkleTree(createLeafValues(4));
+
+            merkleTreeService.updateLeaf(merkleTreeId, new LeafNodesDto().dataPoints(Map.of("1", "first")));
+            merkleTreeService.updateLeaf(merkleTreeId, new LeafNodesDto().dataPoints(Map.of("1", "second")));
+
+            merkleTreeService.deleteVersionsBefore(merkleTreeId, 1);
+
+            // then
+            assertThrows(IllegalArgumentException.class, () -> merkleTreeService.getMerkleProof(merkleTreeId, 3));
+            assertThrows(IllegalArgumentException.class, () -> merkleTreeService.getMerkleProof(merkleTreeId, 0));
+            assertThrows(IllegalArgumentException.class, () -> merkleTreeService.getMerkleProof(merkleTreeId, -1));
+            assertThrows(IllegalArgumentException.class, () -> merkleTreeService.getProofOfMembership(merkleTreeId, 1, "second", 3));
+        }
+
+        Map<Integer, Integer> countRowsPerIndex(List<? extends AbstractNode> nodes, List<Integer> indices)
+        {
+            var rowsPerIndex = new HashMap<Integer, Integer>();
+
+            nodes.stream()
+                    .filter(node -> indices.contains(node.getIndex()))
+                    .forEach(node -> rowsPerIndex.merge(node.getIndex(), 1, Integer::sum));
+
+            return rowsPerIndex;
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for the hash algorithm of Merkle Trees")
+    class SelectedHashAlgorithm
+    {
+        /**
+         * Calculates the root hash level by level with a new digest of the algorithm, independent of the hash services.
+         */
+        byte[] calculateRootHash(BundledHashAlgorithm hashAlgorithm, List<String> leafValues)
+        {
+            var digest = hashAlgorithm.createDigest();
+
+            var hashes = new ArrayList<byte[]>();
+
+            for (var leafValue : leafValues)
+            {
+                var data = leafValue.getBytes(StandardCharsets.UTF_8);
+
+                var hash = new byte[digest.getDigestSize()];
+
+                digest.update(data, 0, data.length);
+                digest.doFinal(hash, 0);
+
+                hashes.add(hash);
+            }
+
+            while (hashes.size() > 1)
+            {
+                var parentHashes = new ArrayList<byte[]>();
+
+                for (int i = 0; i < hashes.size(); i += 2)
+                {
+                    var hash = new byte[digest.getDigestSize()];
+
+                    digest.update(hashes.get(i), 0, hashes.get(i).length);
+                    digest.update(hashes.get(i + 1), 0, hashes.get(i + 1).length);
+                    digest.doFinal(hash, 0);
+
+                    parentHashes.add(hash);
+                }
+
+                hashes = parentHashes;
+            }
+
+            return hashes.get(0);
+        }
+
+        @ParameterizedTest
+        @EnumSource(BundledHashAlgorithm.class)
+        @DisplayName("Merkle Tree is created and updated with the hash algorithm selected for it")
+        void createMerkleTree_hashAlgorithm_works(BundledHashAlgorithm hashAlgorithm)
+        {
+            // given
+            var leafValues = createLeafValues(16);
+
+            // when
+            var merkleTreeId = merkleTreeService.createMerkleTree(createLeafNodesDto(leafValues).hashAlgorithm(hashAlgorithm.getName()));
+
+            // then
+            assertEquals(hashAlgorithm.getName(), merkleTreeService.getHashAlgorithm(merkleTreeService.getMerkleTreeHeader(merkleTreeId)));
+            assertArrayEquals(calculateRootHash(hashAlgorithm, leafValues), merkleTreeService.getMerkleProof(merkleTreeId));
+
+            merkleTreeService.updateLeaf(merkleTreeId, new LeafNodesDto().dataPoints(Map.of("9", "updated")));
+
+            leafValues.set(9, "updated");
+
+            assertArrayEquals(calculateRootHash(hashAlgorithm, leafValues), merkleTreeService.getMerkleProof(merkleTreeId));
+            assertTrue(merkleTreeService.verifyProofOfMembership(merkleTreeId, 9, "updated",
+                    merkleTreeService.getProofOfMembership(merkleTreeId, 9, "updated")));
+        }
+
+        @Test
+        @DisplayName("Illegal Argument Exception is thrown for an unknown hash algorithm")
+        void createMerkleTree_unknownHashAlgorithm_throws()
+        {
+            var leafNodesDto = createLeafNodesDto(createLeafValues(4)).hashAlgorithm("MD5");
+
+            assertThrows(IllegalArgumentException.class, () -> merkleTreeService.createMerkleTree(leafNodesDto));
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.merkletree.regular.store;
+
+import com.merkletree.engine.FlatMerkleTree;
+import com.merkletree.hash.HashService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+@DisplayName("Tests for the Chunked Node Store")
+class ChunkedNodeStoreTest
+{
+    /**
+     * Four chunks on the leaf level, two on the first level, one full chunk on the second level and partial chunks above.
+     */
+    static final int NUMBER_OF_LEAF_NODES = 4 * ChunkedNodeStore.CHUNK_SIZE;
+
+    @Autowired
+    ChunkedNodeStore chunkedNodeStore;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    static FlatMerkleTree createFlatMerkleTree(int numberOfLeafNodes)
+    {
+        var flatMerkleTree = new FlatMerkleTree(numberOfLeafNodes);
+
+        new Random(numberOfLeafNodes).nextBytes(flatMerkleTree.getHashes());
+
+        return flatMerkleTree;
+    }
+
+    static byte[] createHash(int seed)
+    {
+        var hash = new byte[HashService.HASH_SIZE];
+
+        new Random(seed).nextBytes(hash);
+
+        return hash;
+    }
+
+    UUID saveMerkleTree(FlatMerkleTree flatMerkleTree)
+    {
+        var merkleTreeId = UUID.randomUUID();
+
+        chunkedNodeStore.saveMerkleTree(merkleTreeId, flatMerkleTree);
+
+        return merkleTreeId;
+    }
+
+    @Nested
+    @DisplayName("Tests for writing and reading whole Merkle Trees")
+    class SaveMerkleTree
+    {
+        @ParameterizedTest
+        @ValueSource(ints = {1, 8, ChunkedNodeStore.CHUNK_SIZE, NUMBER_OF_LEAF_NODES})
+        @DisplayName("Merkle Tree read back has the hashes that were written")
+        void saveMerkleTree_works(int numberOfLeafNodes)
+        {
+            // given
+            var flatMerkleTree = createFlatMerkleTree(numberOfLeafNodes);
+
+            // when
+            var merkleTreeId = saveMerkleTree(flatMerkleTree);
+
+            // then
+            assertArrayEquals(flatMerkleTree.getHashes(), chunkedNodeStore.getMerkleTree(merkleTreeId, numberOfLeafNodes).getHashes());
+        }
+
+        @Test
+        @DisplayName("Merkle Tree written node by node in the order of a frontier has the hashes that were written")
+        void createWriter_works()
+        {
+            // given
+            var flatMerkleTree = createFlatMerkleTree(NUMBER_OF_LEAF_NODES);
+
+            var merkleTreeId = UUID.randomUUID();
+
+            // when
+            transactionTemplate.executeWithoutResult(status ->
+            {
+                try (var writer = chunkedNodeStore.createWriter(merkleTreeId, NUMBER_OF_LEAF_NODES))
+                {
+                    // Every completed parent follows its right child, so the levels are interleaved
+                    for (int leafIndex = 0; leafIndex < NUMBER_OF_LEAF_NODES; leafIndex++)
+                    {
+                        writer.accept(flatMerkleTree.getHash(leafIndex), leafIndex);
+
+                        for (int index = leafIndex; index % 2 == 1 && index < flatMerkleTree.getRootIndex(); )
+                        {
+                            index = flatMerkleTree.getParentIndex(index);
+
+                            writer.accept(flatMerkleTree.getHash(index), index);
+                        }
+                    }
+                }
+            });
+
+            // then
+            assertArrayEquals(flatMerkleTree.getHashes(), chunkedNodeStore.getMerkleTree(merkleTreeId, NUMBER_OF_LEAF_NODES).getHashes());
+        }
+
+        @Test
+        @DisplayName("Illegal Argument Exception is thrown if a partial last chunk is not completed")
+        void createWriter_incomplete_throws()
+        {
+            var merkleTreeId = UUID.randomUUID();
+
+            assertThrows(IllegalArgumentException.class, () -> transactionTemplate.executeWithoutResult(status ->
+            {
+                try (var writer = chunkedNodeStore.createWriter(merkleTreeId, 8))
+                {
+                    writer.accept(createHash(0), 0);
+                }
+            }));
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for reading hashes by node index")
+    class GetHashes
+    {
+        @Test
+        @DisplayName("Hashes at chunk and level boundaries are read from the right chunk and offset")
+        void getHashes_chunkBoundaries_works()
+        {
+            // given
+            var flatMerkleTree = createFlatMerkleTree(NUMBER_OF_LEAF_NODES);
+
+            var merkleTreeId = saveMerkleTree(flatMerkleTree);
+
+            var chunkSize = ChunkedNodeStore.CHUNK_SIZE;
+
+            var firstLevelStartIndex = FlatMerkleTree.getLevelStartIndex(NUMBER_OF_LEAF_NODES, 1);
+
+            var thirdLevelStartIndex = FlatMerkleTree.getLevelStartIndex(NUMBER_OF_LEAF_NODES, 3);
+
+            var indices = List.of(0, chunkSize - 1, chunkSize, 3 * chunkSize - 1, 3 * chunkSize, NUMBER_OF_LEAF_NODES - 1,
+                    firstLevelStartIndex, firstLevelStartIndex + chunkSize - 1, firstLevelStartIndex + chunkSize,
+                    thirdLevelStartIndex - 1, thirdLevelStartIndex, thirdLevelStartIndex + chunkSize / 2 - 1,
+                    flatMerkleTree.getRootIndex());
+
+            // when
+            var actualResponse = chunkedNodeStore.getHashes(merkleTreeId, NUMBER_OF_LEAF_NODES, indices);
+
+            // then
+            assertEquals(indices.size(), actualResponse.size());
+
+            indices.forEach(index -> assertArrayEquals(flatMerkleTree.getHash(index), actualResponse.get(index)));
+        }
+
+        @Test
+        @DisplayName("Indices outside of the Merkle Tree are left out")
+        void getHashes_outOfRange_works()
+        {
+            // given
+            var flatMerkleTree = createFlatMerkleTree(8);
+
+            var merkleTreeId = saveMerkleTree(flatMerkleTree);
+
+            // when
+            var actualResponse = chunkedNodeStore.getHashes(merkleTreeId, 8, List.of(-1, 14, 15));
+
+            // then
+            assertEquals(Set.of(14), actualResponse.keySet());
+            assertArrayEquals(flatMerkleTree.getRootHash(), actualResponse.get(14));
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for updating hashes")
+    class UpdateHashes
+    {
+        @Test
+        @DisplayName("Update spanning two chunks of a level writes both chunks and keeps their other hashes")
+        void updateHashes_twoChunks_works()
+        {
+            // given
+            var flatMerkleTree = createFlatMerkleTree(NUMBER_OF_LEAF_NODES);
+
+            var merkleTreeId = saveMerkleTree(flatMerkleTree);
+
+            var chunkSize = ChunkedNodeStore.CHUNK_SIZE;
+
+            var firstLevelStartIndex = FlatMerkleTree.getLevelStartIndex(NUMBER_OF_LEAF_NODES, 1);
+
+            var updatedHashes = new HashMap<Integer, byte[]>();
+
+            for (var index : List.of(chunkSize - 1, chunkSize, firstLevelStartIndex + chunkSize - 1, firstLevelStartIndex + chunkSize,
+                    flatMerkleTree.getRootIndex()))
+            {
+                updatedHashes.put(index, createHash(index));
+            }
+
+            // when
+            chunkedNodeStore.updateHashes(merkleTreeId, NUMBER_OF_LEAF_NODES, updatedHashes);
+
+            // then
+            updatedHashes.forEach(flatMerkleTree::setHash);
+
+            assertArrayEquals(flatMerkleTree.getHashes(), chunkedNodeStore.getMerkleTree(merkleTreeId, NUMBER_OF_LEAF_NODES).getHashes());
+        }
+
+        @Test
+        @DisplayName("Illegal Argument Exception is thrown if a node is not stored")
+        void updateHashes_throws()
+        {
+            var merkleTreeId = saveMerkleTree(createFlatMerkleTree(8));
+
+            var updatedHashes = Map.of(15, createHash(15));
+
+            assertThrows(IllegalArgumentException.class, () -> chunkedNodeStore.updateHashes(merkleTreeId, 8, updatedHashes));
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.merkletree.regular.store;
+
+import com.merkletree.engine.FlatMerkleTree;
+import com.merkletree.engine.MerkleTreeEngines;
+import com.merkletree.hash.HashServices;
+import com.merkletree.hash.HashingScheme;
+import com.merkletree.model.LeafNodesDto;
+import com.merkletree.regular.services.MerkleTreeService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static com.merkletree.regular.store.ChunkedNodeStoreTest.createFlatMerkleTree;
+import static com.merkletree.regular.store.ChunkedNodeStoreTest.createHash;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@DisplayName("Tests for the Leaf Hash Index")
+class LeafHashIndexTest
+{
+    static final int NUMBER_OF_LEAF_NODES = 16;
+
+    /**
+     * Size of the table of a Merkle Tree with {@value #NUMBER_OF_LEAF_NODES} leaf nodes, filled to at most half.
+     */
+    static final long TABLE_SIZE = 2L * NUMBER_OF_LEAF_NODES * LeafHashIndex.SLOT_SIZE;
+
+    /**
+     * Returns a loader of the Merkle Tree that counts its calls.
+     */
+    static Supplier<FlatMerkleTree> createMerkleTreeLoader(FlatMerkleTree flatMerkleTree, AtomicInteger loads)
+    {
+        return () ->
+        {
+            loads.incrementAndGet();
+
+            return flatMerkleTree;
+        };
+    }
+
+    @Nested
+    @DisplayName("Tests for looking up leaf hashes")
+    class GetCandidateIndices
+    {
+        @Test
+        @DisplayName("Leaf hashes of an indexed Merkle Tree are found without loading it again")
+        void getCandidateIndices_hit_works()
+        {
+            // given
+            var leafHashIndex = new LeafHashIndex(1 << 20);
+
+            var flatMerkleTree = createFlatMerkleTree(NUMBER_OF_LEAF_NODES);
+
+            var merkleTreeId = UUID.randomUUID();
+
+            var loads = new AtomicInteger();
+
+            // when
+            for (int index = 0; index < NUMBER_OF_LEAF_NODES; index++)
+            {
+                var actualResponse = leafHashIndex.getCandidateIndices(merkleTreeId, flatMerkleTree.getRootHash(), NUMBER_OF_LEAF_NODES,
+                        flatMerkleTree.getHash(index), createMerkleTreeLoader(flatMerkleTree, loads));
+
+                // then
+                assertEquals(List.of(index), actualResponse);
+            }
+
+            assertEquals(1, loads.get());
+            assertEquals(TABLE_SIZE, leafHashIndex.getBytes());
+        }
+
+        @Test
+        @DisplayName("Leaf hash that is not part of the Merkle Tree has no candidates")
+        void getCandidateIndices_unknownLeafHash_works()
+        {
+            // given
+            var leafHashIndex = new LeafHashIndex(1 << 20);
+
+            var flatMerkleTree = createFlatMerkleTree(NUMBER_OF_LEAF_NODES);
+
+            // when
+            var actualResponse = leafHashIndex.getCandidateIndices(UUID.randomUUID(), flatMerkleTree.getRootHash(), NUMBER_OF_LEAF_NODES,
+                    createHash(-1), createMerkleTreeLoader(flatMerkleTree, new AtomicInteger()));
+
+            // then
+            assertTrue(actualResponse.isEmpty());
+        }
+
+        @Test
+        @DisplayName("Index built for another root hash than the provided one is built again")
+        void getCandidateIndices_otherRootHash_works()
+        {
+            // given
+            var leafHashIndex = new LeafHashIndex(1 << 20);
+
+            var flatMerkleTree = createFlatMerkleTree(NUMBER_OF_LEAF_NODES);
+
+            var merkleTreeId = UUID.randomUUID();
+
+            var loads = new AtomicInteger();
+
+            leafHashIndex.getCandidateIndices(merkleTreeId, createHash(0), NUMBER_OF_LEAF_NODES, flatMerkleTree.getHash(0),
+                    createMerkleTreeLoader(flatMerkleTree, loads));
+
+            // when
+            var actualResponse = leafHashIndex.getCandidateIndices(merkleTreeId, flatMerkleTree.getRootHash(), NUMBER_OF_LEAF_NODES,
+                    flatMerkleTree.getHash(5), createMerkleTreeLoader(flatMerkleTree, loads));
+
+            // then
+            assertEquals(List.of(5), actualResponse);
+            assertEquals(2, loads.get());
+            assertEquals(TABLE_SIZE, leafHashIndex.getBytes());
+        }
+
+        @Test
+        @DisplayName("Added leaf hashes are found with the new root hash and the replaced ones stay candidates")
+        void addLeafHashes_works()
+        {
+            // given
+            var leafHashIndex = new LeafHashIndex(1 << 20);
+
+            var flatMerkleTree = createFlatMerkleTree(NUMBER_OF_LEAF_NODES);
+
+            var merkleTreeId = UUID.randomUUID();
+
+            var loads = new AtomicInteger();
+
+            leafHashIndex.getCandidateIndices(merkleTreeId, flatMerkleTree.getRootHash(), NUMBER_OF_LEAF_NODES, flatMerkleTree.getHash(0),
+                    createMerkleTreeLoader(flatMerkleTree, loads));
+
+            var rootHash = createHash(1);
+
+            // when
+            leafHashIndex.addLeafHashes(merkleTreeId, Map.of(3, createHash(3)), rootHash);
+
+            // then
+            assertEquals(List.of(3), leafHashIndex.getCandidateIndices(merkleTreeId, rootHash, NUMBER_OF_LEAF_NODES, createHash(3),
+                    createMerkleTreeLoader(flatMerkleTree, loads)));
+            assertEquals(List.of(3), leafHashIndex.getCandidateIndices(merkleTreeId, rootHash, NUMBER_OF_LEAF_NODES, flatMerkleTree.getHash(3),
+                    createMerkleTreeLoader(flatMerkleTree, loads)));
+            assertEquals(1, loads.get());
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for the bound of the index")
+    class Eviction
+    {
+        @Test
+        @DisplayName("Merkle Tree whose table exceeds the maximum is neither loaded nor indexed")
+        void getCandidateIndices_tooLarge_works()
+        {
+            // given
+            var leafHashIndex = new LeafHashIndex(TABLE_SIZE - 1);
+
+            var flatMerkleTree = createFlatMerkleTree(NUMBER_OF_LEAF_NODES);
+
+            var loads = new AtomicInteger();
+
+            // when
+            var actualResponse = leafHashIndex.getCandidateIndices(UUID.randomUUID(), flatMerkleTree.getRootHash(), NUMBER_OF_LEAF_NODES,
+                    flatMerkleTree.getHash(0), createMerkleTreeLoader(flatMerkleTree, loads));
+
+            // then
+            assertNull(actualResponse);
+            assertEquals(0, loads.get());
+            assertEquals(0, leafHashIndex.getBytes());
+        }
+
+        @Test
+        @DisplayName("Least recently used index is evicted once the indexed bytes exceed the maximum")
+        void getCandidateIndices_eviction_works()
+        {
+            // given
+            var leafHashIndex = new LeafHashIndex(TABLE_SIZE);
+
+            var firstMerkleTree = createFlatMerkleTree(NUMBER_OF_LEAF_NODES);
+
+            var secondMerkleTree = createFlatMerkleTree(NUMBER_OF_LEAF_NODES);
+
+            var firstMerkleTreeId = UUID.randomUUID();
+
+            var loads = new AtomicInteger();
+
+            leafHashIndex.getCandidateIndices(firstMerkleTreeId, firstMerkleTree.getRootHash(), NUMBER_OF_LEAF_NODES,
+                    firstMerkleTree.getHash(0), createMerkleTreeLoader(firstMerkleTree, loads));
+
+            // when
+            leafHashIndex.getCandidateIndices(UUID.randomUUID(), secondMerkleTree.getRootHash(), NUMBER_OF_LEAF_NODES,
+                    secondMerkleTree.getHash(0), createMerkleTreeLoader(secondMerkleTree, loads));
+
+            // then
+            assertEquals(TABLE_SIZE, leafHashIndex.getBytes());
+
+            leafHashIndex.getCandidateIndices(firstMerkleTreeId, firstMerkleTree.getRootHash(), NUMBER_OF_LEAF_NODES,
+                    firstMerkleTree.getHash(0), createMerkleTreeLoader(firstMerkleTree, loads));
+
+            assertEquals(3, loads.get());
+        }
+
+        @Test
+        @DisplayName("Index that grows beyond the maximum by added leaf hashes is dropped")
+        void addLeafHashes_exceedsMaximum_works()
+        {
+            // given
+            var leafHashIndex = new LeafHashIndex(TABLE_SIZE);
+
+            var flatMerkleTree = createFlatMerkleTree(NUMBER_OF_LEAF_NODES);
+
+            var merkleTreeId = UUID.randomUUID();
+
+            var loads = new AtomicInteger();
+
+            leafHashIndex.getCandidateIndices(merkleTreeId, flatMerkleTree.getRootHash(), NUMBER_OF_LEAF_NODES, flatMerkleTree.getHash(0),
+                    createMerkleTreeLoader(flatMerkleTree, loads));
+
+            var rootHash = createHash(1);
+
+            // when
+            leafHashIndex.addLeafHashes(merkleTreeId, Map.of(3, createHash(3)), rootHash);
+
+            // then
+            assertEquals(0, leafHashIndex.getBytes());
+
+            leafHashIndex.getCandidateIndices(merkleTreeId, rootHash, NUMBER_OF_LEAF_NODES, createHash(3),
+                    createMerkleTreeLoader(flatMerkleTree, loads));
+
+            assertEquals(2, loads.get());
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for the index of rolled back updates")
+    class RolledBackUpdate
+    {
+        @Autowired
+        MerkleTreeService merkleTreeService;
+
+        @Autowired
+        MerkleTreeEngines merkleTreeEngines;
+
+        @Autowired
+        HashServices hashServices;
+
+        @Autowired
+        LeafHashIndex leafHashIndex;
+
+        @Autowired
+        TransactionTemplate transactionTemplate;
+
+        @Test
+        @DisplayName("Index moved to the root hash of an update that is rolled back is invalidated")
+        void updateLeaf_rollback_invalidates()
+        {
+            // given
+            var leafValues = new ArrayList<String>();
+
+            var leafNodesDto = new LeafNodesDto();
+
+            for (int i = 0; i < NUMBER_OF_LEAF_NODES; i++)
+            {
+                leafValues.add("leaf " + i);
+
+                leafNodesDto.putDataPointsItem(String.valueOf(i), leafValues.get(i));
+            }
+
+            var merkleTreeId = merkleTreeService.createMerkleTree(leafNodesDto);
+
+            // Finding a leaf indexes the Merkle Tree
+            assertEquals(5, merkleTreeService.findLeafIndex(merkleTreeId, leafValues.get(5), null));
+
+            leafValues.set(3, "updated");
+
+            var updatedRootHash = merkleTreeEngines.getMerkleTreeEngine(null).createMerkleTree(leafValues, HashingScheme.BINARY).getRootHash();
+
+            var updatedLeafHash = hashServices.getHashService(null).hashLeaf("updated");
+
+            var loads = new AtomicInteger();
+
+            // when
+            transactionTemplate.executeWithoutResult(status ->
+            {
+                merkleTreeService.updateLeaf(merkleTreeId, new LeafNodesDto().dataPoints(Map.of("3", "updated")));
+
+                assertEquals(List.of(3), leafHashIndex.getCandidateIndices(merkleTreeId, updatedRootHash, NUMBER_OF_LEAF_NODES,
+                        updatedLeafHash, createMerkleTreeLoader(null, loads)));
+
+                status.setRollbackOnly();
+            });
+
+            // then
+            assertEquals(0, loads.get());
+            assertTrue(leafHashIndex.getCandidateIndices(merkleTreeId, updatedRootHash, NUMBER_OF_LEAF_NODES, updatedLeafHash,
+                    createMerkleTreeLoader(createFlatMerkleTree(NUMBER_OF_LEAF_NODES), loads)).isEmpty());
+            assertEquals(1, loads.get());
+
+            assertEquals(3, merkleTreeService.findLeafIndex(merkleTreeId, "leaf 3", null));
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.merkletree.regular.store;
+
+import com.merkletree.engine.FlatMerkleTree;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.merkletree.regular.store.ChunkedNodeStoreTest.createFlatMerkleTree;
+import static com.merkletree.regular.store.ChunkedNodeStoreTest.createHash;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@DisplayName("Tests for the Mapped File Node Store")
+class MappedFileNodeStoreTest
+{
+    static final int NUMBER_OF_LEAF_NODES = 1024;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @TempDir
+    Path directory;
+
+    MappedFileNodeStore mappedFileNodeStore;
+
+    @BeforeEach
+    void setUp()
+    {
+        mappedFileNodeStore = new MappedFileNodeStore(directory);
+    }
+
+    UUID saveMerkleTree(FlatMerkleTree flatMerkleTree)
+    {
+        var merkleTreeId = UUID.randomUUID();
+
+        mappedFileNodeStore.saveMerkleTree(merkleTreeId, flatMerkleTree);
+
+        return merkleTreeId;
+    }
+
+    @Nested
+    @DisplayName("Tests for writing and reading whole Merkle Trees")
+    class SaveMerkleTree
+    {
+        @Test
+        @DisplayName("Merkle Tree read back has the hashes that were written")
+        void saveMerkleTree_works()
+        {
+            // given
+            var flatMerkleTree = createFlatMerkleTree(NUMBER_OF_LEAF_NODES);
+
+            // when
+            var merkleTreeId = saveMerkleTree(flatMerkleTree);
+
+            // then
+            assertArrayEquals(flatMerkleTree.getHashes(), mappedFileNodeStore.getMerkleTree(merkleTreeId, NUMBER_OF_LEAF_NODES).getHashes());
+        }
+
+        @Test
+        @DisplayName("Merkle Tree is read from its file by a new store after a restart")
+        void getMerkleTree_afterRestart_works()
+        {
+            // given
+            var flatMerkleTree = createFlatMerkleTree(NUMBER_OF_LEAF_NODES);
+
+            var merkleTreeId = saveMerkleTree(flatMerkleTree);
+
+            // when
+            var restartedNodeStore = new MappedFileNodeStore(directory);
+
+            // then
+            assertArrayEquals(flatMerkleTree.getHashes(), restartedNodeStore.getMerkleTree(merkleTreeId, NUMBER_OF_LEAF_NODES).getHashes());
+        }
+
+        @Test
+        @DisplayName("File of a Merkle Tree created in a rolled back transaction is deleted")
+        void saveMerkleTree_rollback_works()
+        {
+            // given
+            var merkleTreeId = UUID.randomUUID();
+
+            // when
+            transactionTemplate.executeWithoutResult(status ->
+            {
+                mappedFileNodeStore.saveMerkleTree(merkleTreeId, createFlatMerkleTree(8));
+
+                status.setRollbackOnly();
+            });
+
+            // then
+            assertFalse(Files.exists(directory.resolve(merkleTreeId + ".tree")));
+            assertThrows(IllegalArgumentException.class, () -> mappedFileNodeStore.getMerkleTree(merkleTreeId, 8));
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for updating hashes")
+    class UpdateHashes
+    {
+        FlatMerkleTree flatMerkleTree;
+
+        UUID merkleTreeId;
+
+        Map<Integer, byte[]> updatedHashes;
+
+        @BeforeEach
+        void setUp()
+        {
+            flatMerkleTree = createFlatMerkleTree(NUMBER_OF_LEAF_NODES);
+
+            merkleTreeId = saveMerkleTree(flatMerkleTree);
+
+            updatedHashes = Map.of(3, createHash(3), 2 * NUMBER_OF_LEAF_NODES - 2, createHash(2 * NUMBER_OF_LEAF_NODES - 2));
+        }
+
+        @Test
+        @DisplayName("Hashes updated outside of a transaction are written right away")
+        void updateHashes_works()
+        {
+            // when
+            mappedFileNodeStore.updateHashes(merkleTreeId, NUMBER_OF_LEAF_NODES, updatedHashes);
+
+            // then
+            updatedHashes.forEach(flatMerkleTree::setHash);
+
+            assertArrayEquals(flatMerkleTree.getHashes(), mappedFileNodeStore.getMerkleTree(merkleTreeId, NUMBER_OF_LEAF_NODES).getHashes());
+        }
+
+        @Test
+        @DisplayName("Hashes updated in a transaction are visible to it and written to the file at the commit")
+        void updateHashes_commit_works()
+        {
+            // when
+            transactionTemplate.executeWithoutResult(status ->
+            {
+                mappedFileNodeStore.updateHashes(merkleTreeId, NUMBER_OF_LEAF_NODES, updatedHashes);
+
+                // then
+                var actualResponse = mappedFileNodeStore.getHashes(merkleTreeId, NUMBER_OF_LEAF_NODES, List.of(2, 3));
+
+                assertArrayEquals(flatMerkleTree.getHash(2), actualResponse.get(2));
+                assertArrayEquals(updatedHashes.get(3), actualResponse.get(3));
+
+                // Not written before the commit
+                assertArrayEquals(flatMerkleTree.getHashes(), new MappedFileNodeStore(directory).getMerkleTree(merkleTreeId, NUMBER_OF_LEAF_NODES).getHashes());
+            });
+
+            updatedHashes.forEach(flatMerkleTree::setHash);
+
+            assertArrayEquals(flatMerkleTree.getHashes(), mappedFileNodeStore.getMerkleTree(merkleTreeId, NUMBER_OF_LEAF_NODES).getHashes());
+            assertArrayEquals(flatMerkleTree.getHashes(), new MappedFileNodeStore(directory).getMerkleTree(merkleTreeId, NUMBER_OF_LEAF_NODES).getHashes());
+        }
+
+        @Test
+        @DisplayName("Hashes updated in a rolled back transaction are not written to the file")
+        void updateHashes_rollback_works()
+        {
+            // when
+            transactionTemplate.executeWithoutResult(status ->
+            {
+                mappedFileNodeStore.updateHashes(merkleTreeId, NUMBER_OF_LEAF_NODES, updatedHashes);
+
+                status.setRollbackOnly();
+            });
+
+            // then
+            assertArrayEquals(flatMerkleTree.getHashes(), mappedFileNodeStore.getMerkleTree(merkleTreeId, NUMBER_OF_LEAF_NODES).getHashes());
+            assertArrayEquals(flatMerkleTree.getHashes(), new MappedFileNodeStore(directory).getMerkleTree(merkleTreeId, NUMBER_OF_LEAF_NODES).getHashes());
+        }
+
+        @Test
+        @DisplayName("Hashes written at a commit that fails are replaced by the previous hashes again")
+        void updateHashes_failedCommit_works()
+        {
+            // when
+            assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status ->
+            {
+                mappedFileNodeStore.updateHashes(merkleTreeId, NUMBER_OF_LEAF_NODES, updatedHashes);
+
+                // Runs after the hashes are written and fails the commit
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+                {
+                    @Override
+                    public void beforeCommit(boolean readOnly)
+                    {
+                        throw new IllegalStateException("Commit failed");
+                    }
+                });
+            }));
+
+            // then
+            assertArrayEquals(flatMerkleTree.getHashes(), mappedFileNodeStore.getMerkleTree(merkleTreeId, NUMBER_OF_LEAF_NODES).getHashes());
+            assertArrayEquals(flatMerkleTree.getHashes(), new MappedFileNodeStore(directory).getMerkleTree(merkleTreeId, NUMBER_OF_LEAF_NODES).getHashes());
+        }
+
+        @Test
+        @DisplayName("Action after an update in a transaction runs once the hashes are written to the file")
+        void afterUpdate_works()
+        {
+            // given
+            var writtenHashes = new ArrayList<byte[]>();
+
+            // when
+            transactionTemplate.executeWithoutResult(status ->
+            {
+                mappedFileNodeStore.updateHashes(merkleTreeId, NUMBER_OF_LEAF_NODES, updatedHashes);
+
+                mappedFileNodeStore.afterUpdate(merkleTreeId, () -> writtenHashes.add(new MappedFileNodeStore(directory)
+                        .getHashes(merkleTreeId, NUMBER_OF_LEAF_NODES, List.of(3)).get(3)));
+
+                assertTrue(writtenHashes.isEmpty());
+            });
+
+            // then
+            assertEquals(1, writtenHashes.size());
+            assertArrayEquals(updatedHashes.get(3), writtenHashes.get(0));
+        }
+
+        @Test
+        @DisplayName("Illegal Argument Exception is thrown if a node is not stored")
+        void updateHashes_throws()
+        {
+            var hashes = Map.of(2 * NUMBER_OF_LEAF_NODES - 1, createHash(0));
+
+            assertThrows(IllegalArgumentException.class, () -> mappedFileNodeStore.updateHashes(merkleTreeId, NUMBER_OF_LEAF_NODES, hashes));
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package com.merkletree.regular.store;
+
+import com.merkletree.engine.FlatMerkleTree;
+import com.merkletree.engine.MerkleTreeEngines;
+import com.merkletree.hash.HashingScheme;
+import com.merkletree.model.LeafNodesDto;
+import com.merkletree.regular.services.MerkleTreeService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static com.merkletree.regular.store.ChunkedNodeStoreTest.createFlatMerkleTree;
+import static com.merkletree.regular.store.ChunkedNodeStoreTest.createHash;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@DisplayName("Tests for the Node Hash Cache")
+class NodeHashCacheTest
+{
+    static final int NUMBER_OF_LEAF_NODES = 16;
+
+    /**
+     * Size of an entry of a whole Merkle Tree with {@value #NUMBER_OF_LEAF_NODES} leaf nodes.
+     */
+    static final long ENTRY_SIZE = (2L * NUMBER_OF_LEAF_NODES - 1) * 32 + NodeHashCache.ENTRY_OVERHEAD;
+
+    /**
+     * Returns a loader of the hashes of the Merkle Tree that counts its calls.
+     */
+    static IntFunction<Map<Integer, byte[]>> createHashLoader(FlatMerkleTree flatMerkleTree, AtomicInteger loads)
+    {
+        return firstIndex ->
+        {
+            loads.incrementAndGet();
+
+            var hashes = new HashMap<Integer, byte[]>();
+
+            for (int index = firstIndex; index < flatMerkleTree.getNumberOfNodes(); index++)
+            {
+                hashes.put(index, flatMerkleTree.getHash(index));
+            }
+
+            return hashes;
+        };
+    }
+
+    @Nested
+    @DisplayName("Tests for reading cached hashes")
+    class GetHashes
+    {
+        @Test
+        @DisplayName("Second read of a Merkle Tree with the same root hash is a hit and does not load the hashes again")
+        void getHashes_hit_works()
+        {
+            // given
+            var nodeHashCache = new NodeHashCache(1 << 20, 16);
+
+            var flatMerkleTree = createFlatMerkleTree(NUMBER_OF_LEAF_NODES);
+
+            var merkleTreeId = UUID.randomUUID();
+
+            var loads = new AtomicInteger();
+
+            nodeHashCache.getHashes(merkleTreeId, flatMerkleTree.getRootHash(), NUMBER_OF_LEAF_NODES, createHashLoader(flatMerkleTree, loads));
+
+            // when
+            var actualResponse = nodeHashCache.getHashes(merkleTreeId, flatMerkleTree.getRootHash(), NUMBER_OF_LEAF_NODES, createHashLoader(flatMerkleTree, loads));
+
+            // then
+            assertEquals(1, loads.get());
+            assertEquals(1, nodeHashCache.getStatistics().getHits());
+            assertEquals(1, nodeHashCache.getStatistics().getMisses());
+
+            assertTrue(actualResponse.isComplete());
+
+            for (int index = 0; index < flatMerkleTree.getNumberOfNodes(); index++)
+            {
+                assertArrayEquals(flatMerkleTree.getHash(index), actualResponse.getHash(index));
+            }
+        }
+
+        @Test
+        @DisplayName("Only the configured number of upper levels is cached")
+        void getHashes_upperLevels_works()
+        {
+            // given
+            var nodeHashCache = new NodeHashCache(1 << 20, 2);
+
+            var flatMerkleTree = createFlatMerkleTree(NUMBER_OF_LEAF_NODES);
+
+            // when
+            var actualResponse = nodeHashCache.getHashes(UUID.randomUUID(), flatMerkleTree.getRootHash(), NUMBER_OF_LEAF_NODES,
+                    createHashLoader(flatMerkleTree, new AtomicInteger()));
+
+            // then
+            assertFalse(actualResponse.isComplete());
+            assertFalse(actualResponse.contains(flatMerkleTree.getRootIndex() - 3));
+            assertTrue(actualResponse.contains(flatMerkleTree.getRootIndex() - 2));
+            assertArrayEquals(flatMerkleTree.getRootHash(), actualResponse.getHash(flatMerkleTree.getRootIndex()));
+        }
+
+        @Test
+        @DisplayName("Read with another root hash than the cached one is a miss and returns null for hashes of the old root")
+        void getHashes_otherRootHash_misses()
+        {
+            // given
+            var nodeHashCache = new NodeHashCache(1 << 20, 16);
+
+            var flatMerkleTree = createFlatMerkleTree(NUMBER_OF_LEAF_NODES);
+
+            var merkleTreeId = UUID.randomUUID();
+
+            var loads = new AtomicInteger();
+
+            nodeHashCache.getHashes(merkleTreeId, flatMerkleTree.getRootHash(), NUMBER_OF_LEAF_NODES, createHashLoader(flatMerkleTree, loads));
+
+            // when
+            var actualResponse = nodeHashCache.getHashes(merkleTreeId, createHash(0), NUMBER_OF_LEAF_NODES, createHashLoader(flatMerkleTree, loads));
+
+            // then
+            assertNull(actualResponse);
+            assertEquals(2, loads.get());
+            assertEquals(0, nodeHashCache.getStatistics().getHits());
+            assertEquals(2, nodeHashCache.getStatistics().getMisses());
+        }
+
+        @Test
+        @DisplayName("Updated hashes are read from the cache with the new root hash")
+        void getHashes_afterUpdate_works()
+        {
+            // given
+            var nodeHashCache = new NodeHashCache(1 << 20, 16);
+
+            var flatMerkleTree = createFlatMerkleTree(NUMBER_OF_LEAF_NODES);
+
+            var merkleTreeId = UUID.randomUUID();
+
+            var loads = new AtomicInteger();
+
+            nodeHashCache.getHashes(merkleTreeId, flatMerkleTree.getRootHash(), NUMBER_OF_LEAF_NODES, createHashLoader(flatMerkleTree, loads));
+
+            var updatedHashes = Map.of(3, createHash(3), flatMerkleTree.getRootIndex(), createHash(flatMerkleTree.getRootIndex()));
+
+            nodeHashCache.updateHashes(merkleTreeId, updatedHashes);
+
+            // when
+            var actualResponse = nodeHashCache.getHashes(merkleTreeId, updatedHashes.get(flatMerkleTree.getRootIndex()), NUMBER_OF_LEAF_NODES,
+                    createHashLoader(flatMerkleTree, loads));
+
+            // then
+            assertEquals(1, loads.get());
+            assertArrayEquals(updatedHashes.get(3), actualResponse.getHash(3));
+            assertArrayEquals(flatMerkleTree.getHash(2), actualResponse.getHash(2));
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for the bound of the cache")
+    class Eviction
+    {
+        @Test
+        @DisplayName("Least recently used Merkle Tree is evicted once the cached bytes exceed the maximum")
+        void getHashes_eviction_works()
+        {
+            // given
+            var nodeHashCache = new NodeHashCache(2 * ENTRY_SIZE, 16);
+
+            var flatMerkleTrees = new ArrayList<FlatMerkleTree>();
+
+            var merkleTreeIds = new ArrayList<UUID>();
+
+            var loads = new AtomicInteger();
+
+            for (int i = 0; i < 3; i++)
+            {
+                flatMerkleTrees.add(createFlatMerkleTree(NUMBER_OF_LEAF_NODES));
+                merkleTreeIds.add(UUID.randomUUID());
+            }
+
+            nodeHashCache.getHashes(merkleTreeIds.get(0), flatMerkleTrees.get(0).getRootHash(), NUMBER_OF_LEAF_NODES, createHashLoader(flatMerkleTrees.get(0), loads));
+            nodeHashCache.getHashes(merkleTreeIds.get(1), flatMerkleTrees.get(1).getRootHash(), NUMBER_OF_LEAF_NODES, createHashLoader(flatMerkleTrees.get(1), loads));
+
+            // The first Merkle Tree becomes the most recently used one
+            nodeHashCache.getHashes(merkleTreeIds.get(0), flatMerkleTrees.get(0).getRootHash(), NUMBER_OF_LEAF_NODES, createHashLoader(flatMerkleTrees.get(0), loads));
+
+            // when
+            nodeHashCache.getHashes(merkleTreeIds.get(2), flatMerkleTrees.get(2).getRootHash(), NUMBER_OF_LEAF_NODES, createHashLoader(flatMerkleTrees.get(2), loads));
+
+            // then
+            var statistics = nodeHashCache.getStatistics();
+
+            assertEquals(1, statistics.getEvictions());
+            assertEquals(2, statistics.getEntries());
+            assertEquals(2 * ENTRY_SIZE, statistics.getBytes());
+
+            nodeHashCache.getHashes(merkleTreeIds.get(0), flatMerkleTrees.get(0).getRootHash(), NUMBER_OF_LEAF_NODES, createHashLoader(flatMerkleTrees.get(0), loads));
+
+            assertEquals(3, loads.get());
+
+            nodeHashCache.getHashes(merkleTreeIds.get(1), flatMerkleTrees.get(1).getRootHash(), NUMBER_OF_LEAF_NODES, createHashLoader(flatMerkleTrees.get(1), loads));
+
+            assertEquals(4, loads.get());
+        }
+
+        @Test
+        @DisplayName("Merkle Tree whose cached levels exceed the maximum is not loaded and not cached")
+        void getHashes_tooLarge_works()
+        {
+            // given
+            var nodeHashCache = new NodeHashCache(ENTRY_SIZE - 1, 16);
+
+            var flatMerkleTree = createFlatMerkleTree(NUMBER_OF_LEAF_NODES);
+
+            var loads = new AtomicInteger();
+
+            // when
+            var actualResponse = nodeHashCache.getHashes(UUID.randomUUID(), flatMerkleTree.getRootHash(), NUMBER_OF_LEAF_NODES,
+                    createHashLoader(flatMerkleTree, loads));
+
+            // then
+            assertNull(actualResponse);
+            assertEquals(0, loads.get());
+            assertEquals(0, nodeHashCache.getStatistics().getEntries());
+        }
+
+        @Test
+        @DisplayName("Invalidated Merkle Tree is removed and loaded again on the next read")
+        void invalidate_works()
+        {
+            // given
+            var nodeHashCache = new NodeHashCache(1 << 20, 16);
+
+            var flatMerkleTree = createFlatMerkleTree(NUMBER_OF_LEAF_NODES);
+
+            var merkleTreeId = UUID.randomUUID();
+
+            var loads = new AtomicInteger();
+
+            nodeHashCache.getHashes(merkleTreeId, flatMerkleTree.getRootHash(), NUMBER_OF_LEAF_NODES, createHashLoader(flatMerkleTree, loads));
+
+            // when
+            nodeHashCache.invalidate(merkleTreeId);
+
+            // then
+            assertEquals(0, nodeHashCache.getStatistics().getEntries());
+            assertEquals(0, nodeHashCache.getStatistics().getBytes());
+
+            nodeHashCache.getHashes(merkleTreeId, flatMerkleTree.getRootHash(), NUMBER_OF_LEAF_NODES, createHashLoader(flatMerkleTree, loads));
+
+            assertEquals(2, loads.get());
+        }
+    }
+
+    @Nested
+    @DisplayName("Tests for the cached hashes of rolled back updates")
+    class RolledBackUpdate
+    {
+        @Autowired
+        MerkleTreeService merkleTreeService;
+
+        @Autowired
+        MerkleTreeEngines merkleTreeEngines;
+
+        @Autowired
+        NodeHashCache nodeHashCache;
+
+        @Autowired
+        TransactionTemplate transactionTemplate;
+
+        @Test
+        @DisplayName("Hashes cached by an update that is rolled back are invalidated")
+        void updateLeaf_rollback_invalidates()
+        {
+            // given
+            var leafValues = new ArrayList<String>();
+
+            var leafNodesDto = new LeafNodesDto();
+
+            for (int i = 0; i < NUMBER_OF_LEAF_NODES; i++)
+            {
+                leafValues.add("leaf " + i);
+
+                leafNodesDto.putDataPointsItem(String.valueOf(i), leafValues.get(i));
+            }
+
+            var merkleTreeId = merkleTreeService.createMerkleTree(leafNodesDto);
+
+            var rootHash = merkleTreeService.getMerkleProof(merkleTreeId);
+
+            // Reading a proof caches the Merkle Tree
+            merkleTreeService.getProofOfMembership(merkleTreeId, 0, leafValues.get(0));
+
+            leafValues.set(3, "updated");
+
+            var updatedRootHash = merkleTreeEngines.getMerkleTreeEngine(null).createMerkleTree(leafValues, HashingScheme.BINARY).getRootHash();
+
+            // when
+            transactionTemplate.executeWithoutResult(status ->
+            {
+                merkleTreeService.updateLeaf(merkleTreeId, new LeafNodesDto().dataPoints(Map.of("3", "updated")));
+
+                assertNotNull(nodeHashCache.getHashes(merkleTreeId, updatedRootHash, NUMBER_OF_LEAF_NODES, firstIndex -> Map.of()));
+
+                status.setRollbackOnly();
+            });
+
+            // then
+            var loads = new AtomicInteger();
+
+            assertNull(nodeHashCache.getHashes(merkleTreeId, updatedRootHash, NUMBER_OF_LEAF_NODES, firstIndex ->
+            {
+                loads.incrementAndGet();
+
+                return Map.of();
+            }));
+            assertEquals(1, loads.get());
+
+            assertArrayEquals(rootHash, merkleTreeService.getMerkleProof(merkleTreeId));
+        }
+    }
+}
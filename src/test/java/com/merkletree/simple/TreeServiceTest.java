@@ -0,0 +1,53 @@
+package com.merkletree.simple;
+
+import com.merkletree.hash.HashService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@DisplayName("Tests for the simple Merkle Tree Service")
+class TreeServiceTest
+{
+    @Autowired
+    TreeService treeService;
+
+    @Autowired
+    LeafRepository leafRepository;
+
+    @Autowired
+    HashService hashService;
+
+    @Test
+    @DisplayName("Simple Merkle Tree saves its eight leafs and its root hash is calculated from them")
+    void createSimpleMerkleTree_works()
+    {
+        // given
+        var numberOfLeafs = leafRepository.count();
+
+        // The hashes are calculated in the iteration order of the map, so the leafs are sorted by their index
+        var leafs = new TreeMap<Integer, String>();
+
+        var leafValues = List.of("zero", "one", "two", "three", "four", "five", "six", "seven");
+
+        for (int i = 0; i < leafValues.size(); i++)
+        {
+            leafs.put(i, leafValues.get(i));
+        }
+
+        var expectedResponse = hashService.calculateMerkleProof(leafs);
+
+        // when
+        treeService.createSimpleMerkleTree();
+
+        // then
+        assertEquals(numberOfLeafs + 8, leafRepository.count());
+        assertEquals(expectedResponse, treeService.getMerkleProof());
+    }
+}
@@ -0,0 +1,96 @@
+package com.merkletree.sparse.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.merkletree.engine.FlatMerkleTree;
+import com.merkletree.engine.MerkleTreeEngines;
+import com.merkletree.hash.HashServices;
+import com.merkletree.hash.HashingScheme;
+import com.merkletree.model.LeafNodesDto;
+import com.merkletree.model.NonMembershipProofDto;
+import org.bouncycastle.util.encoders.Hex;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@DisplayName("Tests for the Sparse Controller")
+class SparseControllerTest
+{
+    static final int NUMBER_OF_LEAF_NODES = 16;
+
+    @Autowired
+    MockMvc mockMvc;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    MerkleTreeEngines merkleTreeEngines;
+
+    @Autowired
+    HashServices hashServices;
+
+    UUID createSparseMerkleTree(Map<String, String> dataPoints) throws Exception
+    {
+        var leafNodesDto = new LeafNodesDto().size(NUMBER_OF_LEAF_NODES).dataPoints(dataPoints);
+
+        var content = mockMvc.perform(post("/sparse-merkle-tree").contentType(MediaType.APPLICATION_JSON).content(objectMapper.writeValueAsString(leafNodesDto)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        return objectMapper.readValue(content, UUID.class);
+    }
+
+    @Nested
+    @DisplayName("Tests for the non-membership endpoint")
+    class GetProofOfNonMembership
+    {
+        @Test
+        @DisplayName("Proof of non-membership response marks the empty siblings and contains the hashes of the populated ones")
+        void getProofOfNonMembership_works() throws Exception
+        {
+            // given
+            var merkleTreeId = createSparseMerkleTree(Map.of("3", "third", "12", "twelfth"));
+
+            var hashService = hashServices.getHashService(null);
+
+            var hashes = merkleTreeEngines.getMerkleTreeEngine(null).createSparseMerkleTree(NUMBER_OF_LEAF_NODES,
+                    Map.of(3, hashService.hashLeaf("third"), 12, hashService.hashLeaf("twelfth")), HashingScheme.BINARY);
+
+            // The siblings of leaf 5 on level 0 and 1 are empty, the ones on level 2 and 3 contain leaf 3 and 12
+            var levelTwoSibling = FlatMerkleTree.getLevelStartIndex(NUMBER_OF_LEAF_NODES, 2);
+
+            var levelThreeSibling = FlatMerkleTree.getLevelStartIndex(NUMBER_OF_LEAF_NODES, 3) + 1;
+
+            var expectedProofHashes = List.of(Hex.toHexString(hashes.get(levelTwoSibling)), Hex.toHexString(hashes.get(levelThreeSibling)));
+
+            // when
+            var actualResponse = mockMvc.perform(get("/sparse-merkle-tree/{merkleTreeId}/non-membership", merkleTreeId)
+                    .param("leafIndex", "5"));
+
+            // then
+            var nonMembershipProofDto = objectMapper.readValue(actualResponse.andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString(), NonMembershipProofDto.class);
+
+            assertEquals(NUMBER_OF_LEAF_NODES, nonMembershipProofDto.getNumberOfLeafNodes());
+            assertEquals(5, nonMembershipProofDto.getLeafIndex());
+            assertEquals("03", nonMembershipProofDto.getDefaultHashes());
+            assertEquals(expectedProofHashes, nonMembershipProofDto.getProofHashes());
+        }
+    }
+}